@@ -4,7 +4,6 @@ import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -25,6 +24,7 @@ import br.com.khawantech.files.assinatura.dto.WebhookAssinaturaEvent;
 import br.com.khawantech.files.assinatura.dto.WebhookResponse;
 import br.com.khawantech.files.assinatura.service.AssinaturaService;
 import br.com.khawantech.files.transferencia.config.RabbitConfig;
+import br.com.khawantech.files.transferencia.service.PublicadorEventosService;
 import br.com.khawantech.files.user.entity.User;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -38,7 +38,7 @@ public class AssinaturaController {
 
     private final AssinaturaService assinaturaService;
     private final WooviProperties properties;
-    private final RabbitTemplate rabbitTemplate;
+    private final PublicadorEventosService publicadorEventosService;
 
     @GetMapping("/planos")
     @PreAuthorize("!hasRole('GUEST')")
@@ -79,13 +79,15 @@ public class AssinaturaController {
                 .receivedAt(Instant.now())
                 .build();
 
-            rabbitTemplate.convertAndSend(
+            // Confirmado pelo broker antes do 200: sem isso a Woovi não reenvia um webhook que se perdeu aqui
+            publicadorEventosService.publicarConfirmado(
                 RabbitConfig.EXCHANGE_TRANSFERENCIA,
                 RabbitConfig.ROUTING_KEY_ASSINATURA_WEBHOOK,
                 event
             );
         } catch (Exception e) {
             log.error("Erro ao processar webhook da Woovi", e);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(new WebhookResponse(false));
         }
 
         return ResponseEntity.ok(new WebhookResponse(true));
@@ -54,7 +54,9 @@ public class SecurityConfig {
         "/ws/**",
         "/api/assinaturas/webhook",
         "/api/files/d/**",    // Download com token temporário
-        "/api/files/p/**"     // Preview com token temporário
+        "/api/files/p/**",    // Preview com token temporário
+        "/api/files/v/**",    // Variantes de preview com token reutilizável
+        "/api/files/h/**"     // Playlists e segmentos HLS com token reutilizável
     };
 
     private static final String AUTH_ERROR_ATTR = "mt_auth_error";
@@ -0,0 +1,64 @@
+package br.com.khawantech.files.transferencia.config;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractMessageConverter;
+import org.springframework.amqp.support.converter.DefaultJackson2JavaTypeMapper;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.io.IOException;
+
+/**
+ * Conversor binário dos eventos (CBOR) com os mesmos cabeçalhos de tipo do conversor JSON. Fica registrado
+ * por content-type ao lado do JSON, então instâncias que ainda publicam JSON continuam sendo lidas.
+ */
+public class CborMessageConverter extends AbstractMessageConverter {
+
+    public static final String CONTENT_TYPE = "application/cbor";
+    // Só os eventos da aplicação: o cabeçalho de tipo vem da mensagem e não pode escolher qualquer classe do classpath
+    public static final String PACOTE_CONFIAVEL = "br.com.khawantech.files";
+
+    private final ObjectMapper cborMapper;
+    private final DefaultJackson2JavaTypeMapper typeMapper = new DefaultJackson2JavaTypeMapper();
+
+    public CborMessageConverter() {
+        this.cborMapper = CBORMapper.builder()
+            .addModule(new JavaTimeModule())
+            .build();
+        this.typeMapper.setTrustedPackages(PACOTE_CONFIAVEL);
+    }
+
+    @Override
+    protected Message createMessage(Object object, MessageProperties messageProperties) {
+        byte[] body;
+        try {
+            body = cborMapper.writeValueAsBytes(object);
+        } catch (IOException e) {
+            throw new MessageConversionException("Falha ao serializar evento em CBOR", e);
+        }
+        messageProperties.setContentType(CONTENT_TYPE);
+        messageProperties.setContentLength(body.length);
+        typeMapper.fromJavaType(cborMapper.constructType(object.getClass()), messageProperties);
+        return new Message(body, messageProperties);
+    }
+
+    @Override
+    public Object fromMessage(Message message) {
+        JavaType tipo;
+        try {
+            tipo = typeMapper.toJavaType(message.getMessageProperties());
+        } catch (IllegalArgumentException e) {
+            throw new MessageConversionException("Tipo de evento CBOR não permitido", e);
+        }
+        try {
+            return cborMapper.readValue(message.getBody(), tipo);
+        } catch (IOException e) {
+            throw new MessageConversionException("Falha ao desserializar evento CBOR", e);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package br.com.khawantech.files.transferencia.config;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+
+/**
+ * O plugin STOMP do RabbitMQ não aceita "/" no nome depois do prefixo (/topic/sessao/{id}/chat), então no modo
+ * relay os destinos são traduzidos para a forma com pontos (/topic/sessao.{id}.chat) antes de chegar ao broker.
+ * Clientes continuam assinando os destinos originais: a entrega é feita pelo id da assinatura.
+ */
+public class DestinoRelayStompInterceptor implements ChannelInterceptor {
+
+    private static final String[] PREFIXOS = { "/topic/", "/queue/" };
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+        String destino = accessor.getDestination();
+        String traduzido = traduzir(destino);
+        if (traduzido == null || traduzido.equals(destino)) {
+            return message;
+        }
+        accessor.setDestination(traduzido);
+        return MessageBuilder.createMessage(message.getPayload(), accessor.getMessageHeaders());
+    }
+
+    static String traduzir(String destino) {
+        if (destino == null) {
+            return null;
+        }
+        for (String prefixo : PREFIXOS) {
+            if (destino.startsWith(prefixo)) {
+                return prefixo + destino.substring(prefixo.length()).replace('/', '.');
+            }
+        }
+        return destino;
+    }
+}
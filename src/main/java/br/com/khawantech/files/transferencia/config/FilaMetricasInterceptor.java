@@ -0,0 +1,76 @@
+package br.com.khawantech.files.transferencia.config;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.stereotype.Component;
+
+import br.com.khawantech.files.transferencia.service.PrioridadeFilaService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+
+@Component
+@RequiredArgsConstructor
+public class FilaMetricasInterceptor implements MethodInterceptor {
+
+    public static final String METRICA_TEMPO_RESULTADO = "transferencia.fila.tempo.resultado";
+
+    private final MeterRegistry meterRegistry;
+
+    // Mensagens entregues e ainda em processamento neste nó, por fila: o broker só informa as prontas
+    private final Map<String, AtomicInteger> emExecucao = new ConcurrentHashMap<>();
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Object[] argumentos = invocation.getArguments();
+        Message message = argumentos.length > 1 && argumentos[1] instanceof Message m ? m : null;
+        AtomicInteger contador = message != null && message.getMessageProperties().getConsumerQueue() != null
+            ? emExecucao.computeIfAbsent(message.getMessageProperties().getConsumerQueue(), fila -> new AtomicInteger())
+            : null;
+        if (contador != null) {
+            contador.incrementAndGet();
+        }
+
+        try {
+            return invocation.proceed();
+        } finally {
+            if (contador != null) {
+                contador.decrementAndGet();
+            }
+            if (message != null) {
+                registrar(message.getMessageProperties());
+            }
+        }
+    }
+
+    public int emExecucao(String fila) {
+        AtomicInteger contador = emExecucao.get(fila);
+        return contador != null ? contador.get() : 0;
+    }
+
+    private void registrar(MessageProperties messageProperties) {
+        Date publicadoEm = messageProperties.getTimestamp();
+        if (publicadoEm == null) {
+            return;
+        }
+
+        Object tipoUsuario = messageProperties.getHeader(PrioridadeFilaService.HEADER_TIPO_USUARIO);
+        String fila = messageProperties.getConsumerQueue();
+
+        Timer.builder(METRICA_TEMPO_RESULTADO)
+            .tag("fila", fila != null ? fila : "desconhecida")
+            .tag("tipoUsuario", tipoUsuario != null ? tipoUsuario.toString() : "DESCONHECIDO")
+            .publishPercentiles(0.5, 0.95)
+            .register(meterRegistry)
+            .record(Duration.between(publicadoEm.toInstant(), Instant.now()));
+    }
+}
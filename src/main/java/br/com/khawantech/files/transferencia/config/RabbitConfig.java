@@ -1,16 +1,24 @@
 package br.com.khawantech.files.transferencia.config;
 
+import org.aopalliance.aop.Advice;
+import org.springframework.amqp.core.AnonymousQueue;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarables;
 import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.FanoutExchange;
+import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.QueueBuilder;
 import org.springframework.amqp.rabbit.config.RetryInterceptorBuilder;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.rabbit.retry.RejectAndDontRequeueRecoverer;
+import org.springframework.amqp.support.converter.ContentTypeDelegatingMessageConverter;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.retry.backoff.ExponentialBackOffPolicy;
@@ -27,16 +35,22 @@ public class RabbitConfig {
 
     public static final String EXCHANGE_TRANSFERENCIA = "transferencia.exchange";
     public static final String EXCHANGE_DLQ = "transferencia.dlq.exchange";
+    public static final String EXCHANGE_CANCELAMENTO = "transferencia.cancelamento.exchange";
+    public static final String EXCHANGE_PROGRESSO_UPLOAD = "transferencia.progresso.upload.exchange";
     
-    public static final String QUEUE_CHUNK_PROCESSADO = "transferencia.chunk.processado";
     public static final String QUEUE_ARQUIVO_COMPLETO = "transferencia.arquivo.completo";
     public static final String QUEUE_SESSAO_ATUALIZADA = "transferencia.sessao.atualizada";
-    public static final String QUEUE_IMAGE_CONVERSION = "transferencia.image.conversion";
-    public static final String QUEUE_VIDEO_CONVERSION = "transferencia.video.conversion";
-    public static final String QUEUE_AUDIO_CONVERSION = "transferencia.audio.conversion";
-    public static final String QUEUE_IMAGE_OPTIMIZATION = "transferencia.image.optimization";
-    public static final String QUEUE_VIDEO_OPTIMIZATION = "transferencia.video.optimization";
-    public static final String QUEUE_ARQUIVO_SECURITY = "transferencia.arquivo.security";
+    public static final String QUEUE_IMAGE_CONVERSION = "transferencia.image.conversion.prioridade";
+    public static final String QUEUE_VIDEO_CONVERSION = "transferencia.video.conversion.prioridade";
+    public static final String QUEUE_AUDIO_CONVERSION = "transferencia.audio.conversion.prioridade";
+    public static final String QUEUE_IMAGE_OPTIMIZATION = "transferencia.image.optimization.prioridade";
+    public static final String QUEUE_VIDEO_OPTIMIZATION = "transferencia.video.optimization.prioridade";
+    public static final String QUEUE_VIDEO_SEGMENTO = "transferencia.video.segmento";
+    public static final String QUEUE_ARQUIVO_SECURITY = "transferencia.arquivo.security.prioridade";
+    public static final String QUEUE_ARQUIVO_PREVIEW = "transferencia.arquivo.preview";
+    public static final String QUEUE_VIDEO_STREAMING = "transferencia.video.streaming";
+    public static final String QUEUE_CONVERSAO_ESPECULATIVA = "transferencia.conversao.especulativa";
+    public static final String QUEUE_CONVERSAO_ESPECULATIVA_IMAGEM = "transferencia.conversao.especulativa.imagem";
     public static final String QUEUE_ASSINATURA_WEBHOOK = "assinatura.webhook";
     
     public static final String QUEUE_CHUNK_DLQ = "transferencia.chunk.dlq";
@@ -47,18 +61,26 @@ public class RabbitConfig {
     public static final String QUEUE_AUDIO_CONVERSION_DLQ = "transferencia.audio.conversion.dlq";
     public static final String QUEUE_IMAGE_OPTIMIZATION_DLQ = "transferencia.image.optimization.dlq";
     public static final String QUEUE_VIDEO_OPTIMIZATION_DLQ = "transferencia.video.optimization.dlq";
+    public static final String QUEUE_VIDEO_SEGMENTO_DLQ = "transferencia.video.segmento.dlq";
     public static final String QUEUE_ARQUIVO_SECURITY_DLQ = "transferencia.arquivo.security.dlq";
+    public static final String QUEUE_ARQUIVO_PREVIEW_DLQ = "transferencia.arquivo.preview.dlq";
+    public static final String QUEUE_VIDEO_STREAMING_DLQ = "transferencia.video.streaming.dlq";
+    public static final String QUEUE_CONVERSAO_ESPECULATIVA_DLQ = "transferencia.conversao.especulativa.dlq";
     public static final String QUEUE_ASSINATURA_WEBHOOK_DLQ = "assinatura.webhook.dlq";
 
-    public static final String ROUTING_KEY_CHUNK = "chunk.processado";
     public static final String ROUTING_KEY_ARQUIVO = "arquivo.completo";
     public static final String ROUTING_KEY_SESSAO = "sessao.atualizada";
-    public static final String ROUTING_KEY_IMAGE_CONVERSION = "image.conversion";
-    public static final String ROUTING_KEY_VIDEO_CONVERSION = "video.conversion";
-    public static final String ROUTING_KEY_AUDIO_CONVERSION = "audio.conversion";
-    public static final String ROUTING_KEY_IMAGE_OPTIMIZATION = "image.optimization";
-    public static final String ROUTING_KEY_VIDEO_OPTIMIZATION = "video.optimization";
-    public static final String ROUTING_KEY_ARQUIVO_SECURITY = "arquivo.security";
+    public static final String ROUTING_KEY_IMAGE_CONVERSION = "image.conversion.prioridade";
+    public static final String ROUTING_KEY_VIDEO_CONVERSION = "video.conversion.prioridade";
+    public static final String ROUTING_KEY_AUDIO_CONVERSION = "audio.conversion.prioridade";
+    public static final String ROUTING_KEY_IMAGE_OPTIMIZATION = "image.optimization.prioridade";
+    public static final String ROUTING_KEY_VIDEO_OPTIMIZATION = "video.optimization.prioridade";
+    public static final String ROUTING_KEY_VIDEO_SEGMENTO = "video.segmento";
+    public static final String ROUTING_KEY_ARQUIVO_SECURITY = "arquivo.security.prioridade";
+    public static final String ROUTING_KEY_ARQUIVO_PREVIEW = "arquivo.preview";
+    public static final String ROUTING_KEY_VIDEO_STREAMING = "video.streaming";
+    public static final String ROUTING_KEY_CONVERSAO_ESPECULATIVA = "conversao.especulativa";
+    public static final String ROUTING_KEY_CONVERSAO_ESPECULATIVA_IMAGEM = "conversao.especulativa.imagem";
     public static final String ROUTING_KEY_ASSINATURA_WEBHOOK = "assinatura.webhook";
     
     public static final String ROUTING_KEY_CHUNK_DLQ = "chunk.dlq";
@@ -69,9 +91,38 @@ public class RabbitConfig {
     public static final String ROUTING_KEY_AUDIO_CONVERSION_DLQ = "audio.conversion.dlq";
     public static final String ROUTING_KEY_IMAGE_OPTIMIZATION_DLQ = "image.optimization.dlq";
     public static final String ROUTING_KEY_VIDEO_OPTIMIZATION_DLQ = "video.optimization.dlq";
+    public static final String ROUTING_KEY_VIDEO_SEGMENTO_DLQ = "video.segmento.dlq";
     public static final String ROUTING_KEY_ARQUIVO_SECURITY_DLQ = "arquivo.security.dlq";
+    public static final String ROUTING_KEY_ARQUIVO_PREVIEW_DLQ = "arquivo.preview.dlq";
+    public static final String ROUTING_KEY_VIDEO_STREAMING_DLQ = "video.streaming.dlq";
+    public static final String ROUTING_KEY_CONVERSAO_ESPECULATIVA_DLQ = "conversao.especulativa.dlq";
     public static final String ROUTING_KEY_ASSINATURA_WEBHOOK_DLQ = "assinatura.webhook.dlq";
 
+    // Filas declaradas antes da prioridade: o broker recusa redeclará-las com x-max-priority, então as
+    // prioritárias usam nomes e routing keys novos e estas continuam consumidas até esvaziarem
+    public static final String QUEUE_IMAGE_CONVERSION_LEGADO = "transferencia.image.conversion";
+    public static final String QUEUE_VIDEO_CONVERSION_LEGADO = "transferencia.video.conversion";
+    public static final String QUEUE_AUDIO_CONVERSION_LEGADO = "transferencia.audio.conversion";
+    public static final String QUEUE_IMAGE_OPTIMIZATION_LEGADO = "transferencia.image.optimization";
+    public static final String QUEUE_VIDEO_OPTIMIZATION_LEGADO = "transferencia.video.optimization";
+    public static final String QUEUE_ARQUIVO_SECURITY_LEGADO = "transferencia.arquivo.security";
+    public static final String ROUTING_KEY_IMAGE_CONVERSION_LEGADO = "image.conversion";
+    public static final String ROUTING_KEY_VIDEO_CONVERSION_LEGADO = "video.conversion";
+    public static final String ROUTING_KEY_AUDIO_CONVERSION_LEGADO = "audio.conversion";
+    public static final String ROUTING_KEY_IMAGE_OPTIMIZATION_LEGADO = "image.optimization";
+    public static final String ROUTING_KEY_VIDEO_OPTIMIZATION_LEGADO = "video.optimization";
+    public static final String ROUTING_KEY_ARQUIVO_SECURITY_LEGADO = "arquivo.security";
+
+    public static final int PRIORIDADE_MAXIMA = 10;
+
+    public static final String FORMATO_CBOR = "cbor";
+
+    public static final String FACTORY_NOTIFICACAO = "notificacaoListenerFactory";
+    public static final String FACTORY_SEGURANCA = "segurancaListenerFactory";
+    public static final String FACTORY_IMAGEM = "imagemListenerFactory";
+    public static final String FACTORY_VIDEO = "videoListenerFactory";
+    public static final String FACTORY_AUDIO = "audioListenerFactory";
+
     @Bean
     public DirectExchange transferenciaExchange() {
         return new DirectExchange(EXCHANGE_TRANSFERENCIA, true, false);
@@ -82,12 +133,35 @@ public class RabbitConfig {
         return new DirectExchange(EXCHANGE_DLQ, true, false);
     }
 
+    // Cancelamentos são difundidos para todas as instâncias: cada uma encerra os processos que estiver executando
     @Bean
-    public Queue chunkProcessadoQueue() {
-        return QueueBuilder.durable(QUEUE_CHUNK_PROCESSADO)
-            .withArgument("x-dead-letter-exchange", EXCHANGE_DLQ)
-            .withArgument("x-dead-letter-routing-key", ROUTING_KEY_CHUNK_DLQ)
-            .build();
+    public FanoutExchange cancelamentoExchange() {
+        return new FanoutExchange(EXCHANGE_CANCELAMENTO, true, false);
+    }
+
+    @Bean
+    public Queue cancelamentoQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding cancelamentoBinding(Queue cancelamentoQueue, FanoutExchange cancelamentoExchange) {
+        return BindingBuilder.bind(cancelamentoQueue).to(cancelamentoExchange);
+    }
+
+    @Bean
+    public FanoutExchange progressoUploadExchange() {
+        return new FanoutExchange(EXCHANGE_PROGRESSO_UPLOAD, true, false);
+    }
+
+    @Bean
+    public Queue progressoUploadQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding progressoUploadBinding(Queue progressoUploadQueue, FanoutExchange progressoUploadExchange) {
+        return BindingBuilder.bind(progressoUploadQueue).to(progressoUploadExchange);
     }
 
     @Bean
@@ -111,6 +185,7 @@ public class RabbitConfig {
         return QueueBuilder.durable(QUEUE_IMAGE_CONVERSION)
             .withArgument("x-dead-letter-exchange", EXCHANGE_DLQ)
             .withArgument("x-dead-letter-routing-key", ROUTING_KEY_IMAGE_CONVERSION_DLQ)
+            .maxPriority(PRIORIDADE_MAXIMA)
             .build();
     }
 
@@ -119,6 +194,7 @@ public class RabbitConfig {
         return QueueBuilder.durable(QUEUE_VIDEO_CONVERSION)
             .withArgument("x-dead-letter-exchange", EXCHANGE_DLQ)
             .withArgument("x-dead-letter-routing-key", ROUTING_KEY_VIDEO_CONVERSION_DLQ)
+            .maxPriority(PRIORIDADE_MAXIMA)
             .build();
     }
 
@@ -127,6 +203,7 @@ public class RabbitConfig {
         return QueueBuilder.durable(QUEUE_AUDIO_CONVERSION)
             .withArgument("x-dead-letter-exchange", EXCHANGE_DLQ)
             .withArgument("x-dead-letter-routing-key", ROUTING_KEY_AUDIO_CONVERSION_DLQ)
+            .maxPriority(PRIORIDADE_MAXIMA)
             .build();
     }
 
@@ -135,6 +212,7 @@ public class RabbitConfig {
         return QueueBuilder.durable(QUEUE_IMAGE_OPTIMIZATION)
             .withArgument("x-dead-letter-exchange", EXCHANGE_DLQ)
             .withArgument("x-dead-letter-routing-key", ROUTING_KEY_IMAGE_OPTIMIZATION_DLQ)
+            .maxPriority(PRIORIDADE_MAXIMA)
             .build();
     }
 
@@ -143,6 +221,16 @@ public class RabbitConfig {
         return QueueBuilder.durable(QUEUE_VIDEO_OPTIMIZATION)
             .withArgument("x-dead-letter-exchange", EXCHANGE_DLQ)
             .withArgument("x-dead-letter-routing-key", ROUTING_KEY_VIDEO_OPTIMIZATION_DLQ)
+            .maxPriority(PRIORIDADE_MAXIMA)
+            .build();
+    }
+
+    @Bean
+    public Queue videoSegmentoQueue() {
+        return QueueBuilder.durable(QUEUE_VIDEO_SEGMENTO)
+            .withArgument("x-dead-letter-exchange", EXCHANGE_DLQ)
+            .withArgument("x-dead-letter-routing-key", ROUTING_KEY_VIDEO_SEGMENTO_DLQ)
+            .maxPriority(PRIORIDADE_MAXIMA)
             .build();
     }
 
@@ -151,6 +239,43 @@ public class RabbitConfig {
         return QueueBuilder.durable(QUEUE_ARQUIVO_SECURITY)
             .withArgument("x-dead-letter-exchange", EXCHANGE_DLQ)
             .withArgument("x-dead-letter-routing-key", ROUTING_KEY_ARQUIVO_SECURITY_DLQ)
+            .maxPriority(PRIORIDADE_MAXIMA)
+            .build();
+    }
+
+    @Bean
+    public Queue arquivoPreviewQueue() {
+        return QueueBuilder.durable(QUEUE_ARQUIVO_PREVIEW)
+            .withArgument("x-dead-letter-exchange", EXCHANGE_DLQ)
+            .withArgument("x-dead-letter-routing-key", ROUTING_KEY_ARQUIVO_PREVIEW_DLQ)
+            .maxPriority(PRIORIDADE_MAXIMA)
+            .build();
+    }
+
+    @Bean
+    public Queue videoStreamingQueue() {
+        return QueueBuilder.durable(QUEUE_VIDEO_STREAMING)
+            .withArgument("x-dead-letter-exchange", EXCHANGE_DLQ)
+            .withArgument("x-dead-letter-routing-key", ROUTING_KEY_VIDEO_STREAMING_DLQ)
+            .maxPriority(PRIORIDADE_MAXIMA)
+            .build();
+    }
+
+    @Bean
+    public Queue conversaoEspeculativaQueue() {
+        return QueueBuilder.durable(QUEUE_CONVERSAO_ESPECULATIVA)
+            .withArgument("x-dead-letter-exchange", EXCHANGE_DLQ)
+            .withArgument("x-dead-letter-routing-key", ROUTING_KEY_CONVERSAO_ESPECULATIVA_DLQ)
+            .maxPriority(PRIORIDADE_MAXIMA)
+            .build();
+    }
+
+    @Bean
+    public Queue conversaoEspeculativaImagemQueue() {
+        return QueueBuilder.durable(QUEUE_CONVERSAO_ESPECULATIVA_IMAGEM)
+            .withArgument("x-dead-letter-exchange", EXCHANGE_DLQ)
+            .withArgument("x-dead-letter-routing-key", ROUTING_KEY_CONVERSAO_ESPECULATIVA_DLQ)
+            .maxPriority(PRIORIDADE_MAXIMA)
             .build();
     }
 
@@ -202,19 +327,61 @@ public class RabbitConfig {
         return QueueBuilder.durable(QUEUE_VIDEO_OPTIMIZATION_DLQ).build();
     }
 
+    @Bean
+    public Queue videoSegmentoDlqQueue() {
+        return QueueBuilder.durable(QUEUE_VIDEO_SEGMENTO_DLQ).build();
+    }
+
     @Bean
     public Queue arquivoSecurityDlqQueue() {
         return QueueBuilder.durable(QUEUE_ARQUIVO_SECURITY_DLQ).build();
     }
 
+    @Bean
+    public Queue arquivoPreviewDlqQueue() {
+        return QueueBuilder.durable(QUEUE_ARQUIVO_PREVIEW_DLQ).build();
+    }
+
+    @Bean
+    public Queue videoStreamingDlqQueue() {
+        return QueueBuilder.durable(QUEUE_VIDEO_STREAMING_DLQ).build();
+    }
+
+    @Bean
+    public Queue conversaoEspeculativaDlqQueue() {
+        return QueueBuilder.durable(QUEUE_CONVERSAO_ESPECULATIVA_DLQ).build();
+    }
+
     @Bean
     public Queue assinaturaWebhookDlqQueue() {
         return QueueBuilder.durable(QUEUE_ASSINATURA_WEBHOOK_DLQ).build();
     }
 
-    @Bean
-    public Binding chunkProcessadoBinding(Queue chunkProcessadoQueue, DirectExchange transferenciaExchange) {
-        return BindingBuilder.bind(chunkProcessadoQueue).to(transferenciaExchange).with(ROUTING_KEY_CHUNK);
+    // Mantém as filas e bindings anteriores à prioridade com os argumentos originais: instâncias da versão
+    // anterior seguem publicando nelas durante o deploy e os listeners as consomem junto com as novas
+    @Bean
+    public Declarables filasLegadas() {
+        return new Declarables(
+            filaLegada(QUEUE_IMAGE_CONVERSION_LEGADO, ROUTING_KEY_IMAGE_CONVERSION_DLQ),
+            filaLegada(QUEUE_VIDEO_CONVERSION_LEGADO, ROUTING_KEY_VIDEO_CONVERSION_DLQ),
+            filaLegada(QUEUE_AUDIO_CONVERSION_LEGADO, ROUTING_KEY_AUDIO_CONVERSION_DLQ),
+            filaLegada(QUEUE_IMAGE_OPTIMIZATION_LEGADO, ROUTING_KEY_IMAGE_OPTIMIZATION_DLQ),
+            filaLegada(QUEUE_VIDEO_OPTIMIZATION_LEGADO, ROUTING_KEY_VIDEO_OPTIMIZATION_DLQ),
+            filaLegada(QUEUE_ARQUIVO_SECURITY_LEGADO, ROUTING_KEY_ARQUIVO_SECURITY_DLQ),
+            new Binding(QUEUE_IMAGE_CONVERSION_LEGADO, Binding.DestinationType.QUEUE, EXCHANGE_TRANSFERENCIA, ROUTING_KEY_IMAGE_CONVERSION_LEGADO, null),
+            new Binding(QUEUE_VIDEO_CONVERSION_LEGADO, Binding.DestinationType.QUEUE, EXCHANGE_TRANSFERENCIA, ROUTING_KEY_VIDEO_CONVERSION_LEGADO, null),
+            new Binding(QUEUE_AUDIO_CONVERSION_LEGADO, Binding.DestinationType.QUEUE, EXCHANGE_TRANSFERENCIA, ROUTING_KEY_AUDIO_CONVERSION_LEGADO, null),
+            new Binding(QUEUE_IMAGE_OPTIMIZATION_LEGADO, Binding.DestinationType.QUEUE, EXCHANGE_TRANSFERENCIA, ROUTING_KEY_IMAGE_OPTIMIZATION_LEGADO, null),
+            new Binding(QUEUE_VIDEO_OPTIMIZATION_LEGADO, Binding.DestinationType.QUEUE, EXCHANGE_TRANSFERENCIA, ROUTING_KEY_VIDEO_OPTIMIZATION_LEGADO, null),
+            new Binding(QUEUE_ARQUIVO_SECURITY_LEGADO, Binding.DestinationType.QUEUE, EXCHANGE_TRANSFERENCIA, ROUTING_KEY_ARQUIVO_SECURITY_LEGADO, null)
+        );
+    }
+
+    private static Queue filaLegada(String nome, String routingKeyDlq) {
+        return QueueBuilder.durable(nome)
+            .withArgument("x-dead-letter-exchange", EXCHANGE_DLQ)
+            .withArgument("x-dead-letter-routing-key", routingKeyDlq)
+            .build();
     }
 
     @Bean
@@ -252,11 +419,36 @@ public class RabbitConfig {
         return BindingBuilder.bind(videoOptimizationQueue).to(transferenciaExchange).with(ROUTING_KEY_VIDEO_OPTIMIZATION);
     }
 
+    @Bean
+    public Binding videoSegmentoBinding(Queue videoSegmentoQueue, DirectExchange transferenciaExchange) {
+        return BindingBuilder.bind(videoSegmentoQueue).to(transferenciaExchange).with(ROUTING_KEY_VIDEO_SEGMENTO);
+    }
+
     @Bean
     public Binding arquivoSecurityBinding(Queue arquivoSecurityQueue, DirectExchange transferenciaExchange) {
         return BindingBuilder.bind(arquivoSecurityQueue).to(transferenciaExchange).with(ROUTING_KEY_ARQUIVO_SECURITY);
     }
 
+    @Bean
+    public Binding arquivoPreviewBinding(Queue arquivoPreviewQueue, DirectExchange transferenciaExchange) {
+        return BindingBuilder.bind(arquivoPreviewQueue).to(transferenciaExchange).with(ROUTING_KEY_ARQUIVO_PREVIEW);
+    }
+
+    @Bean
+    public Binding videoStreamingBinding(Queue videoStreamingQueue, DirectExchange transferenciaExchange) {
+        return BindingBuilder.bind(videoStreamingQueue).to(transferenciaExchange).with(ROUTING_KEY_VIDEO_STREAMING);
+    }
+
+    @Bean
+    public Binding conversaoEspeculativaBinding(Queue conversaoEspeculativaQueue, DirectExchange transferenciaExchange) {
+        return BindingBuilder.bind(conversaoEspeculativaQueue).to(transferenciaExchange).with(ROUTING_KEY_CONVERSAO_ESPECULATIVA);
+    }
+
+    @Bean
+    public Binding conversaoEspeculativaImagemBinding(Queue conversaoEspeculativaImagemQueue, DirectExchange transferenciaExchange) {
+        return BindingBuilder.bind(conversaoEspeculativaImagemQueue).to(transferenciaExchange).with(ROUTING_KEY_CONVERSAO_ESPECULATIVA_IMAGEM);
+    }
+
     @Bean
     public Binding assinaturaWebhookBinding(Queue assinaturaWebhookQueue, DirectExchange transferenciaExchange) {
         return BindingBuilder.bind(assinaturaWebhookQueue).to(transferenciaExchange).with(ROUTING_KEY_ASSINATURA_WEBHOOK);
@@ -302,23 +494,51 @@ public class RabbitConfig {
         return BindingBuilder.bind(videoOptimizationDlqQueue).to(dlqExchange).with(ROUTING_KEY_VIDEO_OPTIMIZATION_DLQ);
     }
 
+    @Bean
+    public Binding videoSegmentoDlqBinding(Queue videoSegmentoDlqQueue, DirectExchange dlqExchange) {
+        return BindingBuilder.bind(videoSegmentoDlqQueue).to(dlqExchange).with(ROUTING_KEY_VIDEO_SEGMENTO_DLQ);
+    }
+
     @Bean
     public Binding arquivoSecurityDlqBinding(Queue arquivoSecurityDlqQueue, DirectExchange dlqExchange) {
         return BindingBuilder.bind(arquivoSecurityDlqQueue).to(dlqExchange).with(ROUTING_KEY_ARQUIVO_SECURITY_DLQ);
     }
 
+    @Bean
+    public Binding arquivoPreviewDlqBinding(Queue arquivoPreviewDlqQueue, DirectExchange dlqExchange) {
+        return BindingBuilder.bind(arquivoPreviewDlqQueue).to(dlqExchange).with(ROUTING_KEY_ARQUIVO_PREVIEW_DLQ);
+    }
+
+    @Bean
+    public Binding videoStreamingDlqBinding(Queue videoStreamingDlqQueue, DirectExchange dlqExchange) {
+        return BindingBuilder.bind(videoStreamingDlqQueue).to(dlqExchange).with(ROUTING_KEY_VIDEO_STREAMING_DLQ);
+    }
+
+    @Bean
+    public Binding conversaoEspeculativaDlqBinding(Queue conversaoEspeculativaDlqQueue, DirectExchange dlqExchange) {
+        return BindingBuilder.bind(conversaoEspeculativaDlqQueue).to(dlqExchange).with(ROUTING_KEY_CONVERSAO_ESPECULATIVA_DLQ);
+    }
+
     @Bean
     public Binding assinaturaWebhookDlqBinding(Queue assinaturaWebhookDlqQueue, DirectExchange dlqExchange) {
         return BindingBuilder.bind(assinaturaWebhookDlqQueue).to(dlqExchange).with(ROUTING_KEY_ASSINATURA_WEBHOOK_DLQ);
     }
 
     @Bean
-    public MessageConverter jsonMessageConverter() {
+    public MessageConverter messageConverter(TransferenciaProperties properties) {
         ObjectMapper objectMapper = new ObjectMapper();
         objectMapper.registerModule(new JavaTimeModule());
         objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-        
-        return new Jackson2JsonMessageConverter(objectMapper);
+
+        Jackson2JsonMessageConverter jsonConverter = new Jackson2JsonMessageConverter(objectMapper);
+        CborMessageConverter cborConverter = new CborMessageConverter();
+
+        // Publica no formato configurado e lê qualquer um dos dois pelo content-type, para rollout gradual
+        MessageConverter padrao = FORMATO_CBOR.equalsIgnoreCase(properties.getPublicacao().getFormato()) ? cborConverter : jsonConverter;
+        ContentTypeDelegatingMessageConverter converter = new ContentTypeDelegatingMessageConverter(padrao);
+        converter.addDelegate(MessageProperties.CONTENT_TYPE_JSON, jsonConverter);
+        converter.addDelegate(CborMessageConverter.CONTENT_TYPE, cborConverter);
+        return converter;
     }
 
     @Bean
@@ -347,10 +567,77 @@ public class RabbitConfig {
             .build();
     }
 
+    @Bean(FACTORY_NOTIFICACAO)
+    public SimpleRabbitListenerContainerFactory notificacaoListenerFactory(SimpleRabbitListenerContainerFactoryConfigurer configurer,
+                                                                          ConnectionFactory connectionFactory,
+                                                                          TransferenciaProperties properties) {
+        return criarListenerFactory(configurer, connectionFactory, properties.getConsumidores().getNotificacao(), null);
+    }
+
+    @Bean(FACTORY_SEGURANCA)
+    public SimpleRabbitListenerContainerFactory segurancaListenerFactory(SimpleRabbitListenerContainerFactoryConfigurer configurer,
+                                                                        ConnectionFactory connectionFactory,
+                                                                        TransferenciaProperties properties,
+                                                                        FilaMetricasInterceptor filaMetricasInterceptor) {
+        return criarListenerFactory(configurer, connectionFactory, properties.getConsumidores().getSeguranca(), filaMetricasInterceptor);
+    }
+
+    @Bean(FACTORY_IMAGEM)
+    public SimpleRabbitListenerContainerFactory imagemListenerFactory(SimpleRabbitListenerContainerFactoryConfigurer configurer,
+                                                                     ConnectionFactory connectionFactory,
+                                                                     TransferenciaProperties properties,
+                                                                     FilaMetricasInterceptor filaMetricasInterceptor) {
+        return criarListenerFactory(configurer, connectionFactory, properties.getConsumidores().getImagem(), filaMetricasInterceptor);
+    }
+
+    @Bean(FACTORY_VIDEO)
+    public SimpleRabbitListenerContainerFactory videoListenerFactory(SimpleRabbitListenerContainerFactoryConfigurer configurer,
+                                                                    ConnectionFactory connectionFactory,
+                                                                    TransferenciaProperties properties,
+                                                                    FilaMetricasInterceptor filaMetricasInterceptor) {
+        return criarListenerFactory(configurer, connectionFactory, properties.getConsumidores().getVideo(), filaMetricasInterceptor);
+    }
+
+    @Bean(FACTORY_AUDIO)
+    public SimpleRabbitListenerContainerFactory audioListenerFactory(SimpleRabbitListenerContainerFactoryConfigurer configurer,
+                                                                    ConnectionFactory connectionFactory,
+                                                                    TransferenciaProperties properties,
+                                                                    FilaMetricasInterceptor filaMetricasInterceptor) {
+        return criarListenerFactory(configurer, connectionFactory, properties.getConsumidores().getAudio(), filaMetricasInterceptor);
+    }
+
+    static SimpleRabbitListenerContainerFactory criarListenerFactory(SimpleRabbitListenerContainerFactoryConfigurer configurer,
+                                                                             ConnectionFactory connectionFactory,
+                                                                             TransferenciaProperties.CargaConsumidor carga,
+                                                                             FilaMetricasInterceptor filaMetricasInterceptor) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+
+        if (filaMetricasInterceptor != null) {
+            Advice[] existentes = factory.getAdviceChain();
+            Advice[] adviceChain = new Advice[existentes != null ? existentes.length + 1 : 1];
+            adviceChain[0] = filaMetricasInterceptor;
+            if (existentes != null) {
+                System.arraycopy(existentes, 0, adviceChain, 1, existentes.length);
+            }
+            factory.setAdviceChain(adviceChain);
+        }
+
+        int min = Math.max(1, carga.getMinConsumidores());
+        factory.setConcurrentConsumers(min);
+        factory.setMaxConcurrentConsumers(Math.max(min, carga.getMaxConsumidores()));
+        factory.setPrefetchCount(Math.max(1, carga.getPrefetch()));
+        factory.setConsecutiveActiveTrigger(3);
+        factory.setConsecutiveIdleTrigger(3);
+        factory.setStartConsumerMinInterval(5000L);
+        factory.setStopConsumerMinInterval(30000L);
+        return factory;
+    }
+
     @Bean
-    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory, MessageConverter jsonMessageConverter, RetryTemplate retryTemplate) {
+    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory, MessageConverter messageConverter, RetryTemplate retryTemplate) {
         RabbitTemplate template = new RabbitTemplate(connectionFactory);
-        template.setMessageConverter(jsonMessageConverter);
+        template.setMessageConverter(messageConverter);
         template.setRetryTemplate(retryTemplate);
         return template;
     }
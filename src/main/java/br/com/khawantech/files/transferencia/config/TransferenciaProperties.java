@@ -1,7 +1,9 @@
 package br.com.khawantech.files.transferencia.config;
 
 import br.com.khawantech.files.user.entity.UserType;
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
@@ -13,10 +15,24 @@ public class TransferenciaProperties {
     private double cacheTtlHoras = 3;
     private int chunkSizeMb = 5;
     private String minioBucket = "transferencias";
+    private boolean validarHashConteudo = true;
+    private long analiseCacheTtlHoras = 168;
+    private long conversaoCacheTtlHoras = 72;
+    private long progressoIntervaloMs = 1000;
     
     private GuestLimits guest = new GuestLimits();
     private FreeLimits free = new FreeLimits();
     private PremiumLimits premium = new PremiumLimits();
+    private Consumidores consumidores = new Consumidores();
+    private Prioridade prioridade = new Prioridade();
+    private Segmentacao segmentacao = new Segmentacao();
+    private Streaming streaming = new Streaming();
+    private Especulacao especulacao = new Especulacao();
+    private Orcamento orcamento = new Orcamento();
+    private ProgressoUpload progressoUpload = new ProgressoUpload();
+    private Publicacao publicacao = new Publicacao();
+    private RelayStomp relayStomp = new RelayStomp();
+    private NotificacaoLote notificacaoLote = new NotificacaoLote();
 
     @Data
     public static class GuestLimits {
@@ -42,6 +58,119 @@ public class TransferenciaProperties {
         private int maxParticipantes = 10;
     }
 
+    @Data
+    public static class Consumidores {
+        private static final int NUCLEOS = Runtime.getRuntime().availableProcessors();
+
+        private CargaConsumidor notificacao = new CargaConsumidor(2, Math.max(4, NUCLEOS * 2), 50);
+        private CargaConsumidor seguranca = new CargaConsumidor(1, Math.max(2, NUCLEOS), 2);
+        private CargaConsumidor imagem = new CargaConsumidor(1, Math.max(1, NUCLEOS / 2), 1);
+        private CargaConsumidor video = new CargaConsumidor(1, Math.max(1, NUCLEOS / 4), 1);
+        private CargaConsumidor audio = new CargaConsumidor(1, Math.max(1, NUCLEOS / 2), 1);
+        private double cargaMaximaPorNucleo = 1.0;
+        private long intervaloAjusteMs = 15000;
+    }
+
+    @Data
+    public static class Prioridade {
+        private int premium = 8;
+        private int free = 4;
+        private int guest = 1;
+        private int premiumPorJanela = 20;
+        private int freePorJanela = 60;
+        private long janelaSegundos = 60;
+    }
+
+    @Data
+    public static class Segmentacao {
+        private boolean habilitada = false;
+        private long duracaoMinimaSegundos = 600;
+        private long duracaoSegmentoSegundos = 60;
+    }
+
+    @Data
+    public static class Streaming {
+        private int duracaoSegmentoSegundos = 4;
+        private int alturaMaxima = 1080;
+        // Empacotamento em PROCESSANDO há mais tempo que isso é considerado perdido e pode ser reenfileirado
+        private long prazoProcessamentoMinutos = 120;
+    }
+
+    @Data
+    public static class Especulacao {
+        private boolean habilitada = false;
+        private long amostrasMinimas = 20;
+        private double fracaoMinima = 0.4;
+        private int maxPendentes = 10;
+        private long historicoDias = 30;
+    }
+
+    @Data
+    public static class Orcamento {
+        private boolean habilitado = true;
+        private LimiteOrcamento guest = new LimiteOrcamento(900, 7200);
+        private LimiteOrcamento free = new LimiteOrcamento(3600, 21600);
+        private LimiteOrcamento premium = new LimiteOrcamento(21600, 172800);
+        private double pesoCalibracao = 0.2;
+
+        public LimiteOrcamento doTipo(UserType userType) {
+            return switch (userType) {
+                case GUEST -> guest;
+                case FREE -> free;
+                case PREMIUM -> premium;
+            };
+        }
+    }
+
+    @Data
+    public static class ProgressoUpload {
+        private int atualizacoesPorSegundo = 2;
+        private boolean distribuido = false;
+    }
+
+    @Data
+    public static class Publicacao {
+        private int tamanhoLote = 50;
+        private long janelaMs = 5;
+        private int capacidade = 10000;
+        private int maxTentativas = 5;
+        private long timeoutConfirmacaoMs = 30000;
+        private String formato = "json";
+    }
+
+    @Data
+    public static class RelayStomp {
+        private boolean habilitado = false;
+        private String host = "localhost";
+        private int porta = 61613;
+        private String login = "guest";
+        private String senha = "guest";
+        private String virtualHost = "/";
+    }
+
+    @Data
+    public static class NotificacaoLote {
+        private boolean habilitado = false;
+        private long tickMs = 100;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LimiteOrcamento {
+        private long porUsuarioSegundos;
+        private long porTipoSegundos;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CargaConsumidor {
+        private int minConsumidores;
+        private int maxConsumidores;
+        private int prefetch;
+    }
+
     public UserLimits getLimitsForUserType(UserType userType) {
         return switch (userType) {
             case GUEST -> new UserLimits(
@@ -18,20 +18,44 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     private final WebSocketAuthInterceptor webSocketAuthInterceptor;
     private final WebSocketChannelInterceptor webSocketChannelInterceptor;
+    private final TransferenciaProperties properties;
     
     @Value("${app.frontend-url}")
     private String frontendUrl;
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic", "/queue");
+        if (properties.getRelayStomp().isHabilitado()) {
+            configurarRelay(config, properties.getRelayStomp());
+        } else {
+            config.enableSimpleBroker("/topic", "/queue");
+        }
         config.setApplicationDestinationPrefixes("/app");
         config.setUserDestinationPrefix("/user");
     }
 
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
-        registration.interceptors(webSocketChannelInterceptor);
+        if (properties.getRelayStomp().isHabilitado()) {
+            registration.interceptors(webSocketChannelInterceptor, new DestinoRelayStompInterceptor());
+        } else {
+            registration.interceptors(webSocketChannelInterceptor);
+        }
+    }
+
+    // Com várias instâncias da API, o broker STOMP do RabbitMQ entrega a cada cliente as mensagens publicadas em qualquer nó
+    static void configurarRelay(MessageBrokerRegistry config, TransferenciaProperties.RelayStomp relay) {
+        config.enableStompBrokerRelay("/topic", "/queue")
+            .setRelayHost(relay.getHost())
+            .setRelayPort(relay.getPorta())
+            .setClientLogin(relay.getLogin())
+            .setClientPasscode(relay.getSenha())
+            .setSystemLogin(relay.getLogin())
+            .setSystemPasscode(relay.getSenha())
+            .setVirtualHost(relay.getVirtualHost())
+            .setUserDestinationBroadcast("/topic/unresolved-user")
+            .setUserRegistryBroadcast("/topic/registry");
+        config.configureBrokerChannel().interceptors(new DestinoRelayStompInterceptor());
     }
 
     @Override
@@ -0,0 +1,54 @@
+package br.com.khawantech.files.transferencia.controller;
+
+import br.com.khawantech.files.transferencia.dto.ConversaoLoteRequest;
+import br.com.khawantech.files.transferencia.service.ConversionFacadeService;
+import br.com.khawantech.files.user.entity.User;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/transferencia/arquivo")
+@RequiredArgsConstructor
+public class ConversionController {
+
+    private final ConversionFacadeService conversionFacadeService;
+
+    @PostMapping("/{arquivoId}/converter-lote")
+    public ResponseEntity<Map<String, String>> converterArquivoLote(
+            @PathVariable String arquivoId,
+            @Valid @RequestBody ConversaoLoteRequest request,
+            @AuthenticationPrincipal User user) {
+
+        log.info("REST: Usuário {} solicitando conversão em lote do arquivo {} para {} alvos",
+            user.getId(), arquivoId, request.getAlvos().size());
+
+        conversionFacadeService.converterArquivoLote(arquivoId, request.getAlvos(), user);
+
+        return ResponseEntity.accepted()
+            .body(Map.of("message", "Conversão em lote iniciada com sucesso"));
+    }
+
+    @PostMapping("/{arquivoId}/cancelar-conversao")
+    public ResponseEntity<Map<String, String>> cancelarConversao(
+            @PathVariable String arquivoId,
+            @AuthenticationPrincipal User user) {
+
+        log.info("REST: Usuário {} cancelando conversões do arquivo {}", user.getId(), arquivoId);
+
+        conversionFacadeService.cancelarConversoes(arquivoId, user);
+
+        return ResponseEntity.accepted()
+            .body(Map.of("message", "Cancelamento solicitado"));
+    }
+}
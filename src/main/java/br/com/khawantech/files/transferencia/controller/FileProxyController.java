@@ -3,6 +3,7 @@ package br.com.khawantech.files.transferencia.controller;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.Locale;
+import java.util.Optional;
 import java.util.Set;
 
 import org.springframework.core.io.InputStreamResource;
@@ -13,16 +14,23 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import br.com.khawantech.files.transferencia.dto.VariantePreview;
 import br.com.khawantech.files.transferencia.entity.Arquivo;
 import br.com.khawantech.files.transferencia.entity.Sessao;
 import br.com.khawantech.files.transferencia.entity.StatusArquivo;
+import br.com.khawantech.files.transferencia.entity.StatusStreaming;
+import br.com.khawantech.files.transferencia.exception.ConversaoNaoSuportadaException;
+import br.com.khawantech.files.transferencia.exception.OrcamentoConversaoExcedidoException;
 import br.com.khawantech.files.transferencia.service.ArquivoService;
 import br.com.khawantech.files.transferencia.service.DownloadTokenService;
 import br.com.khawantech.files.transferencia.service.MinioService;
+import br.com.khawantech.files.transferencia.service.PreviewService;
 import br.com.khawantech.files.transferencia.service.SessaoService;
+import br.com.khawantech.files.transferencia.service.StreamingService;
 import br.com.khawantech.files.user.entity.User;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -51,6 +59,8 @@ public class FileProxyController {
     private final SessaoService sessaoService;
     private final MinioService minioService;
     private final DownloadTokenService downloadTokenService;
+    private final PreviewService previewService;
+    private final StreamingService streamingService;
 
     @GetMapping("/download/{arquivoId}")
     public ResponseEntity<TokenResponse> gerarTokenDownload(
@@ -205,6 +215,151 @@ public class FileProxyController {
         }
     }
 
+    @GetMapping("/preview/{arquivoId}")
+    public ResponseEntity<TokenResponse> gerarTokenPreview(
+            @PathVariable String arquivoId,
+            @AuthenticationPrincipal User user) {
+
+        try {
+            Arquivo arquivo = arquivoService.buscarArquivoPorId(arquivoId);
+            Sessao sessao = sessaoService.buscarPorId(arquivo.getSessaoId());
+            sessaoService.validarUsuarioPertenceASessao(sessao, user.getId());
+
+            boolean temPreviews = arquivo.getPreviews() != null && !arquivo.getPreviews().isEmpty();
+            if (!temPreviews && !StatusStreaming.DISPONIVEL.equals(arquivo.getStatusStreaming())) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            }
+
+            String token = downloadTokenService.gerarTokenPreview(arquivoId, user.getId());
+
+            return ResponseEntity.ok(new TokenResponse(token));
+
+        } catch (Exception e) {
+            log.error("Erro ao gerar token de preview: {}", arquivoId, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @GetMapping("/v/{token}/{variante}")
+    public ResponseEntity<InputStreamResource> varianteComToken(
+            @PathVariable String token,
+            @PathVariable String variante) {
+
+        try {
+            Optional<VariantePreview> tipoPreview = VariantePreview.fromApiValue(variante);
+            if (tipoPreview.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            }
+            VariantePreview tipo = tipoPreview.get();
+
+            String[] tokenData = downloadTokenService.validarTokenPreview(token);
+            if (tokenData == null) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            }
+
+            Arquivo arquivo = arquivoService.buscarArquivoPorId(tokenData[0]);
+            Sessao sessao = sessaoService.buscarPorId(arquivo.getSessaoId());
+            sessaoService.validarUsuarioPertenceASessao(sessao, tokenData[1]);
+
+            Optional<MinioService.ArquivoData> preview = previewService.obterPreview(arquivo, tipo);
+            if (preview.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            }
+            MinioService.ArquivoData arquivoData = preview.get();
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(safeParseMediaType(arquivoData.contentType()));
+            headers.setContentLength(arquivoData.size());
+            headers.set("X-Content-Type-Options", "nosniff");
+            headers.set("Content-Security-Policy",
+                "default-src 'none'; base-uri 'none'; form-action 'none'; frame-ancestors 'none'; sandbox");
+
+            // A variante nunca muda para o mesmo token, então o navegador pode reaproveitá-la até o token expirar
+            headers.setCacheControl("private, max-age=" + DownloadTokenService.PREVIEW_TOKEN_EXPIRATION_HOURS * 3600 + ", immutable");
+
+            if (tipo == VariantePreview.SPRITE) {
+                headers.set("X-Sprite-Colunas", String.valueOf(PreviewService.SPRITE_COLUNAS));
+                headers.set("X-Sprite-Linhas", String.valueOf(PreviewService.SPRITE_LINHAS));
+                Double intervalo = previewService.intervaloSpriteSegundos(arquivo);
+                if (intervalo != null) {
+                    headers.set("X-Sprite-Intervalo", String.format(Locale.ROOT, "%.3f", intervalo));
+                }
+            }
+
+            return ResponseEntity.ok()
+                .headers(headers)
+                .body(new InputStreamResource(arquivoData.inputStream()));
+
+        } catch (Exception e) {
+            log.error("Erro ao servir variante de preview", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @PostMapping("/streaming/{arquivoId}")
+    public ResponseEntity<StreamingResponse> solicitarStreaming(
+            @PathVariable String arquivoId,
+            @AuthenticationPrincipal User user) {
+
+        try {
+            Arquivo arquivo = arquivoService.buscarArquivoPorId(arquivoId);
+            Sessao sessao = sessaoService.buscarPorId(arquivo.getSessaoId());
+            sessaoService.validarUsuarioPertenceASessao(sessao, user.getId());
+
+            StatusStreaming status = streamingService.solicitar(arquivo, user);
+
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(new StreamingResponse(status));
+
+        } catch (ConversaoNaoSuportadaException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (OrcamentoConversaoExcedidoException e) {
+            // 429 com Retry-After montado pelo TransferenciaExceptionHandler
+            throw e;
+        } catch (Exception e) {
+            log.error("Erro ao solicitar streaming: {}", arquivoId, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @GetMapping({"/h/{token}/{nome}", "/h/{token}/{rendicao}/{nome}"})
+    public ResponseEntity<InputStreamResource> streamingComToken(
+            @PathVariable String token,
+            @PathVariable(required = false) String rendicao,
+            @PathVariable String nome) {
+
+        try {
+            String[] tokenData = downloadTokenService.validarTokenPreview(token);
+            if (tokenData == null) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            }
+
+            Arquivo arquivo = arquivoService.buscarArquivoPorId(tokenData[0]);
+            Sessao sessao = sessaoService.buscarPorId(arquivo.getSessaoId());
+            sessaoService.validarUsuarioPertenceASessao(sessao, tokenData[1]);
+
+            Optional<MinioService.ArquivoData> recurso = streamingService.obterRecurso(arquivo, rendicao, nome);
+            if (recurso.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            }
+            MinioService.ArquivoData arquivoData = recurso.get();
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(safeParseMediaType(StreamingService.contentType(nome)));
+            headers.setContentLength(arquivoData.size());
+            headers.set("X-Content-Type-Options", "nosniff");
+            // Playlists VOD e segmentos não mudam depois de publicados
+            headers.setCacheControl("private, max-age=" + DownloadTokenService.PREVIEW_TOKEN_EXPIRATION_HOURS * 3600 + ", immutable");
+
+            return ResponseEntity.ok()
+                .headers(headers)
+                .body(new InputStreamResource(arquivoData.inputStream()));
+
+        } catch (Exception e) {
+            log.error("Erro ao servir recurso de streaming", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     private static String normalizeMime(String mime) {
         if (mime == null || mime.isBlank()) {
             return "application/octet-stream";
@@ -221,4 +376,6 @@ public class FileProxyController {
     }
 
     public record TokenResponse(String token) {}
+
+    public record StreamingResponse(StatusStreaming status) {}
 }
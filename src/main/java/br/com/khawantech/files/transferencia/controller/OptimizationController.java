@@ -35,7 +35,8 @@ public class OptimizationController {
         log.info("REST: Usuário {} solicitando otimização do arquivo {} (nivel {})",
             user.getId(), arquivoId, request.getNivel());
 
-        optimizationFacadeService.otimizarArquivo(arquivoId, request.getNivel(), user);
+        optimizationFacadeService.otimizarArquivo(arquivoId, request.getNivel(),
+            Boolean.TRUE.equals(request.getPermitirFormatoAlternativo()), user);
 
         return ResponseEntity.accepted()
             .body(Map.of("message", "Otimização iniciada com sucesso"));
@@ -0,0 +1,21 @@
+package br.com.khawantech.files.transferencia.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlvoConversaoVideo implements Serializable {
+
+    @NotBlank(message = "Formato de destino é obrigatório")
+    private String formato;
+
+    private Integer nivel;
+}
@@ -0,0 +1,23 @@
+package br.com.khawantech.files.transferencia.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnaliseArquivoCache implements Serializable {
+
+    private int versaoAnalisador;
+    private String tipoMimeDetectado;
+    private Map<String, String> metadadosTika;
+    private Map<String, String> metadadosTecnicos;
+    private Instant analisadoEm;
+}
@@ -0,0 +1,18 @@
+package br.com.khawantech.files.transferencia.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArquivoPreviewEvent implements Serializable {
+
+    private String arquivoId;
+    private String sessaoId;
+}
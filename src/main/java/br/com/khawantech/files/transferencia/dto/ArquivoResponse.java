@@ -1,12 +1,14 @@
 package br.com.khawantech.files.transferencia.dto;
 
 import br.com.khawantech.files.transferencia.entity.StatusArquivo;
+import br.com.khawantech.files.transferencia.entity.StatusStreaming;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.Instant;
+import java.util.List;
 
 @Data
 @Builder
@@ -33,4 +35,6 @@ public class ArquivoResponse {
     private String tag;
     private Integer otimizacaoNivel;
     private Long tamanhoOriginalBytes;
+    private List<String> previews;
+    private StatusStreaming statusStreaming;
 }
@@ -0,0 +1,19 @@
+package br.com.khawantech.files.transferencia.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CancelamentoConversaoEvent implements Serializable {
+
+    private String sessaoId;
+    private List<String> arquivoIds;
+}
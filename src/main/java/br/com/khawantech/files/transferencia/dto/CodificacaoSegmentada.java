@@ -0,0 +1,34 @@
+package br.com.khawantech.files.transferencia.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CodificacaoSegmentada implements Serializable {
+
+    private String arquivoId;
+    private String arquivoOriginalId;
+    private String sessaoId;
+    private String caminhoOriginal;
+    private String extensaoOriginal;
+    private String caminhoDestino;
+    private String chaveCache;
+    private String operacao;
+    private String formato;
+    private String extensao;
+    private String contentType;
+    private List<String> argumentosVideo;
+    private List<String> argumentosAudio;
+    private List<String> argumentosContainer;
+    private int totalSegmentos;
+    private Instant criadoEm;
+}
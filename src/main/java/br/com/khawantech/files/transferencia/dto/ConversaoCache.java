@@ -6,19 +6,17 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.io.Serializable;
+import java.time.Instant;
 
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-public class ChunkRecebidoEvent implements Serializable {
+public class ConversaoCache implements Serializable {
 
-    private String arquivoId;
-    private String sessaoId;
-    private int numeroChunk;
-    private int totalChunks;
-    private String hashChunk;
     private String caminhoMinio;
     private long tamanhoBytes;
-    private String usuarioId;
+    private Instant criadoEm;
+    private boolean especulativa;
+    private double segundosProcessamento;
 }
@@ -0,0 +1,19 @@
+package br.com.khawantech.files.transferencia.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversaoEspeculativaEvent implements Serializable {
+
+    private String arquivoId;
+    private String sessaoId;
+    private String formatoDestino;
+}
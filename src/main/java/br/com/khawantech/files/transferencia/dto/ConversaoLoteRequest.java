@@ -0,0 +1,22 @@
+package br.com.khawantech.files.transferencia.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversaoLoteRequest {
+
+    @NotEmpty(message = "Informe ao menos um formato de destino")
+    @Size(max = 5, message = "Máximo de 5 formatos por lote")
+    private List<@Valid AlvoConversaoVideo> alvos;
+}
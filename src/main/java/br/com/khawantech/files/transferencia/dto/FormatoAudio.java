@@ -1,33 +1,39 @@
 package br.com.khawantech.files.transferencia.dto;
 
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.Set;
 
 public enum FormatoAudio {
-    MP3("audio/mpeg", "mp3", "libmp3lame"),
-    WAV("audio/wav", "wav", "pcm_s16le"),
-    AAC("audio/aac", "aac", "aac"),
-    M4A("audio/mp4", "m4a", "aac"),
-    OGG("audio/ogg", "ogg", "libvorbis"),
-    FLAC("audio/flac", "flac", "flac"),
-    OPUS("audio/opus", "opus", "libopus"),
-    WEBM("audio/webm", "webm", "libopus"),
-    AIFF("audio/aiff", "aiff", "pcm_s16be"),
-    AIF("audio/x-aiff", "aif", "pcm_s16be"),
-    ALAC("audio/alac", "m4a", "alac"),
-    WMA("audio/x-ms-wma", "wma", "wmav2"),
-    AMR("audio/amr", "amr", "libopencore_amrnb"),
-    AU("audio/basic", "au", "pcm_s16be"),
-    SND("audio/x-au", "snd", "pcm_s16be");
+    MP3("audio/mpeg", "mp3", "libmp3lame", "mp3", "mp3"),
+    WAV("audio/wav", "wav", "pcm_s16le", "wav", "pcm_s16le"),
+    AAC("audio/aac", "aac", "aac", "adts", "aac"),
+    M4A("audio/mp4", "m4a", "aac", "ipod", "aac"),
+    OGG("audio/ogg", "ogg", "libvorbis", "ogg", "vorbis", "opus"),
+    FLAC("audio/flac", "flac", "flac", "flac", "flac"),
+    OPUS("audio/opus", "opus", "libopus", "opus", "opus"),
+    WEBM("audio/webm", "webm", "libopus", "webm", "opus", "vorbis"),
+    AIFF("audio/aiff", "aiff", "pcm_s16be", "aiff", "pcm_s16be"),
+    AIF("audio/x-aiff", "aif", "pcm_s16be", "aiff", "pcm_s16be"),
+    ALAC("audio/alac", "m4a", "alac", "ipod", "alac"),
+    WMA("audio/x-ms-wma", "wma", "wmav2", "asf", "wmav2"),
+    AMR("audio/amr", "amr", "libopencore_amrnb", "amr", "amr_nb"),
+    AU("audio/basic", "au", "pcm_s16be", "au", "pcm_s16be"),
+    SND("audio/x-au", "snd", "pcm_s16be", "au", "pcm_s16be");
 
     private final String mimeType;
     private final String extension;
     private final String ffmpegCodec;
+    private final String ffmpegFormat;
+    private final Set<String> codecsCopia;
 
-    FormatoAudio(String mimeType, String extension, String ffmpegCodec) {
+    FormatoAudio(String mimeType, String extension, String ffmpegCodec, String ffmpegFormat, String... codecsCopia) {
         this.mimeType = mimeType;
         this.extension = extension;
         this.ffmpegCodec = ffmpegCodec;
+        this.ffmpegFormat = ffmpegFormat;
+        this.codecsCopia = Set.of(codecsCopia);
     }
 
     public String getMimeType() {
@@ -42,6 +48,14 @@ public enum FormatoAudio {
         return ffmpegCodec;
     }
 
+    public String getFfmpegFormat() {
+        return ffmpegFormat;
+    }
+
+    public boolean aceitaCopia(String codec) {
+        return codec != null && codecsCopia.contains(codec.strip().toLowerCase(Locale.ROOT));
+    }
+
     public static Optional<FormatoAudio> fromApiValue(String value) {
         if (value == null || value.isBlank()) {
             return Optional.empty();
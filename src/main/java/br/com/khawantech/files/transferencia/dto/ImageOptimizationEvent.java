@@ -16,5 +16,6 @@ public class ImageOptimizationEvent implements Serializable {
     private String arquivoId;
     private String sessaoId;
     private Integer nivel;
+    private Boolean permitirFormatoAlternativo;
     private String solicitanteId;
 }
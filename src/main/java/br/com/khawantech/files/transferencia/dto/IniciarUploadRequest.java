@@ -38,6 +38,9 @@ public class IniciarUploadRequest {
     @NotBlank(message = "Hash do conteúdo é obrigatório")
     private String hashConteudo;
 
+    @Pattern(regexp = "^(?i)sha-?256$", message = "Algoritmo de hash não suportado (use SHA-256)")
+    private String algoritmoHash;
+
     @NotBlank(message = "ID da sessão é obrigatório")
     private String sessaoId;
 }
@@ -0,0 +1,22 @@
+package br.com.khawantech.files.transferencia.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificacaoLoteResponse {
+
+    private String sessaoId;
+    private List<Evento> eventos;
+    private Instant timestamp;
+
+    public record Evento(String destino, Object dados) {}
+}
@@ -38,6 +38,11 @@ public class NotificacaoResponse {
         ARQUIVO_BLOQUEADO,
         ARQUIVO_PROCESSANDO,
         ARQUIVO_CONVERTIDO,
-        ARQUIVO_OTIMIZADO
+        ARQUIVO_OTIMIZADO,
+        OTIMIZACAO_SEM_GANHO,
+        ARQUIVO_PREVIEW_DISPONIVEL,
+        ARQUIVO_STREAMING_DISPONIVEL,
+        CONVERSAO_CANCELADA,
+        CONVERSAO_ERRO
     }
 }
@@ -14,4 +14,6 @@ public class OtimizacaoRequest {
 
     @NotNull
     private Integer nivel;
+
+    private Boolean permitirFormatoAlternativo;
 }
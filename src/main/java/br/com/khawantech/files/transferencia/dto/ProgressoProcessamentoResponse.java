@@ -0,0 +1,22 @@
+package br.com.khawantech.files.transferencia.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProgressoProcessamentoResponse {
+
+    private String arquivoId;
+    private String sessaoId;
+    private String operacao;
+    private Double porcentagem;
+    private Double fps;
+    private Double velocidade;
+    private Long etaSegundos;
+    private boolean concluido;
+}
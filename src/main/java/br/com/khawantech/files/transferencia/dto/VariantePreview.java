@@ -0,0 +1,25 @@
+package br.com.khawantech.files.transferencia.dto;
+
+import java.util.Locale;
+import java.util.Optional;
+
+public enum VariantePreview {
+    THUMBNAIL,
+    POSTER,
+    SPRITE;
+
+    public String apiValue() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public static Optional<VariantePreview> fromApiValue(String value) {
+        if (value == null || value.isBlank()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(VariantePreview.valueOf(value.strip().toUpperCase(Locale.ROOT)));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.io.Serializable;
+import java.util.List;
 
 @Data
 @Builder
@@ -17,4 +18,5 @@ public class VideoConversionEvent implements Serializable {
     private String sessaoId;
     private String formatoDestino;
     private String solicitanteId;
+    private List<AlvoConversaoVideo> alvos;
 }
@@ -0,0 +1,20 @@
+package br.com.khawantech.files.transferencia.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class VideoSegmentoEvent implements Serializable {
+
+    private String arquivoId;
+    private String sessaoId;
+    private int indice;
+    private int totalSegmentos;
+}
@@ -45,6 +45,10 @@ public class Arquivo implements Serializable {
 
     private String hashConteudo;
 
+    private String hashConteudoVerificado;
+
+    private String algoritmoHash;
+
     private long tamanhoBytes;
 
     private String tipoMime;
@@ -57,6 +61,14 @@ public class Arquivo implements Serializable {
 
     private Map<String, String> metadadosTecnicos;
 
+    private Map<String, String> previews;
+
+    private StatusStreaming statusStreaming;
+
+    private Instant streamingIniciadoEm;
+
+    private String caminhoStreaming;
+
     private String caminhoMinio;
 
     @Indexed
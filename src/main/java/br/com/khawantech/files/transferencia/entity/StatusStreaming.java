@@ -0,0 +1,7 @@
+package br.com.khawantech.files.transferencia.entity;
+
+public enum StatusStreaming {
+    PROCESSANDO,
+    DISPONIVEL,
+    ERRO
+}
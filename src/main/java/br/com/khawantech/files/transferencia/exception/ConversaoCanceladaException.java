@@ -0,0 +1,8 @@
+package br.com.khawantech.files.transferencia.exception;
+
+public class ConversaoCanceladaException extends RuntimeException {
+
+    public ConversaoCanceladaException(String message) {
+        super(message);
+    }
+}
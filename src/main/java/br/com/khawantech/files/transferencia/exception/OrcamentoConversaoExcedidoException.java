@@ -0,0 +1,15 @@
+package br.com.khawantech.files.transferencia.exception;
+
+public class OrcamentoConversaoExcedidoException extends RuntimeException {
+
+    private final Long etaSegundos;
+
+    public OrcamentoConversaoExcedidoException(String message, Long etaSegundos) {
+        super(message);
+        this.etaSegundos = etaSegundos;
+    }
+
+    public Long getEtaSegundos() {
+        return etaSegundos;
+    }
+}
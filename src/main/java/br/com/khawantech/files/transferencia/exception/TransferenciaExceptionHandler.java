@@ -5,6 +5,7 @@ import br.com.khawantech.files.auth.exception.AuthenticationException;
 import lombok.Builder;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -128,6 +129,22 @@ public class TransferenciaExceptionHandler {
         return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(error);
     }
 
+    @ExceptionHandler(OrcamentoConversaoExcedidoException.class)
+    public ResponseEntity<ErrorResponse> handleOrcamentoConversaoExcedido(OrcamentoConversaoExcedidoException ex) {
+        log.warn("Orçamento de conversão excedido: {}", ex.getMessage());
+        ErrorResponse error = ErrorResponse.builder()
+            .status(HttpStatus.TOO_MANY_REQUESTS.value())
+            .error("Too Many Requests")
+            .message(ex.getMessage())
+            .timestamp(Instant.now())
+            .build();
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS);
+        if (ex.getEtaSegundos() != null) {
+            response.header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getEtaSegundos()));
+        }
+        return response.body(error);
+    }
+
     @ExceptionHandler(RecursoNaoEncontradoException.class)
     public ResponseEntity<ErrorResponse> handleRecursoNaoEncontrado(RecursoNaoEncontradoException ex) {
         log.warn("Recurso não encontrado: {}", ex.getMessage());
@@ -6,9 +6,13 @@ import org.springframework.stereotype.Component;
 
 import br.com.khawantech.files.transferencia.config.RabbitConfig;
 import br.com.khawantech.files.transferencia.dto.ArquivoCompletoEvent;
+import br.com.khawantech.files.transferencia.dto.ArquivoPreviewEvent;
 import br.com.khawantech.files.transferencia.repository.ArquivoRepository;
+import br.com.khawantech.files.transferencia.service.ConversaoEspeculativaService;
 import br.com.khawantech.files.transferencia.service.DownloadTokenService;
 import br.com.khawantech.files.transferencia.service.ConversionFacadeService;
+import br.com.khawantech.files.transferencia.service.PreviewService;
+import br.com.khawantech.files.transferencia.service.PublicadorEventosService;
 import br.com.khawantech.files.transferencia.service.WebSocketNotificationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -22,11 +26,14 @@ public class ArquivoCompletoListener {
     private final DownloadTokenService downloadTokenService;
     private final ConversionFacadeService conversionFacadeService;
     private final ArquivoRepository arquivoRepository;
+    private final PreviewService previewService;
+    private final PublicadorEventosService publicadorEventosService;
+    private final ConversaoEspeculativaService conversaoEspeculativaService;
 
     @Value("${app.base-url}")
     private String baseUrl;
 
-    @RabbitListener(queues = RabbitConfig.QUEUE_ARQUIVO_COMPLETO)
+    @RabbitListener(queues = RabbitConfig.QUEUE_ARQUIVO_COMPLETO, containerFactory = RabbitConfig.FACTORY_NOTIFICACAO)
     public void handleArquivoCompleto(ArquivoCompletoEvent event) {
         log.info("Arquivo completo recebido: {} - {}", event.getArquivoId(), event.getNomeOriginal());
 
@@ -46,6 +53,12 @@ public class ArquivoCompletoListener {
 
             log.info("Notificação de arquivo disponível enviada: {}", event.getArquivoId());
 
+            agendarPreview(event);
+
+            if (conversivel) {
+                conversaoEspeculativaService.agendar(event);
+            }
+
         } catch (Exception e) {
             log.error("Erro ao processar evento de arquivo completo: {}", e.getMessage());
             notificationService.notificarErroUpload(
@@ -56,6 +69,24 @@ public class ArquivoCompletoListener {
         }
     }
 
+    private void agendarPreview(ArquivoCompletoEvent event) {
+        if (!previewService.suportaPreview(event.getTipoMime())) {
+            return;
+        }
+        try {
+            publicadorEventosService.publicar(
+                RabbitConfig.EXCHANGE_TRANSFERENCIA,
+                RabbitConfig.ROUTING_KEY_ARQUIVO_PREVIEW,
+                ArquivoPreviewEvent.builder()
+                    .arquivoId(event.getArquivoId())
+                    .sessaoId(event.getSessaoId())
+                    .build()
+            );
+        } catch (Exception e) {
+            log.warn("Erro ao agendar preview do arquivo {}: {}", event.getArquivoId(), e.getMessage());
+        }
+    }
+
     private boolean detectarImagemConversivel(ArquivoCompletoEvent event) {
         try {
             if (conversionFacadeService.isConversivel(event.getTipoMime())) {
@@ -0,0 +1,23 @@
+package br.com.khawantech.files.transferencia.listener;
+
+import br.com.khawantech.files.transferencia.config.RabbitConfig;
+import br.com.khawantech.files.transferencia.dto.ArquivoPreviewEvent;
+import br.com.khawantech.files.transferencia.service.PreviewService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ArquivoPreviewListener {
+
+    private final PreviewService previewService;
+
+    @RabbitListener(queues = RabbitConfig.QUEUE_ARQUIVO_PREVIEW, containerFactory = RabbitConfig.FACTORY_IMAGEM)
+    public void onArquivoPreview(ArquivoPreviewEvent event) {
+        log.info("Evento de preview recebido: {}", event);
+        previewService.gerarPreviews(event.getArquivoId());
+    }
+}
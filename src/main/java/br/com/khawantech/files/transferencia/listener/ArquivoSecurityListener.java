@@ -2,12 +2,16 @@ package br.com.khawantech.files.transferencia.listener;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import br.com.khawantech.files.transferencia.config.RabbitConfig;
+import br.com.khawantech.files.transferencia.config.TransferenciaProperties;
+import br.com.khawantech.files.transferencia.dto.AnaliseArquivoCache;
 import br.com.khawantech.files.transferencia.dto.ArquivoCompletoEvent;
 import br.com.khawantech.files.transferencia.dto.ArquivoSecurityEvent;
 import br.com.khawantech.files.transferencia.entity.Arquivo;
@@ -15,17 +19,18 @@ import br.com.khawantech.files.transferencia.entity.ChunkArquivo;
 import br.com.khawantech.files.transferencia.entity.StatusArquivo;
 import br.com.khawantech.files.transferencia.repository.ArquivoRepository;
 import br.com.khawantech.files.transferencia.repository.ChunkArquivoRepository;
+import br.com.khawantech.files.transferencia.service.AnaliseCacheRedisService;
+import br.com.khawantech.files.transferencia.service.ArquivoPipelineService;
 import br.com.khawantech.files.transferencia.service.ArquivoRedisService;
 import br.com.khawantech.files.transferencia.service.ArquivoSecurityPolicyService;
-import br.com.khawantech.files.transferencia.service.MediaMetadataService;
 import br.com.khawantech.files.transferencia.service.MinioService;
 import br.com.khawantech.files.transferencia.service.ProgressoUploadRedisService;
+import br.com.khawantech.files.transferencia.service.PublicadorEventosService;
 import br.com.khawantech.files.transferencia.service.SessaoService;
 import br.com.khawantech.files.transferencia.service.TikaFileAnalysisService;
 import br.com.khawantech.files.transferencia.service.WebSocketNotificationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 
 @Slf4j
 @Component
@@ -43,10 +48,12 @@ public class ArquivoSecurityListener {
     private final ArquivoRedisService arquivoRedisService;
     private final ProgressoUploadRedisService progressoRedisService;
     private final SessaoService sessaoService;
-    private final MediaMetadataService mediaMetadataService;
-    private final RabbitTemplate rabbitTemplate;
+    private final ArquivoPipelineService arquivoPipelineService;
+    private final TransferenciaProperties properties;
+    private final AnaliseCacheRedisService analiseCacheService;
+    private final PublicadorEventosService publicadorEventosService;
 
-    @RabbitListener(queues = RabbitConfig.QUEUE_ARQUIVO_SECURITY)
+    @RabbitListener(queues = { RabbitConfig.QUEUE_ARQUIVO_SECURITY, RabbitConfig.QUEUE_ARQUIVO_SECURITY_LEGADO }, containerFactory = RabbitConfig.FACTORY_SEGURANCA)
     @Transactional
     public void handleArquivoSecurity(ArquivoSecurityEvent event) {
         log.info("Análise de segurança recebida: arquivo={} sessao={}", event.getArquivoId(), event.getSessaoId());
@@ -65,36 +72,62 @@ public class ArquivoSecurityListener {
         }
 
         try {
-            byte[] prefixo = minioService.lerPrefixoDeChunks(arquivo.getSessaoId(), arquivo.getId(), arquivo.getTotalChunks(), MAX_PREFIX_BYTES);
-            TikaFileAnalysisService.AnaliseTikaResponse analise = tikaFileAnalysisService.analisar(prefixo);
+            // O hash informado só é comparável ao calculado quando o cliente declara que é SHA-256 do conteúdo completo
+            boolean hashSha256Declarado = properties.isValidarHashConteudo() && declarouSha256(arquivo);
+            Optional<AnaliseArquivoCache> analiseCache = hashSha256Declarado
+                ? analiseCacheService.buscar(arquivo.getHashConteudo())
+                : Optional.empty();
+
+            byte[] prefixo;
+            String tipoMimeDetectado;
+            Map<String, String> metadadosTika;
+            if (analiseCache.isPresent()) {
+                prefixo = new byte[0];
+                tipoMimeDetectado = analiseCache.get().getTipoMimeDetectado();
+                metadadosTika = analiseCache.get().getMetadadosTika();
+                log.info("Análise reaproveitada do cache: arquivo={}", arquivo.getId());
+            } else {
+                prefixo = minioService.lerPrefixoDeChunks(arquivo.getSessaoId(), arquivo.getId(), arquivo.getTotalChunks(), MAX_PREFIX_BYTES);
+                TikaFileAnalysisService.AnaliseTikaResponse analise = tikaFileAnalysisService.analisar(prefixo);
+                tipoMimeDetectado = analise.tipoMimeDetectado();
+                metadadosTika = analise.metadados();
+            }
 
-            arquivo.setTipoMimeDetectado(analise.tipoMimeDetectado());
-            arquivo.setMetadadosTika(analise.metadados());
+            arquivo.setTipoMimeDetectado(tipoMimeDetectado);
+            arquivo.setMetadadosTika(metadadosTika);
 
-            ArquivoSecurityPolicyService.Decision decision = securityPolicyService.avaliar(arquivo.getTipoMimeInformado(), analise.tipoMimeDetectado(), analise.metadados());
+            ArquivoSecurityPolicyService.Decision decision = securityPolicyService.avaliar(arquivo.getTipoMimeInformado(), tipoMimeDetectado, metadadosTika);
             if (!decision.permitido()) {
                 bloquearArquivo(arquivo, decision.motivo());
                 return;
             }
 
-            String caminhoFinal = minioService.mergeChunks(
-                arquivo.getSessaoId(),
-                arquivo.getId(),
-                arquivo.getNomeOriginal(),
-                arquivo.getTotalChunks(),
-                analise.tipoMimeDetectado()
-            );
+            ArquivoPipelineService.ResultadoPipeline resultado = arquivoPipelineService.processar(
+                arquivo, chunks, prefixo, tipoMimeDetectado, analiseCache.isEmpty());
+            String caminhoFinal = resultado.caminhoMinio();
 
-            MediaMetadataService.MediaMetadataResult metadadosCompletos = mediaMetadataService.extrair(caminhoFinal, analise.tipoMimeDetectado());
-            if (!metadadosCompletos.metadadosTika().isEmpty()) {
-                arquivo.setMetadadosTika(metadadosCompletos.metadadosTika());
+            arquivo.setHashConteudoVerificado(resultado.hashCalculado());
+            if (!resultado.metadadosTika().isEmpty()) {
+                arquivo.setMetadadosTika(resultado.metadadosTika());
+            }
+            if (!resultado.metadadosTecnicos().isEmpty()) {
+                arquivo.setMetadadosTecnicos(resultado.metadadosTecnicos());
             }
-            if (!metadadosCompletos.metadadosTecnicos().isEmpty()) {
-                arquivo.setMetadadosTecnicos(metadadosCompletos.metadadosTecnicos());
+            analiseCache.ifPresent(analise -> arquivo.setMetadadosTecnicos(analise.getMetadadosTecnicos()));
+
+            if (hashSha256Declarado && !resultado.hashConfere()) {
+                log.warn("Hash do conteúdo divergente: arquivo={} informado={} calculado={}",
+                    arquivo.getId(), arquivo.getHashConteudo(), resultado.hashCalculado());
+                rejeitarHashDivergente(arquivo, caminhoFinal);
+                return;
+            }
+
+            if (analiseCache.isEmpty() && resultado.hashConfere()) {
+                analiseCacheService.salvar(resultado.hashCalculado(), tipoMimeDetectado, arquivo.getMetadadosTika(), arquivo.getMetadadosTecnicos());
             }
 
             arquivo.setCaminhoMinio(caminhoFinal);
-            arquivo.setTipoMime(analise.tipoMimeDetectado());
+            arquivo.setTipoMime(tipoMimeDetectado);
             arquivo.setStatus(StatusArquivo.COMPLETO);
             arquivo.setProgressoUpload(100.0);
             arquivo.setChunksRecebidos(arquivo.getTotalChunks());
@@ -111,12 +144,12 @@ public class ArquivoSecurityListener {
                 .sessaoId(arquivo.getSessaoId())
                 .nomeOriginal(arquivo.getNomeOriginal())
                 .tamanhoBytes(arquivo.getTamanhoBytes())
-                .tipoMime(analise.tipoMimeDetectado())
+                .tipoMime(tipoMimeDetectado)
                 .caminhoMinio(caminhoFinal)
                 .remetenteId(arquivo.getRemetenteId())
                 .build();
 
-            rabbitTemplate.convertAndSend(
+            publicadorEventosService.publicar(
                 RabbitConfig.EXCHANGE_TRANSFERENCIA,
                 RabbitConfig.ROUTING_KEY_ARQUIVO,
                 completoEvent
@@ -135,6 +168,20 @@ public class ArquivoSecurityListener {
         }
     }
 
+    private void rejeitarHashDivergente(Arquivo arquivo, String caminhoFinal) {
+        minioService.deleteArquivo(caminhoFinal);
+        chunkArquivoRepository.deleteByArquivoId(arquivo.getId());
+        progressoRedisService.limparProgresso(arquivo.getId());
+
+        arquivo.setStatus(StatusArquivo.ERRO);
+        arquivo.setMensagemErro("Hash do conteúdo não confere");
+        arquivo.setAtualizadoEm(Instant.now());
+        arquivoRepository.save(arquivo);
+        arquivoRedisService.atualizarArquivo(arquivo);
+
+        notificationService.notificarErroUpload(arquivo.getSessaoId(), arquivo.getId(), "Arquivo corrompido durante o envio");
+    }
+
     private void bloquearArquivo(Arquivo arquivo, String motivo) {
         String mensagem = motivo != null && !motivo.isBlank() ? motivo : "Arquivo malicioso detectado e bloqueado";
 
@@ -155,4 +202,9 @@ public class ArquivoSecurityListener {
         notificationService.notificarArquivoBloqueado(arquivo.getSessaoId(), arquivo.getId(), mensagem);
         log.warn("Arquivo bloqueado: arquivo={} motivo={}", arquivo.getId(), mensagem);
     }
+
+    private static boolean declarouSha256(Arquivo arquivo) {
+        String algoritmo = arquivo.getAlgoritmoHash();
+        return algoritmo != null && algoritmo.replace("-", "").equalsIgnoreCase("sha256");
+    }
 }
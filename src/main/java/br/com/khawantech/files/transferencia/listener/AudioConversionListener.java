@@ -16,7 +16,7 @@ public class AudioConversionListener {
 
     private final AudioConversionService audioConversionService;
 
-    @RabbitListener(queues = RabbitConfig.QUEUE_AUDIO_CONVERSION)
+    @RabbitListener(queues = { RabbitConfig.QUEUE_AUDIO_CONVERSION, RabbitConfig.QUEUE_AUDIO_CONVERSION_LEGADO }, containerFactory = RabbitConfig.FACTORY_AUDIO)
     public void onAudioConversion(AudioConversionEvent event) {
         log.info("Evento de conversão de áudio recebido: {}", event);
 
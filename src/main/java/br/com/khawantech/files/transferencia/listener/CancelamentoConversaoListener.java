@@ -0,0 +1,25 @@
+package br.com.khawantech.files.transferencia.listener;
+
+import br.com.khawantech.files.transferencia.config.RabbitConfig;
+import br.com.khawantech.files.transferencia.dto.CancelamentoConversaoEvent;
+import br.com.khawantech.files.transferencia.service.ExecucaoConversaoRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CancelamentoConversaoListener {
+
+    private final ExecucaoConversaoRegistry execucaoConversaoRegistry;
+
+    @RabbitListener(queues = "#{cancelamentoQueue.name}", containerFactory = RabbitConfig.FACTORY_NOTIFICACAO)
+    public void onCancelamento(CancelamentoConversaoEvent event) {
+        int cancelados = execucaoConversaoRegistry.cancelar(event.getSessaoId(), event.getArquivoIds());
+        if (cancelados > 0) {
+            log.info("Cancelamento aplicado nesta instância: {} conversões ({})", cancelados, event);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package br.com.khawantech.files.transferencia.listener;
+
+import br.com.khawantech.files.transferencia.config.RabbitConfig;
+import br.com.khawantech.files.transferencia.dto.ConversaoEspeculativaEvent;
+import br.com.khawantech.files.transferencia.service.ConversaoEspeculativaService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ConversaoEspeculativaListener {
+
+    private final ConversaoEspeculativaService conversaoEspeculativaService;
+
+    // Um único consumidor por tipo: trabalho especulativo nunca ocupa mais de um worker de vídeo ou de imagem
+    @RabbitListener(queues = RabbitConfig.QUEUE_CONVERSAO_ESPECULATIVA, containerFactory = RabbitConfig.FACTORY_VIDEO, concurrency = "1")
+    public void onConversaoEspeculativa(ConversaoEspeculativaEvent event) {
+        log.info("Evento de conversão especulativa recebido: {}", event);
+        conversaoEspeculativaService.executar(event);
+    }
+
+    @RabbitListener(queues = RabbitConfig.QUEUE_CONVERSAO_ESPECULATIVA_IMAGEM, containerFactory = RabbitConfig.FACTORY_IMAGEM, concurrency = "1")
+    public void onConversaoEspeculativaImagem(ConversaoEspeculativaEvent event) {
+        log.info("Evento de conversão especulativa de imagem recebido: {}", event);
+        conversaoEspeculativaService.executar(event);
+    }
+}
@@ -17,22 +17,22 @@ import static br.com.khawantech.files.transferencia.config.RabbitConfig.*;
 @RequiredArgsConstructor
 public class DlqListener {
 
-    @RabbitListener(queues = QUEUE_CHUNK_DLQ)
+    @RabbitListener(queues = QUEUE_CHUNK_DLQ, containerFactory = FACTORY_NOTIFICACAO)
     public void handleChunkDlqMessage(Message message) {
         logDlqMessage("CHUNK", message);
     }
 
-    @RabbitListener(queues = QUEUE_ARQUIVO_DLQ)
+    @RabbitListener(queues = QUEUE_ARQUIVO_DLQ, containerFactory = FACTORY_NOTIFICACAO)
     public void handleArquivoDlqMessage(Message message) {
         logDlqMessage("ARQUIVO", message);
     }
 
-    @RabbitListener(queues = QUEUE_SESSAO_DLQ)
+    @RabbitListener(queues = QUEUE_SESSAO_DLQ, containerFactory = FACTORY_NOTIFICACAO)
     public void handleSessaoDlqMessage(Message message) {
         logDlqMessage("SESSAO", message);
     }
 
-    @RabbitListener(queues = QUEUE_ASSINATURA_WEBHOOK_DLQ)
+    @RabbitListener(queues = QUEUE_ASSINATURA_WEBHOOK_DLQ, containerFactory = FACTORY_NOTIFICACAO)
     public void handleAssinaturaWebhookDlqMessage(Message message) {
         logDlqMessage("ASSINATURA_WEBHOOK", message);
     }
@@ -16,7 +16,7 @@ public class ImageConversionListener {
 
     private final ImageConversionService imageConversionService;
 
-    @RabbitListener(queues = RabbitConfig.QUEUE_IMAGE_CONVERSION)
+    @RabbitListener(queues = { RabbitConfig.QUEUE_IMAGE_CONVERSION, RabbitConfig.QUEUE_IMAGE_CONVERSION_LEGADO }, containerFactory = RabbitConfig.FACTORY_IMAGEM)
     public void onImageConversion(ImageConversionEvent event) {
         log.info("Evento de conversão de imagem recebido: {}", event);
 
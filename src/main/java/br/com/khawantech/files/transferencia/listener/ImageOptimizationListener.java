@@ -16,7 +16,7 @@ public class ImageOptimizationListener {
 
     private final ImageOptimizationService imageOptimizationService;
 
-    @RabbitListener(queues = RabbitConfig.QUEUE_IMAGE_OPTIMIZATION)
+    @RabbitListener(queues = { RabbitConfig.QUEUE_IMAGE_OPTIMIZATION, RabbitConfig.QUEUE_IMAGE_OPTIMIZATION_LEGADO }, containerFactory = RabbitConfig.FACTORY_IMAGEM)
     public void onImageOptimization(ImageOptimizationEvent event) {
         log.info("Evento de otimização de imagem recebido: {}", event);
 
@@ -0,0 +1,24 @@
+package br.com.khawantech.files.transferencia.listener;
+
+import br.com.khawantech.files.transferencia.config.RabbitConfig;
+import br.com.khawantech.files.transferencia.dto.ProgressoUploadResponse;
+import br.com.khawantech.files.transferencia.service.WebSocketNotificationService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProgressoUploadListener {
+
+    private final WebSocketNotificationService notificationService;
+
+    @RabbitListener(queues = "#{progressoUploadQueue.name}", containerFactory = RabbitConfig.FACTORY_NOTIFICACAO)
+    public void onProgresso(ProgressoUploadResponse progresso) {
+        log.debug("Progresso de upload: arquivo={}, chunk={}/{}",
+            progresso.getArquivoId(), progresso.getChunkAtual(), progresso.getTotalChunks());
+        notificationService.notificarProgresso(progresso.getSessaoId(), progresso);
+    }
+}
@@ -16,7 +16,7 @@ public class SessaoAtualizadaListener {
 
     private final WebSocketNotificationService notificationService;
 
-    @RabbitListener(queues = RabbitConfig.QUEUE_SESSAO_ATUALIZADA)
+    @RabbitListener(queues = RabbitConfig.QUEUE_SESSAO_ATUALIZADA, containerFactory = RabbitConfig.FACTORY_NOTIFICACAO)
     public void handleSessaoAtualizada(SessaoAtualizadaEvent event) {
         log.info("Sessão atualizada: {} - {} -> {}",
             event.getSessaoId(), event.getStatusAnterior(), event.getStatusNovo());
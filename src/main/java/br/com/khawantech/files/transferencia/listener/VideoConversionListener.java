@@ -15,7 +15,7 @@ public class VideoConversionListener {
 
     private final VideoConversionService videoConversionService;
 
-    @RabbitListener(queues = RabbitConfig.QUEUE_VIDEO_CONVERSION)
+    @RabbitListener(queues = { RabbitConfig.QUEUE_VIDEO_CONVERSION, RabbitConfig.QUEUE_VIDEO_CONVERSION_LEGADO }, containerFactory = RabbitConfig.FACTORY_VIDEO)
     public void onVideoConversion(VideoConversionEvent event) {
         log.info("Evento de conversão de vídeo recebido: {}", event);
         videoConversionService.processarConversao(event);
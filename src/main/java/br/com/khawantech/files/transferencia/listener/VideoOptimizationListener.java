@@ -15,7 +15,7 @@ public class VideoOptimizationListener {
 
     private final VideoOptimizationService videoOptimizationService;
 
-    @RabbitListener(queues = RabbitConfig.QUEUE_VIDEO_OPTIMIZATION)
+    @RabbitListener(queues = { RabbitConfig.QUEUE_VIDEO_OPTIMIZATION, RabbitConfig.QUEUE_VIDEO_OPTIMIZATION_LEGADO }, containerFactory = RabbitConfig.FACTORY_VIDEO)
     public void onVideoOptimization(VideoOptimizationEvent event) {
         log.info("Evento de otimização de vídeo recebido: {}", event);
         videoOptimizationService.processarOtimizacao(event);
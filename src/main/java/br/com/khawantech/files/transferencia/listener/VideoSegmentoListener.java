@@ -0,0 +1,29 @@
+package br.com.khawantech.files.transferencia.listener;
+
+import br.com.khawantech.files.transferencia.config.RabbitConfig;
+import br.com.khawantech.files.transferencia.dto.VideoSegmentoEvent;
+import br.com.khawantech.files.transferencia.service.VideoConversionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class VideoSegmentoListener {
+
+    private final VideoConversionService videoConversionService;
+
+    @RabbitListener(queues = RabbitConfig.QUEUE_VIDEO_SEGMENTO, containerFactory = RabbitConfig.FACTORY_VIDEO)
+    public void onVideoSegmento(VideoSegmentoEvent event) {
+        log.info("Evento de segmento de vídeo recebido: {}", event);
+        videoConversionService.processarSegmento(event);
+    }
+
+    @RabbitListener(queues = RabbitConfig.QUEUE_VIDEO_SEGMENTO_DLQ, containerFactory = RabbitConfig.FACTORY_NOTIFICACAO)
+    public void onVideoSegmentoFalho(VideoSegmentoEvent event) {
+        log.warn("Segmento de vídeo esgotou as tentativas: {}", event);
+        videoConversionService.falharSegmento(event);
+    }
+}
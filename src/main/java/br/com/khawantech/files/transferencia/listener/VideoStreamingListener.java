@@ -0,0 +1,23 @@
+package br.com.khawantech.files.transferencia.listener;
+
+import br.com.khawantech.files.transferencia.config.RabbitConfig;
+import br.com.khawantech.files.transferencia.dto.VideoStreamingEvent;
+import br.com.khawantech.files.transferencia.service.StreamingService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class VideoStreamingListener {
+
+    private final StreamingService streamingService;
+
+    @RabbitListener(queues = RabbitConfig.QUEUE_VIDEO_STREAMING, containerFactory = RabbitConfig.FACTORY_VIDEO)
+    public void onVideoStreaming(VideoStreamingEvent event) {
+        log.info("Evento de empacotamento HLS recebido: {}", event);
+        streamingService.empacotar(event.getArquivoId());
+    }
+}
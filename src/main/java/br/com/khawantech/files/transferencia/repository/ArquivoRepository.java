@@ -1,13 +1,18 @@
 package br.com.khawantech.files.transferencia.repository;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Update;
 import org.springframework.stereotype.Repository;
 
 import br.com.khawantech.files.transferencia.entity.Arquivo;
 import br.com.khawantech.files.transferencia.entity.StatusArquivo;
+import br.com.khawantech.files.transferencia.entity.StatusStreaming;
 
 @Repository
 public interface ArquivoRepository extends MongoRepository<Arquivo, String> {
@@ -49,4 +54,22 @@ public interface ArquivoRepository extends MongoRepository<Arquivo, String> {
         Integer otimizacaoNivel,
         List<StatusArquivo> statuses
     );
+
+    @Query("{ '_id': ?0, 'status': 'COMPLETO' }")
+    @Update("{ '$set': { 'previews': ?1 } }")
+    long atualizarPreviewsSeCompleto(String id, Map<String, String> previews);
+
+    // Sem empacotamento, com erro, ou com um empacotamento iniciado antes do limite (worker que morreu no meio)
+    @Query("{ '_id': ?0, 'status': 'COMPLETO', '$or': [ { 'statusStreaming': null }, { 'statusStreaming': 'ERRO' }, "
+        + "{ 'statusStreaming': 'PROCESSANDO', 'streamingIniciadoEm': { '$not': { '$gte': ?1 } } } ] }")
+    @Update("{ '$set': { 'statusStreaming': 'PROCESSANDO', 'streamingIniciadoEm': ?2 } }")
+    long reivindicarStreaming(String id, Instant iniciadoAntesDe, Instant agora);
+
+    @Query("{ '_id': ?0 }")
+    @Update("{ '$set': { 'statusStreaming': ?1 } }")
+    long atualizarStatusStreaming(String id, StatusStreaming status);
+
+    @Query("{ '_id': ?0 }")
+    @Update("{ '$set': { 'statusStreaming': 'DISPONIVEL', 'caminhoStreaming': ?1, 'atualizadoEm': ?2 } }")
+    long concluirStreaming(String id, String caminhoStreaming, Instant agora);
 }
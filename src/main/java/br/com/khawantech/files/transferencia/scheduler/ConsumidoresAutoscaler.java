@@ -0,0 +1,103 @@
+package br.com.khawantech.files.transferencia.scheduler;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import br.com.khawantech.files.transferencia.config.RabbitConfig;
+import br.com.khawantech.files.transferencia.config.TransferenciaProperties;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Component
+public class ConsumidoresAutoscaler {
+
+    private static final int NUCLEOS = Runtime.getRuntime().availableProcessors();
+
+    private final RabbitListenerEndpointRegistry registry;
+    private final AmqpAdmin amqpAdmin;
+    private final double cargaMaximaPorNucleo;
+    private final Map<String, TransferenciaProperties.CargaConsumidor> cargasPorFila;
+    private final Map<String, Integer> tetoAtual = new ConcurrentHashMap<>();
+
+    public ConsumidoresAutoscaler(RabbitListenerEndpointRegistry registry, AmqpAdmin amqpAdmin, TransferenciaProperties properties) {
+        this.registry = registry;
+        this.amqpAdmin = amqpAdmin;
+
+        TransferenciaProperties.Consumidores consumidores = properties.getConsumidores();
+        this.cargaMaximaPorNucleo = consumidores.getCargaMaximaPorNucleo();
+        this.cargasPorFila = Map.of(
+            RabbitConfig.QUEUE_IMAGE_CONVERSION, consumidores.getImagem(),
+            RabbitConfig.QUEUE_IMAGE_OPTIMIZATION, consumidores.getImagem(),
+            RabbitConfig.QUEUE_ARQUIVO_PREVIEW, consumidores.getImagem(),
+            RabbitConfig.QUEUE_VIDEO_CONVERSION, consumidores.getVideo(),
+            RabbitConfig.QUEUE_VIDEO_OPTIMIZATION, consumidores.getVideo(),
+            RabbitConfig.QUEUE_VIDEO_SEGMENTO, consumidores.getVideo(),
+            RabbitConfig.QUEUE_VIDEO_STREAMING, consumidores.getVideo(),
+            RabbitConfig.QUEUE_AUDIO_CONVERSION, consumidores.getAudio()
+        );
+    }
+
+    @Scheduled(fixedDelayString = "${transferencia.consumidores.intervalo-ajuste-ms:15000}", initialDelay = 30000)
+    public void ajustarConsumidores() {
+        double cargaSistema = ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage();
+        if (cargaSistema < 0) {
+            return;
+        }
+        double cargaPorNucleo = cargaSistema / NUCLEOS;
+
+        for (MessageListenerContainer container : registry.getListenerContainers()) {
+            if (!(container instanceof SimpleMessageListenerContainer simpleContainer)) {
+                continue;
+            }
+
+            String[] filas = simpleContainer.getQueueNames();
+            if (filas.length == 0) {
+                continue;
+            }
+
+            TransferenciaProperties.CargaConsumidor carga = cargasPorFila.get(filas[0]);
+            if (carga == null) {
+                continue;
+            }
+
+            try {
+                ajustarContainer(simpleContainer, filas[0], carga, cargaPorNucleo);
+            } catch (Exception e) {
+                log.warn("Falha ao ajustar consumidores da fila {}: {}", filas[0], e.getMessage());
+            }
+        }
+    }
+
+    void ajustarContainer(SimpleMessageListenerContainer container, String fila,
+                                  TransferenciaProperties.CargaConsumidor carga, double cargaPorNucleo) {
+        int minimo = Math.max(1, carga.getMinConsumidores());
+        int maximo = Math.max(minimo, carga.getMaxConsumidores());
+        int teto = tetoAtual.getOrDefault(fila, maximo);
+
+        QueueInformation info = amqpAdmin.getQueueInfo(fila);
+        int pendentes = info != null ? info.getMessageCount() : 0;
+
+        int novoTeto = teto;
+        if (cargaPorNucleo > cargaMaximaPorNucleo) {
+            novoTeto = Math.max(minimo, teto - 1);
+        } else if (pendentes > 0 && cargaPorNucleo < cargaMaximaPorNucleo * 0.75) {
+            novoTeto = Math.min(maximo, teto + 1);
+        }
+
+        if (novoTeto != teto) {
+            container.setMaxConcurrentConsumers(novoTeto);
+            tetoAtual.put(fila, novoTeto);
+            log.info("Teto de consumidores ajustado: fila={} teto={} pendentes={} cargaPorNucleo={}",
+                fila, novoTeto, pendentes, String.format("%.2f", cargaPorNucleo));
+        }
+    }
+}
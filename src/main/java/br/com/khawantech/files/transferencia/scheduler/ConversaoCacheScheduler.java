@@ -0,0 +1,26 @@
+package br.com.khawantech.files.transferencia.scheduler;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import br.com.khawantech.files.transferencia.service.ConversaoCacheService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ConversaoCacheScheduler {
+
+    private final ConversaoCacheService conversaoCacheService;
+
+    @Scheduled(fixedRate = 3600000, initialDelay = 60000)
+    public void removerConversoesExpiradas() {
+        log.debug("Executando limpeza de conversões compartilhadas expiradas");
+        try {
+            conversaoCacheService.removerConversoesExpiradas();
+        } catch (Exception e) {
+            log.error("Erro ao remover conversões compartilhadas expiradas", e);
+        }
+    }
+}
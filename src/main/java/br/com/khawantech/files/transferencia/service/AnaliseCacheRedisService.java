@@ -0,0 +1,80 @@
+package br.com.khawantech.files.transferencia.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import br.com.khawantech.files.transferencia.config.TransferenciaProperties;
+import br.com.khawantech.files.transferencia.dto.AnaliseArquivoCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AnaliseCacheRedisService {
+
+    public static final int VERSAO_ANALISADOR = 2;
+
+    private static final String ANALISE_PREFIX = "analise:v" + VERSAO_ANALISADOR + ":";
+
+    private final RedisTemplate<String, Object> transferenciaRedisTemplate;
+    private final TransferenciaProperties properties;
+
+    public Optional<AnaliseArquivoCache> buscar(String hashConteudo) {
+        if (hashConteudo == null || hashConteudo.isBlank()) {
+            return Optional.empty();
+        }
+
+        String key = gerarChave(hashConteudo);
+        try {
+            Object valor = transferenciaRedisTemplate.opsForValue().get(key);
+            if (valor instanceof AnaliseArquivoCache analise && analise.getVersaoAnalisador() == VERSAO_ANALISADOR) {
+                transferenciaRedisTemplate.expire(key, getTtl());
+                log.debug("Análise em cache encontrada para hash {}", hashConteudo);
+                return Optional.of(analise);
+            }
+            if (valor != null) {
+                transferenciaRedisTemplate.delete(key);
+            }
+        } catch (Exception e) {
+            log.warn("Erro ao ler análise em cache (hash={}), removendo entrada: {}", hashConteudo, e.getMessage());
+            transferenciaRedisTemplate.delete(key);
+        }
+        return Optional.empty();
+    }
+
+    public void salvar(String hashConteudo, String tipoMimeDetectado, Map<String, String> metadadosTika, Map<String, String> metadadosTecnicos) {
+        if (hashConteudo == null || hashConteudo.isBlank()) {
+            return;
+        }
+
+        AnaliseArquivoCache analise = AnaliseArquivoCache.builder()
+            .versaoAnalisador(VERSAO_ANALISADOR)
+            .tipoMimeDetectado(tipoMimeDetectado)
+            .metadadosTika(metadadosTika)
+            .metadadosTecnicos(metadadosTecnicos)
+            .analisadoEm(Instant.now())
+            .build();
+
+        try {
+            transferenciaRedisTemplate.opsForValue().set(gerarChave(hashConteudo), analise, getTtl());
+            log.debug("Análise salva em cache para hash {}", hashConteudo);
+        } catch (Exception e) {
+            log.warn("Erro ao salvar análise em cache (hash={}): {}", hashConteudo, e.getMessage());
+        }
+    }
+
+    private Duration getTtl() {
+        return Duration.ofHours(properties.getAnaliseCacheTtlHoras());
+    }
+
+    private static String gerarChave(String hashConteudo) {
+        return ANALISE_PREFIX + hashConteudo.strip().toLowerCase(Locale.ROOT);
+    }
+}
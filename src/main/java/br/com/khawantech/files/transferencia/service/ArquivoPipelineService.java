@@ -0,0 +1,144 @@
+package br.com.khawantech.files.transferencia.service;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.springframework.stereotype.Service;
+
+import br.com.khawantech.files.transferencia.entity.Arquivo;
+import br.com.khawantech.files.transferencia.entity.ChunkArquivo;
+import br.com.khawantech.files.transferencia.util.StreamFanOut;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ArquivoPipelineService {
+
+    private final MinioService minioService;
+    private final TikaFileAnalysisService tikaFileAnalysisService;
+    private final MediaMetadataService mediaMetadataService;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ResultadoPipeline processar(Arquivo arquivo, List<ChunkArquivo> chunks, byte[] prefixo, String tipoMime, boolean extrairMetadados) {
+        String caminhoFinal = minioService.gerarCaminhoArquivo(arquivo.getSessaoId(), arquivo.getId(), arquivo.getNomeOriginal());
+        long tamanhoTotal = chunks.stream().mapToLong(ChunkArquivo::getTamanhoBytes).sum();
+        boolean usarSpool = extrairMetadados && mediaMetadataService.requerArquivoLocal(tipoMime);
+
+        Path spool = null;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            spool = usarSpool ? Files.createTempFile("pipeline_" + arquivo.getId() + "_", ".bin") : null;
+
+            Map<String, String> metadadosTika;
+            try (InputStream origem = minioService.abrirStreamChunks(arquivo.getSessaoId(), arquivo.getId(), chunks, prefixo);
+                 OutputStream spoolOut = spool != null ? Files.newOutputStream(spool) : OutputStream.nullOutputStream()) {
+
+                StreamFanOut fanOut = new StreamFanOut(executor)
+                    .adicionarSink(new DigestOutputStream(OutputStream.nullOutputStream(), digest))
+                    .adicionarSink(spoolOut);
+
+                Future<String> upload = fanOut.adicionarConsumidor(true,
+                    inputStream -> minioService.uploadStream(caminhoFinal, inputStream, tamanhoTotal, tipoMime));
+                Future<Map<String, String>> tika = extrairMetadados
+                    ? fanOut.adicionarConsumidor(false, tikaFileAnalysisService::analisarConteudo)
+                    : null;
+
+                try {
+                    fanOut.transferir(origem);
+                } catch (Exception e) {
+                    throw falhaDoUpload(upload, e);
+                }
+
+                aguardar(upload);
+                metadadosTika = tika != null ? resultadoOpcional(tika) : Map.of();
+            }
+
+            Map<String, String> metadadosTecnicos = spool != null
+                ? mediaMetadataService.extrairTecnicos(spool, tipoMime)
+                : Map.of();
+
+            String hashCalculado = HexFormat.of().formatHex(digest.digest());
+            boolean hashConfere = hashCalculado.equalsIgnoreCase(arquivo.getHashConteudo());
+
+            for (ChunkArquivo chunk : chunks) {
+                minioService.deleteChunk(arquivo.getSessaoId(), arquivo.getId(), chunk.getNumeroChunk());
+            }
+
+            log.info("Pipeline concluído: arquivo={} bytes={} hashConfere={}", arquivo.getId(), tamanhoTotal, hashConfere);
+            return new ResultadoPipeline(caminhoFinal, hashCalculado, hashConfere, metadadosTika, metadadosTecnicos);
+
+        } catch (RuntimeException e) {
+            minioService.deleteArquivo(caminhoFinal);
+            throw e;
+        } catch (Exception e) {
+            minioService.deleteArquivo(caminhoFinal);
+            throw new RuntimeException("Erro no processamento do arquivo", e);
+        } finally {
+            if (spool != null) {
+                try {
+                    Files.deleteIfExists(spool);
+                } catch (Exception e) {
+                    log.debug("Falha ao remover spool do pipeline: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdown();
+    }
+
+    private static RuntimeException falhaDoUpload(Future<String> upload, Exception original) {
+        if (upload.isDone()) {
+            try {
+                upload.get();
+            } catch (ExecutionException e) {
+                return new RuntimeException("Erro ao gravar arquivo final", e.getCause());
+            } catch (Exception ignored) {
+            }
+        }
+        return new RuntimeException("Erro ao ler chunks do arquivo", original);
+    }
+
+    private static void aguardar(Future<?> future) throws InterruptedException {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Erro ao gravar arquivo final", e.getCause());
+        }
+    }
+
+    private static Map<String, String> resultadoOpcional(Future<Map<String, String>> future) throws InterruptedException {
+        try {
+            Map<String, String> resultado = future.get();
+            return resultado != null ? resultado : Map.of();
+        } catch (ExecutionException e) {
+            log.debug("Falha na extração de metadata durante o pipeline: {}", e.getMessage());
+            return Map.of();
+        }
+    }
+
+    public record ResultadoPipeline(
+        String caminhoMinio,
+        String hashCalculado,
+        boolean hashConfere,
+        Map<String, String> metadadosTika,
+        Map<String, String> metadadosTecnicos
+    ) {}
+}
@@ -6,7 +6,6 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -15,7 +14,6 @@ import br.com.khawantech.files.transferencia.config.RabbitConfig;
 import br.com.khawantech.files.transferencia.config.TransferenciaProperties;
 import br.com.khawantech.files.transferencia.dto.ArquivoResponse;
 import br.com.khawantech.files.transferencia.dto.ArquivoSecurityEvent;
-import br.com.khawantech.files.transferencia.dto.ChunkRecebidoEvent;
 import br.com.khawantech.files.transferencia.dto.EnviarChunkRequest;
 import br.com.khawantech.files.transferencia.dto.IniciarUploadRequest;
 import br.com.khawantech.files.transferencia.dto.IniciarUploadResponse;
@@ -53,9 +51,12 @@ public class ArquivoService {
     private final UserRepository userRepository;
     private final RateLimitRedisService rateLimitRedisService;
     private final TransferenciaProperties properties;
-    private final RabbitTemplate rabbitTemplate;
+    private final PublicadorEventosService publicadorEventosService;
+    private final PrioridadeFilaService prioridadeFilaService;
     private final DownloadTokenService downloadTokenService;
     private final WebSocketNotificationService webSocketNotificationService;
+    private final CancelamentoConversaoService cancelamentoConversaoService;
+    private final ProgressoUploadAgregadorService progressoUploadAgregadorService;
 
     @Value("${app.base-url}")
     private String baseUrl;
@@ -111,6 +112,7 @@ public class ArquivoService {
             .sessaoId(request.getSessaoId())
             .nomeOriginal(request.getNomeArquivo())
             .hashConteudo(request.getHashConteudo())
+            .algoritmoHash(request.getAlgoritmoHash())
             .tamanhoBytes(request.getTamanhoBytes())
             .tipoMime("application/octet-stream")
             .tipoMimeInformado(request.getTipoMime())
@@ -216,25 +218,9 @@ public class ArquivoService {
                 arquivo.getTotalChunks()
             );
 
-            ChunkRecebidoEvent event = ChunkRecebidoEvent.builder()
-                .arquivoId(arquivo.getId())
-                .sessaoId(sessao.getId())
-                .numeroChunk(request.getNumeroChunk())
-                .totalChunks(arquivo.getTotalChunks())
-                .hashChunk(request.getHashChunk())
-                .caminhoMinio(caminhoMinio)
-                .tamanhoBytes(chunk.getTamanhoBytes())
-                .usuarioId(usuarioId)
-                .build();
-
-            rabbitTemplate.convertAndSend(
-                RabbitConfig.EXCHANGE_TRANSFERENCIA,
-                RabbitConfig.ROUTING_KEY_CHUNK,
-                event
-            );
-
             int chunksRecebidos = progressoRedisService.getChunksRecebidos(arquivo.getId());
             boolean completo = chunksRecebidos >= arquivo.getTotalChunks();
+            progressoUploadAgregadorService.registrar(arquivo, chunksRecebidos);
 
             arquivo.atualizarProgresso(chunksRecebidos);
             if (completo) {
@@ -292,10 +278,11 @@ public class ArquivoService {
                 .totalChunks(arquivo.getTotalChunks())
                 .build();
 
-            rabbitTemplate.convertAndSend(
+            publicadorEventosService.publicar(
                 RabbitConfig.EXCHANGE_TRANSFERENCIA,
                 RabbitConfig.ROUTING_KEY_ARQUIVO_SECURITY,
-                event
+                event,
+                prioridadeFilaService.daSessao(sessao.getId(), RabbitConfig.ROUTING_KEY_ARQUIVO_SECURITY)
             );
 
             log.info("Upload recebido, enviado para análise de segurança: {} - {}", arquivo.getId(), arquivo.getNomeOriginal());
@@ -400,6 +387,8 @@ public class ArquivoService {
             .tag(arquivo.getTag())
             .otimizacaoNivel(arquivo.getOtimizacaoNivel())
             .tamanhoOriginalBytes(arquivo.getTamanhoOriginalBytes())
+            .previews(arquivo.getPreviews() != null ? List.copyOf(arquivo.getPreviews().keySet()) : List.of())
+            .statusStreaming(arquivo.getStatusStreaming())
             .build();
     }
 
@@ -437,11 +426,19 @@ public class ArquivoService {
         if (arquivo.getStatus() != StatusArquivo.ERRO && arquivo.getStatus() != StatusArquivo.PENDENTE && arquivo.getStatus() != StatusArquivo.BLOQUEADO) {
             throw new RuntimeException("Apenas arquivos com erro, bloqueados ou pendentes podem ser excluídos");
         }
+
+        cancelamentoConversaoService.cancelarArquivo(arquivo);
         
         try {
-            if (arquivo.getCaminhoMinio() != null) {
+            if (arquivo.getCaminhoMinio() != null && !ConversaoCacheService.isCaminhoCompartilhado(arquivo.getCaminhoMinio())) {
                 minioService.deleteArquivo(arquivo.getCaminhoMinio());
             }
+            if (arquivo.getPreviews() != null) {
+                arquivo.getPreviews().values().forEach(minioService::deleteArquivo);
+            }
+            if (arquivo.getCaminhoStreaming() != null) {
+                minioService.deletarPrefixo(arquivo.getCaminhoStreaming() + "/");
+            }
             
             chunkArquivoRepository.deleteByArquivoId(arquivoId);
         } catch (Exception e) {
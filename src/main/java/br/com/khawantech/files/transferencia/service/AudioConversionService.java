@@ -1,7 +1,6 @@
 package br.com.khawantech.files.transferencia.service;
 
 import br.com.khawantech.files.transferencia.config.RabbitConfig;
-import br.com.khawantech.files.transferencia.config.TransferenciaProperties;
 import br.com.khawantech.files.transferencia.dto.AudioConversionEvent;
 import br.com.khawantech.files.transferencia.dto.FormatoAudio;
 import br.com.khawantech.files.transferencia.entity.Arquivo;
@@ -13,21 +12,12 @@ import br.com.khawantech.files.transferencia.exception.RecursoNaoEncontradoExcep
 import br.com.khawantech.files.transferencia.repository.ArquivoRepository;
 import br.com.khawantech.files.transferencia.util.FileNameSanitizer;
 import br.com.khawantech.files.user.entity.User;
-import com.github.kokorin.jaffree.ffmpeg.FFmpeg;
-import com.github.kokorin.jaffree.ffmpeg.UrlInput;
-import com.github.kokorin.jaffree.ffmpeg.UrlOutput;
-import io.minio.MinioClient;
-import io.minio.PutObjectArgs;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.io.InputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
@@ -41,27 +31,34 @@ import java.util.stream.Collectors;
 public class AudioConversionService {
 
     private final ArquivoRepository arquivoRepository;
-    private final MinioService minioService;
-    private final MinioClient minioClient;
+    private final FfmpegStreamingService ffmpegStreamingService;
+    private final ConversaoCacheService conversaoCacheService;
     private final SessaoService sessaoService;
     private final WebSocketNotificationService notificationService;
-    private final TransferenciaProperties properties;
-    private final RabbitTemplate rabbitTemplate;
-
-    @Value("${ffmpeg.bin-dir:/usr/bin}")
-    private String ffmpegBinDir;
+    private final PublicadorEventosService publicadorEventosService;
+    private final PrioridadeFilaService prioridadeFilaService;
+    private final ProgressoProcessamentoService progressoProcessamentoService;
+    private final MediaCapabilityRegistry mediaCapabilityRegistry;
+    private final ConversaoEmVooService conversaoEmVooService;
+    private final ExecucaoConversaoRegistry execucaoConversaoRegistry;
+    private final CancelamentoConversaoService cancelamentoConversaoService;
+    private final OrcamentoConversaoService orcamentoConversaoService;
 
     private static final List<StatusArquivo> STATUS_CONVERSAO_ATIVOS = List.of(StatusArquivo.PROCESSANDO, StatusArquivo.COMPLETO);
+    private static final String OPERACAO_CACHE = "audio-conversao";
+    private static final int VERSAO_PERFIL = 2;
 
     public boolean isAudioConversivel(String mimeType) {
-        return FormatoAudio.isAudioConversivel(mimeType);
+        return !getFormatosDisponiveis(mimeType).isEmpty();
     }
 
     public List<FormatoAudio> getFormatosDisponiveis(String mimeType) {
         if (!FormatoAudio.isAudioConversivel(mimeType)) {
             return List.of();
         }
-        return FormatoAudio.getFormatosDisponiveis(mimeType);
+        return FormatoAudio.getFormatosDisponiveis(mimeType).stream()
+            .filter(mediaCapabilityRegistry::suportaAudio)
+            .toList();
     }
 
     @Transactional
@@ -69,20 +66,34 @@ public class AudioConversionService {
         Arquivo arquivo = arquivoRepository.findById(arquivoId)
             .orElseThrow(() -> new RecursoNaoEncontradoException("Arquivo não encontrado"));
 
+        // Pedido inválido não reivindica nem se anexa: só o que passou na validação entra no single-flight
         validarConversao(arquivo, formatoDestino, solicitante);
+        if (!conversaoEmVooService.reivindicar(arquivoId, formatoDestino, null, solicitante.getId())) {
+            conversaoEmVooService.anexar(arquivoId, formatoDestino, null, solicitante.getId());
+            return;
+        }
 
-        AudioConversionEvent event = AudioConversionEvent.builder()
-            .arquivoId(arquivoId)
-            .sessaoId(arquivo.getSessaoId())
-            .formatoDestino(formatoDestino)
-            .solicitanteId(solicitante.getId())
-            .build();
-
-        rabbitTemplate.convertAndSend(
-            RabbitConfig.EXCHANGE_TRANSFERENCIA,
-            RabbitConfig.ROUTING_KEY_AUDIO_CONVERSION,
-            event
-        );
+        try {
+            validarExecucao(arquivo, formatoDestino);
+            orcamentoConversaoService.admitir(arquivo, OPERACAO_CACHE, formatoDestino, null, solicitante);
+
+            AudioConversionEvent event = AudioConversionEvent.builder()
+                .arquivoId(arquivoId)
+                .sessaoId(arquivo.getSessaoId())
+                .formatoDestino(formatoDestino)
+                .solicitanteId(solicitante.getId())
+                .build();
+
+            publicadorEventosService.publicar(
+                RabbitConfig.EXCHANGE_TRANSFERENCIA,
+                RabbitConfig.ROUTING_KEY_AUDIO_CONVERSION,
+                event,
+                prioridadeFilaService.daSessao(arquivo.getSessaoId(), RabbitConfig.ROUTING_KEY_AUDIO_CONVERSION)
+            );
+        } catch (RuntimeException e) {
+            conversaoEmVooService.liberar(arquivoId, formatoDestino, null);
+            throw e;
+        }
 
         log.info("Conversão de áudio solicitada: arquivo={}, formato={}", arquivoId, formatoDestino);
     }
@@ -105,10 +116,6 @@ public class AudioConversionService {
             }
         });
 
-        if (isConversaoDuplicada(arquivo.getId(), formatoDestino)) {
-            throw new ConversaoNaoSuportadaException("Arquivo já foi convertido para este formato");
-        }
-
         List<FormatoAudio> formatosDisponiveis = getFormatosDisponiveisFiltrados(arquivo);
         if (!formatosDisponiveis.contains(formato)) {
             throw new ConversaoNaoSuportadaException("Formato de conversão não disponível para este arquivo");
@@ -116,6 +123,13 @@ public class AudioConversionService {
 
         Sessao sessao = sessaoService.buscarPorId(arquivo.getSessaoId());
         sessaoService.validarUsuarioPertenceASessao(sessao, solicitante.getId());
+    }
+
+    // Verificações de quem vai executar: pedidos anexados não criam arquivo nem repetem a conversão
+    private void validarExecucao(Arquivo arquivo, String formatoDestino) {
+        if (isConversaoDuplicada(arquivo.getId(), formatoDestino)) {
+            throw new ConversaoNaoSuportadaException("Arquivo já foi convertido para este formato");
+        }
 
         if (!sessaoService.podeAdicionarArquivo(arquivo.getSessaoId())) {
             throw new EspacoSessaoInsuficienteException("Sessão atingiu o limite de arquivos");
@@ -124,10 +138,11 @@ public class AudioConversionService {
 
     @Transactional
     public void processarConversao(AudioConversionEvent event) {
-        Path tempInputPath = null;
-        Path tempOutputPath = null;
-
+        ExecucaoConversaoRegistry.Execucao execucao = execucaoConversaoRegistry.iniciar(event.getSessaoId(), event.getArquivoId());
+        List<Arquivo> convertidos = new ArrayList<>();
+        conversaoEmVooService.iniciarExecucao(event.getArquivoId(), event.getFormatoDestino(), null);
         try {
+            execucao.verificar();
             log.info("Iniciando processamento de conversão de áudio: {}", event);
 
             Arquivo arquivoOriginal = arquivoRepository.findById(event.getArquivoId())
@@ -137,40 +152,36 @@ public class AudioConversionService {
                 .orElseThrow(() -> new ConversaoNaoSuportadaException("Formato de conversão não suportado"));
 
             Arquivo arquivoConvertido = criarArquivoConvertido(arquivoOriginal, formatoDestino, arquivoOriginal.getTamanhoBytes());
+            convertidos.add(arquivoConvertido);
             notificationService.notificarArquivoProcessando(arquivoConvertido.getSessaoId(), arquivoConvertido);
 
-            MinioService.ArquivoData arquivoData = minioService.obterArquivo(arquivoOriginal.getCaminhoMinio());
-
-            tempInputPath = Files.createTempFile("audio_input_", "." + detectarExtensaoEntrada(arquivoOriginal));
-            try (InputStream inputStream = arquivoData.inputStream()) {
-                Files.copy(inputStream, tempInputPath, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
-            }
-
-            tempOutputPath = Files.createTempFile("audio_output_", "." + formatoDestino.getExtension());
-
-            executarConversao(tempInputPath, tempOutputPath, formatoDestino);
-
-            long tamanhoBytes = Files.size(tempOutputPath);
-            arquivoConvertido.setTamanhoBytes(tamanhoBytes);
-
-            String caminhoMinio = String.format("%s/%s/%s",
-                arquivoConvertido.getSessaoId(),
-                arquivoConvertido.getId(),
-                arquivoConvertido.getNomeOriginal()
+            FfmpegStreamingService.SaidaFfmpeg saida = new FfmpegStreamingService.SaidaFfmpeg(
+                formatoDestino.getFfmpegFormat(),
+                formatoDestino.getExtension(),
+                formatoDestino.getMimeType(),
+                resolveArgs(arquivoOriginal, formatoDestino)
             );
 
-            try (InputStream outputStream = Files.newInputStream(tempOutputPath)) {
-                minioClient.putObject(
-                    PutObjectArgs.builder()
-                        .bucket(properties.getMinioBucket())
-                        .object(caminhoMinio)
-                        .stream(outputStream, tamanhoBytes, -1)
-                        .contentType(formatoDestino.getMimeType())
-                        .build()
-                );
-            }
+            ConversaoCacheService.ResultadoConversao resultado = conversaoCacheService.obterOuConverter(
+                arquivoOriginal, OPERACAO_CACHE, formatoDestino.name(), VERSAO_PERFIL, arquivoConvertido,
+                caminhoMinio -> {
+                    ProgressoProcessamentoService.Acompanhamento progresso =
+                        progressoProcessamentoService.iniciar(arquivoOriginal, arquivoConvertido, OPERACAO_CACHE);
+                    long tamanho = ffmpegStreamingService.converter(
+                        arquivoOriginal.getCaminhoMinio(),
+                        arquivoOriginal.getTipoMime(),
+                        detectarExtensaoEntrada(arquivoOriginal),
+                        caminhoMinio,
+                        saida,
+                        progresso
+                    );
+                    progresso.concluir();
+                    return tamanho;
+                }
+            );
+            arquivoConvertido.setTamanhoBytes(resultado.tamanhoBytes());
 
-            arquivoConvertido.setCaminhoMinio(caminhoMinio);
+            arquivoConvertido.setCaminhoMinio(resultado.caminhoMinio());
             arquivoConvertido.setStatus(StatusArquivo.COMPLETO);
             arquivoRepository.save(arquivoConvertido);
 
@@ -182,33 +193,43 @@ public class AudioConversionService {
                 event.getArquivoId(), arquivoConvertido.getId(), formatoDestino.name());
 
         } catch (Exception e) {
+            if (execucao.isCancelada()) {
+                cancelamentoConversaoService.descartar(convertidos);
+                log.info("Conversão de áudio cancelada: {}", event);
+                return;
+            }
             log.error("Erro ao processar conversão de áudio: {}", event, e);
             throw new RuntimeException("Falha na conversão de áudio: " + e.getMessage(), e);
         } finally {
-            limparArquivosTemporarios(tempInputPath, tempOutputPath);
+            execucao.close();
+            conversaoEmVooService.liberar(event.getArquivoId(), event.getFormatoDestino(), null);
         }
     }
 
-    private void executarConversao(Path inputPath, Path outputPath, FormatoAudio formatoDestino) {
-        UrlOutput output = UrlOutput.toPath(outputPath);
+    private List<String> resolveArgs(Arquivo arquivoOriginal, FormatoAudio formatoDestino) {
+        // Troca apenas de container (ex.: AAC -> M4A): copia o stream sem recodificar
+        String audioCodec = arquivoOriginal.getMetadadosTecnicos() != null
+            ? arquivoOriginal.getMetadadosTecnicos().get("audioCodec")
+            : null;
+        if (formatoDestino.aceitaCopia(audioCodec)) {
+            log.info("Conversão de áudio por remux: arquivo={} formato={} audioCodec={}",
+                arquivoOriginal.getId(), formatoDestino.name(), audioCodec);
+            return List.of("-map", "0:a:0", "-c:a", "copy");
+        }
 
-        output.addArguments("-c:a", formatoDestino.getFfmpegCodec());
+        List<String> args = new ArrayList<>(List.of("-c:a", formatoDestino.getFfmpegCodec()));
 
         if (formatoDestino == FormatoAudio.MP3) {
-            output.addArguments("-b:a", "320k");
+            args.addAll(List.of("-b:a", "320k"));
         } else if (formatoDestino == FormatoAudio.AAC || formatoDestino == FormatoAudio.M4A) {
-            output.addArguments("-b:a", "256k");
+            args.addAll(List.of("-b:a", "256k"));
         } else if (formatoDestino == FormatoAudio.OGG) {
-            output.addArguments("-q:a", "6");
+            args.addAll(List.of("-q:a", "6"));
         } else if (formatoDestino == FormatoAudio.OPUS || formatoDestino == FormatoAudio.WEBM) {
-            output.addArguments("-b:a", "128k");
+            args.addAll(List.of("-b:a", "128k"));
         }
 
-        FFmpeg.atPath(Path.of(ffmpegBinDir))
-            .addInput(UrlInput.fromPath(inputPath))
-            .addOutput(output)
-            .setOverwriteOutput(true)
-            .execute();
+        return args;
     }
 
     private String detectarExtensaoEntrada(Arquivo arquivo) {
@@ -275,16 +296,4 @@ public class AudioConversionService {
             STATUS_CONVERSAO_ATIVOS
         );
     }
-
-    private void limparArquivosTemporarios(Path... paths) {
-        for (Path path : paths) {
-            if (path != null) {
-                try {
-                    Files.deleteIfExists(path);
-                } catch (Exception e) {
-                    log.warn("Erro ao deletar arquivo temporário: {}", path, e);
-                }
-            }
-        }
-    }
 }
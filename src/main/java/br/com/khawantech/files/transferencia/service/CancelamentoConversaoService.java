@@ -0,0 +1,114 @@
+package br.com.khawantech.files.transferencia.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import br.com.khawantech.files.transferencia.config.RabbitConfig;
+import br.com.khawantech.files.transferencia.dto.CancelamentoConversaoEvent;
+import br.com.khawantech.files.transferencia.entity.Arquivo;
+import br.com.khawantech.files.transferencia.entity.StatusArquivo;
+import br.com.khawantech.files.transferencia.repository.ArquivoRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cancela conversões de uma sessão ou de um arquivo: marca no Redis para que jobs ainda na fila sejam
+ * descartados ao iniciar e difunde o cancelamento para os workers que já estão executando.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CancelamentoConversaoService {
+
+    private static final String CANCELAMENTO_SESSAO_PREFIX = "cancelamento:sessao:";
+    private static final String CANCELAMENTO_ARQUIVO_PREFIX = "cancelamento:arquivo:";
+    private static final Duration CANCELAMENTO_TTL = Duration.ofHours(24);
+
+    private final PublicadorEventosService publicadorEventosService;
+    private final RedisTemplate<String, Object> transferenciaRedisTemplate;
+    private final ArquivoRepository arquivoRepository;
+    private final WebSocketNotificationService notificationService;
+
+    public void cancelarSessao(String sessaoId) {
+        marcar(CANCELAMENTO_SESSAO_PREFIX + sessaoId);
+        publicar(CancelamentoConversaoEvent.builder()
+            .sessaoId(sessaoId)
+            .arquivoIds(List.of())
+            .build());
+    }
+
+    public void cancelarArquivo(Arquivo arquivo) {
+        List<Arquivo> pendentes = arquivoRepository.findByArquivoOriginalIdAndStatusIn(arquivo.getId(), List.of(StatusArquivo.PROCESSANDO));
+
+        List<String> arquivoIds = new ArrayList<>();
+        arquivoIds.add(arquivo.getId());
+        pendentes.forEach(pendente -> arquivoIds.add(pendente.getId()));
+        arquivoIds.forEach(arquivoId -> marcar(CANCELAMENTO_ARQUIVO_PREFIX + arquivoId));
+
+        publicar(CancelamentoConversaoEvent.builder()
+            .arquivoIds(arquivoIds)
+            .build());
+
+        descartar(pendentes);
+        log.info("Cancelamento de conversões solicitado: arquivo={} pendentes={}", arquivo.getId(), pendentes.size());
+    }
+
+    // Um novo pedido de conversão reabre o arquivo para processamento
+    public void limparCancelamento(String arquivoId) {
+        try {
+            transferenciaRedisTemplate.delete(CANCELAMENTO_ARQUIVO_PREFIX + arquivoId);
+        } catch (Exception e) {
+            log.warn("Erro ao limpar cancelamento do arquivo {}: {}", arquivoId, e.getMessage());
+        }
+    }
+
+    public boolean isCancelada(String sessaoId, Collection<String> arquivoIds) {
+        try {
+            if (sessaoId != null && Boolean.TRUE.equals(transferenciaRedisTemplate.hasKey(CANCELAMENTO_SESSAO_PREFIX + sessaoId))) {
+                return true;
+            }
+            for (String arquivoId : arquivoIds) {
+                if (Boolean.TRUE.equals(transferenciaRedisTemplate.hasKey(CANCELAMENTO_ARQUIVO_PREFIX + arquivoId))) {
+                    return true;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Erro ao verificar cancelamento de conversão: {}", e.getMessage());
+        }
+        return false;
+    }
+
+    // Arquivos convertidos que ficaram em PROCESSANDO deixam de bloquear um novo pedido para o mesmo formato
+    public void descartar(Collection<Arquivo> convertidos) {
+        for (Arquivo convertido : convertidos) {
+            arquivoRepository.findById(convertido.getId())
+                .filter(atual -> StatusArquivo.PROCESSANDO.equals(atual.getStatus()))
+                .ifPresent(atual -> {
+                    atual.setStatus(StatusArquivo.ERRO);
+                    arquivoRepository.save(atual);
+                    notificationService.notificarConversaoCancelada(atual.getSessaoId(), atual);
+                });
+        }
+    }
+
+    private void marcar(String key) {
+        try {
+            transferenciaRedisTemplate.opsForValue().set(key, Boolean.TRUE, CANCELAMENTO_TTL);
+        } catch (Exception e) {
+            log.warn("Erro ao registrar cancelamento ({}): {}", key, e.getMessage());
+        }
+    }
+
+    private void publicar(CancelamentoConversaoEvent event) {
+        try {
+            publicadorEventosService.publicar(RabbitConfig.EXCHANGE_CANCELAMENTO, "", event);
+        } catch (Exception e) {
+            log.warn("Erro ao difundir cancelamento de conversão {}: {}", event, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package br.com.khawantech.files.transferencia.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import br.com.khawantech.files.transferencia.config.TransferenciaProperties;
+import br.com.khawantech.files.transferencia.dto.ConversaoCache;
+import br.com.khawantech.files.transferencia.entity.Arquivo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ConversaoCacheService {
+
+    public static final String PREFIXO_COMPARTILHADO = "conversoes/";
+    public static final String METRICA_ESPECULACAO_ACERTOS = "transferencia.especulacao.acertos";
+    public static final String METRICA_ESPECULACAO_CPU = "transferencia.especulacao.cpu.segundos";
+
+    private static final String CONVERSAO_PREFIX = "conversao:";
+
+    private final RedisTemplate<String, Object> transferenciaRedisTemplate;
+    private final MinioService minioService;
+    private final TransferenciaProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public ResultadoConversao obterOuConverter(Arquivo origem, String operacao, String alvo, int versaoPerfil,
+                                               Arquivo destino, Function<String, Long> conversor) {
+        Optional<ResultadoConversao> cache = buscar(origem, operacao, alvo, versaoPerfil);
+        if (cache.isPresent()) {
+            return cache.get();
+        }
+
+        String caminho = resolverCaminho(origem, operacao, alvo, versaoPerfil, destino);
+        long tamanhoBytes = conversor.apply(caminho);
+        registrar(origem, operacao, alvo, versaoPerfil, caminho, tamanhoBytes);
+        return new ResultadoConversao(caminho, tamanhoBytes, false);
+    }
+
+    public Optional<ResultadoConversao> buscar(Arquivo origem, String operacao, String alvo, int versaoPerfil) {
+        String hash = origem.getHashConteudoVerificado();
+        if (hash == null || hash.isBlank()) {
+            return Optional.empty();
+        }
+
+        String key = gerarChave(hash, operacao, alvo, versaoPerfil);
+        return buscarEntrada(key)
+            .map(conversao -> {
+                if (conversao.isEspeculativa()) {
+                    registrarAcertoEspeculativo(key, operacao, conversao);
+                }
+                log.info("Conversão reaproveitada do cache: origem={} operacao={} alvo={} caminho={}",
+                    origem.getId(), operacao, alvo, conversao.getCaminhoMinio());
+                return new ResultadoConversao(conversao.getCaminhoMinio(), conversao.getTamanhoBytes(), true);
+            });
+    }
+
+    public boolean existe(Arquivo origem, String operacao, String alvo, int versaoPerfil) {
+        String hash = origem.getHashConteudoVerificado();
+        return hash != null && !hash.isBlank() && buscarEntrada(gerarChave(hash, operacao, alvo, versaoPerfil)).isPresent();
+    }
+
+    public String resolverCaminho(Arquivo origem, String operacao, String alvo, int versaoPerfil, Arquivo destino) {
+        String hash = origem.getHashConteudoVerificado();
+        if (hash == null || hash.isBlank()) {
+            return minioService.gerarCaminhoArquivo(destino.getSessaoId(), destino.getId(), destino.getNomeOriginal());
+        }
+
+        String key = gerarChave(hash, operacao, alvo, versaoPerfil);
+        return PREFIXO_COMPARTILHADO + key.substring(CONVERSAO_PREFIX.length()).replace(':', '/') + "/" + destino.getId();
+    }
+
+    public void registrar(Arquivo origem, String operacao, String alvo, int versaoPerfil, String caminhoMinio, long tamanhoBytes) {
+        String hash = origem.getHashConteudoVerificado();
+        if (hash == null || hash.isBlank() || !isCaminhoCompartilhado(caminhoMinio)) {
+            return;
+        }
+        salvar(gerarChave(hash, operacao, alvo, versaoPerfil), ConversaoCache.builder()
+            .caminhoMinio(caminhoMinio)
+            .tamanhoBytes(tamanhoBytes)
+            .criadoEm(Instant.now())
+            .build());
+    }
+
+    public void registrarEspeculativa(Arquivo origem, String operacao, String alvo, int versaoPerfil,
+                                      String caminhoMinio, long tamanhoBytes, double segundosProcessamento) {
+        String hash = origem.getHashConteudoVerificado();
+        if (hash == null || hash.isBlank() || !isCaminhoCompartilhado(caminhoMinio)) {
+            return;
+        }
+        salvar(gerarChave(hash, operacao, alvo, versaoPerfil), ConversaoCache.builder()
+            .caminhoMinio(caminhoMinio)
+            .tamanhoBytes(tamanhoBytes)
+            .criadoEm(Instant.now())
+            .especulativa(true)
+            .segundosProcessamento(segundosProcessamento)
+            .build());
+
+        Counter.builder(METRICA_ESPECULACAO_CPU)
+            .tag("operacao", operacao)
+            .tag("resultado", "gasto")
+            .register(meterRegistry)
+            .increment(segundosProcessamento);
+    }
+
+    public static boolean isCaminhoCompartilhado(String caminhoMinio) {
+        return caminhoMinio != null && caminhoMinio.startsWith(PREFIXO_COMPARTILHADO);
+    }
+
+    public void removerConversoesExpiradas() {
+        Duration retencao = getTtl()
+            .plusMinutes(properties.getPremium().getSessaoDuracaoMinutos())
+            .plusHours(1);
+
+        int removidos = minioService.deletarObjetosAnteriores(PREFIXO_COMPARTILHADO, Instant.now().minus(retencao));
+        if (removidos > 0) {
+            log.info("Conversões compartilhadas expiradas removidas: {}", removidos);
+        }
+    }
+
+    private Optional<ConversaoCache> buscarEntrada(String key) {
+        try {
+            Object valor = transferenciaRedisTemplate.opsForValue().get(key);
+            if (valor instanceof ConversaoCache conversao) {
+                if (minioService.existeObjeto(conversao.getCaminhoMinio())) {
+                    return Optional.of(conversao);
+                }
+                log.debug("Objeto da conversão em cache não existe mais: {}", conversao.getCaminhoMinio());
+            }
+            if (valor != null) {
+                transferenciaRedisTemplate.delete(key);
+            }
+        } catch (Exception e) {
+            log.warn("Erro ao ler conversão em cache ({}), removendo entrada: {}", key, e.getMessage());
+            transferenciaRedisTemplate.delete(key);
+        }
+        return Optional.empty();
+    }
+
+    // Só o primeiro pedido que encontra a conversão antecipada conta como acerto: a marca é removida mantendo o TTL
+    private void registrarAcertoEspeculativo(String key, String operacao, ConversaoCache conversao) {
+        Counter.builder(METRICA_ESPECULACAO_ACERTOS)
+            .tag("operacao", operacao)
+            .register(meterRegistry)
+            .increment();
+        Counter.builder(METRICA_ESPECULACAO_CPU)
+            .tag("operacao", operacao)
+            .tag("resultado", "aproveitado")
+            .register(meterRegistry)
+            .increment(conversao.getSegundosProcessamento());
+
+        try {
+            Long restante = transferenciaRedisTemplate.getExpire(key);
+            if (restante != null && restante > 0) {
+                conversao.setEspeculativa(false);
+                transferenciaRedisTemplate.opsForValue().set(key, conversao, Duration.ofSeconds(restante));
+            }
+        } catch (Exception e) {
+            log.warn("Erro ao atualizar conversão especulativa em cache ({}): {}", key, e.getMessage());
+        }
+    }
+
+    private void salvar(String key, ConversaoCache conversao) {
+        try {
+            // TTL contado a partir da criação do objeto: a limpeza do MinIO usa a mesma referência
+            transferenciaRedisTemplate.opsForValue().set(key, conversao, getTtl());
+        } catch (Exception e) {
+            log.warn("Erro ao salvar conversão em cache ({}): {}", key, e.getMessage());
+        }
+    }
+
+    private Duration getTtl() {
+        return Duration.ofHours(properties.getConversaoCacheTtlHoras());
+    }
+
+    private static String gerarChave(String hash, String operacao, String alvo, int versaoPerfil) {
+        return CONVERSAO_PREFIX + hash.strip().toLowerCase(Locale.ROOT)
+            + ":" + operacao
+            + ":" + alvo.strip().toLowerCase(Locale.ROOT)
+            + ":v" + versaoPerfil;
+    }
+
+    public record ResultadoConversao(String caminhoMinio, long tamanhoBytes, boolean reaproveitado) {}
+}
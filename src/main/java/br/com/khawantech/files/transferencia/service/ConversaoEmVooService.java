@@ -0,0 +1,114 @@
+package br.com.khawantech.files.transferencia.service;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Registro single-flight de conversões: o primeiro pedido para (arquivo, alvo, nível) reivindica a execução
+ * atomicamente no Redis e os pedidos idênticos que chegam enquanto ela roda são anexados a ela, recebendo
+ * a mesma notificação de conclusão da sessão em vez de iniciar outro processo.
+ * A reivindicação tem prazo curto: enquanto a mensagem aguarda na fila vale o prazo de fila e, a partir do
+ * consumo, o nó que converte a renova periodicamente, de modo que um nó que cai não prende o pedido por horas.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ConversaoEmVooService {
+
+    private static final String VOO_PREFIX = "conversao:voo:";
+    private static final String ANEXADOS_SUFIXO = ":anexados";
+    // A mensagem publicada sobrevive à queda do nó que reivindicou, então o prazo cobre a espera na fila
+    static final Duration FILA_TTL = Duration.ofMinutes(30);
+    // Renovado a cada RENOVACAO_MS pelo nó que executa a conversão
+    static final Duration EXECUCAO_TTL = Duration.ofMinutes(2);
+    private static final long RENOVACAO_MS = 30000;
+
+    private final RedisTemplate<String, Object> transferenciaRedisTemplate;
+    private final OrcamentoConversaoService orcamentoConversaoService;
+
+    // Chaves em execução neste nó, com o número de mensagens que as processam (segmentos do mesmo vídeo)
+    private final Map<String, Integer> emExecucao = new ConcurrentHashMap<>();
+
+    public boolean reivindicar(String arquivoId, String alvo, Integer nivel, String solicitanteId) {
+        String key = gerarChave(arquivoId, alvo, nivel);
+        try {
+            return Boolean.TRUE.equals(transferenciaRedisTemplate.opsForValue().setIfAbsent(key, solicitanteId, FILA_TTL));
+        } catch (Exception e) {
+            // Sem Redis a conversão segue sem coalescência: a verificação de duplicidade no Mongo continua valendo
+            log.warn("Erro ao reivindicar conversão ({}): {}", key, e.getMessage());
+            return true;
+        }
+    }
+
+    public void anexar(String arquivoId, String alvo, Integer nivel, String solicitanteId) {
+        String key = gerarChave(arquivoId, alvo, nivel) + ANEXADOS_SUFIXO;
+        try {
+            transferenciaRedisTemplate.opsForSet().add(key, solicitanteId);
+            transferenciaRedisTemplate.expire(key, FILA_TTL);
+        } catch (Exception e) {
+            log.warn("Erro ao anexar pedido à conversão em andamento ({}): {}", key, e.getMessage());
+        }
+        log.info("Pedido anexado à conversão em andamento: arquivo={} alvo={} nivel={} solicitante={}",
+            arquivoId, alvo, nivel, solicitanteId);
+    }
+
+    // Chamado pelo consumidor ao começar a converter: a partir daqui a reivindicação vive do heartbeat deste nó
+    public void iniciarExecucao(String arquivoId, String alvo, Integer nivel) {
+        String key = gerarChave(arquivoId, alvo, nivel);
+        emExecucao.merge(key, 1, Integer::sum);
+        renovar(key, EXECUCAO_TTL);
+    }
+
+    // A execução continua em outras mensagens (segmentos na fila): volta ao prazo de fila sem liberar o pedido
+    public void suspenderExecucao(String arquivoId, String alvo, Integer nivel) {
+        String key = gerarChave(arquivoId, alvo, nivel);
+        emExecucao.computeIfPresent(key, (chave, mensagens) -> mensagens > 1 ? mensagens - 1 : null);
+        renovar(key, FILA_TTL);
+    }
+
+    @Scheduled(fixedDelay = RENOVACAO_MS, initialDelay = RENOVACAO_MS)
+    public void renovarExecucoes() {
+        emExecucao.keySet().forEach(key -> renovar(key, EXECUCAO_TTL));
+    }
+
+    public void liberar(String arquivoId, String alvo, Integer nivel) {
+        String key = gerarChave(arquivoId, alvo, nivel);
+        emExecucao.remove(key);
+        orcamentoConversaoService.liberar(key);
+        try {
+            Long anexados = transferenciaRedisTemplate.opsForSet().size(key + ANEXADOS_SUFIXO);
+            transferenciaRedisTemplate.delete(key);
+            transferenciaRedisTemplate.delete(key + ANEXADOS_SUFIXO);
+            if (anexados != null && anexados > 0) {
+                log.info("Conversão coalescida liberada: arquivo={} alvo={} nivel={} pedidosAnexados={}",
+                    arquivoId, alvo, nivel, anexados);
+            }
+        } catch (Exception e) {
+            log.warn("Erro ao liberar conversão em andamento ({}): {}", key, e.getMessage());
+        }
+    }
+
+    private void renovar(String key, Duration ttl) {
+        try {
+            transferenciaRedisTemplate.expire(key, ttl);
+            transferenciaRedisTemplate.expire(key + ANEXADOS_SUFIXO, ttl);
+        } catch (Exception e) {
+            log.warn("Erro ao renovar conversão em andamento ({}): {}", key, e.getMessage());
+        }
+    }
+
+    static String gerarChave(String arquivoId, String alvo, Integer nivel) {
+        return VOO_PREFIX + arquivoId
+            + ":" + alvo.strip().toLowerCase(Locale.ROOT)
+            + ":" + (nivel != null ? nivel : "padrao");
+    }
+}
@@ -0,0 +1,257 @@
+package br.com.khawantech.files.transferencia.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import br.com.khawantech.files.transferencia.config.FilaMetricasInterceptor;
+import br.com.khawantech.files.transferencia.config.RabbitConfig;
+import br.com.khawantech.files.transferencia.config.TransferenciaProperties;
+import br.com.khawantech.files.transferencia.dto.ArquivoCompletoEvent;
+import br.com.khawantech.files.transferencia.dto.ConversaoEspeculativaEvent;
+import br.com.khawantech.files.transferencia.dto.FormatoImagem;
+import br.com.khawantech.files.transferencia.dto.FormatoVideo;
+import br.com.khawantech.files.transferencia.entity.Arquivo;
+import br.com.khawantech.files.transferencia.entity.StatusArquivo;
+import br.com.khawantech.files.transferencia.repository.ArquivoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Converte antecipadamente, para o alvo mais pedido de cada tipo de origem, arquivos recém-concluídos
+ * enquanto as filas de conversão estão ociosas. O resultado entra no cache de conversões e é reaproveitado
+ * quando o usuário fizer o pedido.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ConversaoEspeculativaService {
+
+    public static final String METRICA_AGENDADAS = "transferencia.especulacao.agendadas";
+    public static final String METRICA_IGNORADAS = "transferencia.especulacao.ignoradas";
+    public static final String METRICA_CONCLUIDAS = "transferencia.especulacao.concluidas";
+
+    private static final String PEDIDOS_PREFIX = "especulacao:pedidos:";
+    private static final int PRIORIDADE_ESPECULATIVA = 0;
+
+    // Alvos usados enquanto não há pedidos suficientes para a estatística do tipo de origem
+    private static final Map<String, String> ALVOS_PADRAO = Map.of(
+        "video/quicktime", "mp4"
+    );
+
+    private static final List<String> FILAS_IMAGEM = List.of(
+        RabbitConfig.QUEUE_IMAGE_CONVERSION,
+        RabbitConfig.QUEUE_IMAGE_OPTIMIZATION,
+        RabbitConfig.QUEUE_IMAGE_CONVERSION_LEGADO,
+        RabbitConfig.QUEUE_IMAGE_OPTIMIZATION_LEGADO
+    );
+    private static final List<String> FILAS_VIDEO = List.of(
+        RabbitConfig.QUEUE_VIDEO_CONVERSION,
+        RabbitConfig.QUEUE_VIDEO_OPTIMIZATION,
+        RabbitConfig.QUEUE_VIDEO_SEGMENTO,
+        RabbitConfig.QUEUE_VIDEO_STREAMING,
+        RabbitConfig.QUEUE_VIDEO_CONVERSION_LEGADO,
+        RabbitConfig.QUEUE_VIDEO_OPTIMIZATION_LEGADO
+    );
+
+    private final ArquivoRepository arquivoRepository;
+    private final VideoConversionService videoConversionService;
+    private final ImageConversionService imageConversionService;
+    private final PublicadorEventosService publicadorEventosService;
+    private final AmqpAdmin amqpAdmin;
+    private final RedisTemplate<String, Object> transferenciaRedisTemplate;
+    private final TransferenciaProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ExecucaoConversaoRegistry execucaoConversaoRegistry;
+    private final FilaMetricasInterceptor filaMetricasInterceptor;
+
+    public void registrarPedido(String tipoMimeOrigem, String alvo) {
+        if (tipoMimeOrigem == null || alvo == null) {
+            return;
+        }
+        String key = PEDIDOS_PREFIX + normalizar(tipoMimeOrigem);
+        try {
+            transferenciaRedisTemplate.opsForHash().increment(key, alvo.strip().toLowerCase(Locale.ROOT), 1);
+            transferenciaRedisTemplate.expire(key, Duration.ofDays(properties.getEspeculacao().getHistoricoDias()));
+        } catch (Exception e) {
+            log.warn("Erro ao registrar pedido de conversão para especulação ({}): {}", key, e.getMessage());
+        }
+    }
+
+    public Optional<String> alvoProvavel(String tipoMimeOrigem) {
+        String mime = normalizar(tipoMimeOrigem);
+        TransferenciaProperties.Especulacao especulacao = properties.getEspeculacao();
+
+        try {
+            Map<Object, Object> pedidos = transferenciaRedisTemplate.opsForHash().entries(PEDIDOS_PREFIX + mime);
+            long total = 0;
+            long maior = 0;
+            String melhor = null;
+            for (Map.Entry<Object, Object> entrada : pedidos.entrySet()) {
+                long quantidade = entrada.getValue() instanceof Number numero
+                    ? numero.longValue()
+                    : Long.parseLong(String.valueOf(entrada.getValue()));
+                total += quantidade;
+                if (quantidade > maior) {
+                    maior = quantidade;
+                    melhor = String.valueOf(entrada.getKey());
+                }
+            }
+            if (total >= especulacao.getAmostrasMinimas()) {
+                return maior >= total * especulacao.getFracaoMinima() ? Optional.of(melhor) : Optional.empty();
+            }
+        } catch (Exception e) {
+            log.warn("Erro ao ler estatística de conversões de {}: {}", mime, e.getMessage());
+        }
+        return Optional.ofNullable(ALVOS_PADRAO.get(mime));
+    }
+
+    public void agendar(ArquivoCompletoEvent event) {
+        if (!properties.getEspeculacao().isHabilitada() || event.getTipoMime() == null) {
+            return;
+        }
+
+        String tipo = tipo(event.getTipoMime());
+        if (tipo == null) {
+            return;
+        }
+
+        Optional<String> alvo = alvoProvavel(event.getTipoMime()).filter(valor -> isAlvoValido(event.getTipoMime(), valor));
+        if (alvo.isEmpty()) {
+            ignorar(tipo, "sem_alvo");
+            return;
+        }
+
+        // Cada tipo tem a própria fila, consumida pelo pool de workers do mesmo tipo
+        boolean video = "video".equals(tipo);
+        String fila = video ? RabbitConfig.QUEUE_CONVERSAO_ESPECULATIVA : RabbitConfig.QUEUE_CONVERSAO_ESPECULATIVA_IMAGEM;
+        if (!filasOciosas(tipo) || contarPendentes(fila) >= properties.getEspeculacao().getMaxPendentes()) {
+            ignorar(tipo, "fila_ocupada");
+            return;
+        }
+
+        try {
+            publicadorEventosService.publicar(
+                RabbitConfig.EXCHANGE_TRANSFERENCIA,
+                video ? RabbitConfig.ROUTING_KEY_CONVERSAO_ESPECULATIVA : RabbitConfig.ROUTING_KEY_CONVERSAO_ESPECULATIVA_IMAGEM,
+                ConversaoEspeculativaEvent.builder()
+                    .arquivoId(event.getArquivoId())
+                    .sessaoId(event.getSessaoId())
+                    .formatoDestino(alvo.get())
+                    .build(),
+                message -> {
+                    message.getMessageProperties().setPriority(PRIORIDADE_ESPECULATIVA);
+                    return message;
+                }
+            );
+            Counter.builder(METRICA_AGENDADAS).tag("tipo", tipo).register(meterRegistry).increment();
+            log.info("Conversão especulativa agendada: arquivo={} alvo={}", event.getArquivoId(), alvo.get());
+        } catch (Exception e) {
+            log.warn("Erro ao agendar conversão especulativa do arquivo {}: {}", event.getArquivoId(), e.getMessage());
+        }
+    }
+
+    public void executar(ConversaoEspeculativaEvent event) {
+        Arquivo arquivo = arquivoRepository.findById(event.getArquivoId()).orElse(null);
+        if (arquivo == null || !StatusArquivo.COMPLETO.equals(arquivo.getStatus()) || arquivo.getCaminhoMinio() == null) {
+            log.debug("Arquivo indisponível para conversão especulativa: {}", event.getArquivoId());
+            return;
+        }
+
+        String tipo = tipo(arquivo.getTipoMime());
+        if (tipo == null || !isAlvoValido(arquivo.getTipoMime(), event.getFormatoDestino())) {
+            return;
+        }
+
+        // Sem hash verificado o resultado não pode ser compartilhado pelo cache
+        if (arquivo.getHashConteudoVerificado() == null || arquivo.getHashConteudoVerificado().isBlank()) {
+            ignorar(tipo, "sem_hash");
+            return;
+        }
+
+        // A fila pode ter enchido desde o agendamento: pedidos reais sempre passam na frente
+        if (!filasOciosas(tipo)) {
+            ignorar(tipo, "fila_ocupada");
+            return;
+        }
+
+        try (ExecucaoConversaoRegistry.Execucao execucao = execucaoConversaoRegistry.iniciar(arquivo.getSessaoId(), arquivo.getId())) {
+            execucao.verificar();
+            boolean convertido = "video".equals(tipo)
+                ? videoConversionService.converterEspeculativo(arquivo, FormatoVideo.fromApiValue(event.getFormatoDestino()).orElseThrow())
+                : imageConversionService.converterEspeculativo(arquivo, FormatoImagem.valueOf(event.getFormatoDestino().toUpperCase(Locale.ROOT)));
+
+            if (!convertido) {
+                ignorar(tipo, "em_cache");
+                return;
+            }
+            Counter.builder(METRICA_CONCLUIDAS).tag("tipo", tipo).register(meterRegistry).increment();
+            log.info("Conversão especulativa concluída: arquivo={} alvo={}", arquivo.getId(), event.getFormatoDestino());
+        } catch (Exception e) {
+            // Trabalho especulativo não é reprocessado: a conversão ainda pode ser feita quando for pedida
+            ignorar(tipo, "erro");
+            log.warn("Erro na conversão especulativa do arquivo {}: {}", arquivo.getId(), e.getMessage());
+        }
+    }
+
+    private boolean isAlvoValido(String tipoMime, String alvo) {
+        if (FormatoVideo.isVideoLike(tipoMime)) {
+            Optional<FormatoVideo> formato = FormatoVideo.fromApiValue(alvo);
+            return formato.isPresent()
+                && !formato.equals(FormatoVideo.fromMimeType(tipoMime))
+                && videoConversionService.getFormatosDisponiveis(tipoMime).contains(formato.get());
+        }
+        try {
+            FormatoImagem formato = FormatoImagem.valueOf(alvo.toUpperCase(Locale.ROOT));
+            return !Optional.of(formato).equals(FormatoImagem.fromMimeType(tipoMime))
+                && imageConversionService.getFormatosDisponiveis(tipoMime).contains(formato);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // Fila vazia não basta: com prefetch baixo os jobs em execução saem da contagem de prontas do broker.
+    // Os jobs deste nó contam também, já que é a CPU dele que a conversão especulativa vai disputar
+    private boolean filasOciosas(String tipo) {
+        List<String> filas = "video".equals(tipo) ? FILAS_VIDEO : FILAS_IMAGEM;
+        return filas.stream().allMatch(fila -> filaMetricasInterceptor.emExecucao(fila) == 0 && contarPendentes(fila) == 0);
+    }
+
+    private int contarPendentes(String fila) {
+        try {
+            QueueInformation info = amqpAdmin.getQueueInfo(fila);
+            return info != null ? info.getMessageCount() : 0;
+        } catch (Exception e) {
+            log.debug("Não foi possível consultar a fila {}: {}", fila, e.getMessage());
+            return Integer.MAX_VALUE;
+        }
+    }
+
+    private void ignorar(String tipo, String motivo) {
+        Counter.builder(METRICA_IGNORADAS)
+            .tag("tipo", tipo)
+            .tag("motivo", motivo)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    private String tipo(String tipoMime) {
+        if (FormatoVideo.isVideoLike(tipoMime)) {
+            return videoConversionService.isVideoConversivel(tipoMime) ? "video" : null;
+        }
+        return imageConversionService.isImagemConversivel(tipoMime) ? "imagem" : null;
+    }
+
+    private static String normalizar(String tipoMime) {
+        return tipoMime == null ? "" : tipoMime.strip().toLowerCase(Locale.ROOT);
+    }
+}
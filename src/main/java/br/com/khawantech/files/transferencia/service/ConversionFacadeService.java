@@ -1,9 +1,11 @@
 package br.com.khawantech.files.transferencia.service;
 
+import br.com.khawantech.files.transferencia.dto.AlvoConversaoVideo;
 import br.com.khawantech.files.transferencia.dto.FormatoAudio;
 import br.com.khawantech.files.transferencia.dto.FormatoImagem;
 import br.com.khawantech.files.transferencia.dto.FormatoVideo;
 import br.com.khawantech.files.transferencia.entity.Arquivo;
+import br.com.khawantech.files.transferencia.entity.Sessao;
 import br.com.khawantech.files.transferencia.entity.StatusArquivo;
 import br.com.khawantech.files.transferencia.exception.ConversaoNaoSuportadaException;
 import br.com.khawantech.files.transferencia.exception.RecursoNaoEncontradoException;
@@ -26,6 +28,9 @@ public class ConversionFacadeService {
     private final ImageConversionService imageConversionService;
     private final VideoConversionService videoConversionService;
     private final AudioConversionService audioConversionService;
+    private final ConversaoEspeculativaService conversaoEspeculativaService;
+    private final CancelamentoConversaoService cancelamentoConversaoService;
+    private final SessaoService sessaoService;
 
     private static final List<StatusArquivo> STATUS_CONVERSAO_ATIVOS = List.of(StatusArquivo.PROCESSANDO, StatusArquivo.COMPLETO);
 
@@ -74,12 +79,14 @@ public class ConversionFacadeService {
     public void converterArquivo(String arquivoId, String formatoDestino, User solicitante) {
         Arquivo arquivo = arquivoRepository.findById(arquivoId)
             .orElseThrow(() -> new RecursoNaoEncontradoException("Arquivo não encontrado"));
+        cancelamentoConversaoService.limparCancelamento(arquivoId);
 
         if (FormatoVideo.isVideoLike(arquivo.getTipoMime())) {
             if (FormatoVideo.fromApiValue(formatoDestino).isEmpty()) {
                 throw new ConversaoNaoSuportadaException("Formato de conversão não disponível para este arquivo");
             }
             videoConversionService.converterVideo(arquivoId, formatoDestino, solicitante);
+            conversaoEspeculativaService.registrarPedido(arquivo.getTipoMime(), FormatoVideo.fromApiValue(formatoDestino).get().apiValue());
             return;
         }
 
@@ -100,6 +107,33 @@ public class ConversionFacadeService {
         }
 
         imageConversionService.converterImagem(arquivoId, formatoDestino, solicitante);
+        conversaoEspeculativaService.registrarPedido(arquivo.getTipoMime(), formatoDestino);
+    }
+
+    public void converterArquivoLote(String arquivoId, List<AlvoConversaoVideo> alvos, User solicitante) {
+        Arquivo arquivo = arquivoRepository.findById(arquivoId)
+            .orElseThrow(() -> new RecursoNaoEncontradoException("Arquivo não encontrado"));
+
+        if (!FormatoVideo.isVideoLike(arquivo.getTipoMime())) {
+            throw new ConversaoNaoSuportadaException("Conversão em lote disponível apenas para vídeos");
+        }
+        cancelamentoConversaoService.limparCancelamento(arquivoId);
+
+        videoConversionService.converterVideoLote(arquivoId, alvos, solicitante);
+        alvos.stream()
+            .filter(alvo -> alvo.getNivel() == null)
+            .forEach(alvo -> FormatoVideo.fromApiValue(alvo.getFormato()).ifPresent(formato ->
+                conversaoEspeculativaService.registrarPedido(arquivo.getTipoMime(), formato.apiValue())));
+    }
+
+    public void cancelarConversoes(String arquivoId, User solicitante) {
+        Arquivo arquivo = arquivoRepository.findById(arquivoId)
+            .orElseThrow(() -> new RecursoNaoEncontradoException("Arquivo não encontrado"));
+
+        Sessao sessao = sessaoService.buscarPorId(arquivo.getSessaoId());
+        sessaoService.validarUsuarioPertenceASessao(sessao, solicitante.getId());
+
+        cancelamentoConversaoService.cancelarArquivo(arquivo);
     }
 
     private Set<String> getFormatosJaConvertidos(String arquivoOriginalId) {
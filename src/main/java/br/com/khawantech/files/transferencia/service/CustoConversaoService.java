@@ -0,0 +1,140 @@
+package br.com.khawantech.files.transferencia.service;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import br.com.khawantech.files.transferencia.config.TransferenciaProperties;
+import br.com.khawantech.files.transferencia.entity.Arquivo;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Estima o custo em segundos de processamento de uma conversão a partir dos metadados técnicos da origem:
+ * segundos de mídia escalados pela resolução relativa a 1080p (ou megapixels, para imagens), pelo peso do
+ * perfil de cada alvo e por um fator da operação que é recalibrado com os tempos medidos das execuções.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CustoConversaoService {
+
+    public static final String METRICA_ERRO_ESTIMATIVA = "transferencia.orcamento.erro.estimativa";
+
+    private static final String CALIBRACAO_KEY = "orcamento:calibracao";
+    private static final double PIXELS_1080P = 1920.0 * 1080.0;
+    private static final double ESCALA_MINIMA = 0.05;
+    private static final double CUSTO_MINIMO_SEGUNDOS = 1.0;
+
+    // Segundos de processamento por unidade de trabalho antes de qualquer medição
+    private static final Map<String, Double> FATORES_PADRAO = Map.of(
+        "video-conversao", 0.6,
+        "video-remux", 0.02,
+        "video-otimizacao", 0.8,
+        "audio-conversao", 0.05,
+        "imagem-conversao", 0.4,
+        "imagem-otimizacao", 1.5,
+        "streaming-hls", 1.2
+    );
+
+    // Perfis de codificação mais pesados que o H.264 de referência
+    private static final Map<String, Double> PESOS_ALVO = Map.of(
+        "webm", 2.5,
+        "gif", 1.5,
+        "flac", 1.5,
+        "opus", 1.2,
+        "webp", 1.5,
+        "tiff", 0.5,
+        "bmp", 0.3
+    );
+
+    private final RedisTemplate<String, Object> transferenciaRedisTemplate;
+    private final TransferenciaProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public double estimar(Arquivo origem, String operacao, List<String> alvos) {
+        double custo = fator(operacao) * unidades(origem) * pesoTotal(alvos);
+        return Math.max(CUSTO_MINIMO_SEGUNDOS, custo);
+    }
+
+    public void calibrar(Arquivo origem, String operacao, List<String> alvos, double segundosMedidos) {
+        double trabalho = unidades(origem) * pesoTotal(alvos);
+        if (trabalho <= 0 || segundosMedidos <= 0) {
+            return;
+        }
+
+        double atual = fator(operacao);
+        double medido = segundosMedidos / trabalho;
+        double peso = properties.getOrcamento().getPesoCalibracao();
+        double calibrado = atual * (1 - peso) + medido * peso;
+
+        try {
+            transferenciaRedisTemplate.opsForHash().put(CALIBRACAO_KEY, operacao, calibrado);
+        } catch (Exception e) {
+            log.warn("Erro ao calibrar custo da operação {}: {}", operacao, e.getMessage());
+            return;
+        }
+
+        DistributionSummary.builder(METRICA_ERRO_ESTIMATIVA)
+            .tag("operacao", operacao)
+            .register(meterRegistry)
+            .record(medido / atual);
+        log.debug("Custo da operação {} calibrado: fator {} -> {} (medido {}s)", operacao, atual, calibrado, segundosMedidos);
+    }
+
+    private double fator(String operacao) {
+        try {
+            Object valor = transferenciaRedisTemplate.opsForHash().get(CALIBRACAO_KEY, operacao);
+            if (valor instanceof Number numero && numero.doubleValue() > 0) {
+                return numero.doubleValue();
+            }
+        } catch (Exception e) {
+            log.debug("Fator calibrado indisponível para {}: {}", operacao, e.getMessage());
+        }
+        return FATORES_PADRAO.getOrDefault(operacao, 1.0);
+    }
+
+    // Segundos de mídia a 1080p para áudio e vídeo, megapixels para imagens, MB como último recurso
+    private static double unidades(Arquivo origem) {
+        Map<String, String> metadados = origem.getMetadadosTecnicos() != null ? origem.getMetadadosTecnicos() : Map.of();
+        double duracao = numero(metadados, "duration");
+        if (duracao <= 0) {
+            duracao = Math.max(numero(metadados, "videoDuration"), numero(metadados, "audioDuration"));
+        }
+        double pixels = numero(metadados, "width") * numero(metadados, "height");
+
+        if (duracao > 0) {
+            return duracao * (pixels > 0 ? Math.max(ESCALA_MINIMA, pixels / PIXELS_1080P) : 1.0);
+        }
+        if (pixels > 0) {
+            return pixels / 1_000_000.0;
+        }
+        return origem.getTamanhoBytes() > 0 ? origem.getTamanhoBytes() / (1024.0 * 1024.0) : 1.0;
+    }
+
+    private static double pesoTotal(List<String> alvos) {
+        if (alvos == null || alvos.isEmpty()) {
+            return 1.0;
+        }
+        return alvos.stream()
+            .mapToDouble(alvo -> alvo == null ? 1.0 : PESOS_ALVO.getOrDefault(alvo.strip().toLowerCase(Locale.ROOT), 1.0))
+            .sum();
+    }
+
+    private static double numero(Map<String, String> metadados, String chave) {
+        String valor = metadados.get(chave);
+        if (valor == null || valor.isBlank()) {
+            return 0;
+        }
+        try {
+            return Double.parseDouble(valor.strip());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -16,6 +16,9 @@ public class DownloadTokenService {
     private final RedisTemplate<String, String> redisTemplate;
     private static final String TOKEN_PREFIX = "download_token:";
     private static final long TOKEN_EXPIRATION_MINUTES = 5;
+    private static final String PREVIEW_TOKEN_PREFIX = "preview_token:";
+    private static final String PREVIEW_TOKEN_REF_PREFIX = "preview_token_ref:";
+    public static final long PREVIEW_TOKEN_EXPIRATION_HOURS = 24;
 
     public String gerarToken(String arquivoId, String usuarioId) {
         String token = UUID.randomUUID().toString();
@@ -48,4 +51,37 @@ public class DownloadTokenService {
         log.debug("Token de download validado e consumido");
         return parts;
     }
+
+    // Reaproveita o token enquanto válido: a URL das variantes fica estável e o navegador consegue cacheá-las
+    public String gerarTokenPreview(String arquivoId, String usuarioId) {
+        String refKey = PREVIEW_TOKEN_REF_PREFIX + arquivoId + ":" + usuarioId;
+        String existente = redisTemplate.opsForValue().get(refKey);
+        if (existente != null && Boolean.TRUE.equals(redisTemplate.hasKey(PREVIEW_TOKEN_PREFIX + existente))) {
+            return existente;
+        }
+
+        String token = UUID.randomUUID().toString();
+        redisTemplate.opsForValue().set(PREVIEW_TOKEN_PREFIX + token, arquivoId + ":" + usuarioId,
+            PREVIEW_TOKEN_EXPIRATION_HOURS, TimeUnit.HOURS);
+        // A referência expira antes do token para nunca devolver um token prestes a vencer
+        redisTemplate.opsForValue().set(refKey, token, PREVIEW_TOKEN_EXPIRATION_HOURS - 1, TimeUnit.HOURS);
+        log.debug("Token de preview gerado para arquivo: {}", arquivoId);
+
+        return token;
+    }
+
+    public String[] validarTokenPreview(String token) {
+        String value = redisTemplate.opsForValue().get(PREVIEW_TOKEN_PREFIX + token);
+        if (value == null) {
+            log.warn("Token de preview inválido ou expirado");
+            return null;
+        }
+
+        String[] parts = value.split(":");
+        if (parts.length != 2) {
+            log.error("Token de preview com formato inválido");
+            return null;
+        }
+        return parts;
+    }
 }
@@ -0,0 +1,219 @@
+package br.com.khawantech.files.transferencia.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+
+import org.im4java.process.ProcessEvent;
+import org.im4java.process.ProcessListener;
+import org.im4java.process.ProcessStarter;
+import org.springframework.stereotype.Service;
+
+import com.github.kokorin.jaffree.ffmpeg.FFmpeg;
+import com.github.kokorin.jaffree.ffmpeg.FFmpegResult;
+import com.github.kokorin.jaffree.ffmpeg.FFmpegResultFuture;
+
+import br.com.khawantech.files.transferencia.exception.ConversaoCanceladaException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Conversões em execução nesta instância, com os processos externos (ffmpeg, ImageMagick) de cada uma.
+ * A execução corrente fica associada à thread do consumidor, de modo que os serviços de conversão
+ * registram seus processos sem receber o job como parâmetro.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ExecucaoConversaoRegistry {
+
+    private final CancelamentoConversaoService cancelamentoConversaoService;
+
+    private final Map<String, Execucao> execucoes = new ConcurrentHashMap<>();
+    private final ThreadLocal<Execucao> atual = new ThreadLocal<>();
+
+    public Execucao iniciar(String sessaoId, String... arquivoIds) {
+        Execucao execucao = new Execucao(UUID.randomUUID().toString(), sessaoId, Set.of(arquivoIds));
+        execucoes.put(execucao.id, execucao);
+        atual.set(execucao);
+
+        // Job que ainda estava na fila quando a sessão ou o arquivo foi cancelado
+        if (cancelamentoConversaoService.isCancelada(sessaoId, execucao.arquivoIds)) {
+            execucao.cancelar();
+        }
+        return execucao;
+    }
+
+    public void verificar() {
+        Execucao execucao = atual.get();
+        if (execucao != null) {
+            execucao.verificar();
+        }
+    }
+
+    public FFmpegResult executar(FFmpeg ffmpeg) {
+        Execucao execucao = atual.get();
+        if (execucao == null) {
+            return ffmpeg.execute();
+        }
+
+        execucao.verificar();
+        FFmpegResultFuture futuro = ffmpeg.executeAsync();
+        Runnable parar = futuro::forceStop;
+        execucao.adicionar(parar);
+        try {
+            return futuro.get();
+        } catch (InterruptedException e) {
+            futuro.forceStop();
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Execução do ffmpeg interrompida", e);
+        } catch (ExecutionException e) {
+            execucao.verificar();
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException("Erro na execução do ffmpeg", e.getCause());
+        } finally {
+            execucao.remover(parar);
+        }
+    }
+
+    public void registrarProcessos(ProcessStarter comando) {
+        Execucao execucao = atual.get();
+        if (execucao == null) {
+            return;
+        }
+        comando.addProcessListener(new ProcessListener() {
+            @Override
+            public void processInitiated(ProcessEvent evento) {
+            }
+
+            @Override
+            public void processStarted(ProcessEvent evento) {
+                execucao.adicionar(evento.getProcess());
+            }
+
+            @Override
+            public void processTerminated(ProcessEvent evento) {
+            }
+        });
+    }
+
+    public void registrarProcesso(Process processo) {
+        Execucao execucao = atual.get();
+        if (execucao != null) {
+            execucao.adicionar(processo);
+        }
+    }
+
+    /**
+     * Associa a tarefa à execução da thread que a criou, para que processos iniciados em threads
+     * auxiliares (candidatos da otimização de imagem) também sejam encerrados no cancelamento.
+     */
+    public <T> Callable<T> propagar(Callable<T> tarefa) {
+        Execucao execucao = atual.get();
+        if (execucao == null) {
+            return tarefa;
+        }
+        return () -> {
+            Execucao anterior = atual.get();
+            atual.set(execucao);
+            try {
+                return tarefa.call();
+            } finally {
+                if (anterior != null) {
+                    atual.set(anterior);
+                } else {
+                    atual.remove();
+                }
+            }
+        };
+    }
+
+    public int cancelar(String sessaoId, Collection<String> arquivoIds) {
+        int cancelados = 0;
+        for (Execucao execucao : execucoes.values()) {
+            boolean daSessao = sessaoId != null && sessaoId.equals(execucao.sessaoId);
+            boolean doArquivo = arquivoIds != null && arquivoIds.stream().anyMatch(execucao.arquivoIds::contains);
+            if (daSessao || doArquivo) {
+                execucao.cancelar();
+                cancelados++;
+            }
+        }
+        return cancelados;
+    }
+
+    private static void encerrarArvore(Process processo) {
+        processo.descendants().forEach(ProcessHandle::destroyForcibly);
+        processo.destroyForcibly();
+    }
+
+    public final class Execucao implements AutoCloseable {
+
+        private final String id;
+        private final String sessaoId;
+        private final Set<String> arquivoIds;
+        private final List<Runnable> interrupcoes = new CopyOnWriteArrayList<>();
+        private volatile boolean cancelada;
+
+        private Execucao(String id, String sessaoId, Set<String> arquivoIds) {
+            this.id = id;
+            this.sessaoId = sessaoId;
+            this.arquivoIds = arquivoIds;
+        }
+
+        public boolean isCancelada() {
+            return cancelada;
+        }
+
+        public void verificar() {
+            if (cancelada) {
+                throw new ConversaoCanceladaException("Conversão cancelada");
+            }
+        }
+
+        private void adicionar(Runnable interrupcao) {
+            interrupcoes.add(interrupcao);
+            if (cancelada) {
+                interrupcao.run();
+            }
+        }
+
+        private void adicionar(Process processo) {
+            if (processo != null) {
+                adicionar(() -> encerrarArvore(processo));
+            }
+        }
+
+        private void remover(Runnable interrupcao) {
+            interrupcoes.remove(interrupcao);
+        }
+
+        private void cancelar() {
+            cancelada = true;
+            for (Runnable interrupcao : interrupcoes) {
+                try {
+                    interrupcao.run();
+                } catch (Exception e) {
+                    log.warn("Erro ao encerrar processo da conversão {}: {}", id, e.getMessage());
+                }
+            }
+            log.info("Conversão cancelada: execucao={} sessao={} arquivos={} processos={}",
+                id, sessaoId, arquivoIds, interrupcoes.size());
+        }
+
+        @Override
+        public void close() {
+            execucoes.remove(id);
+            if (atual.get() == this) {
+                atual.remove();
+            }
+        }
+    }
+}
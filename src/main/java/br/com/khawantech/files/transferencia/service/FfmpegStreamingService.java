@@ -0,0 +1,242 @@
+package br.com.khawantech.files.transferencia.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.github.kokorin.jaffree.ffmpeg.BaseOutput;
+import com.github.kokorin.jaffree.ffmpeg.FFmpeg;
+import com.github.kokorin.jaffree.ffmpeg.Input;
+import com.github.kokorin.jaffree.ffmpeg.Output;
+import com.github.kokorin.jaffree.ffmpeg.PipeInput;
+import com.github.kokorin.jaffree.ffmpeg.PipeOutput;
+import com.github.kokorin.jaffree.ffmpeg.ProgressListener;
+import com.github.kokorin.jaffree.ffmpeg.UrlInput;
+import com.github.kokorin.jaffree.ffmpeg.UrlOutput;
+
+import br.com.khawantech.files.transferencia.util.StreamFanOut;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FfmpegStreamingService {
+
+    // Containers que o ffmpeg consegue demultiplexar sem seek (sem índice no fim do arquivo)
+    private static final Set<String> MIME_ENTRADA_SEQUENCIAL = Set.of(
+        "video/x-matroska", "video/matroska", "video/webm", "video/x-flv", "video/mpeg", "video/mp2t",
+        "audio/mpeg", "audio/mp3", "audio/ogg", "audio/vorbis", "audio/opus", "audio/webm", "audio/aac",
+        "audio/flac", "audio/x-flac", "audio/wav", "audio/x-wav", "audio/wave", "audio/amr",
+        "audio/basic", "audio/x-au"
+    );
+
+    // Muxers que não precisam voltar ao início da saída para reescrever cabeçalho ou índice. Matroska/WebM e
+    // FLV escrevem Cues e duração no fim; em pipe ficam sem eles e não permitem seek, então vão por arquivo
+    private static final Set<String> FORMATOS_SAIDA_SEQUENCIAL = Set.of(
+        "mpeg", "mpegts", "gif", "mp3", "adts", "ogg", "opus", "amr", "au"
+    );
+
+    private final MinioService minioService;
+    private final ExecucaoConversaoRegistry execucaoConversaoRegistry;
+
+    @Value("${ffmpeg.bin-dir:/usr/bin}")
+    private String ffmpegBinDir;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public long converter(String caminhoOrigem, String tipoMimeOrigem, String extensaoOrigem,
+                          String caminhoDestino, SaidaFfmpeg saida, ProgressListener progresso) {
+        return converter(caminhoOrigem, tipoMimeOrigem, extensaoOrigem,
+            List.of(new DestinoFfmpeg(caminhoDestino, saida)), progresso).get(0);
+    }
+
+    public List<Long> converter(String caminhoOrigem, String tipoMimeOrigem, String extensaoOrigem,
+                                List<DestinoFfmpeg> destinos, ProgressListener progresso) {
+        InputStream origem = null;
+        Path entradaTemporaria = null;
+        List<SaidaPreparada> saidas = new ArrayList<>();
+
+        try {
+            Input input;
+            if (aceitaEntradaSequencial(tipoMimeOrigem)) {
+                origem = minioService.obterArquivo(caminhoOrigem).inputStream();
+                input = PipeInput.pumpFrom(origem);
+            } else {
+                entradaTemporaria = Files.createTempFile("ffmpeg_input_", "." + extensaoOrigem);
+                minioService.baixarParaArquivo(caminhoOrigem, entradaTemporaria);
+                input = UrlInput.fromPath(entradaTemporaria);
+            }
+
+            for (DestinoFfmpeg destino : destinos) {
+                saidas.add(prepararSaida(destino));
+            }
+
+            FFmpeg ffmpeg = FFmpeg.atPath(Path.of(ffmpegBinDir))
+                .addInput(input)
+                .setOverwriteOutput(true);
+            for (SaidaPreparada saida : saidas) {
+                ffmpeg.addOutput(saida.output());
+            }
+            if (progresso != null) {
+                ffmpeg.setProgressListener(progresso);
+            }
+            execucaoConversaoRegistry.executar(ffmpeg);
+            // Cancelada logo após o ffmpeg terminar: as saídas são descartadas em vez de enviadas
+            execucaoConversaoRegistry.verificar();
+
+            List<Long> tamanhos = new ArrayList<>();
+            for (SaidaPreparada saida : saidas) {
+                tamanhos.add(finalizarSaida(saida));
+            }
+            return tamanhos;
+
+        } catch (Exception e) {
+            for (SaidaPreparada saida : saidas) {
+                descartarSaida(saida, e);
+            }
+
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            if (e instanceof ExecutionException executionException) {
+                throw new RuntimeException("Erro ao gravar saída da conversão", executionException.getCause());
+            }
+            if (e instanceof IOException) {
+                throw new RuntimeException("Erro ao preparar arquivos da conversão", e);
+            }
+            if (e instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException("Erro na conversão com ffmpeg", e);
+        } finally {
+            fecharOrigem(origem);
+            limparArquivosTemporarios(entradaTemporaria);
+            for (SaidaPreparada saida : saidas) {
+                limparArquivosTemporarios(saida.arquivoTemporario());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdown();
+    }
+
+    private SaidaPreparada prepararSaida(DestinoFfmpeg destino) throws IOException {
+        SaidaFfmpeg saida = destino.saida();
+
+        if (aceitaSaidaSequencial(saida)) {
+            log.debug("Conversão ffmpeg via pipe: destino={} formato={}", destino.caminhoDestino(), saida.formato());
+            StreamFanOut fanOut = new StreamFanOut(executor);
+            Future<String> upload = fanOut.adicionarConsumidor(true,
+                inputStream -> minioService.uploadStream(destino.caminhoDestino(), inputStream, saida.contentType()));
+            return new SaidaPreparada(destino, configurar(PipeOutput.pumpTo(fanOut.abrirSaida()), saida), fanOut, upload, null);
+        }
+
+        Path arquivoTemporario = Files.createTempFile("ffmpeg_output_", "." + saida.extensao());
+        return new SaidaPreparada(destino, configurar(UrlOutput.toPath(arquivoTemporario), saida), null, null, arquivoTemporario);
+    }
+
+    private long finalizarSaida(SaidaPreparada saida) throws Exception {
+        if (saida.fanOut() != null) {
+            saida.fanOut().concluir();
+            saida.upload().get();
+            return saida.fanOut().getTotalBytes();
+        }
+        return minioService.uploadArquivo(saida.destino().caminhoDestino(), saida.arquivoTemporario(), saida.destino().saida().contentType());
+    }
+
+    private void descartarSaida(SaidaPreparada saida, Exception causa) {
+        if (saida.fanOut() != null) {
+            saida.fanOut().abortar(causa);
+            aguardarCancelamento(saida.upload());
+        }
+        minioService.deleteArquivo(saida.destino().caminhoDestino());
+    }
+
+    private static <T extends BaseOutput<T>> T configurar(T output, SaidaFfmpeg saida) {
+        if (saida.formato() != null) {
+            output.setFormat(saida.formato());
+        }
+
+        List<String> args = saida.argumentos();
+        if (args.size() % 2 != 0) {
+            throw new IllegalStateException("Perfil de conversão inválido: argumentos precisam ser pares (opção, valor)");
+        }
+        for (int i = 0; i < args.size(); i += 2) {
+            output.addArguments(args.get(i), args.get(i + 1));
+        }
+        return output;
+    }
+
+    private static boolean aceitaEntradaSequencial(String tipoMime) {
+        if (tipoMime == null) {
+            return false;
+        }
+        String normalizado = tipoMime.strip().toLowerCase(Locale.ROOT);
+        int paramIdx = normalizado.indexOf(';');
+        if (paramIdx > 0) {
+            normalizado = normalizado.substring(0, paramIdx).strip();
+        }
+        return MIME_ENTRADA_SEQUENCIAL.contains(normalizado);
+    }
+
+    private static boolean aceitaSaidaSequencial(SaidaFfmpeg saida) {
+        return saida.formato() != null
+            && FORMATOS_SAIDA_SEQUENCIAL.contains(saida.formato())
+            && !saida.argumentos().contains("-movflags");
+    }
+
+    private static void aguardarCancelamento(Future<?> upload) {
+        try {
+            upload.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.debug("Upload da conversão interrompido: {}", e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+        }
+    }
+
+    private static void fecharOrigem(InputStream origem) {
+        if (origem == null) {
+            return;
+        }
+        try {
+            origem.close();
+        } catch (IOException e) {
+            log.debug("Erro ao fechar stream de origem: {}", e.getMessage());
+        }
+    }
+
+    private void limparArquivosTemporarios(Path... paths) {
+        for (Path path : paths) {
+            if (path != null) {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (Exception e) {
+                    log.warn("Erro ao deletar arquivo temporário: {}", path, e);
+                }
+            }
+        }
+    }
+
+    public record SaidaFfmpeg(String formato, String extensao, String contentType, List<String> argumentos) {}
+
+    public record DestinoFfmpeg(String caminhoDestino, SaidaFfmpeg saida) {}
+
+    private record SaidaPreparada(DestinoFfmpeg destino, Output output, StreamFanOut fanOut, Future<String> upload, Path arquivoTemporario) {}
+}
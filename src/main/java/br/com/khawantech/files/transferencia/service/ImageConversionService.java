@@ -1,7 +1,6 @@
 package br.com.khawantech.files.transferencia.service;
 
 import br.com.khawantech.files.transferencia.config.RabbitConfig;
-import br.com.khawantech.files.transferencia.config.TransferenciaProperties;
 import br.com.khawantech.files.transferencia.dto.FormatoImagem;
 import br.com.khawantech.files.transferencia.dto.ImageConversionEvent;
 import br.com.khawantech.files.transferencia.entity.Arquivo;
@@ -12,30 +11,27 @@ import br.com.khawantech.files.transferencia.exception.EspacoSessaoInsuficienteE
 import br.com.khawantech.files.transferencia.exception.RecursoNaoEncontradoException;
 import br.com.khawantech.files.transferencia.repository.ArquivoRepository;
 import br.com.khawantech.files.transferencia.util.FileNameSanitizer;
+import br.com.khawantech.files.transferencia.util.ImageMagickMonitor;
 import br.com.khawantech.files.user.entity.User;
-import io.minio.MinioClient;
-import io.minio.PutObjectArgs;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.im4java.core.ConvertCmd;
 import org.im4java.core.IMOperation;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Locale;
 import java.util.List;
 import java.util.UUID;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.DoubleConsumer;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -45,15 +41,22 @@ public class ImageConversionService {
 
     private static final Duration IDENTIFY_TIMEOUT = Duration.ofSeconds(10);
     private static final List<StatusArquivo> STATUS_CONVERSAO_ATIVOS = List.of(StatusArquivo.PROCESSANDO, StatusArquivo.COMPLETO);
+    private static final String OPERACAO_CACHE = "imagem-conversao";
+    private static final int VERSAO_PERFIL = 1;
 
     private final ArquivoRepository arquivoRepository;
     private final MinioService minioService;
-    private final MinioClient minioClient;
     private final SessaoService sessaoService;
     private final WebSocketNotificationService notificationService;
-    private final TransferenciaProperties properties;
-    private final RabbitTemplate rabbitTemplate;
+    private final PublicadorEventosService publicadorEventosService;
+    private final PrioridadeFilaService prioridadeFilaService;
     private final ImageMagickSupportService imageMagickSupportService;
+    private final ConversaoCacheService conversaoCacheService;
+    private final ProgressoProcessamentoService progressoProcessamentoService;
+    private final ConversaoEmVooService conversaoEmVooService;
+    private final ExecucaoConversaoRegistry execucaoConversaoRegistry;
+    private final CancelamentoConversaoService cancelamentoConversaoService;
+    private final OrcamentoConversaoService orcamentoConversaoService;
 
     @Value("${imagemagick.timeout-seconds:300}")
     private Integer timeoutSeconds;
@@ -79,20 +82,34 @@ public class ImageConversionService {
         Arquivo arquivo = arquivoRepository.findById(arquivoId)
             .orElseThrow(() -> new RecursoNaoEncontradoException("Arquivo não encontrado"));
 
+        // Pedido inválido não reivindica nem se anexa: só o que passou na validação entra no single-flight
         validarConversao(arquivo, formatoDestino, solicitante);
+        if (!conversaoEmVooService.reivindicar(arquivoId, formatoDestino, null, solicitante.getId())) {
+            conversaoEmVooService.anexar(arquivoId, formatoDestino, null, solicitante.getId());
+            return;
+        }
 
-        ImageConversionEvent event = ImageConversionEvent.builder()
-            .arquivoId(arquivoId)
-            .sessaoId(arquivo.getSessaoId())
-            .formatoDestino(formatoDestino)
-            .solicitanteId(solicitante.getId())
-            .build();
-
-        rabbitTemplate.convertAndSend(
-            RabbitConfig.EXCHANGE_TRANSFERENCIA,
-            RabbitConfig.ROUTING_KEY_IMAGE_CONVERSION,
-            event
-        );
+        try {
+            validarExecucao(arquivo, formatoDestino);
+            orcamentoConversaoService.admitir(arquivo, OPERACAO_CACHE, formatoDestino, null, solicitante);
+
+            ImageConversionEvent event = ImageConversionEvent.builder()
+                .arquivoId(arquivoId)
+                .sessaoId(arquivo.getSessaoId())
+                .formatoDestino(formatoDestino)
+                .solicitanteId(solicitante.getId())
+                .build();
+
+            publicadorEventosService.publicar(
+                RabbitConfig.EXCHANGE_TRANSFERENCIA,
+                RabbitConfig.ROUTING_KEY_IMAGE_CONVERSION,
+                event,
+                prioridadeFilaService.daSessao(arquivo.getSessaoId(), RabbitConfig.ROUTING_KEY_IMAGE_CONVERSION)
+            );
+        } catch (RuntimeException e) {
+            conversaoEmVooService.liberar(arquivoId, formatoDestino, null);
+            throw e;
+        }
 
         log.info("Conversão de imagem solicitada: arquivo={}, formato={}", arquivoId, formatoDestino);
     }
@@ -114,10 +131,6 @@ public class ImageConversionService {
             }
         });
 
-        if (isConversaoDuplicada(arquivo.getId(), formato.name())) {
-            throw new ConversaoNaoSuportadaException("Arquivo já foi convertido para este formato");
-        }
-
         List<FormatoImagem> formatosDisponiveis = getFormatosDisponiveisFiltrados(arquivo);
 
         if (!formatosDisponiveis.contains(formato)) {
@@ -126,6 +139,13 @@ public class ImageConversionService {
 
         Sessao sessao = sessaoService.buscarPorId(arquivo.getSessaoId());
         sessaoService.validarUsuarioPertenceASessao(sessao, solicitante.getId());
+    }
+
+    // Verificações de quem vai executar: pedidos anexados não criam arquivo nem repetem a conversão
+    private void validarExecucao(Arquivo arquivo, String formatoDestino) {
+        if (isConversaoDuplicada(arquivo.getId(), formatoDestino)) {
+            throw new ConversaoNaoSuportadaException("Arquivo já foi convertido para este formato");
+        }
 
         if (!sessaoService.podeAdicionarArquivo(arquivo.getSessaoId())) {
             throw new EspacoSessaoInsuficienteException("Sessão atingiu o limite de arquivos");
@@ -134,7 +154,11 @@ public class ImageConversionService {
 
     @Transactional
     public void processarConversao(ImageConversionEvent event) {
+        ExecucaoConversaoRegistry.Execucao execucao = execucaoConversaoRegistry.iniciar(event.getSessaoId(), event.getArquivoId());
+        List<Arquivo> convertidos = new ArrayList<>();
+        conversaoEmVooService.iniciarExecucao(event.getArquivoId(), event.getFormatoDestino(), null);
         try {
+            execucao.verificar();
             log.info("Iniciando processamento de conversão: {}", event);
 
             Arquivo arquivoOriginal = arquivoRepository.findById(event.getArquivoId())
@@ -143,30 +167,24 @@ public class ImageConversionService {
             FormatoImagem formatoDestino = FormatoImagem.valueOf(event.getFormatoDestino());
 
             Arquivo arquivoConvertido = criarArquivoConvertido(arquivoOriginal, formatoDestino, arquivoOriginal.getTamanhoBytes());
+            convertidos.add(arquivoConvertido);
             notificationService.notificarArquivoProcessando(arquivoConvertido.getSessaoId(), arquivoConvertido);
 
-            byte[] imagemOriginal = obterImagemOriginal(arquivoOriginal);
-
-            byte[] imagemConvertida = executarConversao(imagemOriginal, arquivoOriginal.getTipoMime(), formatoDestino);
-
-            arquivoConvertido.setTamanhoBytes(imagemConvertida.length);
-
-            String caminhoMinio = String.format("%s/%s/%s",
-                arquivoConvertido.getSessaoId(),
-                arquivoConvertido.getId(),
-                arquivoConvertido.getNomeOriginal()
+            ConversaoCacheService.ResultadoConversao resultado = conversaoCacheService.obterOuConverter(
+                arquivoOriginal, OPERACAO_CACHE, formatoDestino.name(), VERSAO_PERFIL, arquivoConvertido,
+                caminhoMinio -> {
+                    ProgressoProcessamentoService.Acompanhamento progresso =
+                        progressoProcessamentoService.iniciar(arquivoOriginal, arquivoConvertido, OPERACAO_CACHE);
+                    long tamanho = executarConversao(arquivoOriginal.getCaminhoMinio(), arquivoOriginal.getTipoMime(),
+                        formatoDestino, caminhoMinio, progresso::atualizar);
+                    progresso.concluir();
+                    return tamanho;
+                }
             );
 
-            minioClient.putObject(
-                PutObjectArgs.builder()
-                    .bucket(properties.getMinioBucket())
-                    .object(caminhoMinio)
-                    .stream(new ByteArrayInputStream(imagemConvertida), imagemConvertida.length, -1)
-                    .contentType(formatoDestino.getMimeType())
-                    .build()
-            );
+            arquivoConvertido.setTamanhoBytes(resultado.tamanhoBytes());
 
-            arquivoConvertido.setCaminhoMinio(caminhoMinio);
+            arquivoConvertido.setCaminhoMinio(resultado.caminhoMinio());
             arquivoConvertido.setStatus(StatusArquivo.COMPLETO);
             arquivoRepository.save(arquivoConvertido);
 
@@ -178,32 +196,49 @@ public class ImageConversionService {
                 event.getArquivoId(), arquivoConvertido.getId(), formatoDestino);
 
         } catch (Exception e) {
+            if (execucao.isCancelada()) {
+                cancelamentoConversaoService.descartar(convertidos);
+                log.info("Conversão de imagem cancelada: {}", event);
+                return;
+            }
             log.error("Erro ao processar conversão de imagem: {}", event, e);
             throw new RuntimeException("Falha na conversão de imagem: " + e.getMessage(), e);
+        } finally {
+            execucao.close();
+            conversaoEmVooService.liberar(event.getArquivoId(), event.getFormatoDestino(), null);
         }
     }
 
-    private byte[] obterImagemOriginal(Arquivo arquivo) {
-        MinioService.ArquivoData arquivoData = minioService.obterArquivo(arquivo.getCaminhoMinio());
-        
-        try (InputStream inputStream = arquivoData.inputStream();
-             ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-            
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                outputStream.write(buffer, 0, bytesRead);
-            }
-            
-            return outputStream.toByteArray();
-        } catch (Exception e) {
-            throw new RuntimeException("Erro ao obter imagem original do MinIO", e);
+    public boolean converterEspeculativo(Arquivo arquivoOriginal, FormatoImagem formatoDestino) {
+        if (conversaoCacheService.existe(arquivoOriginal, OPERACAO_CACHE, formatoDestino.name(), VERSAO_PERFIL)) {
+            return false;
         }
+
+        // Destino transitório: só nomeia o objeto compartilhado, o Arquivo é criado quando a conversão for pedida
+        Arquivo destino = Arquivo.builder()
+            .id(UUID.randomUUID().toString())
+            .sessaoId(arquivoOriginal.getSessaoId())
+            .nomeOriginal(gerarNomeArquivoConvertido(arquivoOriginal.getNomeOriginal(), formatoDestino))
+            .build();
+        String caminhoMinio = conversaoCacheService.resolverCaminho(
+            arquivoOriginal, OPERACAO_CACHE, formatoDestino.name(), VERSAO_PERFIL, destino);
+        if (!ConversaoCacheService.isCaminhoCompartilhado(caminhoMinio)) {
+            return false;
+        }
+
+        long inicio = System.nanoTime();
+        long tamanho = executarConversao(arquivoOriginal.getCaminhoMinio(), arquivoOriginal.getTipoMime(),
+            formatoDestino, caminhoMinio, porcentagem -> {});
+        conversaoCacheService.registrarEspeculativa(arquivoOriginal, OPERACAO_CACHE, formatoDestino.name(), VERSAO_PERFIL,
+            caminhoMinio, tamanho, (System.nanoTime() - inicio) / 1_000_000_000.0);
+        return true;
     }
 
-    private byte[] executarConversao(byte[] imagemOriginal, String mimeTypeOriginal, FormatoImagem formatoDestino) {
+    private long executarConversao(String caminhoOriginal, String mimeTypeOriginal, FormatoImagem formatoDestino, String caminhoDestino,
+                                   DoubleConsumer aoProgredir) {
         Path tempInputPath = null;
         Path tempOutputPath = null;
+        ImageMagickMonitor monitor = new ImageMagickMonitor(aoProgredir);
 
         try {
             FormatoImagem formatoOriginal = FormatoImagem.fromMimeType(mimeTypeOriginal)
@@ -222,7 +257,7 @@ public class ImageConversionService {
             tempInputPath = Files.createTempFile("input_", "." + formatoOriginal.getExtension());
             tempOutputPath = Files.createTempFile("output_", "." + formatoDestino.getExtension());
 
-            Files.write(tempInputPath, imagemOriginal);
+            minioService.baixarParaArquivo(caminhoOriginal, tempInputPath);
 
             String formatoDetectado = detectarFormatoMagick(tempInputPath);
             if (formatoDetectado == null || formatoDetectado.isBlank()) {
@@ -238,8 +273,11 @@ public class ImageConversionService {
 
             ConvertCmd cmd = new ConvertCmd();
             cmd.setSearchPath("/usr/bin");
+            cmd.setErrorConsumer(monitor);
+            execucaoConversaoRegistry.registrarProcessos(cmd);
             
             IMOperation op = new IMOperation();
+            op.addRawArgs("-monitor");
             op.addImage(tempInputPath.toString());
             
             op.define("limit:time=" + timeoutSeconds);
@@ -248,11 +286,12 @@ public class ImageConversionService {
             op.addImage(magickFormatoDestino.toLowerCase() + ":" + tempOutputPath.toString());
 
             cmd.run(op);
+            execucaoConversaoRegistry.verificar();
 
-            return Files.readAllBytes(tempOutputPath);
+            return minioService.uploadArquivo(caminhoDestino, tempOutputPath, formatoDestino.getMimeType());
 
         } catch (Exception e) {
-            log.error("Erro ao executar conversão ImageMagick", e);
+            log.error("Erro ao executar conversão ImageMagick: {}", monitor.getMensagemErro(), e);
             throw new RuntimeException("Falha na conversão ImageMagick: " + e.getMessage(), e);
         } finally {
             limparArquivosTemporarios(tempInputPath, tempOutputPath);
@@ -1,5 +1,6 @@
 package br.com.khawantech.files.transferencia.service;
 
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
@@ -19,7 +20,17 @@ public class ImageMagickSupportService {
 
     private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(5);
 
-    private volatile Map<String, String> formatModesByNameUpper;
+    private volatile Map<String, String> formatModesByNameUpper = Map.of();
+
+    @PostConstruct
+    public void carregarFormatos() {
+        formatModesByNameUpper = Collections.unmodifiableMap(loadFormats());
+        log.info("Formatos ImageMagick detectados: {}", formatModesByNameUpper.size());
+    }
+
+    public boolean isDisponivel() {
+        return !formatModesByNameUpper.isEmpty();
+    }
 
     public boolean supportsRead(String formatName) {
         String mode = getMode(formatName);
@@ -35,22 +46,7 @@ public class ImageMagickSupportService {
         if (formatName == null || formatName.isBlank()) {
             return null;
         }
-        Map<String, String> modes = ensureLoaded();
-        return modes.get(formatName.trim().toUpperCase(Locale.ROOT));
-    }
-
-    private Map<String, String> ensureLoaded() {
-        Map<String, String> cached = formatModesByNameUpper;
-        if (cached != null) {
-            return cached;
-        }
-        synchronized (this) {
-            if (formatModesByNameUpper != null) {
-                return formatModesByNameUpper;
-            }
-            formatModesByNameUpper = Collections.unmodifiableMap(loadFormats());
-            return formatModesByNameUpper;
-        }
+        return formatModesByNameUpper.get(formatName.trim().toUpperCase(Locale.ROOT));
     }
 
     private Map<String, String> loadFormats() {
@@ -1,7 +1,6 @@
 package br.com.khawantech.files.transferencia.service;
 
 import br.com.khawantech.files.transferencia.config.RabbitConfig;
-import br.com.khawantech.files.transferencia.config.TransferenciaProperties;
 import br.com.khawantech.files.transferencia.dto.FormatoImagem;
 import br.com.khawantech.files.transferencia.dto.ImageOptimizationEvent;
 import br.com.khawantech.files.transferencia.entity.Arquivo;
@@ -12,27 +11,36 @@ import br.com.khawantech.files.transferencia.exception.EspacoSessaoInsuficienteE
 import br.com.khawantech.files.transferencia.exception.RecursoNaoEncontradoException;
 import br.com.khawantech.files.transferencia.repository.ArquivoRepository;
 import br.com.khawantech.files.transferencia.util.FileNameSanitizer;
+import br.com.khawantech.files.transferencia.util.ImageMagickMonitor;
+import br.com.khawantech.files.transferencia.util.SeletorCandidatos;
 import br.com.khawantech.files.user.entity.User;
-import io.minio.MinioClient;
-import io.minio.PutObjectArgs;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.im4java.core.ConvertCmd;
 import org.im4java.core.IMOperation;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.FileSystemUtils;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Slf4j
 @Service
@@ -42,15 +50,35 @@ public class ImageOptimizationService {
     private static final Duration IDENTIFY_TIMEOUT = Duration.ofSeconds(10);
     private static final List<StatusArquivo> STATUS_OTIMIZACAO_ATIVOS = List.of(StatusArquivo.PROCESSANDO, StatusArquivo.COMPLETO);
     private static final List<Integer> NIVEIS_SUPORTADOS = List.of(25, 50, 75);
+    private static final String OPERACAO_CACHE = "imagem-otimizacao";
+    private static final int VERSAO_PERFIL = 3;
+    private static final Set<FormatoImagem> FORMATOS_COM_PERDA = EnumSet.of(FormatoImagem.JPEG, FormatoImagem.JPG, FormatoImagem.WEBP);
+
+    // Quanto maior o nível, mais agressivas as qualidades testadas e menor o piso de similaridade aceito
+    private static final Map<Integer, PerfilNivel> PERFIS = Map.of(
+        25, new PerfilNivel(0.985, List.of(92, 86, 80)),
+        50, new PerfilNivel(0.97, List.of(85, 75, 65)),
+        75, new PerfilNivel(0.95, List.of(75, 62, 50))
+    );
 
     private final ArquivoRepository arquivoRepository;
     private final MinioService minioService;
-    private final MinioClient minioClient;
     private final SessaoService sessaoService;
     private final WebSocketNotificationService notificationService;
-    private final TransferenciaProperties properties;
-    private final RabbitTemplate rabbitTemplate;
+    private final PublicadorEventosService publicadorEventosService;
+    private final PrioridadeFilaService prioridadeFilaService;
     private final ImageMagickSupportService imageMagickSupportService;
+    private final ConversaoCacheService conversaoCacheService;
+    private final ProgressoProcessamentoService progressoProcessamentoService;
+    private final ImageSimilarityService imageSimilarityService;
+    private final ExecucaoConversaoRegistry execucaoConversaoRegistry;
+    private final ConversaoEmVooService conversaoEmVooService;
+    private final OrcamentoConversaoService orcamentoConversaoService;
+    private final CancelamentoConversaoService cancelamentoConversaoService;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    // Compartilhado entre todos os jobs: no máximo um processo convert/compare por núcleo nesta instância
+    private final Semaphore processosImagem = new Semaphore(Runtime.getRuntime().availableProcessors());
 
     @Value("${imagemagick.timeout-seconds:300}")
     private Integer timeoutSeconds;
@@ -59,24 +87,39 @@ public class ImageOptimizationService {
     private Long maxResolution;
 
     @Transactional
-    public void otimizarImagem(String arquivoId, int nivel, User solicitante) {
+    public void otimizarImagem(String arquivoId, int nivel, boolean permitirFormatoAlternativo, User solicitante) {
         Arquivo arquivo = arquivoRepository.findById(arquivoId)
             .orElseThrow(() -> new RecursoNaoEncontradoException("Arquivo não encontrado"));
 
+        // Pedido inválido não reivindica nem se anexa: só o que passou na validação entra no single-flight
         validarOtimizacao(arquivo, nivel, solicitante);
+        if (!conversaoEmVooService.reivindicar(arquivoId, OPERACAO_CACHE, nivel, solicitante.getId())) {
+            conversaoEmVooService.anexar(arquivoId, OPERACAO_CACHE, nivel, solicitante.getId());
+            return;
+        }
 
-        ImageOptimizationEvent event = ImageOptimizationEvent.builder()
-            .arquivoId(arquivoId)
-            .sessaoId(arquivo.getSessaoId())
-            .nivel(nivel)
-            .solicitanteId(solicitante.getId())
-            .build();
-
-        rabbitTemplate.convertAndSend(
-            RabbitConfig.EXCHANGE_TRANSFERENCIA,
-            RabbitConfig.ROUTING_KEY_IMAGE_OPTIMIZATION,
-            event
-        );
+        try {
+            validarExecucao(arquivo, nivel);
+            orcamentoConversaoService.admitir(arquivo, OPERACAO_CACHE, OPERACAO_CACHE, nivel, solicitante);
+
+            ImageOptimizationEvent event = ImageOptimizationEvent.builder()
+                .arquivoId(arquivoId)
+                .sessaoId(arquivo.getSessaoId())
+                .nivel(nivel)
+                .permitirFormatoAlternativo(permitirFormatoAlternativo)
+                .solicitanteId(solicitante.getId())
+                .build();
+
+            publicadorEventosService.publicar(
+                RabbitConfig.EXCHANGE_TRANSFERENCIA,
+                RabbitConfig.ROUTING_KEY_IMAGE_OPTIMIZATION,
+                event,
+                prioridadeFilaService.daSessao(arquivo.getSessaoId(), RabbitConfig.ROUTING_KEY_IMAGE_OPTIMIZATION)
+            );
+        } catch (RuntimeException e) {
+            conversaoEmVooService.liberar(arquivoId, OPERACAO_CACHE, nivel);
+            throw e;
+        }
 
         log.info("Otimização de imagem solicitada: arquivo={}, nivel={}", arquivoId, nivel);
     }
@@ -101,13 +144,16 @@ public class ImageOptimizationService {
         FormatoImagem.fromMimeType(arquivo.getTipoMime())
             .orElseThrow(() -> new ConversaoNaoSuportadaException("Formato de imagem não suportado"));
 
+        Sessao sessao = sessaoService.buscarPorId(arquivo.getSessaoId());
+        sessaoService.validarUsuarioPertenceASessao(sessao, solicitante.getId());
+    }
+
+    // Verificações de quem vai executar: pedidos anexados não criam arquivo nem repetem a otimização
+    private void validarExecucao(Arquivo arquivo, int nivel) {
         if (isOtimizacaoDuplicada(arquivo.getId(), nivel)) {
             throw new ConversaoNaoSuportadaException("Arquivo já foi otimizado neste nível");
         }
 
-        Sessao sessao = sessaoService.buscarPorId(arquivo.getSessaoId());
-        sessaoService.validarUsuarioPertenceASessao(sessao, solicitante.getId());
-
         if (!sessaoService.podeAdicionarArquivo(arquivo.getSessaoId())) {
             throw new EspacoSessaoInsuficienteException("Sessão atingiu o limite de arquivos");
         }
@@ -115,7 +161,12 @@ public class ImageOptimizationService {
 
     @Transactional
     public void processarOtimizacao(ImageOptimizationEvent event) {
+        ExecucaoConversaoRegistry.Execucao execucao = execucaoConversaoRegistry.iniciar(event.getSessaoId(), event.getArquivoId());
+        List<Arquivo> otimizados = new ArrayList<>();
+        conversaoEmVooService.iniciarExecucao(event.getArquivoId(), OPERACAO_CACHE, event.getNivel());
+
         try {
+            execucao.verificar();
             log.info("Iniciando processamento de otimização de imagem: {}", event);
 
             Arquivo arquivoOriginal = arquivoRepository.findById(event.getArquivoId())
@@ -124,30 +175,47 @@ public class ImageOptimizationService {
             FormatoImagem formato = FormatoImagem.fromMimeType(arquivoOriginal.getTipoMime())
                 .orElseThrow(() -> new ConversaoNaoSuportadaException("Formato original não suportado"));
 
+            boolean alternativo = Boolean.TRUE.equals(event.getPermitirFormatoAlternativo());
+            String alvo = event.getNivel() + (alternativo ? "-alternativo" : "");
+
             Arquivo arquivoOtimizado = criarArquivoOtimizado(arquivoOriginal, event.getNivel(), arquivoOriginal.getTamanhoBytes());
+            otimizados.add(arquivoOtimizado);
             notificationService.notificarArquivoProcessando(arquivoOtimizado.getSessaoId(), arquivoOtimizado);
 
-            byte[] imagemOriginal = obterImagemOriginal(arquivoOriginal);
-            byte[] imagemOtimizada = executarOtimizacao(imagemOriginal, formato, event.getNivel());
-
-            arquivoOtimizado.setTamanhoBytes(imagemOtimizada.length);
+            AtomicReference<FormatoImagem> formatoFinal = new AtomicReference<>(formato);
+            ConversaoCacheService.ResultadoConversao resultado;
+            try {
+                resultado = conversaoCacheService.obterOuConverter(
+                    arquivoOriginal, OPERACAO_CACHE, alvo, VERSAO_PERFIL, arquivoOtimizado,
+                    caminhoMinio -> {
+                        ProgressoProcessamentoService.Acompanhamento progresso =
+                            progressoProcessamentoService.iniciar(arquivoOriginal, arquivoOtimizado, OPERACAO_CACHE);
+                        long tamanho = executarOtimizacao(arquivoOriginal, formato, event.getNivel(), alternativo,
+                            caminhoMinio, progresso, formatoFinal);
+                        progresso.concluir();
+                        return tamanho;
+                    }
+                );
+            } catch (OtimizacaoSemGanhoException e) {
+                // Uma cópia do original só ocuparia espaço na sessão: o registro provisório é removido
+                arquivoRepository.delete(arquivoOtimizado);
+                notificationService.notificarOtimizacaoSemGanho(arquivoOtimizado.getSessaoId(), arquivoOtimizado);
+                return;
+            }
 
-            String caminhoMinio = String.format("%s/%s/%s",
-                arquivoOtimizado.getSessaoId(),
-                arquivoOtimizado.getId(),
-                arquivoOtimizado.getNomeOriginal()
-            );
+            if (resultado.reaproveitado()) {
+                FormatoImagem.fromMimeType(minioService.obterContentType(resultado.caminhoMinio()))
+                    .ifPresent(formatoFinal::set);
+            }
+            if (!formatoFinal.get().getMimeType().equalsIgnoreCase(formato.getMimeType())) {
+                arquivoOtimizado.setTipoMime(formatoFinal.get().getMimeType());
+                arquivoOtimizado.setNomeOriginal(trocarExtensao(arquivoOtimizado.getNomeOriginal(), formatoFinal.get().getExtension()));
+            }
 
-            minioClient.putObject(
-                PutObjectArgs.builder()
-                    .bucket(properties.getMinioBucket())
-                    .object(caminhoMinio)
-                    .stream(new ByteArrayInputStream(imagemOtimizada), imagemOtimizada.length, -1)
-                    .contentType(formato.getMimeType())
-                    .build()
-            );
+            execucao.verificar();
+            arquivoOtimizado.setTamanhoBytes(resultado.tamanhoBytes());
 
-            arquivoOtimizado.setCaminhoMinio(caminhoMinio);
+            arquivoOtimizado.setCaminhoMinio(resultado.caminhoMinio());
             arquivoOtimizado.setStatus(StatusArquivo.COMPLETO);
             arquivoRepository.save(arquivoOtimizado);
 
@@ -159,32 +227,24 @@ public class ImageOptimizationService {
                 event.getArquivoId(), arquivoOtimizado.getId(), event.getNivel());
 
         } catch (Exception e) {
+            if (execucao.isCancelada()) {
+                cancelamentoConversaoService.descartar(otimizados);
+                log.info("Otimização de imagem cancelada: {}", event);
+                return;
+            }
             log.error("Erro ao processar otimização de imagem: {}", event, e);
             throw new RuntimeException("Falha na otimização de imagem: " + e.getMessage(), e);
+        } finally {
+            execucao.close();
+            conversaoEmVooService.liberar(event.getArquivoId(), OPERACAO_CACHE, event.getNivel());
         }
     }
 
-    private byte[] obterImagemOriginal(Arquivo arquivo) {
-        MinioService.ArquivoData arquivoData = minioService.obterArquivo(arquivo.getCaminhoMinio());
-
-        try (InputStream inputStream = arquivoData.inputStream();
-             ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                outputStream.write(buffer, 0, bytesRead);
-            }
-
-            return outputStream.toByteArray();
-        } catch (Exception e) {
-            throw new RuntimeException("Erro ao obter imagem original do MinIO", e);
-        }
-    }
-
-    private byte[] executarOtimizacao(byte[] imagemOriginal, FormatoImagem formato, int nivel) {
+    private long executarOtimizacao(Arquivo arquivoOriginal, FormatoImagem formato, int nivel, boolean alternativo,
+                                    String caminhoDestino, ProgressoProcessamentoService.Acompanhamento progresso,
+                                    AtomicReference<FormatoImagem> formatoFinal) {
         Path tempInputPath = null;
-        Path tempOutputPath = null;
+        Path tempCandidatosDir = null;
 
         try {
             String magickFormato = toMagickFormat(formato);
@@ -197,9 +257,10 @@ public class ImageOptimizationService {
             }
 
             tempInputPath = Files.createTempFile("input_opt_", "." + formato.getExtension());
-            tempOutputPath = Files.createTempFile("output_opt_", "." + formato.getExtension());
+            tempCandidatosDir = Files.createTempDirectory("candidatos_opt_");
 
-            Files.write(tempInputPath, imagemOriginal);
+            minioService.baixarParaArquivo(arquivoOriginal.getCaminhoMinio(), tempInputPath);
+            long tamanhoOriginal = Files.size(tempInputPath);
 
             String formatoDetectado = detectarFormatoMagick(tempInputPath);
             if (formatoDetectado == null || formatoDetectado.isBlank()) {
@@ -213,25 +274,117 @@ public class ImageOptimizationService {
                 );
             }
 
+            PerfilNivel perfil = PERFIS.get(nivel);
+            List<Tentativa> tentativas = planejarTentativas(formato, perfil, alternativo);
+            AtomicInteger concluidas = new AtomicInteger();
+
+            // Cada candidato é codificado e pontuado em paralelo; o original é só lido
+            List<Future<SeletorCandidatos.Candidato>> futuros = new ArrayList<>();
+            for (int i = 0; i < tentativas.size(); i++) {
+                Tentativa tentativa = tentativas.get(i);
+                Path entrada = tempInputPath;
+                Path saida = tempCandidatosDir.resolve("candidato_" + i + "." + tentativa.formato().getExtension());
+                futuros.add(executor.submit(execucaoConversaoRegistry.propagar(() -> {
+                    try {
+                        processosImagem.acquire();
+                        try {
+                            execucaoConversaoRegistry.verificar();
+                            return avaliarCandidato(entrada, saida, tentativa);
+                        } finally {
+                            processosImagem.release();
+                        }
+                    } finally {
+                        progresso.atualizar(concluidas.incrementAndGet() * 100.0 / tentativas.size());
+                    }
+                })));
+            }
+
+            List<SeletorCandidatos.Candidato> candidatos = new ArrayList<>();
+            for (Future<SeletorCandidatos.Candidato> futuro : futuros) {
+                SeletorCandidatos.Candidato candidato = futuro.get();
+                if (candidato != null) {
+                    candidatos.add(candidato);
+                }
+            }
+            // Candidatos interrompidos pelo cancelamento são descartados: não é um caso de "sem ganho"
+            execucaoConversaoRegistry.verificar();
+
+            Optional<SeletorCandidatos.Candidato> vencedor = SeletorCandidatos.escolher(candidatos, perfil.pisoSsim(), tamanhoOriginal);
+            if (vencedor.isEmpty()) {
+                log.info("Nenhum candidato superou o original: arquivo={}, nivel={}, candidatos={}",
+                    arquivoOriginal.getId(), nivel, candidatos.size());
+                throw new OtimizacaoSemGanhoException();
+            }
+
+            SeletorCandidatos.Candidato escolhido = vencedor.get();
+            log.info("Candidato escolhido: arquivo={}, formato={}, qualidade={}, ssim={}, tamanho={} -> {}",
+                arquivoOriginal.getId(), escolhido.formato(), escolhido.qualidade(),
+                String.format(Locale.ROOT, "%.4f", escolhido.ssim()), tamanhoOriginal, escolhido.tamanhoBytes());
+
+            formatoFinal.set(escolhido.formato());
+            return minioService.uploadArquivo(caminhoDestino, escolhido.caminho(), escolhido.formato().getMimeType());
+
+        } catch (OtimizacaoSemGanhoException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Erro ao executar otimização ImageMagick: {}", e.getMessage(), e);
+            throw new RuntimeException("Falha na otimização ImageMagick: " + e.getMessage(), e);
+        } finally {
+            limparArquivosTemporarios(tempInputPath, tempCandidatosDir);
+        }
+    }
+
+    private List<Tentativa> planejarTentativas(FormatoImagem formato, PerfilNivel perfil, boolean alternativo) {
+        List<Tentativa> tentativas = new ArrayList<>();
+        if (FORMATOS_COM_PERDA.contains(formato)) {
+            perfil.qualidades().forEach(qualidade -> tentativas.add(new Tentativa(formato, qualidade)));
+        } else {
+            // Formatos sem perda só ganham com recompressão
+            tentativas.add(new Tentativa(formato, 95));
+        }
+
+        if (alternativo && !FormatoImagem.WEBP.equals(formato) && imageMagickSupportService.supportsWrite("WEBP")) {
+            perfil.qualidades().forEach(qualidade -> tentativas.add(new Tentativa(FormatoImagem.WEBP, qualidade)));
+        }
+        return tentativas;
+    }
+
+    private SeletorCandidatos.Candidato avaliarCandidato(Path entrada, Path saida, Tentativa tentativa) {
+        ImageMagickMonitor monitor = new ImageMagickMonitor(porcentagem -> { });
+        try {
             ConvertCmd cmd = new ConvertCmd();
             cmd.setSearchPath("/usr/bin");
+            cmd.setErrorConsumer(monitor);
+            execucaoConversaoRegistry.registrarProcessos(cmd);
 
             IMOperation op = new IMOperation();
-            op.addImage(tempInputPath.toString());
+            op.addImage(entrada.toString());
             op.define("limit:time=" + timeoutSeconds);
             op.define("limit:pixels=" + maxResolution);
-            op.quality((double) resolveQuality(nivel));
-            op.addImage(magickFormato.toLowerCase() + ":" + tempOutputPath.toString());
+            op.quality((double) tentativa.qualidade());
+            switch (tentativa.formato()) {
+                case JPEG, JPG -> {
+                    op.interlace("Plane");
+                    op.addRawArgs("-sampling-factor", "4:2:0");
+                }
+                case WEBP -> op.define("webp:method=6");
+                case PNG -> op.define("png:compression-level=9");
+                case TIFF -> op.compress("Zip");
+                default -> { }
+            }
+            op.addImage(toMagickFormat(tentativa.formato()).toLowerCase(Locale.ROOT) + ":" + saida);
 
             cmd.run(op);
 
-            return Files.readAllBytes(tempOutputPath);
+            long tamanho = Files.size(saida);
+            OptionalDouble ssim = imageSimilarityService.calcularSsim(entrada, saida);
+            return new SeletorCandidatos.Candidato(tentativa.formato(), tentativa.qualidade(), saida, tamanho,
+                ssim.isPresent() ? ssim.getAsDouble() : null);
 
         } catch (Exception e) {
-            log.error("Erro ao executar otimização ImageMagick", e);
-            throw new RuntimeException("Falha na otimização ImageMagick: " + e.getMessage(), e);
-        } finally {
-            limparArquivosTemporarios(tempInputPath, tempOutputPath);
+            log.debug("Candidato descartado ({} q{}): {} {}", tentativa.formato(), tentativa.qualidade(),
+                e.getMessage(), monitor.getMensagemErro());
+            return null;
         }
     }
 
@@ -248,6 +401,7 @@ public class ImageOptimizationService {
             processBuilder.redirectErrorStream(true);
 
             Process process = processBuilder.start();
+            execucaoConversaoRegistry.registrarProcesso(process);
             byte[] bytes = process.getInputStream().readAllBytes();
             boolean finished = process.waitFor(IDENTIFY_TIMEOUT.toMillis(), java.util.concurrent.TimeUnit.MILLISECONDS);
             if (!finished) {
@@ -263,15 +417,6 @@ public class ImageOptimizationService {
         }
     }
 
-    private int resolveQuality(int nivel) {
-        return switch (nivel) {
-            case 25 -> 85;
-            case 50 -> 70;
-            case 75 -> 55;
-            default -> 75;
-        };
-    }
-
     private Arquivo criarArquivoOtimizado(Arquivo original, int nivel, long tamanhoBytes) {
         String novoNome = gerarNomeArquivoOtimizado(original.getNomeOriginal(), nivel);
 
@@ -303,6 +448,12 @@ public class ImageOptimizationService {
         return FileNameSanitizer.sanitize(novoNome);
     }
 
+    private String trocarExtensao(String nome, String extensao) {
+        int lastDot = nome != null ? nome.lastIndexOf('.') : -1;
+        String nomeBase = lastDot > 0 ? nome.substring(0, lastDot) : (nome == null ? "arquivo" : nome);
+        return FileNameSanitizer.sanitize(nomeBase + "." + extensao);
+    }
+
     private String obterExtensao(String nomeOriginal) {
         if (nomeOriginal == null) {
             return "bin";
@@ -327,16 +478,16 @@ public class ImageOptimizationService {
         return formatoImagem.name();
     }
 
-    private void limparArquivosTemporarios(Path tempInputPath, Path tempOutputPath) {
+    private void limparArquivosTemporarios(Path tempInputPath, Path tempCandidatosDir) {
         try {
             if (tempInputPath != null) Files.deleteIfExists(tempInputPath);
         } catch (Exception e) {
             log.warn("Erro ao deletar arquivo temporário: {}", e.getMessage());
         }
         try {
-            if (tempOutputPath != null) Files.deleteIfExists(tempOutputPath);
+            if (tempCandidatosDir != null) FileSystemUtils.deleteRecursively(tempCandidatosDir);
         } catch (Exception e) {
-            log.warn("Erro ao deletar arquivo temporário: {}", e.getMessage());
+            log.warn("Erro ao deletar diretório temporário: {}", e.getMessage());
         }
     }
 
@@ -347,4 +498,15 @@ public class ImageOptimizationService {
             STATUS_OTIMIZACAO_ATIVOS
         );
     }
+
+    private static final class OtimizacaoSemGanhoException extends RuntimeException {
+
+        private OtimizacaoSemGanhoException() {
+            super("Nenhum candidato menor que o original dentro do piso de similaridade");
+        }
+    }
+
+    private record PerfilNivel(double pisoSsim, List<Integer> qualidades) {}
+
+    private record Tentativa(FormatoImagem formato, int qualidade) {}
 }
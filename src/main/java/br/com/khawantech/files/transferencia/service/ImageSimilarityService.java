@@ -0,0 +1,85 @@
+package br.com.khawantech.files.transferencia.service;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.OptionalDouble;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.stereotype.Service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ImageSimilarityService {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+    private static final String DIMENSAO_COMPARACAO = "1024x1024>";
+    private static final Pattern NUMERO = Pattern.compile("[-+]?\\d*\\.?\\d+(?:[eE][-+]?\\d+)?");
+
+    private final ExecucaoConversaoRegistry execucaoConversaoRegistry;
+
+    /**
+     * Calcula o SSIM entre a imagem de referência e o candidato, ambos reduzidos para no máximo
+     * 1024px: o custo fica estável independente da resolução e o resultado continua representativo.
+     */
+    public OptionalDouble calcularSsim(Path referencia, Path candidato) {
+        try {
+            ProcessBuilder processBuilder = new ProcessBuilder(
+                resolverMagick(),
+                referencia + "[0]",
+                candidato + "[0]",
+                "-resize", DIMENSAO_COMPARACAO,
+                "-metric", "DSSIM",
+                "-compare",
+                "-format", "%[distortion]",
+                "info:"
+            );
+            processBuilder.redirectErrorStream(true);
+
+            Process process = processBuilder.start();
+            execucaoConversaoRegistry.registrarProcesso(process);
+            byte[] bytes = process.getInputStream().readAllBytes();
+            boolean finished = process.waitFor(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            if (!finished) {
+                process.destroyForcibly();
+                return OptionalDouble.empty();
+            }
+
+            String saida = new String(bytes, StandardCharsets.UTF_8).trim();
+            if (process.exitValue() > 1) {
+                log.debug("Falha ao calcular SSIM (exitCode={}): {}", process.exitValue(), saida);
+                return OptionalDouble.empty();
+            }
+            return converterDssim(saida);
+
+        } catch (Exception e) {
+            log.debug("Erro ao calcular SSIM: {}", e.getMessage());
+            return OptionalDouble.empty();
+        }
+    }
+
+    static OptionalDouble converterDssim(String saida) {
+        if (saida == null) {
+            return OptionalDouble.empty();
+        }
+        Matcher matcher = NUMERO.matcher(saida);
+        if (!matcher.find()) {
+            return OptionalDouble.empty();
+        }
+        // DSSIM = (1 - SSIM) / 2
+        double dssim = Double.parseDouble(matcher.group());
+        double ssim = 1 - 2 * dssim;
+        return OptionalDouble.of(Math.max(0, Math.min(1, ssim)));
+    }
+
+    private static String resolverMagick() {
+        return Files.isExecutable(Path.of("/usr/bin/magick")) ? "/usr/bin/magick" : "magick";
+    }
+}
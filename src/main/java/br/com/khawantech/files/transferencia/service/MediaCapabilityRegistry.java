@@ -0,0 +1,180 @@
+package br.com.khawantech.files.transferencia.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import br.com.khawantech.files.transferencia.dto.FormatoAudio;
+import br.com.khawantech.files.transferencia.dto.FormatoVideo;
+import br.com.khawantech.files.transferencia.service.video.VideoConversionProfile;
+import br.com.khawantech.files.transferencia.service.video.VideoStrategyResolver;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Capacidades do ffmpeg e do ImageMagick instalados, detectadas uma única vez na inicialização.
+ * Permite recusar na API conversões que o build atual não consegue executar, antes de ocupar um worker.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MediaCapabilityRegistry {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    private static final Pattern LINHA_CAPACIDADE = Pattern.compile("^\\s*([A-Z.|]{1,8})\\s+(\\S+)");
+
+    private final ImageMagickSupportService imageMagickSupportService;
+    private final VideoStrategyResolver videoStrategyResolver;
+
+    @Value("${ffmpeg.bin-dir:/usr/bin}")
+    private String ffmpegBinDir;
+
+    private volatile Capacidades ffmpeg = Capacidades.DESCONHECIDAS;
+
+    @PostConstruct
+    public void detectar() {
+        String binario = resolverFfmpeg();
+        Set<String> encoders = listar(binario, "-encoders");
+        Set<String> muxers = listar(binario, "-muxers");
+        Set<String> filtros = listar(binario, "-filters");
+
+        if (encoders.isEmpty() || muxers.isEmpty()) {
+            log.warn("Não foi possível detectar as capacidades do ffmpeg em {}; conversões não serão pré-validadas", binario);
+            return;
+        }
+
+        ffmpeg = new Capacidades(true, Set.copyOf(encoders), Set.copyOf(muxers), Set.copyOf(filtros));
+
+        List<FormatoVideo> videoIndisponivel = List.of(FormatoVideo.values()).stream()
+            .filter(formato -> !suportaVideo(formato))
+            .toList();
+        List<FormatoAudio> audioIndisponivel = List.of(FormatoAudio.values()).stream()
+            .filter(formato -> !suportaAudio(formato))
+            .toList();
+
+        log.info("Capacidades ffmpeg detectadas: encoders={} muxers={} filtros={} videoIndisponivel={} audioIndisponivel={}",
+            encoders.size(), muxers.size(), filtros.size(), videoIndisponivel, audioIndisponivel);
+    }
+
+    public boolean suportaEncoder(String encoder) {
+        return !ffmpeg.detectadas() || (encoder != null && ffmpeg.encoders().contains(encoder.toLowerCase(Locale.ROOT)));
+    }
+
+    public boolean suportaMuxer(String muxer) {
+        return !ffmpeg.detectadas() || (muxer != null && ffmpeg.muxers().contains(muxer.toLowerCase(Locale.ROOT)));
+    }
+
+    public boolean suportaFiltro(String filtro) {
+        return !ffmpeg.detectadas() || (filtro != null && ffmpeg.filtros().contains(filtro.toLowerCase(Locale.ROOT)));
+    }
+
+    public boolean suportaTodosEncoders(Collection<String> encoders) {
+        return encoders.stream().allMatch(this::suportaEncoder);
+    }
+
+    public boolean suportaVideo(FormatoVideo formato) {
+        VideoConversionProfile perfil = videoStrategyResolver.resolve(formato).profile();
+        return suportaMuxer(perfil.format()) && suportaTodosEncoders(encodersDoPerfil(perfil.args()));
+    }
+
+    // Remux só depende do muxer: é o caminho rápido sem encoder disponível mesmo num build mínimo
+    public boolean suportaRemux(FormatoVideo formato) {
+        return suportaMuxer(videoStrategyResolver.resolve(formato).profile().format());
+    }
+
+    public boolean suportaAudio(FormatoAudio formato) {
+        return suportaMuxer(formato.getFfmpegFormat()) && suportaEncoder(formato.getFfmpegCodec());
+    }
+
+    public boolean suportaLeituraImagem(String formatoMagick) {
+        return imageMagickSupportService.supportsRead(formatoMagick);
+    }
+
+    public boolean suportaEscritaImagem(String formatoMagick) {
+        return imageMagickSupportService.supportsWrite(formatoMagick);
+    }
+
+    static Set<String> encodersDoPerfil(List<String> args) {
+        Set<String> encoders = new HashSet<>();
+        for (int i = 0; i < args.size() - 1; i++) {
+            String arg = args.get(i);
+            if (arg.equals("-c:v") || arg.equals("-c:a") || arg.startsWith("-c:v:") || arg.startsWith("-c:a:")
+                    || arg.equals("-vcodec") || arg.equals("-acodec")) {
+                String encoder = args.get(i + 1);
+                if (!"copy".equalsIgnoreCase(encoder)) {
+                    encoders.add(encoder.toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return encoders;
+    }
+
+    static Set<String> interpretarLista(String saida) {
+        Set<String> nomes = new HashSet<>();
+        for (String linha : saida.split("\\R")) {
+            // Linhas de legenda ("V..... = Video") e cabeçalhos não representam capacidades
+            if (linha.contains(" = ")) {
+                continue;
+            }
+            Matcher matcher = LINHA_CAPACIDADE.matcher(linha);
+            if (!matcher.find()) {
+                continue;
+            }
+            for (String nome : matcher.group(2).split(",")) {
+                if (!nome.isBlank()) {
+                    nomes.add(nome.strip().toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return nomes;
+    }
+
+    private Set<String> listar(String binario, String opcao) {
+        try {
+            ProcessBuilder processBuilder = new ProcessBuilder(binario, "-hide_banner", opcao);
+            processBuilder.redirectErrorStream(true);
+
+            Process process = processBuilder.start();
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            process.getInputStream().transferTo(output);
+
+            boolean finished = process.waitFor(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            if (!finished) {
+                process.destroyForcibly();
+                log.warn("Timeout ao executar ffmpeg {}", opcao);
+                return Set.of();
+            }
+            if (process.exitValue() != 0) {
+                log.warn("Falha ao executar ffmpeg {} (exitCode={})", opcao, process.exitValue());
+                return Set.of();
+            }
+            return interpretarLista(output.toString(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            log.warn("Não foi possível executar ffmpeg {}: {}", opcao, e.getMessage());
+            return Set.of();
+        }
+    }
+
+    private String resolverFfmpeg() {
+        Path binario = Path.of(ffmpegBinDir, "ffmpeg");
+        return Files.isExecutable(binario) ? binario.toString() : "ffmpeg";
+    }
+
+    private record Capacidades(boolean detectadas, Set<String> encoders, Set<String> muxers, Set<String> filtros) {
+        static final Capacidades DESCONHECIDAS = new Capacidades(false, Set.of(), Set.of(), Set.of());
+    }
+}
@@ -1,7 +1,5 @@
 package br.com.khawantech.files.transferencia.service;
 
-import java.io.InputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -19,51 +17,25 @@ import com.github.kokorin.jaffree.ffprobe.Format;
 import com.github.kokorin.jaffree.ffprobe.Stream;
 
 import br.com.khawantech.files.transferencia.dto.FormatoVideo;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class MediaMetadataService {
 
-    private final MinioService minioService;
-    private final TikaFileAnalysisService tikaFileAnalysisService;
-
     @Value("${ffmpeg.bin-dir:/usr/bin}")
     private String ffmpegBinDir;
 
-    public MediaMetadataResult extrair(String caminhoMinio, String tipoMime) {
-        if (caminhoMinio == null || caminhoMinio.isBlank()) {
-            return new MediaMetadataResult(Map.of(), Map.of());
+    public boolean requerArquivoLocal(String tipoMime) {
+        if (tipoMime == null) {
+            return false;
         }
 
-        Path tempFile = null;
-        try {
-            tempFile = Files.createTempFile("media_meta_", ".bin");
-            try (InputStream inputStream = minioService.obterArquivo(caminhoMinio).inputStream()) {
-                Files.copy(inputStream, tempFile, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
-            }
-
-            Map<String, String> metadadosTika = tikaFileAnalysisService.analisarArquivoCompleto(tempFile);
-            Map<String, String> metadadosTecnicos = extrairTecnicos(tempFile, tipoMime);
-
-            return new MediaMetadataResult(metadadosTika, metadadosTecnicos);
-        } catch (Exception e) {
-            log.debug("Falha ao extrair metadados completos: {}", e.getMessage());
-            return new MediaMetadataResult(Map.of(), Map.of());
-        } finally {
-            if (tempFile != null) {
-                try {
-                    Files.deleteIfExists(tempFile);
-                } catch (Exception e) {
-                    log.debug("Falha ao remover arquivo temporário de metadata: {}", e.getMessage());
-                }
-            }
-        }
+        String mime = tipoMime.trim().toLowerCase();
+        return mime.startsWith("image/") || mime.startsWith("video/") || mime.startsWith("audio/") || FormatoVideo.isVideoLike(mime);
     }
 
-    private Map<String, String> extrairTecnicos(Path tempFile, String tipoMime) {
+    public Map<String, String> extrairTecnicos(Path tempFile, String tipoMime) {
         if (tipoMime == null) {
             return Map.of();
         }
@@ -187,6 +159,4 @@ public class MediaMetadataService {
 
         return metadados;
     }
-
-    public record MediaMetadataResult(Map<String, String> metadadosTika, Map<String, String> metadadosTecnicos) {}
 }
@@ -1,6 +1,7 @@
 package br.com.khawantech.files.transferencia.service;
 
 import br.com.khawantech.files.transferencia.config.TransferenciaProperties;
+import br.com.khawantech.files.transferencia.entity.ChunkArquivo;
 import io.minio.*;
 import io.minio.http.Method;
 import lombok.RequiredArgsConstructor;
@@ -11,9 +12,19 @@ import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 @Slf4j
@@ -21,6 +32,8 @@ import java.util.concurrent.TimeUnit;
 @RequiredArgsConstructor
 public class MinioService {
 
+    private static final long TAMANHO_PARTE_STREAM = 10L * 1024 * 1024;
+
     private final MinioClient minioClient;
     private final TransferenciaProperties properties;
 
@@ -66,45 +79,83 @@ public class MinioService {
         }
     }
 
-    public String mergeChunks(String sessaoId, String arquivoId, String nomeArquivo, int totalChunks, String tipoMime) {
-        try {
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-
-            for (int i = 0; i < totalChunks; i++) {
-                String caminhoCunk = gerarCaminhoChunk(sessaoId, arquivoId, i);
-                
-                try (InputStream inputStream = minioClient.getObject(
-                    GetObjectArgs.builder()
-                        .bucket(properties.getMinioBucket())
-                        .object(caminhoCunk)
-                        .build()
-                )) {
-                    inputStream.transferTo(outputStream);
-                }
-            }
+    public String uploadStream(String caminho, InputStream inputStream, long tamanhoBytes, String contentType) {
+        return gravarStream(caminho, inputStream, tamanhoBytes, -1, contentType);
+    }
 
-            String caminhoFinal = gerarCaminhoArquivo(sessaoId, arquivoId, nomeArquivo);
-            byte[] arquivoCompleto = outputStream.toByteArray();
+    public String uploadStream(String caminho, InputStream inputStream, String contentType) {
+        return gravarStream(caminho, inputStream, -1, TAMANHO_PARTE_STREAM, contentType);
+    }
 
+    private String gravarStream(String caminho, InputStream inputStream, long tamanhoBytes, long tamanhoParte, String contentType) {
+        try {
             minioClient.putObject(
                 PutObjectArgs.builder()
                     .bucket(properties.getMinioBucket())
-                    .object(caminhoFinal)
-                    .stream(new ByteArrayInputStream(arquivoCompleto), arquivoCompleto.length, -1)
-                    .contentType(tipoMime)
+                    .object(caminho)
+                    .stream(inputStream, tamanhoBytes, tamanhoParte)
+                    .contentType(contentType)
                     .build()
             );
 
-            for (int i = 0; i < totalChunks; i++) {
-                deleteChunk(sessaoId, arquivoId, i);
+            log.info("Arquivo completo criado: {}", caminho);
+            return caminho;
+
+        } catch (Exception e) {
+            log.error("Erro ao gravar arquivo no MinIO: {}", e.getMessage());
+            throw new RuntimeException("Erro ao gravar arquivo no MinIO", e);
+        }
+    }
+
+    public InputStream abrirStreamChunks(String sessaoId, String arquivoId, List<ChunkArquivo> chunks, byte[] prefixo) {
+        byte[] inicio = prefixo != null ? prefixo : new byte[0];
+
+        List<TrechoChunk> trechos = new ArrayList<>();
+        long jaLidos = inicio.length;
+        for (ChunkArquivo chunk : chunks) {
+            if (jaLidos >= chunk.getTamanhoBytes()) {
+                jaLidos -= chunk.getTamanhoBytes();
+                continue;
+            }
+            trechos.add(new TrechoChunk(chunk.getNumeroChunk(), jaLidos));
+            jaLidos = 0;
+        }
+
+        Iterator<TrechoChunk> iterator = trechos.iterator();
+        Enumeration<InputStream> partes = new Enumeration<>() {
+            private boolean prefixoEntregue;
+
+            @Override
+            public boolean hasMoreElements() {
+                return !prefixoEntregue || iterator.hasNext();
             }
 
-            log.info("Arquivo completo criado: {}", caminhoFinal);
-            return caminhoFinal;
+            @Override
+            public InputStream nextElement() {
+                if (!prefixoEntregue) {
+                    prefixoEntregue = true;
+                    return new ByteArrayInputStream(inicio);
+                }
+                TrechoChunk trecho = iterator.next();
+                return abrirChunk(sessaoId, arquivoId, trecho.numeroChunk(), trecho.offset());
+            }
+        };
+
+        return new SequenceInputStream(partes);
+    }
 
+    private InputStream abrirChunk(String sessaoId, String arquivoId, int numeroChunk, long offset) {
+        try {
+            GetObjectArgs.Builder args = GetObjectArgs.builder()
+                .bucket(properties.getMinioBucket())
+                .object(gerarCaminhoChunk(sessaoId, arquivoId, numeroChunk));
+            if (offset > 0) {
+                args.offset(offset);
+            }
+            return minioClient.getObject(args.build());
         } catch (Exception e) {
-            log.error("Erro ao fazer merge dos chunks: {}", e.getMessage());
-            throw new RuntimeException("Erro ao fazer merge dos chunks", e);
+            log.error("Erro ao ler chunk {} do arquivo {}: {}", numeroChunk, arquivoId, e.getMessage());
+            throw new RuntimeException("Erro ao ler chunk do MinIO", e);
         }
     }
 
@@ -148,6 +199,40 @@ public class MinioService {
         }
     }
 
+    public String obterContentType(String caminhoMinio) {
+        try {
+            return minioClient.statObject(
+                StatObjectArgs.builder()
+                    .bucket(properties.getMinioBucket())
+                    .object(caminhoMinio)
+                    .build()
+            ).contentType();
+        } catch (Exception e) {
+            log.error("Erro ao consultar objeto no MinIO: {}", caminhoMinio, e);
+            throw new RuntimeException("Erro ao consultar objeto no MinIO", e);
+        }
+    }
+
+    public long baixarParaArquivo(String caminhoMinio, Path destino) {
+        try (InputStream inputStream = obterArquivo(caminhoMinio).inputStream()) {
+            return Files.copy(inputStream, destino, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.error("Erro ao baixar arquivo do MinIO: {}", caminhoMinio, e);
+            throw new RuntimeException("Erro ao baixar arquivo do MinIO", e);
+        }
+    }
+
+    public long uploadArquivo(String caminho, Path origem, String contentType) {
+        try (InputStream inputStream = Files.newInputStream(origem)) {
+            long tamanhoBytes = Files.size(origem);
+            uploadStream(caminho, inputStream, tamanhoBytes, contentType);
+            return tamanhoBytes;
+        } catch (IOException e) {
+            log.error("Erro ao ler arquivo local para upload: {}", origem, e);
+            throw new RuntimeException("Erro ao ler arquivo local para upload", e);
+        }
+    }
+
     public byte[] lerPrefixoDeChunks(String sessaoId, String arquivoId, int totalChunks, int maxBytes) {
         if (maxBytes <= 0) {
             return new byte[0];
@@ -188,6 +273,8 @@ public class MinioService {
 
     public record ArquivoData(InputStream inputStream, String contentType, long size) {}
 
+    private record TrechoChunk(int numeroChunk, long offset) {}
+
     public void deleteChunk(String sessaoId, String arquivoId, int numeroChunk) {
         try {
             String caminho = gerarCaminhoChunk(sessaoId, arquivoId, numeroChunk);
@@ -238,11 +325,53 @@ public class MinioService {
         }
     }
 
+    public boolean existeObjeto(String caminhoMinio) {
+        try {
+            minioClient.statObject(
+                StatObjectArgs.builder()
+                    .bucket(properties.getMinioBucket())
+                    .object(caminhoMinio)
+                    .build()
+            );
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    public int deletarObjetosAnteriores(String prefixo, Instant limite) {
+        int removidos = 0;
+        try {
+            Iterable<Result<io.minio.messages.Item>> results = minioClient.listObjects(
+                ListObjectsArgs.builder()
+                    .bucket(properties.getMinioBucket())
+                    .prefix(prefixo)
+                    .recursive(true)
+                    .build()
+            );
+
+            for (Result<io.minio.messages.Item> result : results) {
+                io.minio.messages.Item item = result.get();
+                if (item.lastModified() != null && item.lastModified().toInstant().isBefore(limite)) {
+                    deleteArquivo(item.objectName());
+                    removidos++;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Erro ao deletar objetos antigos do prefixo {}: {}", prefixo, e.getMessage());
+        }
+        return removidos;
+    }
+
+    public int deletarPrefixo(String prefixo) {
+        return deletarObjetosAnteriores(prefixo, Instant.MAX);
+    }
+
     private String gerarCaminhoChunk(String sessaoId, String arquivoId, int numeroChunk) {
         return String.format("%s/%s/chunks/%d", sessaoId, arquivoId, numeroChunk);
     }
 
-    private String gerarCaminhoArquivo(String sessaoId, String arquivoId, String nomeArquivo) {
+    public String gerarCaminhoArquivo(String sessaoId, String arquivoId, String nomeArquivo) {
         return String.format("%s/%s/%s", sessaoId, arquivoId, nomeArquivo);
     }
 }
@@ -0,0 +1,119 @@
+package br.com.khawantech.files.transferencia.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import br.com.khawantech.files.transferencia.config.TransferenciaProperties;
+import br.com.khawantech.files.transferencia.dto.NotificacaoLoteResponse;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Agrupa as notificações de alta frequência de cada sessão (progresso, digitando, arquivo em processamento) e as
+ * envia uma vez por tick num único frame em /topic/sessao/{id}/lote, mantendo só a última por chave. Eventos
+ * enviados de imediato esvaziam antes o lote da sessão, para que o cliente continue recebendo tudo em ordem.
+ * O lock do lote só protege o mapa de eventos; os envios da sessão são serializados por um lock próprio, para
+ * que um broker lento não segure quem está agrupando.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class NotificacaoLoteService {
+
+    public static final String METRICA_TAMANHO = "transferencia.notificacao.lote.tamanho";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final TransferenciaProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Lote> lotes = new ConcurrentHashMap<>();
+
+    public void agrupar(String sessaoId, String destino, String chave, Object dados) {
+        if (!properties.getNotificacaoLote().isHabilitado()) {
+            messagingTemplate.convertAndSend(destino, dados);
+            return;
+        }
+
+        while (true) {
+            Lote lote = lotes.computeIfAbsent(sessaoId, id -> new Lote());
+            synchronized (lote) {
+                // Lote descartado pelo tick entre o computeIfAbsent e o lock: tenta de novo com um novo
+                if (!lote.descartado) {
+                    lote.eventos.put(chave, new NotificacaoLoteResponse.Evento(destino, dados));
+                    return;
+                }
+            }
+        }
+    }
+
+    public void enviar(String sessaoId, String destino, Object dados) {
+        Lote lote = sessaoId != null ? lotes.get(sessaoId) : null;
+        if (lote == null) {
+            messagingTemplate.convertAndSend(destino, dados);
+            return;
+        }
+        synchronized (lote.envio) {
+            enviarLote(sessaoId, retirar(sessaoId, lote));
+            messagingTemplate.convertAndSend(destino, dados);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${transferencia.notificacao-lote.tick-ms:100}")
+    public void enviarLotes() {
+        lotes.forEach((sessaoId, lote) -> {
+            synchronized (lote.envio) {
+                synchronized (lote) {
+                    if (lote.eventos.isEmpty()) {
+                        lote.descartado = true;
+                        lotes.remove(sessaoId, lote);
+                        return;
+                    }
+                }
+                enviarLote(sessaoId, retirar(sessaoId, lote));
+            }
+        });
+    }
+
+    private NotificacaoLoteResponse retirar(String sessaoId, Lote lote) {
+        synchronized (lote) {
+            if (lote.eventos.isEmpty()) {
+                return null;
+            }
+            NotificacaoLoteResponse resposta = NotificacaoLoteResponse.builder()
+                .sessaoId(sessaoId)
+                .eventos(new ArrayList<>(lote.eventos.values()))
+                .timestamp(Instant.now())
+                .build();
+            lote.eventos.clear();
+            return resposta;
+        }
+    }
+
+    private void enviarLote(String sessaoId, NotificacaoLoteResponse resposta) {
+        if (resposta == null) {
+            return;
+        }
+        try {
+            messagingTemplate.convertAndSend("/topic/sessao/" + sessaoId + "/lote", resposta);
+            DistributionSummary.builder(METRICA_TAMANHO).register(meterRegistry).record(resposta.getEventos().size());
+        } catch (Exception e) {
+            log.warn("Erro ao enviar lote de notificações da sessão {}: {}", sessaoId, e.getMessage());
+        }
+    }
+
+    private static final class Lote {
+
+        private final Object envio = new Object();
+        private final Map<String, NotificacaoLoteResponse.Evento> eventos = new LinkedHashMap<>();
+        private boolean descartado;
+    }
+}
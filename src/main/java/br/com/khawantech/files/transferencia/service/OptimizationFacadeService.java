@@ -25,6 +25,7 @@ public class OptimizationFacadeService {
     private final ArquivoRepository arquivoRepository;
     private final ImageOptimizationService imageOptimizationService;
     private final VideoOptimizationService videoOptimizationService;
+    private final CancelamentoConversaoService cancelamentoConversaoService;
 
     public List<Integer> getNiveisDisponiveis(String arquivoId) {
         Arquivo arquivo = arquivoRepository.findById(arquivoId)
@@ -49,9 +50,10 @@ public class OptimizationFacadeService {
             .toList();
     }
 
-    public void otimizarArquivo(String arquivoId, int nivel, User solicitante) {
+    public void otimizarArquivo(String arquivoId, int nivel, boolean permitirFormatoAlternativo, User solicitante) {
         Arquivo arquivo = arquivoRepository.findById(arquivoId)
             .orElseThrow(() -> new RecursoNaoEncontradoException("Arquivo não encontrado"));
+        cancelamentoConversaoService.limparCancelamento(arquivoId);
 
         if (FormatoVideo.isVideoLike(arquivo.getTipoMime())) {
             videoOptimizationService.otimizarVideo(arquivoId, nivel, solicitante);
@@ -59,7 +61,7 @@ public class OptimizationFacadeService {
         }
 
         if (FormatoImagem.fromMimeType(arquivo.getTipoMime()).isPresent()) {
-            imageOptimizationService.otimizarImagem(arquivoId, nivel, solicitante);
+            imageOptimizationService.otimizarImagem(arquivoId, nivel, permitirFormatoAlternativo, solicitante);
             return;
         }
 
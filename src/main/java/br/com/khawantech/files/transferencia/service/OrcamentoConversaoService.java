@@ -0,0 +1,237 @@
+package br.com.khawantech.files.transferencia.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import br.com.khawantech.files.transferencia.config.TransferenciaProperties;
+import br.com.khawantech.files.transferencia.entity.Arquivo;
+import br.com.khawantech.files.transferencia.exception.OrcamentoConversaoExcedidoException;
+import br.com.khawantech.files.user.entity.User;
+import br.com.khawantech.files.user.entity.UserType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Controle de admissão das conversões: cada pedido reserva o custo estimado em segundos de processamento
+ * contra o orçamento do solicitante e do seu tipo de usuário. Acima do orçamento o pedido é recusado com
+ * a previsão de quando as reservas em andamento liberam espaço suficiente.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrcamentoConversaoService {
+
+    public static final String METRICA_ADMITIDAS = "transferencia.orcamento.admitidas";
+    public static final String METRICA_REJEITADAS = "transferencia.orcamento.rejeitadas";
+
+    private static final String RESERVA_PREFIX = "orcamento:reserva:";
+    private static final String RESERVAS_USUARIO_PREFIX = "orcamento:reservas:usuario:";
+    private static final String RESERVAS_TIPO_PREFIX = "orcamento:reservas:tipo:";
+    private static final String CAMPO_USUARIO = "usuarioId";
+    private static final String CAMPO_TIPO = "tipo";
+
+    // Reservas de execuções que morreram sem liberar deixam de contar após esta margem sobre a estimativa
+    private static final Duration VALIDADE_MINIMA = Duration.ofHours(1);
+    private static final int MULTIPLICADOR_VALIDADE = 4;
+    private static final long ETA_MINIMO_SEGUNDOS = 30;
+    private static final int TENTATIVAS_LOCK = 10;
+    private static final long ESPERA_LOCK_MS = 50;
+
+    private final CustoConversaoService custoConversaoService;
+    private final LockRedisService lockRedisService;
+    private final RedisTemplate<String, Object> transferenciaRedisTemplate;
+    private final TransferenciaProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    // operacao sobrepõe a do pedido quando o alvo tem custo próprio (remux no meio de um lote, por exemplo)
+    public record AlvoReservado(String alvo, Integer nivel, String operacao) {
+    }
+
+    public void admitir(Arquivo arquivo, String operacao, String alvo, Integer nivel, User solicitante) {
+        admitir(arquivo, operacao, List.of(new AlvoReservado(alvo, nivel, null)), solicitante);
+    }
+
+    public void admitir(Arquivo arquivo, String operacao, List<AlvoReservado> alvos, User solicitante) {
+        if (!properties.getOrcamento().isHabilitado()) {
+            return;
+        }
+
+        UserType tipo = solicitante.getUserType() != null ? solicitante.getUserType() : UserType.FREE;
+        TransferenciaProperties.LimiteOrcamento limite = properties.getOrcamento().doTipo(tipo);
+
+        Map<String, Double> custos = new LinkedHashMap<>();
+        for (AlvoReservado alvo : alvos) {
+            custos.put(ConversaoEmVooService.gerarChave(arquivo.getId(), alvo.alvo(), alvo.nivel()),
+                custoConversaoService.estimar(arquivo, alvo.operacao() != null ? alvo.operacao() : operacao, List.of(alvo.alvo())));
+        }
+        double custo = custos.values().stream().mapToDouble(Double::doubleValue).sum();
+
+        if (custo > limite.getPorUsuarioSegundos()) {
+            rejeitar(tipo, "limite");
+            throw new OrcamentoConversaoExcedidoException(String.format(
+                "Conversão estimada em %d segundos de processamento excede o limite de %d segundos do seu plano",
+                Math.round(custo), limite.getPorUsuarioSegundos()), null);
+        }
+
+        String lockId = adquirirLock(tipo);
+        try {
+            long agora = System.currentTimeMillis();
+            List<Reserva> doUsuario = reservas(RESERVAS_USUARIO_PREFIX + solicitante.getId(), agora);
+            List<Reserva> doTipo = reservas(RESERVAS_TIPO_PREFIX + tipo.name(), agora);
+
+            Long etaUsuario = eta(doUsuario, custo, limite.getPorUsuarioSegundos(), agora);
+            Long etaTipo = eta(doTipo, custo, limite.getPorTipoSegundos(), agora);
+            if (etaUsuario != null || etaTipo != null) {
+                long eta = Math.max(etaUsuario != null ? etaUsuario : 0, etaTipo != null ? etaTipo : 0);
+                rejeitar(tipo, etaUsuario != null ? "usuario" : "tipo");
+                throw new OrcamentoConversaoExcedidoException(String.format(
+                    "Capacidade de conversão esgotada no momento. Tente novamente em cerca de %s",
+                    formatarEta(eta)), eta);
+            }
+
+            custos.forEach((chave, segundos) -> reservar(chave, segundos, solicitante.getId(), tipo, agora));
+        } catch (OrcamentoConversaoExcedidoException e) {
+            throw e;
+        } catch (Exception e) {
+            // Sem Redis não há como contabilizar: o pedido segue como antes do controle de admissão
+            log.warn("Erro ao verificar orçamento de conversão do arquivo {}: {}", arquivo.getId(), e.getMessage());
+        } finally {
+            if (lockId != null) {
+                lockRedisService.liberarLock(recursoLock(tipo), lockId);
+            }
+        }
+
+        Counter.builder(METRICA_ADMITIDAS).tag("tipo", tipo.name()).register(meterRegistry).increment();
+        log.info("Conversão admitida: arquivo={} operacao={} alvos={} custoEstimado={}s",
+            arquivo.getId(), operacao, alvos.size(), Math.round(custo));
+    }
+
+    public void liberar(String chave) {
+        String reservaKey = RESERVA_PREFIX + chave;
+        try {
+            Map<Object, Object> reserva = transferenciaRedisTemplate.opsForHash().entries(reservaKey);
+            if (reserva.isEmpty()) {
+                return;
+            }
+            transferenciaRedisTemplate.opsForHash().delete(RESERVAS_USUARIO_PREFIX + reserva.get(CAMPO_USUARIO), chave);
+            transferenciaRedisTemplate.opsForHash().delete(RESERVAS_TIPO_PREFIX + reserva.get(CAMPO_TIPO), chave);
+            transferenciaRedisTemplate.delete(reservaKey);
+        } catch (Exception e) {
+            log.warn("Erro ao liberar reserva de orçamento ({}): {}", chave, e.getMessage());
+        }
+    }
+
+    private void reservar(String chave, double segundos, String usuarioId, UserType tipo, long agora) {
+        String valor = Math.round(segundos) + ":" + agora;
+        Duration validade = validade(segundos);
+
+        transferenciaRedisTemplate.opsForHash().putAll(RESERVA_PREFIX + chave, Map.of(CAMPO_USUARIO, usuarioId, CAMPO_TIPO, tipo.name()));
+        transferenciaRedisTemplate.expire(RESERVA_PREFIX + chave, validade);
+
+        for (String key : List.of(RESERVAS_USUARIO_PREFIX + usuarioId, RESERVAS_TIPO_PREFIX + tipo.name())) {
+            transferenciaRedisTemplate.opsForHash().put(key, chave, valor);
+            Long ttl = transferenciaRedisTemplate.getExpire(key);
+            if (ttl == null || ttl < validade.toSeconds()) {
+                transferenciaRedisTemplate.expire(key, validade);
+            }
+        }
+    }
+
+    private List<Reserva> reservas(String key, long agora) {
+        List<Reserva> validas = new ArrayList<>();
+        List<Object> vencidas = new ArrayList<>();
+        for (Map.Entry<Object, Object> entrada : transferenciaRedisTemplate.opsForHash().entries(key).entrySet()) {
+            String[] partes = String.valueOf(entrada.getValue()).split(":");
+            long segundos = Long.parseLong(partes[0]);
+            long admitidaEm = Long.parseLong(partes[1]);
+            if (admitidaEm + validade(segundos).toMillis() < agora) {
+                vencidas.add(entrada.getKey());
+            } else {
+                validas.add(new Reserva(segundos, admitidaEm));
+            }
+        }
+        if (!vencidas.isEmpty()) {
+            transferenciaRedisTemplate.opsForHash().delete(key, vencidas.toArray());
+        }
+        return validas;
+    }
+
+    // Segundos até que as reservas com término previsto mais cedo liberem espaço para o novo custo; null se já cabe
+    private static Long eta(List<Reserva> reservas, double custo, long limite, long agora) {
+        double emUso = reservas.stream().mapToDouble(Reserva::segundos).sum();
+        if (emUso + custo <= limite) {
+            return null;
+        }
+
+        List<Reserva> porTermino = new ArrayList<>(reservas);
+        porTermino.sort(Comparator.comparingLong(Reserva::terminoPrevisto));
+        for (Reserva reserva : porTermino) {
+            emUso -= reserva.segundos();
+            if (emUso + custo <= limite) {
+                return Math.max(ETA_MINIMO_SEGUNDOS, (reserva.terminoPrevisto() - agora) / 1000);
+            }
+        }
+        return ETA_MINIMO_SEGUNDOS;
+    }
+
+    private String adquirirLock(UserType tipo) {
+        for (int tentativa = 0; tentativa < TENTATIVAS_LOCK; tentativa++) {
+            try {
+                String lockId = lockRedisService.adquirirLock(recursoLock(tipo));
+                if (lockId != null) {
+                    return lockId;
+                }
+                Thread.sleep(ESPERA_LOCK_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (Exception e) {
+                log.warn("Erro ao adquirir lock de orçamento ({}): {}", tipo, e.getMessage());
+                return null;
+            }
+        }
+        log.warn("Lock de orçamento indisponível para {}, admitindo sem exclusão mútua", tipo);
+        return null;
+    }
+
+    private void rejeitar(UserType tipo, String motivo) {
+        Counter.builder(METRICA_REJEITADAS)
+            .tag("tipo", tipo.name())
+            .tag("motivo", motivo)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    private static Duration validade(double segundos) {
+        Duration estimada = Duration.ofSeconds(Math.round(segundos) * MULTIPLICADOR_VALIDADE);
+        return estimada.compareTo(VALIDADE_MINIMA) > 0 ? estimada : VALIDADE_MINIMA;
+    }
+
+    private static String recursoLock(UserType tipo) {
+        return "orcamento:" + tipo.name();
+    }
+
+    private static String formatarEta(long segundos) {
+        if (segundos < 60) {
+            return segundos + " segundos";
+        }
+        long minutos = (segundos + 59) / 60;
+        return minutos < 60 ? minutos + " minutos" : String.format("%dh%02d", minutos / 60, minutos % 60);
+    }
+
+    private record Reserva(long segundos, long admitidaEm) {
+
+        long terminoPrevisto() {
+            return admitidaEm + segundos * 1000;
+        }
+    }
+}
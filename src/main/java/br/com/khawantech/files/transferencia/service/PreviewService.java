@@ -0,0 +1,287 @@
+package br.com.khawantech.files.transferencia.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+import org.im4java.core.ConvertCmd;
+import org.im4java.core.IMOperation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+
+import com.github.kokorin.jaffree.ffmpeg.FFmpeg;
+import com.github.kokorin.jaffree.ffmpeg.UrlInput;
+import com.github.kokorin.jaffree.ffmpeg.UrlOutput;
+
+import br.com.khawantech.files.transferencia.dto.FormatoVideo;
+import br.com.khawantech.files.transferencia.dto.VariantePreview;
+import br.com.khawantech.files.transferencia.entity.Arquivo;
+import br.com.khawantech.files.transferencia.entity.StatusArquivo;
+import br.com.khawantech.files.transferencia.repository.ArquivoRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PreviewService {
+
+    public static final int THUMBNAIL_LADO = 320;
+    public static final int POSTER_LARGURA = 1280;
+    public static final int SPRITE_COLUNAS = 5;
+    public static final int SPRITE_LINHAS = 5;
+    public static final int SPRITE_LARGURA_QUADRO = 160;
+
+    private static final int URL_EXPIRACAO_MINUTOS = 30;
+
+    private final ArquivoRepository arquivoRepository;
+    private final MinioService minioService;
+    private final ImageMagickSupportService imageMagickSupportService;
+    private final WebSocketNotificationService notificationService;
+    private final MediaCapabilityRegistry mediaCapabilityRegistry;
+
+    @Value("${ffmpeg.bin-dir:/usr/bin}")
+    private String ffmpegBinDir;
+
+    @Value("${imagemagick.timeout-seconds:300}")
+    private Integer timeoutSeconds;
+
+    @Value("${imagemagick.max-resolution:50000000}")
+    private Long maxResolution;
+
+    public boolean suportaPreview(String tipoMime) {
+        if (tipoMime == null) {
+            return false;
+        }
+        String mime = tipoMime.strip().toLowerCase(Locale.ROOT);
+        if (FormatoVideo.isVideoLike(mime)) {
+            return mediaCapabilityRegistry.suportaEncoder("mjpeg");
+        }
+        return mime.startsWith("image/") && !"image/svg+xml".equals(mime);
+    }
+
+    public void gerarPreviews(String arquivoId) {
+        Arquivo arquivo = arquivoRepository.findById(arquivoId).orElse(null);
+        if (arquivo == null || !StatusArquivo.COMPLETO.equals(arquivo.getStatus()) || arquivo.getCaminhoMinio() == null) {
+            log.debug("Arquivo indisponível para gerar previews: {}", arquivoId);
+            return;
+        }
+
+        Path diretorio = null;
+        try {
+            diretorio = Files.createTempDirectory("preview_");
+
+            Map<String, String> previews = FormatoVideo.isVideoLike(arquivo.getTipoMime())
+                ? gerarPreviewsVideo(arquivo, diretorio)
+                : gerarPreviewsImagem(arquivo, diretorio);
+
+            if (previews.isEmpty()) {
+                return;
+            }
+
+            // Só o campo de previews: o documento pode ter mudado (ou sido removido) durante a geração
+            long atualizados;
+            try {
+                atualizados = arquivoRepository.atualizarPreviewsSeCompleto(arquivoId, previews);
+            } catch (RuntimeException e) {
+                descartar(previews);
+                throw e;
+            }
+            if (atualizados == 0) {
+                descartar(previews);
+                log.debug("Arquivo removido ou alterado durante a geração de previews: {}", arquivoId);
+                return;
+            }
+
+            notificationService.notificarPreviewDisponivel(arquivo.getSessaoId(), arquivo.getId(), previews.keySet());
+
+            log.info("Previews gerados: arquivo={} variantes={}", arquivoId, previews.keySet());
+
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao preparar arquivos de preview", e);
+        } finally {
+            limparDiretorio(diretorio);
+        }
+    }
+
+    public Optional<MinioService.ArquivoData> obterPreview(Arquivo arquivo, VariantePreview variante) {
+        if (arquivo.getPreviews() == null) {
+            return Optional.empty();
+        }
+        String caminho = arquivo.getPreviews().get(variante.apiValue());
+        if (caminho == null) {
+            return Optional.empty();
+        }
+        return Optional.of(minioService.obterArquivo(caminho));
+    }
+
+    public Double intervaloSpriteSegundos(Arquivo arquivo) {
+        Double duracao = extrairDuracaoSegundos(arquivo);
+        return duracao != null ? duracao / (SPRITE_COLUNAS * SPRITE_LINHAS) : null;
+    }
+
+    private Map<String, String> gerarPreviewsImagem(Arquivo arquivo, Path diretorio) {
+        Map<String, String> previews = new LinkedHashMap<>();
+        try {
+            boolean webp = imageMagickSupportService.supportsWrite("WEBP");
+            String extensao = webp ? "webp" : "jpg";
+
+            Path entrada = diretorio.resolve("origem");
+            Path thumbnail = diretorio.resolve("thumbnail." + extensao);
+            minioService.baixarParaArquivo(arquivo.getCaminhoMinio(), entrada);
+
+            ConvertCmd cmd = new ConvertCmd();
+            cmd.setSearchPath("/usr/bin");
+
+            IMOperation op = new IMOperation();
+            op.define("limit:time=" + timeoutSeconds);
+            op.define("limit:pixels=" + maxResolution);
+            // Permite ao decoder JPEG reduzir a imagem já na leitura
+            op.define("jpeg:size=" + (THUMBNAIL_LADO * 2) + "x" + (THUMBNAIL_LADO * 2));
+            op.addImage(entrada + "[0]");
+            op.autoOrient();
+            op.addRawArgs("-thumbnail", THUMBNAIL_LADO + "x" + THUMBNAIL_LADO + ">");
+            op.strip();
+            op.quality(80.0);
+            op.addImage((webp ? "webp:" : "jpeg:") + thumbnail);
+
+            cmd.run(op);
+
+            previews.put(VariantePreview.THUMBNAIL.apiValue(),
+                salvar(arquivo, VariantePreview.THUMBNAIL, thumbnail, webp ? "image/webp" : "image/jpeg"));
+
+        } catch (Exception e) {
+            log.warn("Erro ao gerar thumbnail da imagem {}: {}", arquivo.getId(), e.getMessage());
+        }
+        return previews;
+    }
+
+    private Map<String, String> gerarPreviewsVideo(Arquivo arquivo, Path diretorio) {
+        Map<String, String> previews = new LinkedHashMap<>();
+        Double duracao = extrairDuracaoSegundos(arquivo);
+        // URL assinada: o ffmpeg busca por range só os trechos que precisa, sem baixar o vídeo inteiro
+        String url = minioService.gerarUrlDownload(arquivo.getCaminhoMinio(), URL_EXPIRACAO_MINUTOS);
+
+        try {
+            long posicaoPosterMs = duracao != null ? Math.round(Math.min(duracao * 0.1, 10.0) * 1000) : 0;
+            Path poster = diretorio.resolve("poster.jpg");
+            extrairQuadro(url, posicaoPosterMs, "scale='min(" + POSTER_LARGURA + ",iw)':-2", poster);
+
+            Path thumbnail = diretorio.resolve("thumbnail.jpg");
+            FFmpeg.atPath(Path.of(ffmpegBinDir))
+                .addInput(UrlInput.fromPath(poster))
+                .addOutput(UrlOutput.toPath(thumbnail)
+                    .addArguments("-vf", "scale='min(" + THUMBNAIL_LADO + ",iw)':-2")
+                    .addArguments("-q:v", "5"))
+                .setOverwriteOutput(true)
+                .execute();
+
+            previews.put(VariantePreview.POSTER.apiValue(), salvar(arquivo, VariantePreview.POSTER, poster, "image/jpeg"));
+            previews.put(VariantePreview.THUMBNAIL.apiValue(), salvar(arquivo, VariantePreview.THUMBNAIL, thumbnail, "image/jpeg"));
+        } catch (Exception e) {
+            log.warn("Erro ao gerar poster do vídeo {}: {}", arquivo.getId(), e.getMessage());
+            return previews;
+        }
+
+        if (duracao == null || duracao <= 0 || !mediaCapabilityRegistry.suportaFiltro("tile")) {
+            return previews;
+        }
+
+        try {
+            Path sprite = diretorio.resolve("sprite.jpg");
+            if (gerarSprite(url, duracao, diretorio, sprite)) {
+                previews.put(VariantePreview.SPRITE.apiValue(), salvar(arquivo, VariantePreview.SPRITE, sprite, "image/jpeg"));
+            }
+        } catch (Exception e) {
+            log.warn("Erro ao gerar sprite do vídeo {}: {}", arquivo.getId(), e.getMessage());
+        }
+        return previews;
+    }
+
+    private boolean gerarSprite(String url, double duracao, Path diretorio, Path sprite) {
+        int total = SPRITE_COLUNAS * SPRITE_LINHAS;
+        double intervalo = duracao / total;
+        int extraidos = 0;
+
+        for (int i = 0; i < total; i++) {
+            long posicaoMs = Math.round((i + 0.5) * intervalo * 1000);
+            Path quadro = diretorio.resolve(String.format("quadro_%03d.jpg", extraidos));
+            try {
+                extrairQuadro(url, posicaoMs, "scale=" + SPRITE_LARGURA_QUADRO + ":-2", quadro);
+                extraidos++;
+            } catch (Exception e) {
+                log.debug("Quadro do sprite ignorado em {}ms: {}", posicaoMs, e.getMessage());
+            }
+        }
+
+        if (extraidos == 0) {
+            return false;
+        }
+
+        FFmpeg.atPath(Path.of(ffmpegBinDir))
+            .addInput(UrlInput.fromPath(diretorio.resolve("quadro_%03d.jpg")).setFormat("image2"))
+            .addOutput(UrlOutput.toPath(sprite)
+                .addArguments("-vf", "tile=" + SPRITE_COLUNAS + "x" + SPRITE_LINHAS)
+                .addArguments("-frames:v", "1")
+                .addArguments("-q:v", "5"))
+            .setOverwriteOutput(true)
+            .execute();
+        return true;
+    }
+
+    private void extrairQuadro(String url, long posicaoMs, String filtro, Path destino) {
+        FFmpeg.atPath(Path.of(ffmpegBinDir))
+            .addInput(UrlInput.fromUrl(url).setPosition(posicaoMs))
+            .addOutput(UrlOutput.toPath(destino)
+                .addArguments("-map", "0:v:0")
+                .addArguments("-frames:v", "1")
+                .addArguments("-vf", filtro)
+                .addArguments("-q:v", "3"))
+            .setOverwriteOutput(true)
+            .execute();
+    }
+
+    private String salvar(Arquivo arquivo, VariantePreview variante, Path origem, String contentType) {
+        String nome = origem.getFileName().toString();
+        String extensao = nome.substring(nome.lastIndexOf('.') + 1);
+        String caminho = minioService.gerarCaminhoArquivo(arquivo.getSessaoId(), arquivo.getId(),
+            "preview/" + variante.apiValue() + "." + extensao);
+        minioService.uploadArquivo(caminho, origem, contentType);
+        return caminho;
+    }
+
+    private void descartar(Map<String, String> previews) {
+        previews.values().forEach(minioService::deleteArquivo);
+    }
+
+    private static Double extrairDuracaoSegundos(Arquivo arquivo) {
+        if (arquivo.getMetadadosTecnicos() == null) {
+            return null;
+        }
+        String duracao = arquivo.getMetadadosTecnicos().get("duration");
+        if (duracao == null || duracao.isBlank()) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(duracao.strip());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void limparDiretorio(Path diretorio) {
+        if (diretorio == null) {
+            return;
+        }
+        try {
+            FileSystemUtils.deleteRecursively(diretorio);
+        } catch (IOException e) {
+            log.warn("Erro ao deletar diretório temporário: {}", diretorio, e);
+        }
+    }
+}
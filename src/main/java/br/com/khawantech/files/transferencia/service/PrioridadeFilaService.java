@@ -0,0 +1,103 @@
+package br.com.khawantech.files.transferencia.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Locale;
+
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import br.com.khawantech.files.transferencia.config.RabbitConfig;
+import br.com.khawantech.files.transferencia.config.TransferenciaProperties;
+import br.com.khawantech.files.transferencia.entity.Sessao;
+import br.com.khawantech.files.user.entity.User;
+import br.com.khawantech.files.user.entity.UserType;
+import br.com.khawantech.files.user.service.UserService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Prioridade das mensagens de processamento pelo tipo do criador da sessão. Premium e free só ficam acima
+ * do nível base (guest) dentro de um orçamento por janela e por fila; o excedente desce um nível. Como o
+ * tráfego elevado é limitado, as mensagens no nível base sempre recebem parte da capacidade.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PrioridadeFilaService {
+
+    public static final String HEADER_TIPO_USUARIO = "x-tipo-usuario";
+
+    private static final String ORCAMENTO_PREFIX = "fila:";
+
+    private final SessaoService sessaoService;
+    private final UserService userService;
+    private final RedisTemplate<String, Object> transferenciaRedisTemplate;
+    private final TransferenciaProperties properties;
+
+    public MessagePostProcessor daSessao(String sessaoId, String routingKey) {
+        UserType tipoUsuario = resolverTipoUsuario(sessaoId);
+        int prioridade = calcularPrioridade(tipoUsuario, routingKey);
+
+        return message -> {
+            MessageProperties messageProperties = message.getMessageProperties();
+            messageProperties.setPriority(prioridade);
+            messageProperties.setTimestamp(new Date());
+            messageProperties.setHeader(HEADER_TIPO_USUARIO, tipoUsuario.name());
+            return message;
+        };
+    }
+
+    private UserType resolverTipoUsuario(String sessaoId) {
+        try {
+            Sessao sessao = sessaoService.buscarPorId(sessaoId);
+            return userService.findById(sessao.getUsuarioCriadorId())
+                .map(User::getUserType)
+                .orElse(UserType.FREE);
+        } catch (Exception e) {
+            log.debug("Não foi possível resolver tipo do criador da sessão {}: {}", sessaoId, e.getMessage());
+            return UserType.FREE;
+        }
+    }
+
+    private int calcularPrioridade(UserType tipoUsuario, String routingKey) {
+        TransferenciaProperties.Prioridade prioridade = properties.getPrioridade();
+        int valor = switch (tipoUsuario) {
+            case PREMIUM -> dentroDoOrcamento(UserType.PREMIUM, routingKey, prioridade.getPremiumPorJanela())
+                ? prioridade.getPremium() : nivelFree(routingKey);
+            case FREE -> nivelFree(routingKey);
+            case GUEST -> prioridade.getGuest();
+        };
+        return Math.max(0, Math.min(RabbitConfig.PRIORIDADE_MAXIMA, valor));
+    }
+
+    private int nivelFree(String routingKey) {
+        TransferenciaProperties.Prioridade prioridade = properties.getPrioridade();
+        return dentroDoOrcamento(UserType.FREE, routingKey, prioridade.getFreePorJanela())
+            ? prioridade.getFree() : prioridade.getGuest();
+    }
+
+    private boolean dentroDoOrcamento(UserType nivel, String routingKey, int limite) {
+        TransferenciaProperties.Prioridade prioridade = properties.getPrioridade();
+        long janela = Math.max(1, prioridade.getJanelaSegundos());
+        String key = ORCAMENTO_PREFIX + nivel.name().toLowerCase(Locale.ROOT) + ":" + routingKey + ":" + (Instant.now().getEpochSecond() / janela);
+
+        try {
+            Long usados = transferenciaRedisTemplate.opsForValue().increment(key);
+            if (usados != null && usados == 1) {
+                transferenciaRedisTemplate.expire(key, Duration.ofSeconds(janela * 2));
+            }
+            boolean dentro = usados == null || usados <= limite;
+            if (!dentro) {
+                log.debug("Orçamento {} esgotado na fila {}: usados={}", nivel, routingKey, usados);
+            }
+            return dentro;
+        } catch (Exception e) {
+            log.warn("Erro ao verificar orçamento {} da fila {}: {}", nivel, routingKey, e.getMessage());
+            return true;
+        }
+    }
+}
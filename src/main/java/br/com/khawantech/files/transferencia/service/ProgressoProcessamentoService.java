@@ -0,0 +1,203 @@
+package br.com.khawantech.files.transferencia.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Service;
+
+import com.github.kokorin.jaffree.ffmpeg.FFmpegProgress;
+import com.github.kokorin.jaffree.ffmpeg.ProgressListener;
+
+import br.com.khawantech.files.transferencia.config.TransferenciaProperties;
+import br.com.khawantech.files.transferencia.dto.ProgressoProcessamentoResponse;
+import br.com.khawantech.files.transferencia.entity.Arquivo;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProgressoProcessamentoService {
+
+    public static final String METRICA_DURACAO = "transferencia.processamento.duracao";
+    public static final String METRICA_THROUGHPUT = "transferencia.processamento.throughput";
+    public static final String METRICA_FPS = "transferencia.processamento.fps";
+
+    private static final double VARIACAO_MINIMA_PORCENTAGEM = 1.0;
+
+    private final WebSocketNotificationService notificationService;
+    private final MeterRegistry meterRegistry;
+    private final TransferenciaProperties properties;
+    private final CustoConversaoService custoConversaoService;
+
+    public Acompanhamento iniciar(Arquivo origem, List<Arquivo> destinos, String operacao) {
+        return iniciar(origem, destinos, operacao, operacao);
+    }
+
+    // operacaoCusto é a chave calibrada com o tempo medido; null quando a execução não representa a operação
+    public Acompanhamento iniciar(Arquivo origem, List<Arquivo> destinos, String operacao, String operacaoCusto) {
+        return new Acompanhamento(origem, destinos.stream().map(Arquivo::getId).toList(),
+            destinos.stream().map(Arquivo::getFormatoConvertido).toList(), operacao, operacaoCusto);
+    }
+
+    public Acompanhamento iniciar(Arquivo origem, Arquivo destino, String operacao) {
+        return iniciar(origem, List.of(destino), operacao);
+    }
+
+    public void notificarParcial(String sessaoId, String arquivoId, String operacao, double porcentagem) {
+        ProgressoProcessamentoResponse response = ProgressoProcessamentoResponse.builder()
+            .arquivoId(arquivoId)
+            .sessaoId(sessaoId)
+            .operacao(operacao)
+            .porcentagem(Math.round(Math.max(0, Math.min(99.9, porcentagem)) * 10) / 10.0)
+            .concluido(false)
+            .build();
+        try {
+            notificationService.notificarProgressoProcessamento(sessaoId, response);
+        } catch (Exception e) {
+            log.debug("Erro ao notificar progresso de processamento: arquivo={} erro={}", arquivoId, e.getMessage());
+        }
+    }
+
+    private static Long extrairDuracaoMs(Arquivo arquivo) {
+        Map<String, String> metadados = arquivo.getMetadadosTecnicos();
+        if (metadados == null) {
+            return null;
+        }
+        String duracao = metadados.get("duration");
+        if (duracao == null || duracao.isBlank()) {
+            return null;
+        }
+        try {
+            double segundos = Double.parseDouble(duracao.strip());
+            return segundos > 0 ? Math.round(segundos * 1000) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public final class Acompanhamento implements ProgressListener {
+
+        private final Arquivo origem;
+        private final String sessaoId;
+        private final List<String> arquivoIds;
+        private final List<String> alvos;
+        private final String operacao;
+        private final String operacaoCusto;
+        private final Long tamanhoEntradaBytes;
+        private final Long duracaoMidiaMs;
+        private final long iniciadoEm = System.nanoTime();
+
+        private long ultimoEnvioNanos = iniciadoEm;
+        private double ultimaPorcentagem = -1;
+        private Double ultimoFps;
+
+        private Acompanhamento(Arquivo origem, List<String> arquivoIds, List<String> alvos, String operacao, String operacaoCusto) {
+            this.origem = origem;
+            this.sessaoId = origem.getSessaoId();
+            this.arquivoIds = arquivoIds;
+            this.alvos = alvos;
+            this.operacao = operacao;
+            this.operacaoCusto = operacaoCusto;
+            this.tamanhoEntradaBytes = origem.getTamanhoBytes();
+            this.duracaoMidiaMs = extrairDuracaoMs(origem);
+        }
+
+        @Override
+        public void onProgress(FFmpegProgress progress) {
+            Long processadoMs = progress.getTimeMillis();
+            Double velocidade = progress.getSpeed();
+            Double porcentagem = null;
+            Long eta = null;
+
+            if (duracaoMidiaMs != null && processadoMs != null) {
+                porcentagem = Math.min(99.9, processadoMs * 100.0 / duracaoMidiaMs);
+                if (velocidade != null && velocidade > 0) {
+                    eta = Math.round((duracaoMidiaMs - processadoMs) / velocidade / 1000);
+                }
+            }
+
+            if (progress.getFps() != null) {
+                ultimoFps = progress.getFps();
+            }
+            publicar(porcentagem, progress.getFps(), velocidade, eta != null ? Math.max(0, eta) : null, false);
+        }
+
+        public void atualizar(double porcentagem) {
+            double limitada = Math.max(0, Math.min(99.9, porcentagem));
+            Long eta = null;
+            if (limitada > 0) {
+                double decorridoSegundos = (System.nanoTime() - iniciadoEm) / 1_000_000_000.0;
+                eta = Math.round(decorridoSegundos * (100 - limitada) / limitada);
+            }
+            publicar(limitada, null, null, eta, false);
+        }
+
+        public void concluir() {
+            long decorridoNanos = System.nanoTime() - iniciadoEm;
+            publicar(100.0, ultimoFps, null, 0L, true);
+
+            Timer.builder(METRICA_DURACAO)
+                .tag("operacao", operacao)
+                .publishPercentiles(0.5, 0.95)
+                .register(meterRegistry)
+                .record(Duration.ofNanos(decorridoNanos));
+            if (operacaoCusto != null) {
+                custoConversaoService.calibrar(origem, operacaoCusto, alvos, decorridoNanos / 1_000_000_000.0);
+            }
+
+            if (tamanhoEntradaBytes != null && decorridoNanos > 0) {
+                DistributionSummary.builder(METRICA_THROUGHPUT)
+                    .baseUnit("bytes/s")
+                    .tag("operacao", operacao)
+                    .register(meterRegistry)
+                    .record(tamanhoEntradaBytes * 1_000_000_000.0 / decorridoNanos);
+            }
+
+            if (ultimoFps != null) {
+                DistributionSummary.builder(METRICA_FPS)
+                    .tag("operacao", operacao)
+                    .register(meterRegistry)
+                    .record(ultimoFps);
+            }
+        }
+
+        private synchronized void publicar(Double porcentagem, Double fps, Double velocidade, Long eta, boolean concluido) {
+            long agora = System.nanoTime();
+            if (!concluido) {
+                if (agora - ultimoEnvioNanos < Duration.ofMillis(properties.getProgressoIntervaloMs()).toNanos()) {
+                    return;
+                }
+                if (porcentagem != null && porcentagem - ultimaPorcentagem < VARIACAO_MINIMA_PORCENTAGEM) {
+                    return;
+                }
+            }
+            ultimoEnvioNanos = agora;
+            if (porcentagem != null) {
+                ultimaPorcentagem = porcentagem;
+            }
+
+            for (String arquivoId : arquivoIds) {
+                ProgressoProcessamentoResponse response = ProgressoProcessamentoResponse.builder()
+                    .arquivoId(arquivoId)
+                    .sessaoId(sessaoId)
+                    .operacao(operacao)
+                    .porcentagem(porcentagem != null ? Math.round(porcentagem * 10) / 10.0 : null)
+                    .fps(fps)
+                    .velocidade(velocidade)
+                    .etaSegundos(eta)
+                    .concluido(concluido)
+                    .build();
+                try {
+                    notificationService.notificarProgressoProcessamento(sessaoId, response);
+                } catch (Exception e) {
+                    log.debug("Erro ao notificar progresso de processamento: arquivo={} erro={}", arquivoId, e.getMessage());
+                }
+            }
+        }
+    }
+}
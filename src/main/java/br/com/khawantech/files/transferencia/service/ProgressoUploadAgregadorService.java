@@ -0,0 +1,136 @@
+package br.com.khawantech.files.transferencia.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import br.com.khawantech.files.transferencia.config.RabbitConfig;
+import br.com.khawantech.files.transferencia.config.TransferenciaProperties;
+import br.com.khawantech.files.transferencia.dto.ProgressoUploadResponse;
+import br.com.khawantech.files.transferencia.entity.Arquivo;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Agrega o progresso de upload de cada arquivo nesta instância e publica no máximo N atualizações por segundo,
+ * sempre com a contagem real de chunks recebidos, mais a atualização final. Em implantação distribuída as
+ * atualizações vão por um fanout para que cada instância entregue aos seus clientes WebSocket; com uma única
+ * instância são enviadas diretamente, sem passar pelo broker. Com o relay STOMP o envio direto já chega a todas as
+ * instâncias, então o fanout é ignorado: cada nó reentregaria a atualização ao relay e o cliente a receberia N vezes.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProgressoUploadAgregadorService {
+
+    private static final long INATIVIDADE_MAXIMA_MS = 5 * 60 * 1000;
+
+    private final WebSocketNotificationService notificationService;
+    private final RabbitTemplate rabbitTemplate;
+    private final TransferenciaProperties properties;
+
+    private final Map<String, Estado> estados = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void verificarConfiguracao() {
+        if (properties.getProgressoUpload().isDistribuido() && properties.getRelayStomp().isHabilitado()) {
+            log.warn("transferencia.progresso-upload.distribuido ignorado: com o relay STOMP habilitado o progresso é enviado direto ao broker");
+        }
+    }
+
+    public void registrar(Arquivo arquivo, int chunksRecebidos) {
+        boolean completo = chunksRecebidos >= arquivo.getTotalChunks();
+        ProgressoUploadResponse progresso = ProgressoUploadResponse.builder()
+            .arquivoId(arquivo.getId())
+            .sessaoId(arquivo.getSessaoId())
+            .chunkAtual(chunksRecebidos)
+            .totalChunks(arquivo.getTotalChunks())
+            .progressoPorcentagem(Math.min(100.0, chunksRecebidos * 100.0 / arquivo.getTotalChunks()))
+            .completo(completo)
+            .build();
+
+        Estado estado = estados.computeIfAbsent(arquivo.getId(), id -> new Estado());
+        if (completo) {
+            synchronized (estado) {
+                estado.finalizado = true;
+                estado.pendente = null;
+                estado.ultimoEnvio = System.currentTimeMillis();
+            }
+            publicar(progresso);
+            return;
+        }
+
+        ProgressoUploadResponse liberado;
+        synchronized (estado) {
+            // Chunks paralelos terminam fora de ordem: a contagem publicada nunca regride nem passa da final
+            if (estado.finalizado || (estado.pendente != null && estado.pendente.getChunkAtual() >= chunksRecebidos)) {
+                return;
+            }
+            estado.pendente = progresso;
+            liberado = estado.liberar(System.currentTimeMillis(), intervaloMs());
+        }
+        if (liberado != null) {
+            publicar(liberado);
+        }
+    }
+
+    @Scheduled(fixedDelay = 250)
+    public void publicarPendentes() {
+        long agora = System.currentTimeMillis();
+        long intervalo = intervaloMs();
+        estados.forEach((arquivoId, estado) -> {
+            ProgressoUploadResponse liberado;
+            synchronized (estado) {
+                liberado = estado.liberar(agora, intervalo);
+                if (estado.pendente == null && agora - estado.ultimoEnvio > INATIVIDADE_MAXIMA_MS) {
+                    estados.remove(arquivoId, estado);
+                }
+            }
+            if (liberado != null) {
+                publicar(liberado);
+            }
+        });
+    }
+
+    private void publicar(ProgressoUploadResponse progresso) {
+        try {
+            if (properties.getProgressoUpload().isDistribuido() && !properties.getRelayStomp().isHabilitado()) {
+                rabbitTemplate.convertAndSend(RabbitConfig.EXCHANGE_PROGRESSO_UPLOAD, "", progresso);
+            } else {
+                notificationService.notificarProgresso(progresso.getSessaoId(), progresso);
+            }
+        } catch (Exception e) {
+            log.debug("Erro ao publicar progresso de upload: arquivo={} erro={}", progresso.getArquivoId(), e.getMessage());
+        }
+    }
+
+    private long intervaloMs() {
+        return 1000L / Math.max(1, properties.getProgressoUpload().getAtualizacoesPorSegundo());
+    }
+
+    private static final class Estado {
+
+        private ProgressoUploadResponse pendente;
+        private long ultimoEnvio;
+        private int ultimoChunkEnviado;
+        private boolean finalizado;
+
+        private ProgressoUploadResponse liberar(long agora, long intervalo) {
+            if (pendente == null || agora - ultimoEnvio < intervalo) {
+                return null;
+            }
+            ProgressoUploadResponse liberado = pendente;
+            pendente = null;
+            if (liberado.getChunkAtual() <= ultimoChunkEnviado) {
+                return null;
+            }
+            ultimoEnvio = agora;
+            ultimoChunkEnviado = liberado.getChunkAtual();
+            return liberado;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package br.com.khawantech.files.transferencia.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import br.com.khawantech.files.transferencia.config.TransferenciaProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Publicação assíncrona de eventos com confirmação do broker: o chamador só serializa e enfileira a mensagem,
+ * e uma thread de envio agrupa as pendentes em janelas curtas (por tempo ou tamanho) num único canal. Cada
+ * mensagem fica rastreada pelo id de correlação até a confirmação; nack (inclusive o gerado pela queda do
+ * canal ou da conexão) e falha de envio fazem a republicação. Confirmação atrasada só é reportada: republicar
+ * sem nack duplicaria eventos que o broker já aceitou.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PublicadorEventosService {
+
+    public static final String METRICA_CONFIRMACAO = "transferencia.publicacao.confirmacao";
+    public static final String METRICA_NAO_CONFIRMADAS = "transferencia.publicacao.nao.confirmadas";
+    public static final String METRICA_FILA = "transferencia.publicacao.fila";
+    public static final String METRICA_REPUBLICADAS = "transferencia.publicacao.republicadas";
+    public static final String METRICA_DESCARTADAS = "transferencia.publicacao.descartadas";
+    public static final String METRICA_ATRASADAS = "transferencia.publicacao.confirmacao.atrasadas";
+
+    private static final Duration ESPERA_ENCERRAMENTO = Duration.ofSeconds(10);
+    private static final Duration ESPERA_CONFIRMACAO_SINCRONA = Duration.ofSeconds(5);
+
+    private final RabbitTemplate rabbitTemplate;
+    private final TransferenciaProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Pendente> naoConfirmadas = new ConcurrentHashMap<>();
+    private BlockingQueue<Pendente> fila;
+    private Timer latenciaConfirmacao;
+    private Thread envio;
+    private volatile boolean ativo = true;
+
+    @PostConstruct
+    void iniciar() {
+        fila = new LinkedBlockingQueue<>(properties.getPublicacao().getCapacidade());
+
+        latenciaConfirmacao = Timer.builder(METRICA_CONFIRMACAO)
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .register(meterRegistry);
+        Gauge.builder(METRICA_NAO_CONFIRMADAS, naoConfirmadas, Map::size).register(meterRegistry);
+        Gauge.builder(METRICA_FILA, this, publicador -> publicador.fila.size()).register(meterRegistry);
+
+        envio = Thread.ofPlatform().name("publicador-eventos").daemon().start(this::enviarContinuamente);
+    }
+
+    public void publicar(String exchange, String routingKey, Object evento) {
+        publicar(exchange, routingKey, evento, null);
+    }
+
+    public void publicar(String exchange, String routingKey, Object evento, MessagePostProcessor postProcessor) {
+        // Serializa e aplica prioridade/timestamp na thread do chamador, com o estado do momento do pedido
+        Message mensagem = rabbitTemplate.getMessageConverter().toMessage(evento, new MessageProperties());
+        if (postProcessor != null) {
+            mensagem = postProcessor.postProcessMessage(mensagem);
+        }
+
+        Pendente pendente = new Pendente(UUID.randomUUID().toString(), exchange, routingKey, mensagem);
+        if (!ativo) {
+            // Thread de envio encerrada: publica na thread do chamador para não deixar a mensagem na fila
+            enviar(List.of(pendente));
+        } else if (!fila.offer(pendente)) {
+            // Fila local cheia: publica na thread do chamador, ainda rastreando a confirmação
+            log.warn("Fila de publicação cheia, enviando de forma síncrona: {}", routingKey);
+            enviar(List.of(pendente));
+        }
+    }
+
+    // Publica na thread do chamador e só retorna com o ack do broker; nack, erro ou falta de confirmação lançam
+    public void publicarConfirmado(String exchange, String routingKey, Object evento) {
+        Message mensagem = rabbitTemplate.getMessageConverter().toMessage(evento, new MessageProperties());
+        CorrelationData correlacao = new CorrelationData(UUID.randomUUID().toString());
+        long inicio = System.nanoTime();
+
+        rabbitTemplate.send(exchange, routingKey, mensagem, correlacao);
+        CorrelationData.Confirm confirmacao;
+        try {
+            confirmacao = correlacao.getFuture().get(ESPERA_CONFIRMACAO_SINCRONA.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmqpException("Publicação interrompida aguardando confirmação", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new AmqpException("Confirmação do broker não recebida: " + routingKey, e);
+        }
+
+        if (!confirmacao.isAck()) {
+            throw new AmqpException("Publicação recusada pelo broker: " + confirmacao.getReason());
+        }
+        latenciaConfirmacao.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+    }
+
+    @Scheduled(fixedDelay = 5000)
+    public void reportarConfirmacoesAtrasadas() {
+        long limite = System.nanoTime() - Duration.ofMillis(properties.getPublicacao().getTimeoutConfirmacaoMs()).toNanos();
+        for (Pendente pendente : naoConfirmadas.values()) {
+            if (pendente.enviadoEm < limite && !pendente.atrasada) {
+                pendente.atrasada = true;
+                Counter.builder(METRICA_ATRASADAS).tag("routingKey", pendente.routingKey).register(meterRegistry).increment();
+                log.warn("Confirmação do broker atrasada: routingKey={} correlacao={}", pendente.routingKey, pendente.id);
+            }
+        }
+    }
+
+    private void enviarContinuamente() {
+        TransferenciaProperties.Publicacao publicacao = properties.getPublicacao();
+        while (ativo || !fila.isEmpty()) {
+            try {
+                Pendente primeira = fila.poll(1, TimeUnit.SECONDS);
+                if (primeira == null) {
+                    continue;
+                }
+
+                List<Pendente> lote = new ArrayList<>(publicacao.getTamanhoLote());
+                lote.add(primeira);
+                long prazo = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(publicacao.getJanelaMs());
+                while (lote.size() < publicacao.getTamanhoLote()) {
+                    Pendente proxima = fila.poll(prazo - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (proxima == null) {
+                        break;
+                    }
+                    lote.add(proxima);
+                }
+                enviar(lote);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Erro inesperado no envio de eventos: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void enviar(List<Pendente> lote) {
+        try {
+            rabbitTemplate.invoke(operacoes -> {
+                for (Pendente pendente : lote) {
+                    pendente.enviadoEm = System.nanoTime();
+                    naoConfirmadas.put(pendente.id, pendente);
+                    CorrelationData correlacao = new CorrelationData(pendente.id);
+                    correlacao.getFuture().whenComplete((confirmacao, erro) -> confirmar(pendente, confirmacao, erro));
+                    operacoes.send(pendente.exchange, pendente.routingKey, pendente.mensagem, correlacao);
+                    pendente.enviada = true;
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Erro ao publicar lote de {} eventos: {}", lote.size(), e.getMessage());
+            for (Pendente pendente : lote) {
+                if (!pendente.enviada) {
+                    devolver(pendente, e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Pelo futuro da correlação de cada envio, sem ocupar o callback de confirmação do RabbitTemplate compartilhado.
+    // A queda do canal ou da conexão completa os envios pendentes com nack
+    private void confirmar(Pendente pendente, CorrelationData.Confirm confirmacao, Throwable erro) {
+        if (erro == null && confirmacao.isAck()) {
+            if (naoConfirmadas.remove(pendente.id, pendente)) {
+                latenciaConfirmacao.record(System.nanoTime() - pendente.enviadoEm, TimeUnit.NANOSECONDS);
+            }
+            return;
+        }
+        devolver(pendente, erro != null ? erro.getMessage() : confirmacao.getReason());
+    }
+
+    // Sob o monitor da verificação do encerramento: a mensagem nunca é vista fora do rastreamento e da fila ao mesmo tempo
+    private void devolver(Pendente pendente, String causa) {
+        synchronized (naoConfirmadas) {
+            if (naoConfirmadas.remove(pendente.id, pendente)) {
+                republicar(pendente, causa);
+            }
+        }
+    }
+
+    private void republicar(Pendente pendente, String causa) {
+        pendente.tentativas++;
+        pendente.enviada = false;
+        pendente.atrasada = false;
+        if (pendente.tentativas > properties.getPublicacao().getMaxTentativas() || !fila.offer(pendente)) {
+            Counter.builder(METRICA_DESCARTADAS).tag("routingKey", pendente.routingKey).register(meterRegistry).increment();
+            log.error("Evento descartado após {} tentativas: routingKey={} causa={}", pendente.tentativas, pendente.routingKey, causa);
+            return;
+        }
+        Counter.builder(METRICA_REPUBLICADAS).tag("routingKey", pendente.routingKey).register(meterRegistry).increment();
+        log.warn("Republicando evento: routingKey={} tentativa={} causa={}", pendente.routingKey, pendente.tentativas, causa);
+    }
+
+    @PreDestroy
+    void encerrar() throws InterruptedException {
+        ativo = false;
+        envio.join(ESPERA_ENCERRAMENTO.toMillis());
+
+        // Esvazia o que a thread de envio não publicou e o que volta à fila por nack enquanto aguarda as confirmações
+        long prazo = System.nanoTime() + ESPERA_ENCERRAMENTO.toNanos();
+        while (haPendentes() && System.nanoTime() < prazo) {
+            List<Pendente> restantes = new ArrayList<>();
+            fila.drainTo(restantes);
+            if (restantes.isEmpty()) {
+                Thread.sleep(50);
+            } else {
+                enviar(restantes);
+            }
+        }
+        if (haPendentes()) {
+            log.warn("Encerrando com eventos não confirmados: fila={} naoConfirmadas={}", fila.size(), naoConfirmadas.size());
+        }
+    }
+
+    private boolean haPendentes() {
+        synchronized (naoConfirmadas) {
+            return !fila.isEmpty() || !naoConfirmadas.isEmpty();
+        }
+    }
+
+    private static final class Pendente {
+
+        private final String id;
+        private final String exchange;
+        private final String routingKey;
+        private final Message mensagem;
+        private volatile long enviadoEm;
+        private volatile boolean enviada;
+        private volatile boolean atrasada;
+        private int tentativas;
+
+        private Pendente(String id, String exchange, String routingKey, Message mensagem) {
+            this.id = id;
+            this.exchange = exchange;
+            this.routingKey = routingKey;
+            this.mensagem = mensagem;
+        }
+    }
+}
@@ -39,6 +39,7 @@ public class SessaoCleanupService {
     private final WebSocketNotificationService notificationService;
     private final TransferenciaProperties properties;
     private final UserRepository userRepository;
+    private final CancelamentoConversaoService cancelamentoConversaoService;
 
     @Scheduled(fixedRate = 300000)
     @Transactional
@@ -82,6 +83,7 @@ public class SessaoCleanupService {
         sessaoRedisService.atualizarSessao(sessao);
 
         notificationService.notificarSessaoExpirada(sessao.getId());
+        cancelamentoConversaoService.cancelarSessao(sessao.getId());
 
         log.info("Sessão expirada: {}", sessao.getId());
     }
@@ -107,6 +109,8 @@ public class SessaoCleanupService {
     public void removerSessaoCompleta(Sessao sessao) {
         log.info("Removendo sessão completa: {}", sessao.getId());
 
+        cancelamentoConversaoService.cancelarSessao(sessao.getId());
+
         List<Arquivo> arquivos = arquivoRepository.findBySessaoId(sessao.getId());
         for (Arquivo arquivo : arquivos) {
             chunkArquivoRepository.deleteByArquivoId(arquivo.getId());
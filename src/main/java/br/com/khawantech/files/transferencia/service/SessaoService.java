@@ -4,7 +4,6 @@ import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -35,10 +34,11 @@ public class SessaoService {
     private final SessaoRedisService sessaoRedisService;
     private final QRCodeService qrCodeService;
     private final TransferenciaProperties properties;
-    private final RabbitTemplate rabbitTemplate;
+    private final PublicadorEventosService publicadorEventosService;
     private final LockRedisService lockRedisService;
     private final UserRepository userRepository;
     private final WebSocketNotificationService webSocketNotificationService;
+    private final CancelamentoConversaoService cancelamentoConversaoService;
 
     @Transactional
     public SessaoResponse criarSessao(String usuarioCriadorId) {
@@ -335,6 +335,7 @@ public class SessaoService {
         sessaoRedisService.atualizarSessao(sessao);
 
         publicarAtualizacaoSessao(sessao, statusAnterior, "Sessão encerrada pelo usuário " + usuarioId);
+        cancelamentoConversaoService.cancelarSessao(sessaoId);
 
         log.info("Sessão {} encerrada pelo usuário {}", sessaoId, usuarioId);
     }
@@ -431,6 +432,7 @@ public class SessaoService {
         sessaoRedisService.atualizarSessao(sessao);
 
         publicarAtualizacaoSessao(sessao, statusAnterior, "Sessão expirada automaticamente");
+        cancelamentoConversaoService.cancelarSessao(sessao.getId());
 
         log.info("Sessão {} expirada", sessao.getId());
     }
@@ -483,7 +485,7 @@ public class SessaoService {
             .motivo(motivo)
             .build();
 
-        rabbitTemplate.convertAndSend(
+        publicadorEventosService.publicar(
             RabbitConfig.EXCHANGE_TRANSFERENCIA,
             RabbitConfig.ROUTING_KEY_SESSAO,
             event
@@ -675,6 +677,10 @@ public class SessaoService {
     }
 
     public boolean podeAdicionarArquivo(String sessaoId) {
+        return podeAdicionarArquivos(sessaoId, 1);
+    }
+
+    public boolean podeAdicionarArquivos(String sessaoId, int quantidade) {
         Sessao sessao = buscarPorId(sessaoId);
         
         br.com.khawantech.files.user.entity.User usuarioCriador = userRepository.findById(sessao.getUsuarioCriadorId())
@@ -691,7 +697,7 @@ public class SessaoService {
             List.of(StatusArquivo.COMPLETO, StatusArquivo.ENVIANDO, StatusArquivo.PROCESSANDO)
         );
         
-        return quantidadeArquivos < limites.maxArquivos();
+        return quantidadeArquivos + quantidade <= limites.maxArquivos();
     }
 
     public SessaoEstatisticasResponse obterEstatisticasSessao(String sessaoId) {
@@ -0,0 +1,313 @@
+package br.com.khawantech.files.transferencia.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+
+import com.github.kokorin.jaffree.ffmpeg.FFmpeg;
+import com.github.kokorin.jaffree.ffmpeg.UrlInput;
+import com.github.kokorin.jaffree.ffmpeg.UrlOutput;
+
+import br.com.khawantech.files.transferencia.config.RabbitConfig;
+import br.com.khawantech.files.transferencia.config.TransferenciaProperties;
+import br.com.khawantech.files.transferencia.dto.FormatoVideo;
+import br.com.khawantech.files.transferencia.dto.VideoStreamingEvent;
+import br.com.khawantech.files.transferencia.entity.Arquivo;
+import br.com.khawantech.files.transferencia.entity.StatusArquivo;
+import br.com.khawantech.files.transferencia.entity.StatusStreaming;
+import br.com.khawantech.files.transferencia.exception.ConversaoNaoSuportadaException;
+import br.com.khawantech.files.transferencia.exception.OrcamentoConversaoExcedidoException;
+import br.com.khawantech.files.transferencia.repository.ArquivoRepository;
+import br.com.khawantech.files.user.entity.User;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StreamingService {
+
+    public static final String PLAYLIST_PRINCIPAL = "master.m3u8";
+
+    private static final String OPERACAO = "streaming-hls";
+    private static final String PASTA_STREAMING = "hls";
+
+    private static final Pattern NOME_RENDICAO = Pattern.compile("v\\d{1,2}");
+    private static final Pattern NOME_RECURSO = Pattern.compile("[A-Za-z0-9_]{1,64}\\.(m3u8|ts)");
+
+    private static final List<Degrau> DEGRAUS = List.of(
+        new Degrau(360, 800, 96),
+        new Degrau(720, 2800, 128),
+        new Degrau(1080, 5000, 160)
+    );
+
+    private final ArquivoRepository arquivoRepository;
+    private final MinioService minioService;
+    private final WebSocketNotificationService notificationService;
+    private final ProgressoProcessamentoService progressoProcessamentoService;
+    private final PrioridadeFilaService prioridadeFilaService;
+    private final PublicadorEventosService publicadorEventosService;
+    private final TransferenciaProperties properties;
+    private final MediaCapabilityRegistry mediaCapabilityRegistry;
+    private final OrcamentoConversaoService orcamentoConversaoService;
+
+    @Value("${ffmpeg.bin-dir:/usr/bin}")
+    private String ffmpegBinDir;
+
+    public StatusStreaming solicitar(Arquivo arquivo, User solicitante) {
+        if (!StatusArquivo.COMPLETO.equals(arquivo.getStatus()) || arquivo.getCaminhoMinio() == null) {
+            throw new ConversaoNaoSuportadaException("Arquivo ainda não está disponível");
+        }
+        if (!FormatoVideo.isVideoLike(arquivo.getTipoMime())) {
+            throw new ConversaoNaoSuportadaException("Streaming disponível apenas para vídeos");
+        }
+        if (!mediaCapabilityRegistry.suportaMuxer("hls") || !mediaCapabilityRegistry.suportaTodosEncoders(List.of("libx264", "aac"))) {
+            throw new ConversaoNaoSuportadaException("Streaming indisponível neste servidor");
+        }
+
+        if (StatusStreaming.DISPONIVEL.equals(arquivo.getStatusStreaming())) {
+            return StatusStreaming.DISPONIVEL;
+        }
+
+        // Reivindicação atômica: pedidos simultâneos não publicam dois jobs, e um job parado além do prazo é refeito
+        Instant agora = Instant.now();
+        Instant prazo = agora.minus(Duration.ofMinutes(properties.getStreaming().getPrazoProcessamentoMinutos()));
+        if (arquivoRepository.reivindicarStreaming(arquivo.getId(), prazo, agora) == 0) {
+            return arquivoRepository.findById(arquivo.getId())
+                .map(Arquivo::getStatusStreaming)
+                .orElse(StatusStreaming.PROCESSANDO);
+        }
+        if (StatusStreaming.PROCESSANDO.equals(arquivo.getStatusStreaming())) {
+            log.warn("Empacotamento HLS sem conclusão desde {}, reenfileirando: arquivo={}",
+                arquivo.getStreamingIniciadoEm(), arquivo.getId());
+        }
+
+        // Admitido só depois da reivindicação: um pedido concorrente não sobrescreve a reserva do job em andamento
+        try {
+            orcamentoConversaoService.admitir(arquivo, OPERACAO, PASTA_STREAMING, null, solicitante);
+        } catch (OrcamentoConversaoExcedidoException e) {
+            StatusStreaming anterior = StatusStreaming.PROCESSANDO.equals(arquivo.getStatusStreaming())
+                ? StatusStreaming.ERRO
+                : arquivo.getStatusStreaming();
+            arquivoRepository.atualizarStatusStreaming(arquivo.getId(), anterior);
+            throw e;
+        }
+
+        try {
+            publicadorEventosService.publicar(
+                RabbitConfig.EXCHANGE_TRANSFERENCIA,
+                RabbitConfig.ROUTING_KEY_VIDEO_STREAMING,
+                VideoStreamingEvent.builder()
+                    .arquivoId(arquivo.getId())
+                    .sessaoId(arquivo.getSessaoId())
+                    .build(),
+                prioridadeFilaService.daSessao(arquivo.getSessaoId(), RabbitConfig.ROUTING_KEY_VIDEO_STREAMING)
+            );
+        } catch (RuntimeException e) {
+            // Sem o job na fila o arquivo não pode ficar preso em PROCESSANDO
+            arquivoRepository.atualizarStatusStreaming(arquivo.getId(), StatusStreaming.ERRO);
+            orcamentoConversaoService.liberar(chaveOrcamento(arquivo.getId()));
+            throw e;
+        }
+
+        log.info("Empacotamento HLS solicitado: arquivo={}", arquivo.getId());
+        return StatusStreaming.PROCESSANDO;
+    }
+
+    public void empacotar(String arquivoId) {
+        Arquivo arquivo = arquivoRepository.findById(arquivoId).orElse(null);
+        if (arquivo == null || StatusStreaming.DISPONIVEL.equals(arquivo.getStatusStreaming())) {
+            log.debug("Empacotamento HLS ignorado: {}", arquivoId);
+            orcamentoConversaoService.liberar(chaveOrcamento(arquivoId));
+            return;
+        }
+
+        Path diretorio = null;
+        try {
+            diretorio = Files.createTempDirectory("hls_");
+            Path entrada = diretorio.resolve("origem");
+            Path saida = Files.createDirectories(diretorio.resolve("saida"));
+            minioService.baixarParaArquivo(arquivo.getCaminhoMinio(), entrada);
+
+            List<Degrau> degraus = selecionarDegraus(arquivo);
+            boolean temAudio = arquivo.getMetadadosTecnicos() != null
+                && arquivo.getMetadadosTecnicos().containsKey("audioCodec");
+
+            ProgressoProcessamentoService.Acompanhamento progresso =
+                progressoProcessamentoService.iniciar(arquivo, arquivo, OPERACAO);
+
+            // Um único decode alimenta todas as renditions; keyframes alinhados permitem trocar de qualidade entre segmentos
+            FFmpeg.atPath(Path.of(ffmpegBinDir))
+                .addInput(UrlInput.fromPath(entrada))
+                .setComplexFilter(montarFiltro(degraus))
+                .addOutput(configurarSaida(UrlOutput.toPath(saida.resolve("v%v/index.m3u8")), degraus, temAudio, saida))
+                .setOverwriteOutput(true)
+                .setProgressListener(progresso)
+                .execute();
+
+            String prefixo = minioService.gerarCaminhoArquivo(arquivo.getSessaoId(), arquivo.getId(), PASTA_STREAMING);
+            enviarSaida(saida, prefixo);
+            progresso.concluir();
+
+            arquivoRepository.concluirStreaming(arquivoId, prefixo, Instant.now());
+
+            List<Integer> alturas = degraus.stream().map(Degrau::altura).toList();
+            notificationService.notificarStreamingDisponivel(arquivo.getSessaoId(), arquivoId, alturas);
+
+            log.info("Empacotamento HLS concluído: arquivo={} renditions={}", arquivoId, alturas);
+
+        } catch (Exception e) {
+            log.error("Erro ao empacotar HLS do arquivo {}: {}", arquivoId, e.getMessage(), e);
+            arquivoRepository.atualizarStatusStreaming(arquivoId, StatusStreaming.ERRO);
+        } finally {
+            limparDiretorio(diretorio);
+            orcamentoConversaoService.liberar(chaveOrcamento(arquivoId));
+        }
+    }
+
+    public Optional<MinioService.ArquivoData> obterRecurso(Arquivo arquivo, String rendicao, String nome) {
+        if (!StatusStreaming.DISPONIVEL.equals(arquivo.getStatusStreaming()) || arquivo.getCaminhoStreaming() == null) {
+            return Optional.empty();
+        }
+        if (nome == null || !NOME_RECURSO.matcher(nome).matches()) {
+            return Optional.empty();
+        }
+        if (rendicao != null && !NOME_RENDICAO.matcher(rendicao).matches()) {
+            return Optional.empty();
+        }
+
+        String caminho = arquivo.getCaminhoStreaming() + "/" + (rendicao != null ? rendicao + "/" : "") + nome;
+        if (!minioService.existeObjeto(caminho)) {
+            return Optional.empty();
+        }
+        return Optional.of(minioService.obterArquivo(caminho));
+    }
+
+    private static String chaveOrcamento(String arquivoId) {
+        return ConversaoEmVooService.gerarChave(arquivoId, PASTA_STREAMING, null);
+    }
+
+    private List<Degrau> selecionarDegraus(Arquivo arquivo) {
+        int limite = properties.getStreaming().getAlturaMaxima();
+        Integer alturaOrigem = extrairAltura(arquivo);
+        if (alturaOrigem != null) {
+            limite = Math.min(limite, alturaOrigem);
+        }
+
+        int alturaLimite = limite;
+        List<Degrau> selecionados = DEGRAUS.stream()
+            .filter(degrau -> degrau.altura() <= alturaLimite)
+            .toList();
+        // Vídeos menores que o primeiro degrau ainda recebem uma rendition, sem ampliar a imagem
+        return selecionados.isEmpty() ? List.of(DEGRAUS.get(0)) : selecionados;
+    }
+
+    private static String montarFiltro(List<Degrau> degraus) {
+        StringBuilder filtro = new StringBuilder("[0:v:0]split=").append(degraus.size());
+        for (int i = 0; i < degraus.size(); i++) {
+            filtro.append("[e").append(i).append(']');
+        }
+        for (int i = 0; i < degraus.size(); i++) {
+            filtro.append(";[e").append(i).append("]scale=-2:'min(").append(degraus.get(i).altura())
+                .append(",ih)'[v").append(i).append(']');
+        }
+        return filtro.toString();
+    }
+
+    private UrlOutput configurarSaida(UrlOutput output, List<Degrau> degraus, boolean temAudio, Path saida) {
+        int duracaoSegmento = properties.getStreaming().getDuracaoSegmentoSegundos();
+        List<String> mapa = new ArrayList<>();
+
+        for (int i = 0; i < degraus.size(); i++) {
+            Degrau degrau = degraus.get(i);
+            output.addArguments("-map", "[v" + i + "]")
+                .addArguments("-c:v:" + i, "libx264")
+                .addArguments("-b:v:" + i, degrau.videoKbps() + "k")
+                .addArguments("-maxrate:v:" + i, Math.round(degrau.videoKbps() * 1.07) + "k")
+                .addArguments("-bufsize:v:" + i, Math.round(degrau.videoKbps() * 1.5) + "k");
+            if (temAudio) {
+                output.addArguments("-map", "0:a:0")
+                    .addArguments("-c:a:" + i, "aac")
+                    .addArguments("-b:a:" + i, degrau.audioKbps() + "k");
+                mapa.add("v:" + i + ",a:" + i);
+            } else {
+                mapa.add("v:" + i);
+            }
+        }
+
+        return output
+            .setFormat("hls")
+            .addArguments("-preset", "veryfast")
+            .addArguments("-pix_fmt", "yuv420p")
+            .addArguments("-force_key_frames", "expr:gte(t,n_forced*" + duracaoSegmento + ")")
+            .addArguments("-sc_threshold", "0")
+            .addArguments("-ac", "2")
+            .addArguments("-hls_time", String.valueOf(duracaoSegmento))
+            .addArguments("-hls_playlist_type", "vod")
+            .addArguments("-hls_flags", "independent_segments")
+            .addArguments("-hls_segment_filename", saida.resolve("v%v/seg_%04d.ts").toString())
+            .addArguments("-master_pl_name", PLAYLIST_PRINCIPAL)
+            .addArguments("-var_stream_map", String.join(" ", mapa));
+    }
+
+    private void enviarSaida(Path saida, String prefixo) throws IOException {
+        List<Path> arquivos;
+        try (Stream<Path> caminhos = Files.walk(saida)) {
+            // Segmentos sobem antes das playlists: uma playlist visível nunca aponta para segmento ausente
+            arquivos = caminhos.filter(Files::isRegularFile)
+                .sorted(Comparator.comparing((Path p) -> p.toString().endsWith(".m3u8"))
+                    .thenComparing(p -> p.getFileName().toString().equals(PLAYLIST_PRINCIPAL)))
+                .toList();
+        }
+
+        for (Path arquivo : arquivos) {
+            String relativo = saida.relativize(arquivo).toString().replace('\\', '/');
+            minioService.uploadArquivo(prefixo + "/" + relativo, arquivo, contentType(relativo));
+        }
+    }
+
+    public static String contentType(String nome) {
+        return nome.toLowerCase(Locale.ROOT).endsWith(".m3u8") ? "application/vnd.apple.mpegurl" : "video/mp2t";
+    }
+
+    private static Integer extrairAltura(Arquivo arquivo) {
+        if (arquivo.getMetadadosTecnicos() == null) {
+            return null;
+        }
+        String altura = arquivo.getMetadadosTecnicos().get("height");
+        if (altura == null || altura.isBlank()) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(altura.strip());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void limparDiretorio(Path diretorio) {
+        if (diretorio == null) {
+            return;
+        }
+        try {
+            FileSystemUtils.deleteRecursively(diretorio);
+        } catch (IOException e) {
+            log.warn("Erro ao deletar diretório temporário: {}", diretorio, e);
+        }
+    }
+
+    private record Degrau(int altura, int videoKbps, int audioKbps) {}
+}
@@ -1,12 +1,16 @@
 package br.com.khawantech.files.transferencia.service;
 
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.LinkedHashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.tika.Tika;
+import org.apache.tika.detect.Detector;
 import org.apache.tika.metadata.Metadata;
+import org.apache.tika.mime.MimeTypes;
 import org.apache.tika.parser.AutoDetectParser;
 import org.apache.tika.parser.ParseContext;
 import org.xml.sax.helpers.DefaultHandler;
@@ -23,14 +27,33 @@ public class TikaFileAnalysisService {
     private static final int MAX_METADATA_ENTRIES = 64;
     private static final int MAX_METADATA_VALUE_LENGTH = 512;
 
+    private static final Set<String> MIME_REQUER_PARSER = Set.of(
+        "application/octet-stream",
+        "application/zip",
+        "application/x-ole-storage",
+        "application/pdf"
+    );
+
     private final Tika tika = new Tika();
     private final AutoDetectParser parser = new AutoDetectParser();
+    private final Detector magicDetector = MimeTypes.getDefaultMimeTypes();
 
     public AnaliseTikaResponse analisar(byte[] prefixoBytes) {
         if (prefixoBytes == null) {
             prefixoBytes = new byte[0];
         }
 
+        String mimeMagic = detectarPorMagic(prefixoBytes);
+        if (!requerParser(mimeMagic)) {
+            Map<String, String> metadados = new LinkedHashMap<>();
+            metadados.put("Content-Type", mimeMagic);
+            return new AnaliseTikaResponse(mimeMagic, metadados);
+        }
+
+        return analisarComParser(prefixoBytes);
+    }
+
+    AnaliseTikaResponse analisarComParser(byte[] prefixoBytes) {
         String mimeDetectado;
         try {
             mimeDetectado = tika.detect(prefixoBytes);
@@ -56,22 +79,35 @@ public class TikaFileAnalysisService {
         return new AnaliseTikaResponse(chosen, metadados);
     }
 
-    public Map<String, String> analisarArquivoCompleto(java.nio.file.Path arquivoPath) {
-        if (arquivoPath == null) {
+    public Map<String, String> analisarConteudo(InputStream inputStream) {
+        if (inputStream == null) {
             return Map.of();
         }
 
         Metadata metadata = new Metadata();
-        try (java.io.InputStream inputStream = java.nio.file.Files.newInputStream(arquivoPath)) {
+        try {
             parser.parse(inputStream, new DefaultHandler(), metadata, new ParseContext());
         } catch (Exception e) {
-            log.debug("Falha ao extrair metadata via Tika (arquivo completo): {}", e.getMessage());
+            log.debug("Falha ao extrair metadata via Tika (conteúdo completo): {}", e.getMessage());
             return Map.of();
         }
 
         return toMap(metadata);
     }
 
+    private String detectarPorMagic(byte[] prefixoBytes) {
+        try (InputStream inputStream = new ByteArrayInputStream(prefixoBytes)) {
+            return normalizeMime(magicDetector.detect(inputStream, new Metadata()).toString());
+        } catch (Exception e) {
+            log.debug("Falha ao detectar mime por magic bytes: {}", e.getMessage());
+            return "application/octet-stream";
+        }
+    }
+
+    private static boolean requerParser(String mime) {
+        return MIME_REQUER_PARSER.contains(mime) || mime.startsWith("application/x-tika-");
+    }
+
     private static String chooseDetectedMime(String normalizedDetect, String normalizedMetadata) {
         if (normalizedMetadata == null || normalizedMetadata.isBlank() || "application/octet-stream".equals(normalizedMetadata)) {
             return normalizedDetect;
@@ -1,9 +1,11 @@
 package br.com.khawantech.files.transferencia.service;
 
 import br.com.khawantech.files.transferencia.config.RabbitConfig;
-import br.com.khawantech.files.transferencia.config.TransferenciaProperties;
+import br.com.khawantech.files.transferencia.dto.AlvoConversaoVideo;
+import br.com.khawantech.files.transferencia.dto.CodificacaoSegmentada;
 import br.com.khawantech.files.transferencia.dto.FormatoVideo;
 import br.com.khawantech.files.transferencia.dto.VideoConversionEvent;
+import br.com.khawantech.files.transferencia.dto.VideoSegmentoEvent;
 import br.com.khawantech.files.transferencia.entity.Arquivo;
 import br.com.khawantech.files.transferencia.entity.Sessao;
 import br.com.khawantech.files.transferencia.entity.StatusArquivo;
@@ -12,26 +14,19 @@ import br.com.khawantech.files.transferencia.exception.EspacoSessaoInsuficienteE
 import br.com.khawantech.files.transferencia.exception.RecursoNaoEncontradoException;
 import br.com.khawantech.files.transferencia.repository.ArquivoRepository;
 import br.com.khawantech.files.transferencia.service.video.VideoConversionProfile;
-import br.com.khawantech.files.transferencia.service.video.VideoConversionStrategy;
 import br.com.khawantech.files.transferencia.service.video.VideoStrategyResolver;
 import br.com.khawantech.files.transferencia.util.FileNameSanitizer;
 import br.com.khawantech.files.user.entity.User;
-import com.github.kokorin.jaffree.ffmpeg.FFmpeg;
-import com.github.kokorin.jaffree.ffmpeg.UrlInput;
-import com.github.kokorin.jaffree.ffmpeg.UrlOutput;
-import io.minio.MinioClient;
-import io.minio.PutObjectArgs;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.io.InputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.Locale;
 import java.util.Objects;
@@ -44,28 +39,39 @@ import java.util.stream.Collectors;
 public class VideoConversionService {
 
     private final ArquivoRepository arquivoRepository;
-    private final MinioService minioService;
-    private final MinioClient minioClient;
+    private final FfmpegStreamingService ffmpegStreamingService;
+    private final ConversaoCacheService conversaoCacheService;
     private final SessaoService sessaoService;
     private final WebSocketNotificationService notificationService;
-    private final TransferenciaProperties properties;
-    private final RabbitTemplate rabbitTemplate;
+    private final PublicadorEventosService publicadorEventosService;
+    private final PrioridadeFilaService prioridadeFilaService;
     private final VideoStrategyResolver videoStrategyResolver;
-
-    @Value("${ffmpeg.bin-dir:/usr/bin}")
-    private String ffmpegBinDir;
+    private final ProgressoProcessamentoService progressoProcessamentoService;
+    private final VideoSegmentacaoService videoSegmentacaoService;
+    private final MediaCapabilityRegistry mediaCapabilityRegistry;
+    private final ConversaoEmVooService conversaoEmVooService;
+    private final ExecucaoConversaoRegistry execucaoConversaoRegistry;
+    private final CancelamentoConversaoService cancelamentoConversaoService;
+    private final OrcamentoConversaoService orcamentoConversaoService;
 
     private static final List<StatusArquivo> STATUS_CONVERSAO_ATIVOS = List.of(StatusArquivo.PROCESSANDO, StatusArquivo.COMPLETO);
+    private static final String OPERACAO_CACHE = "video-conversao";
+    // Calibração de custo própria: a cópia de streams é ordens de grandeza mais rápida que recodificar
+    private static final String OPERACAO_REMUX = "video-remux";
+    private static final int VERSAO_PERFIL = 2;
+    private static final Map<Integer, Integer> CRF_POR_NIVEL = Map.of(25, 26, 50, 30, 75, 34);
 
     public boolean isVideoConversivel(String mimeType) {
-        return FormatoVideo.isVideoLike(mimeType);
+        return !getFormatosDisponiveis(mimeType).isEmpty();
     }
 
     public List<FormatoVideo> getFormatosDisponiveis(String mimeType) {
         if (!FormatoVideo.isVideoLike(mimeType)) {
             return List.of();
         }
-        return FormatoVideo.getFormatosDisponiveis(mimeType);
+        return FormatoVideo.getFormatosDisponiveis(mimeType).stream()
+            .filter(mediaCapabilityRegistry::suportaVideo)
+            .toList();
     }
 
     @Transactional
@@ -73,25 +79,117 @@ public class VideoConversionService {
         Arquivo arquivo = arquivoRepository.findById(arquivoId)
             .orElseThrow(() -> new RecursoNaoEncontradoException("Arquivo não encontrado"));
 
-        validarConversao(arquivo, formatoDestino, solicitante);
+        // Pedido inválido não reivindica nem se anexa: só o que passou na validação entra no single-flight
+        FormatoVideo formato = validarConversao(arquivo, formatoDestino, solicitante);
+        String alvo = formato.apiValue();
+        if (!conversaoEmVooService.reivindicar(arquivoId, alvo, null, solicitante.getId())) {
+            conversaoEmVooService.anexar(arquivoId, alvo, null, solicitante.getId());
+            return;
+        }
 
-        VideoConversionEvent event = VideoConversionEvent.builder()
-            .arquivoId(arquivoId)
-            .sessaoId(arquivo.getSessaoId())
-            .formatoDestino(formatoDestino)
-            .solicitanteId(solicitante.getId())
-            .build();
+        try {
+            validarExecucao(arquivo, List.of(formato));
+            orcamentoConversaoService.admitir(arquivo, operacaoCusto(arquivo, formato, null), alvo, null, solicitante);
+
+            VideoConversionEvent event = VideoConversionEvent.builder()
+                .arquivoId(arquivoId)
+                .sessaoId(arquivo.getSessaoId())
+                .formatoDestino(formatoDestino)
+                .solicitanteId(solicitante.getId())
+                .build();
+
+            publicar(event);
+        } catch (RuntimeException e) {
+            conversaoEmVooService.liberar(arquivoId, alvo, null);
+            throw e;
+        }
+
+        log.info("Conversão de vídeo solicitada: arquivo={}, formato={}", arquivoId, formatoDestino);
+    }
+
+    @Transactional
+    public void converterVideoLote(String arquivoId, List<AlvoConversaoVideo> alvos, User solicitante) {
+        Arquivo arquivo = arquivoRepository.findById(arquivoId)
+            .orElseThrow(() -> new RecursoNaoEncontradoException("Arquivo não encontrado"));
+
+        validarArquivo(arquivo);
 
-        rabbitTemplate.convertAndSend(
+        Set<FormatoVideo> formatosDoLote = new HashSet<>();
+        for (AlvoConversaoVideo alvo : alvos) {
+            FormatoVideo formato = validarAlvo(arquivo, alvo.getFormato(), alvo.getNivel());
+            if (!formatosDoLote.add(formato)) {
+                throw new ConversaoNaoSuportadaException("Formato repetido no lote: " + formato.apiValue());
+            }
+        }
+        validarParticipante(arquivo, solicitante);
+
+        // Alvos já em execução por outro pedido idêntico são anexados; só os demais entram no lote
+        List<AlvoConversaoVideo> reivindicados = new ArrayList<>();
+        for (AlvoConversaoVideo alvo : alvos) {
+            String formato = formatoDoAlvo(alvo);
+            if (conversaoEmVooService.reivindicar(arquivoId, formato, alvo.getNivel(), solicitante.getId())) {
+                reivindicados.add(alvo);
+            } else {
+                conversaoEmVooService.anexar(arquivoId, formato, alvo.getNivel(), solicitante.getId());
+            }
+        }
+
+        if (reivindicados.isEmpty()) {
+            return;
+        }
+
+        try {
+            validarExecucao(arquivo, reivindicados.stream()
+                .map(alvo -> FormatoVideo.fromApiValue(alvo.getFormato()).orElseThrow())
+                .toList());
+            orcamentoConversaoService.admitir(arquivo, OPERACAO_CACHE, reivindicados.stream()
+                .map(alvo -> new OrcamentoConversaoService.AlvoReservado(formatoDoAlvo(alvo), alvo.getNivel(),
+                    operacaoCusto(arquivo, FormatoVideo.fromApiValue(alvo.getFormato()).orElseThrow(), alvo.getNivel())))
+                .toList(), solicitante);
+
+            VideoConversionEvent event = VideoConversionEvent.builder()
+                .arquivoId(arquivoId)
+                .sessaoId(arquivo.getSessaoId())
+                .solicitanteId(solicitante.getId())
+                .alvos(List.copyOf(reivindicados))
+                .build();
+
+            publicar(event);
+        } catch (RuntimeException e) {
+            liberarAlvos(arquivoId, reivindicados);
+            throw e;
+        }
+
+        log.info("Conversão de vídeo em lote solicitada: arquivo={}, alvos={}", arquivoId, reivindicados.size());
+    }
+
+    private void liberarAlvos(String arquivoId, List<AlvoConversaoVideo> alvos) {
+        for (AlvoConversaoVideo alvo : alvos) {
+            conversaoEmVooService.liberar(arquivoId, formatoDoAlvo(alvo), alvo.getNivel());
+        }
+    }
+
+    private static String formatoDoAlvo(AlvoConversaoVideo alvo) {
+        return FormatoVideo.fromApiValue(alvo.getFormato()).map(FormatoVideo::apiValue).orElse(alvo.getFormato());
+    }
+
+    private void publicar(VideoConversionEvent event) {
+        publicadorEventosService.publicar(
             RabbitConfig.EXCHANGE_TRANSFERENCIA,
             RabbitConfig.ROUTING_KEY_VIDEO_CONVERSION,
-            event
+            event,
+            prioridadeFilaService.daSessao(event.getSessaoId(), RabbitConfig.ROUTING_KEY_VIDEO_CONVERSION)
         );
+    }
 
-        log.info("Conversão de vídeo solicitada: arquivo={}, formato={}", arquivoId, formatoDestino);
+    private FormatoVideo validarConversao(Arquivo arquivo, String formatoDestino, User solicitante) {
+        validarArquivo(arquivo);
+        FormatoVideo formato = validarAlvo(arquivo, formatoDestino, null);
+        validarParticipante(arquivo, solicitante);
+        return formato;
     }
 
-    private void validarConversao(Arquivo arquivo, String formatoDestino, User solicitante) {
+    private void validarArquivo(Arquivo arquivo) {
         if (!StatusArquivo.COMPLETO.equals(arquivo.getStatus())) {
             throw new ConversaoNaoSuportadaException("Arquivo ainda não está completo");
         }
@@ -99,7 +197,9 @@ public class VideoConversionService {
         if (!Boolean.TRUE.equals(arquivo.getConversivel())) {
             throw new ConversaoNaoSuportadaException("Este arquivo não suporta conversão");
         }
+    }
 
+    private FormatoVideo validarAlvo(Arquivo arquivo, String formatoDestino, Integer nivel) {
         FormatoVideo formato = FormatoVideo.fromApiValue(formatoDestino)
             .orElseThrow(() -> new ConversaoNaoSuportadaException("Formato de conversão não suportado"));
 
@@ -109,110 +209,308 @@ public class VideoConversionService {
             }
         });
 
-        if (isConversaoDuplicada(arquivo.getId(), formato.apiValue())) {
-            throw new ConversaoNaoSuportadaException("Arquivo já foi convertido para este formato");
-        }
-
         List<FormatoVideo> formatosDisponiveis = getFormatosDisponiveisFiltrados(arquivo);
         if (!formatosDisponiveis.contains(formato)) {
             throw new ConversaoNaoSuportadaException("Formato de conversão não disponível para este arquivo");
         }
 
+        if (nivel != null) {
+            aplicarNivel(videoStrategyResolver.resolve(formato).profile(), formato, nivel);
+        }
+
+        return formato;
+    }
+
+    private void validarParticipante(Arquivo arquivo, User solicitante) {
         Sessao sessao = sessaoService.buscarPorId(arquivo.getSessaoId());
         sessaoService.validarUsuarioPertenceASessao(sessao, solicitante.getId());
+    }
+
+    // Verificações de quem vai executar: pedidos anexados não criam arquivo nem repetem a conversão
+    private void validarExecucao(Arquivo arquivo, List<FormatoVideo> formatos) {
+        for (FormatoVideo formato : formatos) {
+            if (isConversaoDuplicada(arquivo.getId(), formato.apiValue())) {
+                throw new ConversaoNaoSuportadaException("Arquivo já foi convertido para este formato");
+            }
+        }
 
-        if (!sessaoService.podeAdicionarArquivo(arquivo.getSessaoId())) {
+        if (!sessaoService.podeAdicionarArquivos(arquivo.getSessaoId(), formatos.size())) {
             throw new EspacoSessaoInsuficienteException("Sessão atingiu o limite de arquivos");
         }
     }
 
     @Transactional
     public void processarConversao(VideoConversionEvent event) {
-        Path tempInputPath = null;
-        Path tempOutputPath = null;
+        List<AlvoConversaoVideo> alvos = event.getAlvos() != null && !event.getAlvos().isEmpty()
+            ? event.getAlvos()
+            : List.of(new AlvoConversaoVideo(event.getFormatoDestino(), null));
+        boolean segmentado = false;
+        ExecucaoConversaoRegistry.Execucao execucao = execucaoConversaoRegistry.iniciar(event.getSessaoId(), event.getArquivoId());
+        List<Arquivo> convertidos = new ArrayList<>();
+        alvos.forEach(alvo -> conversaoEmVooService.iniciarExecucao(event.getArquivoId(), formatoDoAlvo(alvo), alvo.getNivel()));
 
         try {
+            execucao.verificar();
             log.info("Iniciando processamento de conversão de vídeo: {}", event);
 
             Arquivo arquivoOriginal = arquivoRepository.findById(event.getArquivoId())
                 .orElseThrow(() -> new RecursoNaoEncontradoException("Arquivo original não encontrado"));
 
-            FormatoVideo formatoDestino = FormatoVideo.fromApiValue(event.getFormatoDestino())
-                .orElseThrow(() -> new ConversaoNaoSuportadaException("Formato de conversão não suportado"));
+            List<SaidaPendente> pendentes = new ArrayList<>();
+            for (AlvoConversaoVideo alvo : alvos) {
+                FormatoVideo formatoDestino = FormatoVideo.fromApiValue(alvo.getFormato())
+                    .orElseThrow(() -> new ConversaoNaoSuportadaException("Formato de conversão não suportado"));
 
-            Arquivo arquivoConvertido = criarArquivoConvertido(arquivoOriginal, formatoDestino, arquivoOriginal.getTamanhoBytes());
-            notificationService.notificarArquivoProcessando(arquivoConvertido.getSessaoId(), arquivoConvertido);
+                Arquivo arquivoConvertido = criarArquivoConvertido(arquivoOriginal, formatoDestino, alvo.getNivel(), arquivoOriginal.getTamanhoBytes());
+                convertidos.add(arquivoConvertido);
+                notificationService.notificarArquivoProcessando(arquivoConvertido.getSessaoId(), arquivoConvertido);
 
-            MinioService.ArquivoData arquivoData = minioService.obterArquivo(arquivoOriginal.getCaminhoMinio());
+                String chaveCache = alvo.getNivel() == null
+                    ? formatoDestino.apiValue()
+                    : formatoDestino.apiValue() + "@" + alvo.getNivel();
 
-            tempInputPath = Files.createTempFile("video_input_", "." + detectarExtensaoEntrada(arquivoOriginal));
-            try (InputStream inputStream = arquivoData.inputStream()) {
-                Files.copy(inputStream, tempInputPath, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+                Optional<ConversaoCacheService.ResultadoConversao> cache =
+                    conversaoCacheService.buscar(arquivoOriginal, OPERACAO_CACHE, chaveCache, VERSAO_PERFIL);
+                if (cache.isPresent()) {
+                    concluirConversao(arquivoConvertido, cache.get().caminhoMinio(), cache.get().tamanhoBytes());
+                    continue;
+                }
+
+                FfmpegStreamingService.SaidaFfmpeg saida = new FfmpegStreamingService.SaidaFfmpeg(
+                    videoStrategyResolver.resolve(formatoDestino).profile().format(),
+                    formatoDestino.getExtension(),
+                    formatoDestino.getMimeType(),
+                    resolverArgs(arquivoOriginal, formatoDestino, alvo.getNivel())
+                );
+                String caminhoMinio = conversaoCacheService.resolverCaminho(
+                    arquivoOriginal, OPERACAO_CACHE, chaveCache, VERSAO_PERFIL, arquivoConvertido);
+
+                pendentes.add(new SaidaPendente(arquivoConvertido, chaveCache, new FfmpegStreamingService.DestinoFfmpeg(caminhoMinio, saida),
+                    perfilRemux(arquivoOriginal, formatoDestino, alvo.getNivel()).isPresent()));
             }
 
-            tempOutputPath = Files.createTempFile("video_output_", "." + formatoDestino.getExtension());
+            if (pendentes.isEmpty()) {
+                return;
+            }
 
-            executarConversao(tempInputPath, tempOutputPath, formatoDestino);
+            // Vídeos longos com um único alvo são divididos em segmentos codificados em paralelo pelos workers
+            if (pendentes.size() == 1 && videoSegmentacaoService.deveSegmentar(arquivoOriginal, pendentes.get(0).destino().saida())) {
+                SaidaPendente pendente = pendentes.get(0);
+                videoSegmentacaoService.iniciar(arquivoOriginal, pendente.arquivo(), detectarExtensaoEntrada(arquivoOriginal),
+                    OPERACAO_CACHE, pendente.chaveCache(), pendente.destino());
+                segmentado = true;
+                return;
+            }
 
-            long tamanhoBytes = Files.size(tempOutputPath);
-            arquivoConvertido.setTamanhoBytes(tamanhoBytes);
+            ProgressoProcessamentoService.Acompanhamento progresso = progressoProcessamentoService.iniciar(
+                arquivoOriginal, pendentes.stream().map(SaidaPendente::arquivo).toList(), OPERACAO_CACHE, operacaoCusto(pendentes));
 
-            String caminhoMinio = String.format("%s/%s/%s",
-                arquivoConvertido.getSessaoId(),
-                arquivoConvertido.getId(),
-                arquivoConvertido.getNomeOriginal()
+            // Uma única invocação do ffmpeg: a entrada é lida e decodificada uma vez para todas as saídas
+            List<Long> tamanhos = ffmpegStreamingService.converter(
+                arquivoOriginal.getCaminhoMinio(),
+                arquivoOriginal.getTipoMime(),
+                detectarExtensaoEntrada(arquivoOriginal),
+                pendentes.stream().map(SaidaPendente::destino).toList(),
+                progresso
             );
+            progresso.concluir();
 
-            try (InputStream outputStream = Files.newInputStream(tempOutputPath)) {
-                minioClient.putObject(
-                    PutObjectArgs.builder()
-                        .bucket(properties.getMinioBucket())
-                        .object(caminhoMinio)
-                        .stream(outputStream, tamanhoBytes, -1)
-                        .contentType(formatoDestino.getMimeType())
-                        .build()
-                );
+            for (int i = 0; i < pendentes.size(); i++) {
+                SaidaPendente pendente = pendentes.get(i);
+                String caminhoMinio = pendente.destino().caminhoDestino();
+                conversaoCacheService.registrar(arquivoOriginal, OPERACAO_CACHE, pendente.chaveCache(), VERSAO_PERFIL, caminhoMinio, tamanhos.get(i));
+                concluirConversao(pendente.arquivo(), caminhoMinio, tamanhos.get(i));
             }
 
-            arquivoConvertido.setCaminhoMinio(caminhoMinio);
-            arquivoConvertido.setStatus(StatusArquivo.COMPLETO);
-            arquivoRepository.save(arquivoConvertido);
+        } catch (Exception e) {
+            if (execucao.isCancelada()) {
+                cancelamentoConversaoService.descartar(convertidos);
+                log.info("Conversão de vídeo cancelada: {}", event);
+                return;
+            }
+            log.error("Erro ao processar conversão de vídeo: {}", event, e);
+            throw new RuntimeException("Falha na conversão de vídeo: " + e.getMessage(), e);
+        } finally {
+            execucao.close();
+            // Na codificação segmentada o pedido continua em andamento até a junção dos segmentos
+            if (segmentado) {
+                alvos.forEach(alvo -> conversaoEmVooService.suspenderExecucao(event.getArquivoId(), formatoDoAlvo(alvo), alvo.getNivel()));
+            } else {
+                liberarAlvos(event.getArquivoId(), alvos);
+            }
+        }
+    }
 
-            sessaoService.incrementarArquivosTransferidos(arquivoConvertido.getSessaoId());
+    public boolean converterEspeculativo(Arquivo arquivoOriginal, FormatoVideo formatoDestino) {
+        String chaveCache = formatoDestino.apiValue();
+        if (conversaoCacheService.existe(arquivoOriginal, OPERACAO_CACHE, chaveCache, VERSAO_PERFIL)) {
+            return false;
+        }
 
-            notificationService.notificarConversaoConcluida(arquivoConvertido.getSessaoId(), arquivoConvertido);
+        // Destino transitório: só nomeia o objeto compartilhado, o Arquivo é criado quando a conversão for pedida
+        Arquivo destino = Arquivo.builder()
+            .id(UUID.randomUUID().toString())
+            .sessaoId(arquivoOriginal.getSessaoId())
+            .nomeOriginal(gerarNomeArquivoConvertido(arquivoOriginal.getNomeOriginal(), formatoDestino, null))
+            .build();
+        String caminhoMinio = conversaoCacheService.resolverCaminho(arquivoOriginal, OPERACAO_CACHE, chaveCache, VERSAO_PERFIL, destino);
+        if (!ConversaoCacheService.isCaminhoCompartilhado(caminhoMinio)) {
+            return false;
+        }
 
-            log.info("Conversão de vídeo concluída com sucesso: arquivoOriginal={}, arquivoNovo={}, formato={}",
-                event.getArquivoId(), arquivoConvertido.getId(), formatoDestino.apiValue());
+        FfmpegStreamingService.SaidaFfmpeg saida = new FfmpegStreamingService.SaidaFfmpeg(
+            videoStrategyResolver.resolve(formatoDestino).profile().format(),
+            formatoDestino.getExtension(),
+            formatoDestino.getMimeType(),
+            resolverArgs(arquivoOriginal, formatoDestino, null)
+        );
+
+        long inicio = System.nanoTime();
+        long tamanho = ffmpegStreamingService.converter(arquivoOriginal.getCaminhoMinio(), arquivoOriginal.getTipoMime(),
+            detectarExtensaoEntrada(arquivoOriginal), caminhoMinio, saida, null);
+        conversaoCacheService.registrarEspeculativa(arquivoOriginal, OPERACAO_CACHE, chaveCache, VERSAO_PERFIL,
+            caminhoMinio, tamanho, (System.nanoTime() - inicio) / 1_000_000_000.0);
+        return true;
+    }
 
+    @Transactional
+    public void processarSegmento(VideoSegmentoEvent event) {
+        ExecucaoConversaoRegistry.Execucao execucao = execucaoConversaoRegistry.iniciar(event.getSessaoId(), event.getArquivoId());
+        // Cada segmento em execução mantém viva a reivindicação do pedido, que só é liberada na junção ou na falha
+        Optional<CodificacaoSegmentada> emAndamento = videoSegmentacaoService.buscar(event.getArquivoId());
+        emAndamento.ifPresent(codificacao -> conversaoEmVooService.iniciarExecucao(codificacao.getArquivoOriginalId(),
+            alvoDaChave(codificacao.getChaveCache()), nivelDaChave(codificacao.getChaveCache())));
+        try {
+            execucao.verificar();
+            videoSegmentacaoService.processarSegmento(event).ifPresent(concluida -> {
+                CodificacaoSegmentada codificacao = concluida.codificacao();
+                Arquivo arquivoConvertido = arquivoRepository.findById(codificacao.getArquivoId())
+                    .orElseThrow(() -> new RecursoNaoEncontradoException("Arquivo convertido não encontrado"));
+
+                arquivoRepository.findById(codificacao.getArquivoOriginalId()).ifPresent(arquivoOriginal ->
+                    conversaoCacheService.registrar(arquivoOriginal, OPERACAO_CACHE, codificacao.getChaveCache(), VERSAO_PERFIL,
+                        codificacao.getCaminhoDestino(), concluida.tamanhoBytes()));
+
+                concluirConversao(arquivoConvertido, codificacao.getCaminhoDestino(), concluida.tamanhoBytes());
+                conversaoEmVooService.liberar(codificacao.getArquivoOriginalId(), arquivoConvertido.getFormatoConvertido(),
+                    nivelDaChave(codificacao.getChaveCache()));
+            });
         } catch (Exception e) {
-            log.error("Erro ao processar conversão de vídeo: {}", event, e);
-            throw new RuntimeException("Falha na conversão de vídeo: " + e.getMessage(), e);
+            if (execucao.isCancelada()) {
+                encerrarSegmentacao(event, true);
+                log.info("Segmento de vídeo cancelado: {}", event);
+                return;
+            }
+            log.error("Erro ao processar segmento de vídeo: {}", event, e);
+            throw new RuntimeException("Falha na codificação do segmento de vídeo: " + e.getMessage(), e);
         } finally {
-            limparArquivosTemporarios(tempInputPath, tempOutputPath);
+            execucao.close();
+            emAndamento.ifPresent(codificacao -> conversaoEmVooService.suspenderExecucao(codificacao.getArquivoOriginalId(),
+                alvoDaChave(codificacao.getChaveCache()), nivelDaChave(codificacao.getChaveCache())));
+        }
+    }
+
+    // Segmento que esgotou as tentativas: a junção nunca vai acontecer, então o pedido termina em erro
+    @Transactional
+    public void falharSegmento(VideoSegmentoEvent event) {
+        encerrarSegmentacao(event, false);
+    }
+
+    private void encerrarSegmentacao(VideoSegmentoEvent event, boolean cancelada) {
+        Optional<CodificacaoSegmentada> codificacao = videoSegmentacaoService.encerrar(event.getSessaoId(), event.getArquivoId());
+
+        arquivoRepository.findById(event.getArquivoId()).ifPresent(arquivoConvertido -> {
+            if (cancelada) {
+                cancelamentoConversaoService.descartar(List.of(arquivoConvertido));
+            } else if (StatusArquivo.PROCESSANDO.equals(arquivoConvertido.getStatus())) {
+                arquivoConvertido.setStatus(StatusArquivo.ERRO);
+                arquivoRepository.save(arquivoConvertido);
+                notificationService.notificarConversaoFalhou(arquivoConvertido.getSessaoId(), arquivoConvertido);
+                log.warn("Conversão de vídeo segmentada falhou: arquivoOriginal={} arquivoNovo={}",
+                    arquivoConvertido.getArquivoOriginalId(), arquivoConvertido.getId());
+            }
+        });
+
+        // Só quem encontrou a codificação registrada libera o pedido: mensagens seguintes do mesmo vídeo não fazem nada
+        codificacao.ifPresent(encerrada -> conversaoEmVooService.liberar(encerrada.getArquivoOriginalId(),
+            alvoDaChave(encerrada.getChaveCache()), nivelDaChave(encerrada.getChaveCache())));
+    }
+
+    private static String alvoDaChave(String chaveCache) {
+        int separador = chaveCache.indexOf('@');
+        return separador < 0 ? chaveCache : chaveCache.substring(0, separador);
+    }
+
+    private static Integer nivelDaChave(String chaveCache) {
+        int separador = chaveCache.indexOf('@');
+        return separador < 0 ? null : Integer.valueOf(chaveCache.substring(separador + 1));
+    }
+
+    private void concluirConversao(Arquivo arquivoConvertido, String caminhoMinio, long tamanhoBytes) {
+        arquivoConvertido.setTamanhoBytes(tamanhoBytes);
+        arquivoConvertido.setCaminhoMinio(caminhoMinio);
+        arquivoConvertido.setStatus(StatusArquivo.COMPLETO);
+        arquivoRepository.save(arquivoConvertido);
+
+        sessaoService.incrementarArquivosTransferidos(arquivoConvertido.getSessaoId());
+
+        notificationService.notificarConversaoConcluida(arquivoConvertido.getSessaoId(), arquivoConvertido);
+
+        log.info("Conversão de vídeo concluída com sucesso: arquivoOriginal={}, arquivoNovo={}, formato={}",
+            arquivoConvertido.getArquivoOriginalId(), arquivoConvertido.getId(), arquivoConvertido.getFormatoConvertido());
+    }
+
+    private List<String> resolverArgs(Arquivo arquivoOriginal, FormatoVideo formato, Integer nivel) {
+        Optional<VideoConversionProfile> remux = perfilRemux(arquivoOriginal, formato, nivel);
+        if (remux.isPresent()) {
+            Map<String, String> metadados = arquivoOriginal.getMetadadosTecnicos();
+            log.info("Conversão de vídeo por remux: arquivo={} formato={} videoCodec={} audioCodec={}",
+                arquivoOriginal.getId(), formato.apiValue(), metadados.get("videoCodec"), metadados.get("audioCodec"));
+            return remux.get().args();
         }
+
+        return aplicarNivel(videoStrategyResolver.resolve(formato).profile(), formato, nivel);
     }
 
-    private void executarConversao(Path inputPath, Path outputPath, FormatoVideo formatoDestino) {
-        VideoConversionStrategy strategy = videoStrategyResolver.resolve(formatoDestino);
-        VideoConversionProfile profile = strategy.profile();
+    // Sem nível de qualidade pedido, streams já compatíveis com o container são copiados sem recodificar
+    private Optional<VideoConversionProfile> perfilRemux(Arquivo arquivoOriginal, FormatoVideo formato, Integer nivel) {
+        if (nivel != null || arquivoOriginal.getMetadadosTecnicos() == null) {
+            return Optional.empty();
+        }
+        Map<String, String> metadados = arquivoOriginal.getMetadadosTecnicos();
+        return videoStrategyResolver.resolve(formato).remuxProfile(metadados.get("videoCodec"), metadados.get("audioCodec"));
+    }
 
-        UrlOutput output = UrlOutput.toPath(outputPath)
-            .setFormat(profile.format());
+    private String operacaoCusto(Arquivo arquivoOriginal, FormatoVideo formato, Integer nivel) {
+        return perfilRemux(arquivoOriginal, formato, nivel).isPresent() ? OPERACAO_REMUX : OPERACAO_CACHE;
+    }
 
-        List<String> args = profile.args();
-        if (args.size() % 2 != 0) {
-            throw new IllegalStateException("Perfil de conversão inválido: argumentos precisam ser pares (opção, valor)");
+    // Uma invocação que mistura remux e recodificação não representa nenhum dos dois modos e não calibra o custo
+    private static String operacaoCusto(List<SaidaPendente> pendentes) {
+        long remux = pendentes.stream().filter(SaidaPendente::remux).count();
+        if (remux == 0) {
+            return OPERACAO_CACHE;
         }
-        for (int i = 0; i < args.size(); i += 2) {
-            output.addArguments(args.get(i), args.get(i + 1));
+        return remux == pendentes.size() ? OPERACAO_REMUX : null;
+    }
+
+    private List<String> aplicarNivel(VideoConversionProfile profile, FormatoVideo formato, Integer nivel) {
+        if (nivel == null) {
+            return profile.args();
         }
 
-        FFmpeg.atPath(Path.of(ffmpegBinDir))
-            .addInput(UrlInput.fromPath(inputPath))
-            .addOutput(output)
-            .setOverwriteOutput(true)
-            .execute();
+        Integer crf = CRF_POR_NIVEL.get(nivel);
+        if (crf == null) {
+            throw new ConversaoNaoSuportadaException("Nível de otimização inválido");
+        }
+
+        List<String> args = new ArrayList<>(profile.args());
+        int idx = args.indexOf("-crf");
+        if (idx < 0 || idx + 1 >= args.size()) {
+            throw new ConversaoNaoSuportadaException("Nível de otimização não suportado para o formato " + formato.apiValue());
+        }
+        args.set(idx + 1, String.valueOf(crf));
+        return args;
     }
 
     private String detectarExtensaoEntrada(Arquivo arquivo) {
@@ -227,8 +525,8 @@ public class VideoConversionService {
             });
     }
 
-    private Arquivo criarArquivoConvertido(Arquivo original, FormatoVideo formatoDestino, long tamanhoBytes) {
-        String novoNome = gerarNomeArquivoConvertido(original.getNomeOriginal(), formatoDestino);
+    private Arquivo criarArquivoConvertido(Arquivo original, FormatoVideo formatoDestino, Integer nivel, long tamanhoBytes) {
+        String novoNome = gerarNomeArquivoConvertido(original.getNomeOriginal(), formatoDestino, nivel);
 
         Arquivo arquivoConvertido = Arquivo.builder()
             .id(UUID.randomUUID().toString())
@@ -249,10 +547,11 @@ public class VideoConversionService {
         return arquivoRepository.save(arquivoConvertido);
     }
 
-    private String gerarNomeArquivoConvertido(String nomeOriginal, FormatoVideo formatoDestino) {
+    private String gerarNomeArquivoConvertido(String nomeOriginal, FormatoVideo formatoDestino, Integer nivel) {
         int lastDot = nomeOriginal != null ? nomeOriginal.lastIndexOf('.') : -1;
         String nomeBase = (nomeOriginal != null && lastDot > 0) ? nomeOriginal.substring(0, lastDot) : (nomeOriginal == null ? "arquivo" : nomeOriginal);
-        String novoNome = nomeBase + "_converted." + formatoDestino.getExtension();
+        String sufixo = nivel != null ? "_converted_" + nivel : "_converted";
+        String novoNome = nomeBase + sufixo + "." + formatoDestino.getExtension();
         return FileNameSanitizer.sanitize(novoNome);
     }
 
@@ -280,15 +579,5 @@ public class VideoConversionService {
         );
     }
 
-    private void limparArquivosTemporarios(Path... paths) {
-        for (Path path : paths) {
-            if (path != null) {
-                try {
-                    Files.deleteIfExists(path);
-                } catch (Exception e) {
-                    log.warn("Erro ao deletar arquivo temporário: {}", path, e);
-                }
-            }
-        }
-    }
+    private record SaidaPendente(Arquivo arquivo, String chaveCache, FfmpegStreamingService.DestinoFfmpeg destino, boolean remux) {}
 }
@@ -1,7 +1,6 @@
 package br.com.khawantech.files.transferencia.service;
 
 import br.com.khawantech.files.transferencia.config.RabbitConfig;
-import br.com.khawantech.files.transferencia.config.TransferenciaProperties;
 import br.com.khawantech.files.transferencia.dto.FormatoVideo;
 import br.com.khawantech.files.transferencia.dto.VideoOptimizationEvent;
 import br.com.khawantech.files.transferencia.entity.Arquivo;
@@ -13,21 +12,12 @@ import br.com.khawantech.files.transferencia.exception.RecursoNaoEncontradoExcep
 import br.com.khawantech.files.transferencia.repository.ArquivoRepository;
 import br.com.khawantech.files.transferencia.util.FileNameSanitizer;
 import br.com.khawantech.files.user.entity.User;
-import com.github.kokorin.jaffree.ffmpeg.FFmpeg;
-import com.github.kokorin.jaffree.ffmpeg.UrlInput;
-import com.github.kokorin.jaffree.ffmpeg.UrlOutput;
-import io.minio.MinioClient;
-import io.minio.PutObjectArgs;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.io.InputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -38,37 +28,56 @@ public class VideoOptimizationService {
 
     private static final List<StatusArquivo> STATUS_OTIMIZACAO_ATIVOS = List.of(StatusArquivo.PROCESSANDO, StatusArquivo.COMPLETO);
     private static final List<Integer> NIVEIS_SUPORTADOS = List.of(25, 50, 75);
+    private static final String OPERACAO_CACHE = "video-otimizacao";
+    private static final int VERSAO_PERFIL = 1;
 
     private final ArquivoRepository arquivoRepository;
-    private final MinioService minioService;
-    private final MinioClient minioClient;
+    private final FfmpegStreamingService ffmpegStreamingService;
+    private final ConversaoCacheService conversaoCacheService;
     private final SessaoService sessaoService;
     private final WebSocketNotificationService notificationService;
-    private final TransferenciaProperties properties;
-    private final RabbitTemplate rabbitTemplate;
-
-    @Value("${ffmpeg.bin-dir:/usr/bin}")
-    private String ffmpegBinDir;
+    private final PublicadorEventosService publicadorEventosService;
+    private final PrioridadeFilaService prioridadeFilaService;
+    private final ProgressoProcessamentoService progressoProcessamentoService;
+    private final MediaCapabilityRegistry mediaCapabilityRegistry;
+    private final ExecucaoConversaoRegistry execucaoConversaoRegistry;
+    private final ConversaoEmVooService conversaoEmVooService;
+    private final OrcamentoConversaoService orcamentoConversaoService;
+    private final CancelamentoConversaoService cancelamentoConversaoService;
 
     @Transactional
     public void otimizarVideo(String arquivoId, int nivel, User solicitante) {
         Arquivo arquivo = arquivoRepository.findById(arquivoId)
             .orElseThrow(() -> new RecursoNaoEncontradoException("Arquivo não encontrado"));
 
+        // Pedido inválido não reivindica nem se anexa: só o que passou na validação entra no single-flight
         validarOtimizacao(arquivo, nivel, solicitante);
+        if (!conversaoEmVooService.reivindicar(arquivoId, OPERACAO_CACHE, nivel, solicitante.getId())) {
+            conversaoEmVooService.anexar(arquivoId, OPERACAO_CACHE, nivel, solicitante.getId());
+            return;
+        }
 
-        VideoOptimizationEvent event = VideoOptimizationEvent.builder()
-            .arquivoId(arquivoId)
-            .sessaoId(arquivo.getSessaoId())
-            .nivel(nivel)
-            .solicitanteId(solicitante.getId())
-            .build();
-
-        rabbitTemplate.convertAndSend(
-            RabbitConfig.EXCHANGE_TRANSFERENCIA,
-            RabbitConfig.ROUTING_KEY_VIDEO_OPTIMIZATION,
-            event
-        );
+        try {
+            validarExecucao(arquivo, nivel);
+            orcamentoConversaoService.admitir(arquivo, OPERACAO_CACHE, OPERACAO_CACHE, nivel, solicitante);
+
+            VideoOptimizationEvent event = VideoOptimizationEvent.builder()
+                .arquivoId(arquivoId)
+                .sessaoId(arquivo.getSessaoId())
+                .nivel(nivel)
+                .solicitanteId(solicitante.getId())
+                .build();
+
+            publicadorEventosService.publicar(
+                RabbitConfig.EXCHANGE_TRANSFERENCIA,
+                RabbitConfig.ROUTING_KEY_VIDEO_OPTIMIZATION,
+                event,
+                prioridadeFilaService.daSessao(arquivo.getSessaoId(), RabbitConfig.ROUTING_KEY_VIDEO_OPTIMIZATION)
+            );
+        } catch (RuntimeException e) {
+            conversaoEmVooService.liberar(arquivoId, OPERACAO_CACHE, nivel);
+            throw e;
+        }
 
         log.info("Otimização de vídeo solicitada: arquivo={}, nivel={}", arquivoId, nivel);
     }
@@ -90,15 +99,22 @@ public class VideoOptimizationService {
             throw new ConversaoNaoSuportadaException("Nível de otimização inválido");
         }
 
-        FormatoVideo.fromMimeType(arquivo.getTipoMime())
+        FormatoVideo formato = FormatoVideo.fromMimeType(arquivo.getTipoMime())
             .orElseThrow(() -> new ConversaoNaoSuportadaException("Formato de vídeo não suportado"));
 
-        if (isOtimizacaoDuplicada(arquivo.getId(), nivel)) {
-            throw new ConversaoNaoSuportadaException("Arquivo já foi otimizado neste nível");
+        if (!mediaCapabilityRegistry.suportaMuxer(formato.getFfmpegFormat())) {
+            throw new ConversaoNaoSuportadaException("Otimização indisponível para o formato " + formato.apiValue());
         }
 
         Sessao sessao = sessaoService.buscarPorId(arquivo.getSessaoId());
         sessaoService.validarUsuarioPertenceASessao(sessao, solicitante.getId());
+    }
+
+    // Verificações de quem vai executar: pedidos anexados não criam arquivo nem repetem a otimização
+    private void validarExecucao(Arquivo arquivo, int nivel) {
+        if (isOtimizacaoDuplicada(arquivo.getId(), nivel)) {
+            throw new ConversaoNaoSuportadaException("Arquivo já foi otimizado neste nível");
+        }
 
         if (!sessaoService.podeAdicionarArquivo(arquivo.getSessaoId())) {
             throw new EspacoSessaoInsuficienteException("Sessão atingiu o limite de arquivos");
@@ -107,10 +123,12 @@ public class VideoOptimizationService {
 
     @Transactional
     public void processarOtimizacao(VideoOptimizationEvent event) {
-        Path tempInputPath = null;
-        Path tempOutputPath = null;
+        ExecucaoConversaoRegistry.Execucao execucao = execucaoConversaoRegistry.iniciar(event.getSessaoId(), event.getArquivoId());
+        List<Arquivo> otimizados = new ArrayList<>();
+        conversaoEmVooService.iniciarExecucao(event.getArquivoId(), OPERACAO_CACHE, event.getNivel());
 
         try {
+            execucao.verificar();
             log.info("Iniciando processamento de otimização de vídeo: {}", event);
 
             Arquivo arquivoOriginal = arquivoRepository.findById(event.getArquivoId())
@@ -120,40 +138,37 @@ public class VideoOptimizationService {
                 .orElseThrow(() -> new ConversaoNaoSuportadaException("Formato de vídeo não suportado"));
 
             Arquivo arquivoOtimizado = criarArquivoOtimizado(arquivoOriginal, event.getNivel(), arquivoOriginal.getTamanhoBytes());
+            otimizados.add(arquivoOtimizado);
             notificationService.notificarArquivoProcessando(arquivoOtimizado.getSessaoId(), arquivoOtimizado);
 
-            MinioService.ArquivoData arquivoData = minioService.obterArquivo(arquivoOriginal.getCaminhoMinio());
-
-            tempInputPath = Files.createTempFile("video_opt_input_", "." + detectarExtensaoEntrada(arquivoOriginal));
-            try (InputStream inputStream = arquivoData.inputStream()) {
-                Files.copy(inputStream, tempInputPath, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
-            }
-
-            tempOutputPath = Files.createTempFile("video_opt_output_", "." + formato.getExtension());
-
-            executarOtimizacao(tempInputPath, tempOutputPath, formato, event.getNivel());
-
-            long tamanhoBytes = Files.size(tempOutputPath);
-            arquivoOtimizado.setTamanhoBytes(tamanhoBytes);
-
-            String caminhoMinio = String.format("%s/%s/%s",
-                arquivoOtimizado.getSessaoId(),
-                arquivoOtimizado.getId(),
-                arquivoOtimizado.getNomeOriginal()
+            FfmpegStreamingService.SaidaFfmpeg saida = new FfmpegStreamingService.SaidaFfmpeg(
+                formato.getFfmpegFormat(),
+                formato.getExtension(),
+                formato.getMimeType(),
+                resolveArgs(formato, event.getNivel())
             );
 
-            try (InputStream outputStream = Files.newInputStream(tempOutputPath)) {
-                minioClient.putObject(
-                    PutObjectArgs.builder()
-                        .bucket(properties.getMinioBucket())
-                        .object(caminhoMinio)
-                        .stream(outputStream, tamanhoBytes, -1)
-                        .contentType(formato.getMimeType())
-                        .build()
-                );
-            }
+            ConversaoCacheService.ResultadoConversao resultado = conversaoCacheService.obterOuConverter(
+                arquivoOriginal, OPERACAO_CACHE, String.valueOf(event.getNivel()), VERSAO_PERFIL, arquivoOtimizado,
+                caminhoMinio -> {
+                    ProgressoProcessamentoService.Acompanhamento progresso =
+                        progressoProcessamentoService.iniciar(arquivoOriginal, arquivoOtimizado, OPERACAO_CACHE);
+                    long tamanho = ffmpegStreamingService.converter(
+                        arquivoOriginal.getCaminhoMinio(),
+                        arquivoOriginal.getTipoMime(),
+                        detectarExtensaoEntrada(arquivoOriginal),
+                        caminhoMinio,
+                        saida,
+                        progresso
+                    );
+                    progresso.concluir();
+                    return tamanho;
+                }
+            );
+            execucao.verificar();
+            arquivoOtimizado.setTamanhoBytes(resultado.tamanhoBytes());
 
-            arquivoOtimizado.setCaminhoMinio(caminhoMinio);
+            arquivoOtimizado.setCaminhoMinio(resultado.caminhoMinio());
             arquivoOtimizado.setStatus(StatusArquivo.COMPLETO);
             arquivoRepository.save(arquivoOtimizado);
 
@@ -165,32 +180,19 @@ public class VideoOptimizationService {
                 event.getArquivoId(), arquivoOtimizado.getId(), event.getNivel());
 
         } catch (Exception e) {
+            if (execucao.isCancelada()) {
+                cancelamentoConversaoService.descartar(otimizados);
+                log.info("Otimização de vídeo cancelada: {}", event);
+                return;
+            }
             log.error("Erro ao processar otimização de vídeo: {}", event, e);
             throw new RuntimeException("Falha na otimização de vídeo: " + e.getMessage(), e);
         } finally {
-            limparArquivosTemporarios(tempInputPath, tempOutputPath);
+            execucao.close();
+            conversaoEmVooService.liberar(event.getArquivoId(), OPERACAO_CACHE, event.getNivel());
         }
     }
 
-    private void executarOtimizacao(Path inputPath, Path outputPath, FormatoVideo formato, int nivel) {
-        UrlOutput output = UrlOutput.toPath(outputPath)
-            .setFormat(formato.getFfmpegFormat());
-
-        List<String> args = resolveArgs(formato, nivel);
-        if (args.size() % 2 != 0) {
-            throw new IllegalStateException("Perfil de otimização inválido: argumentos precisam ser pares (opção, valor)");
-        }
-        for (int i = 0; i < args.size(); i += 2) {
-            output.addArguments(args.get(i), args.get(i + 1));
-        }
-
-        FFmpeg.atPath(Path.of(ffmpegBinDir))
-            .addInput(UrlInput.fromPath(inputPath))
-            .addOutput(output)
-            .setOverwriteOutput(true)
-            .execute();
-    }
-
     private List<String> resolveArgs(FormatoVideo formato, int nivel) {
         if (formato == FormatoVideo.GIF) {
             int quality = switch (nivel) {
@@ -263,19 +265,6 @@ public class VideoOptimizationService {
         return "bin";
     }
 
-    private void limparArquivosTemporarios(Path tempInputPath, Path tempOutputPath) {
-        try {
-            if (tempInputPath != null) Files.deleteIfExists(tempInputPath);
-        } catch (Exception e) {
-            log.warn("Erro ao deletar arquivo temporário: {}", e.getMessage());
-        }
-        try {
-            if (tempOutputPath != null) Files.deleteIfExists(tempOutputPath);
-        } catch (Exception e) {
-            log.warn("Erro ao deletar arquivo temporário: {}", e.getMessage());
-        }
-    }
-
     private boolean isOtimizacaoDuplicada(String arquivoOriginalId, int nivel) {
         return arquivoRepository.existsByArquivoOriginalIdAndOtimizacaoNivelAndStatusIn(
             arquivoOriginalId,
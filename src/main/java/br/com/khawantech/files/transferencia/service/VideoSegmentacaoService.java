@@ -0,0 +1,393 @@
+package br.com.khawantech.files.transferencia.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+
+import com.github.kokorin.jaffree.ffmpeg.FFmpeg;
+import com.github.kokorin.jaffree.ffmpeg.UrlInput;
+import com.github.kokorin.jaffree.ffmpeg.UrlOutput;
+
+import br.com.khawantech.files.transferencia.config.RabbitConfig;
+import br.com.khawantech.files.transferencia.config.TransferenciaProperties;
+import br.com.khawantech.files.transferencia.dto.CodificacaoSegmentada;
+import br.com.khawantech.files.transferencia.dto.VideoSegmentoEvent;
+import br.com.khawantech.files.transferencia.entity.Arquivo;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class VideoSegmentacaoService {
+
+    private static final String SEGMENTACAO_PREFIX = "segmentacao:";
+    private static final Duration SEGMENTACAO_TTL = Duration.ofHours(24);
+    private static final String FORMATO_SEGMENTO = "matroska";
+
+    private static final Set<String> ARGUMENTOS_AUDIO = Set.of("-c:a", "-b:a", "-q:a", "-ar", "-ac");
+    private static final Set<String> ARGUMENTOS_CONTAINER = Set.of("-movflags");
+
+    private final MinioService minioService;
+    private final PublicadorEventosService publicadorEventosService;
+    private final PrioridadeFilaService prioridadeFilaService;
+    private final ProgressoProcessamentoService progressoProcessamentoService;
+    private final RedisTemplate<String, Object> transferenciaRedisTemplate;
+    private final TransferenciaProperties properties;
+    private final ExecucaoConversaoRegistry execucaoConversaoRegistry;
+
+    @Value("${ffmpeg.bin-dir:/usr/bin}")
+    private String ffmpegBinDir;
+
+    public boolean deveSegmentar(Arquivo origem, FfmpegStreamingService.SaidaFfmpeg saida) {
+        TransferenciaProperties.Segmentacao segmentacao = properties.getSegmentacao();
+        if (!segmentacao.isHabilitada() || "gif".equals(saida.formato()) || !saida.argumentos().contains("-c:v")) {
+            return false;
+        }
+
+        Double duracao = extrairDuracaoSegundos(origem);
+        return duracao != null
+            && duracao >= segmentacao.getDuracaoMinimaSegundos()
+            && duracao >= 2.0 * Math.max(1, segmentacao.getDuracaoSegmentoSegundos());
+    }
+
+    public void iniciar(Arquivo origem, Arquivo destino, String extensaoOrigem, String operacao, String chaveCache,
+                        FfmpegStreamingService.DestinoFfmpeg destinoFfmpeg) {
+        Path diretorio = null;
+        try {
+            diretorio = Files.createTempDirectory("segmentacao_");
+            Path entrada = diretorio.resolve("origem." + extensaoOrigem);
+            minioService.baixarParaArquivo(origem.getCaminhoMinio(), entrada);
+
+            // Cópia sem recodificar: o muxer de segmentos só corta em keyframes
+            execucaoConversaoRegistry.executar(FFmpeg.atPath(Path.of(ffmpegBinDir))
+                .addInput(UrlInput.fromPath(entrada))
+                .addOutput(UrlOutput.toPath(diretorio.resolve("seg_%05d.mkv"))
+                    .setFormat("segment")
+                    .addArguments("-map", "0:v:0")
+                    .addArguments("-c", "copy")
+                    .addArguments("-segment_time", String.valueOf(properties.getSegmentacao().getDuracaoSegmentoSegundos()))
+                    .addArguments("-segment_format", FORMATO_SEGMENTO)
+                    .addArguments("-reset_timestamps", "1"))
+                .setOverwriteOutput(true));
+            execucaoConversaoRegistry.verificar();
+
+            List<Path> segmentos;
+            try (Stream<Path> arquivos = Files.list(diretorio)) {
+                segmentos = arquivos
+                    .filter(path -> path.getFileName().toString().startsWith("seg_"))
+                    .sorted(Comparator.comparing(Path::toString))
+                    .toList();
+            }
+            if (segmentos.isEmpty()) {
+                throw new IllegalStateException("Nenhum segmento gerado para o vídeo " + origem.getId());
+            }
+
+            for (int i = 0; i < segmentos.size(); i++) {
+                minioService.uploadArquivo(caminhoSegmentoOrigem(destino, i), segmentos.get(i), "video/x-matroska");
+            }
+
+            FfmpegStreamingService.SaidaFfmpeg saida = destinoFfmpeg.saida();
+            List<String> video = new ArrayList<>();
+            List<String> audio = new ArrayList<>();
+            List<String> container = new ArrayList<>();
+            separarArgumentos(saida.argumentos(), video, audio, container);
+
+            CodificacaoSegmentada codificacao = CodificacaoSegmentada.builder()
+                .arquivoId(destino.getId())
+                .arquivoOriginalId(origem.getId())
+                .sessaoId(destino.getSessaoId())
+                .caminhoOriginal(origem.getCaminhoMinio())
+                .extensaoOriginal(extensaoOrigem)
+                .caminhoDestino(destinoFfmpeg.caminhoDestino())
+                .chaveCache(chaveCache)
+                .operacao(operacao)
+                .formato(saida.formato())
+                .extensao(saida.extensao())
+                .contentType(saida.contentType())
+                .argumentosVideo(video)
+                .argumentosAudio(audio)
+                .argumentosContainer(container)
+                .totalSegmentos(segmentos.size())
+                .criadoEm(Instant.now())
+                .build();
+            transferenciaRedisTemplate.opsForValue().set(chaveCodificacao(destino.getId()), codificacao, SEGMENTACAO_TTL);
+
+            // Mesma prioridade para todos os segmentos: o orçamento premium é consumido uma vez por vídeo
+            MessagePostProcessor prioridade = prioridadeFilaService.daSessao(destino.getSessaoId(), RabbitConfig.ROUTING_KEY_VIDEO_SEGMENTO);
+            for (int i = 0; i < segmentos.size(); i++) {
+                VideoSegmentoEvent event = VideoSegmentoEvent.builder()
+                    .arquivoId(destino.getId())
+                    .sessaoId(destino.getSessaoId())
+                    .indice(i)
+                    .totalSegmentos(segmentos.size())
+                    .build();
+                publicadorEventosService.publicar(RabbitConfig.EXCHANGE_TRANSFERENCIA, RabbitConfig.ROUTING_KEY_VIDEO_SEGMENTO, event, prioridade);
+            }
+
+            log.info("Codificação segmentada iniciada: arquivoOriginal={} arquivoNovo={} segmentos={}",
+                origem.getId(), destino.getId(), segmentos.size());
+
+        } catch (IOException e) {
+            encerrar(destino.getSessaoId(), destino.getId());
+            throw new RuntimeException("Erro ao preparar segmentos do vídeo", e);
+        } catch (RuntimeException e) {
+            encerrar(destino.getSessaoId(), destino.getId());
+            throw e;
+        } finally {
+            limparDiretorio(diretorio);
+        }
+    }
+
+    public Optional<SegmentacaoConcluida> processarSegmento(VideoSegmentoEvent event) {
+        CodificacaoSegmentada codificacao = buscarCodificacao(event.getArquivoId());
+        if (codificacao == null) {
+            log.warn("Codificação segmentada não encontrada ou expirada, segmento ignorado: {}", event);
+            return Optional.empty();
+        }
+
+        String caminhoSaida = caminhoSegmentoSaida(codificacao, event.getIndice());
+        if (!minioService.existeObjeto(caminhoSaida)) {
+            codificarSegmento(codificacao, event.getIndice(), caminhoSaida);
+            // A codificação pode ter sido encerrada por falha ou cancelamento enquanto este segmento rodava
+            if (buscarCodificacao(event.getArquivoId()) == null) {
+                minioService.deleteArquivo(caminhoSaida);
+                return Optional.empty();
+            }
+        }
+
+        String chaveConcluidos = chaveCodificacao(codificacao.getArquivoId()) + ":concluidos";
+        transferenciaRedisTemplate.opsForSet().add(chaveConcluidos, event.getIndice());
+        transferenciaRedisTemplate.expire(chaveConcluidos, SEGMENTACAO_TTL);
+        Long concluidos = transferenciaRedisTemplate.opsForSet().size(chaveConcluidos);
+
+        if (concluidos == null || concluidos < codificacao.getTotalSegmentos()) {
+            long total = concluidos != null ? concluidos : 0;
+            progressoProcessamentoService.notificarParcial(codificacao.getSessaoId(), codificacao.getArquivoId(),
+                codificacao.getOperacao(), total * 95.0 / codificacao.getTotalSegmentos());
+            return Optional.empty();
+        }
+
+        // Só um worker faz a junção, mesmo que os últimos segmentos terminem ao mesmo tempo
+        String chaveJuncao = chaveCodificacao(codificacao.getArquivoId()) + ":juncao";
+        Boolean responsavel = transferenciaRedisTemplate.opsForValue().setIfAbsent(chaveJuncao, event.getIndice(), SEGMENTACAO_TTL);
+        if (!Boolean.TRUE.equals(responsavel)) {
+            return Optional.empty();
+        }
+
+        try {
+            long tamanhoBytes = juntarSegmentos(codificacao);
+            minioService.deletarPrefixo(prefixoSegmentos(codificacao.getSessaoId(), codificacao.getArquivoId()));
+            transferenciaRedisTemplate.delete(List.of(chaveCodificacao(codificacao.getArquivoId()), chaveConcluidos, chaveJuncao));
+
+            log.info("Codificação segmentada concluída: arquivo={} segmentos={} tamanho={}",
+                codificacao.getArquivoId(), codificacao.getTotalSegmentos(), tamanhoBytes);
+            return Optional.of(new SegmentacaoConcluida(codificacao, tamanhoBytes));
+        } catch (RuntimeException e) {
+            // Libera a junção para que a nova tentativa desta mensagem possa refazê-la
+            transferenciaRedisTemplate.delete(chaveJuncao);
+            throw e;
+        }
+    }
+
+    // Falha definitiva ou cancelamento: remove segmentos e estado; devolve a codificação se ainda estava registrada
+    public Optional<CodificacaoSegmentada> encerrar(String sessaoId, String arquivoId) {
+        CodificacaoSegmentada codificacao = null;
+        try {
+            codificacao = buscarCodificacao(arquivoId);
+            String chave = chaveCodificacao(arquivoId);
+            transferenciaRedisTemplate.delete(List.of(chave, chave + ":concluidos", chave + ":juncao"));
+        } catch (Exception e) {
+            log.warn("Erro ao remover estado da codificação segmentada {}: {}", arquivoId, e.getMessage());
+        }
+
+        minioService.deletarPrefixo(prefixoSegmentos(sessaoId, arquivoId));
+        if (codificacao != null) {
+            // Saída de uma junção interrompida: nunca chegou a ser registrada no cache
+            minioService.deleteArquivo(codificacao.getCaminhoDestino());
+            log.info("Codificação segmentada encerrada: arquivo={} segmentos={}", arquivoId, codificacao.getTotalSegmentos());
+        }
+        return Optional.ofNullable(codificacao);
+    }
+
+    private void codificarSegmento(CodificacaoSegmentada codificacao, int indice, String caminhoSaida) {
+        Path entrada = null;
+        Path saida = null;
+        try {
+            entrada = Files.createTempFile("segmento_entrada_", ".mkv");
+            saida = Files.createTempFile("segmento_saida_", ".mkv");
+            minioService.baixarParaArquivo(caminhoSegmentoOrigem(codificacao.getSessaoId(), codificacao.getArquivoId(), indice), entrada);
+
+            UrlOutput output = UrlOutput.toPath(saida)
+                .setFormat(FORMATO_SEGMENTO)
+                .addArguments("-map", "0:v:0");
+            adicionarArgumentos(output, codificacao.getArgumentosVideo());
+
+            execucaoConversaoRegistry.executar(FFmpeg.atPath(Path.of(ffmpegBinDir))
+                .addInput(UrlInput.fromPath(entrada))
+                .addOutput(output)
+                .setOverwriteOutput(true));
+            execucaoConversaoRegistry.verificar();
+
+            minioService.uploadArquivo(caminhoSaida, saida, "video/x-matroska");
+            log.debug("Segmento codificado: arquivo={} indice={}", codificacao.getArquivoId(), indice);
+
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao preparar arquivos do segmento", e);
+        } finally {
+            limparArquivos(entrada, saida);
+        }
+    }
+
+    private long juntarSegmentos(CodificacaoSegmentada codificacao) {
+        Path diretorio = null;
+        try {
+            diretorio = Files.createTempDirectory("juncao_");
+
+            StringBuilder lista = new StringBuilder();
+            for (int i = 0; i < codificacao.getTotalSegmentos(); i++) {
+                Path segmento = diretorio.resolve(String.format("saida_%05d.mkv", i));
+                minioService.baixarParaArquivo(caminhoSegmentoSaida(codificacao, i), segmento);
+                lista.append("file '").append(segmento.toAbsolutePath()).append("'\n");
+            }
+            Path arquivoLista = diretorio.resolve("segmentos.txt");
+            Files.writeString(arquivoLista, lista, StandardCharsets.UTF_8);
+
+            // O áudio não é segmentado: é codificado uma vez a partir do original para evitar cortes nas fronteiras
+            Path original = diretorio.resolve("origem." + codificacao.getExtensaoOriginal());
+            minioService.baixarParaArquivo(codificacao.getCaminhoOriginal(), original);
+
+            Path saida = diretorio.resolve("saida." + codificacao.getExtensao());
+            UrlOutput output = UrlOutput.toPath(saida)
+                .setFormat(codificacao.getFormato())
+                .addArguments("-map", "0:v:0")
+                .addArguments("-map", "1:a:0?")
+                .addArguments("-c:v", "copy");
+            adicionarArgumentos(output, codificacao.getArgumentosAudio());
+            adicionarArgumentos(output, codificacao.getArgumentosContainer());
+
+            execucaoConversaoRegistry.executar(FFmpeg.atPath(Path.of(ffmpegBinDir))
+                .addInput(UrlInput.fromPath(arquivoLista).setFormat("concat").addArguments("-safe", "0"))
+                .addInput(UrlInput.fromPath(original))
+                .addOutput(output)
+                .setOverwriteOutput(true));
+            execucaoConversaoRegistry.verificar();
+
+            return minioService.uploadArquivo(codificacao.getCaminhoDestino(), saida, codificacao.getContentType());
+
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao juntar segmentos do vídeo", e);
+        } finally {
+            limparDiretorio(diretorio);
+        }
+    }
+
+    public Optional<CodificacaoSegmentada> buscar(String arquivoId) {
+        return Optional.ofNullable(buscarCodificacao(arquivoId));
+    }
+
+    private CodificacaoSegmentada buscarCodificacao(String arquivoId) {
+        Object valor = transferenciaRedisTemplate.opsForValue().get(chaveCodificacao(arquivoId));
+        return valor instanceof CodificacaoSegmentada codificacao ? codificacao : null;
+    }
+
+    private static void separarArgumentos(List<String> argumentos, List<String> video, List<String> audio, List<String> container) {
+        for (int i = 0; i + 1 < argumentos.size(); i += 2) {
+            String opcao = argumentos.get(i);
+            String valor = argumentos.get(i + 1);
+            if ("-map".equals(opcao)) {
+                continue;
+            }
+            List<String> destino = ARGUMENTOS_AUDIO.contains(opcao) ? audio
+                : ARGUMENTOS_CONTAINER.contains(opcao) ? container
+                : video;
+            destino.add(opcao);
+            destino.add(valor);
+        }
+    }
+
+    private static void adicionarArgumentos(UrlOutput output, List<String> argumentos) {
+        if (argumentos == null) {
+            return;
+        }
+        for (int i = 0; i + 1 < argumentos.size(); i += 2) {
+            output.addArguments(argumentos.get(i), argumentos.get(i + 1));
+        }
+    }
+
+    private static Double extrairDuracaoSegundos(Arquivo arquivo) {
+        if (arquivo.getMetadadosTecnicos() == null) {
+            return null;
+        }
+        String duracao = arquivo.getMetadadosTecnicos().get("duration");
+        if (duracao == null || duracao.isBlank()) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(duracao.strip());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String chaveCodificacao(String arquivoId) {
+        return SEGMENTACAO_PREFIX + arquivoId;
+    }
+
+    // Segmentos ficam sob o prefixo do arquivo na sessão: a limpeza da sessão também os remove
+    private static String prefixoSegmentos(String sessaoId, String arquivoId) {
+        return String.format("%s/%s/segmentos/", sessaoId, arquivoId);
+    }
+
+    private static String caminhoSegmentoOrigem(Arquivo destino, int indice) {
+        return caminhoSegmentoOrigem(destino.getSessaoId(), destino.getId(), indice);
+    }
+
+    private static String caminhoSegmentoOrigem(String sessaoId, String arquivoId, int indice) {
+        return prefixoSegmentos(sessaoId, arquivoId) + String.format("origem_%05d.mkv", indice);
+    }
+
+    private static String caminhoSegmentoSaida(CodificacaoSegmentada codificacao, int indice) {
+        return prefixoSegmentos(codificacao.getSessaoId(), codificacao.getArquivoId()) + String.format("saida_%05d.mkv", indice);
+    }
+
+    private void limparArquivos(Path... paths) {
+        for (Path path : paths) {
+            if (path != null) {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (Exception e) {
+                    log.warn("Erro ao deletar arquivo temporário: {}", path, e);
+                }
+            }
+        }
+    }
+
+    private void limparDiretorio(Path diretorio) {
+        if (diretorio == null) {
+            return;
+        }
+        try {
+            FileSystemUtils.deleteRecursively(diretorio);
+        } catch (IOException e) {
+            log.warn("Erro ao deletar diretório temporário: {}", diretorio, e);
+        }
+    }
+
+    public record SegmentacaoConcluida(CodificacaoSegmentada codificacao, long tamanhoBytes) {}
+}
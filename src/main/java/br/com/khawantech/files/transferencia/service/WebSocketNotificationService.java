@@ -1,6 +1,8 @@
 package br.com.khawantech.files.transferencia.service;
 
 import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
@@ -8,6 +10,7 @@ import org.springframework.stereotype.Service;
 import br.com.khawantech.files.transferencia.dto.ChatDigitandoResponse;
 import br.com.khawantech.files.transferencia.dto.ChatMensagemResponse;
 import br.com.khawantech.files.transferencia.dto.NotificacaoResponse;
+import br.com.khawantech.files.transferencia.dto.ProgressoProcessamentoResponse;
 import br.com.khawantech.files.transferencia.dto.ProgressoUploadResponse;
 import br.com.khawantech.files.transferencia.entity.Arquivo;
 import lombok.RequiredArgsConstructor;
@@ -19,13 +22,22 @@ import lombok.extern.slf4j.Slf4j;
 public class WebSocketNotificationService {
 
     private final SimpMessagingTemplate messagingTemplate;
+    private final NotificacaoLoteService notificacaoLoteService;
 
     public void notificarSessao(String sessaoId, NotificacaoResponse notificacao) {
         String destination = "/topic/sessao/" + sessaoId;
-        messagingTemplate.convertAndSend(destination, notificacao);
+        notificacaoLoteService.enviar(sessaoId, destination, notificacao);
         log.debug("Notificação enviada para sessão {}: {}", sessaoId, notificacao.getTipo());
     }
 
+    // Só o estado intermediário (processando) entra no lote; conclusão, erro, cancelamento e disponibilidade
+    // seguem por notificarSessao e saem na hora, depois do que já estava no lote
+    private void notificarArquivo(String sessaoId, String arquivoId, NotificacaoResponse notificacao) {
+        String destination = "/topic/sessao/" + sessaoId;
+        notificacaoLoteService.agrupar(sessaoId, destination, notificacao.getTipo() + ":" + arquivoId, notificacao);
+        log.debug("Notificação de arquivo enviada para sessão {}: {}", sessaoId, notificacao.getTipo());
+    }
+
     public void notificarUsuario(String usuarioId, NotificacaoResponse notificacao) {
         String destination = "/queue/notificacoes";
         messagingTemplate.convertAndSendToUser(usuarioId, destination, notificacao);
@@ -34,17 +46,22 @@ public class WebSocketNotificationService {
 
     public void notificarProgresso(String sessaoId, ProgressoUploadResponse progresso) {
         String destination = "/topic/sessao/" + sessaoId + "/progresso";
-        messagingTemplate.convertAndSend(destination, progresso);
+        notificacaoLoteService.agrupar(sessaoId, destination, "progresso:" + progresso.getArquivoId(), progresso);
+    }
+
+    public void notificarProgressoProcessamento(String sessaoId, ProgressoProcessamentoResponse progresso) {
+        String destination = "/topic/sessao/" + sessaoId + "/processamento";
+        notificacaoLoteService.agrupar(sessaoId, destination, "processamento:" + progresso.getArquivoId(), progresso);
     }
 
     public void notificarChatMensagem(String sessaoId, ChatMensagemResponse mensagem) {
         String destination = "/topic/sessao/" + sessaoId + "/chat";
-        messagingTemplate.convertAndSend(destination, mensagem);
+        notificacaoLoteService.enviar(sessaoId, destination, mensagem);
     }
 
     public void notificarChatDigitando(String sessaoId, ChatDigitandoResponse digitando) {
         String destination = "/topic/sessao/" + sessaoId + "/chat/digitando";
-        messagingTemplate.convertAndSend(destination, digitando);
+        notificacaoLoteService.agrupar(sessaoId, destination, "digitando:" + digitando.getUsuarioId(), digitando);
     }
 
     public void notificarUsuarioEntrou(String sessaoId, String usuarioConvidadoId) {
@@ -228,7 +245,7 @@ public class WebSocketNotificationService {
             .timestamp(Instant.now())
             .build();
 
-        notificarSessao(sessaoId, notificacao);
+        notificarArquivo(sessaoId, arquivo.getId(), notificacao);
         log.info("Notificação de processamento enviada para sessão {}: arquivo {}", sessaoId, arquivo.getId());
     }
 
@@ -271,16 +288,87 @@ public class WebSocketNotificationService {
         log.info("Notificação de otimização enviada para sessão {}: arquivo {}", sessaoId, arquivoOtimizado.getId());
     }
 
+    public void notificarOtimizacaoSemGanho(String sessaoId, Arquivo arquivoDescartado) {
+        NotificacaoResponse notificacao = NotificacaoResponse.builder()
+            .tipo(NotificacaoResponse.TipoNotificacao.OTIMIZACAO_SEM_GANHO)
+            .sessaoId(sessaoId)
+            .mensagem("O arquivo original já é a menor versão com a qualidade pedida")
+            .dados(new OtimizacaoSemGanho(arquivoDescartado.getId(), arquivoDescartado.getArquivoOriginalId(),
+                arquivoDescartado.getOtimizacaoNivel()))
+            .timestamp(Instant.now())
+            .build();
+
+        notificarSessao(sessaoId, notificacao);
+    }
+
+    public void notificarPreviewDisponivel(String sessaoId, String arquivoId, Collection<String> variantes) {
+        NotificacaoResponse notificacao = NotificacaoResponse.builder()
+            .tipo(NotificacaoResponse.TipoNotificacao.ARQUIVO_PREVIEW_DISPONIVEL)
+            .sessaoId(sessaoId)
+            .mensagem("Preview disponível")
+            .dados(new PreviewDisponivel(arquivoId, List.copyOf(variantes)))
+            .timestamp(Instant.now())
+            .build();
+
+        notificarSessao(sessaoId, notificacao);
+    }
+
+    public void notificarStreamingDisponivel(String sessaoId, String arquivoId, List<Integer> alturas) {
+        NotificacaoResponse notificacao = NotificacaoResponse.builder()
+            .tipo(NotificacaoResponse.TipoNotificacao.ARQUIVO_STREAMING_DISPONIVEL)
+            .sessaoId(sessaoId)
+            .mensagem("Streaming disponível")
+            .dados(new StreamingDisponivel(arquivoId, alturas))
+            .timestamp(Instant.now())
+            .build();
+
+        notificarSessao(sessaoId, notificacao);
+    }
+
+    public void notificarConversaoCancelada(String sessaoId, Arquivo arquivoConvertido) {
+        NotificacaoResponse notificacao = NotificacaoResponse.builder()
+            .tipo(NotificacaoResponse.TipoNotificacao.CONVERSAO_CANCELADA)
+            .sessaoId(sessaoId)
+            .mensagem("Conversão cancelada: " + arquivoConvertido.getNomeOriginal())
+            .dados(new ConversaoCancelada(arquivoConvertido.getId(), arquivoConvertido.getArquivoOriginalId()))
+            .timestamp(Instant.now())
+            .build();
+
+        notificarSessao(sessaoId, notificacao);
+    }
+
+    public void notificarConversaoFalhou(String sessaoId, Arquivo arquivoConvertido) {
+        NotificacaoResponse notificacao = NotificacaoResponse.builder()
+            .tipo(NotificacaoResponse.TipoNotificacao.CONVERSAO_ERRO)
+            .sessaoId(sessaoId)
+            .mensagem("Falha na conversão: " + arquivoConvertido.getNomeOriginal())
+            .dados(new ConversaoFalhou(arquivoConvertido.getId(), arquivoConvertido.getArquivoOriginalId()))
+            .timestamp(Instant.now())
+            .build();
+
+        notificarSessao(sessaoId, notificacao);
+    }
+
     public record ArquivoDisponivel(String arquivoId, String nomeArquivo, String urlDownload, boolean conversivel) {}
 
     public record ArquivoBloqueado(String arquivoId, String motivo) {}
 
+    public record PreviewDisponivel(String arquivoId, List<String> variantes) {}
+
+    public record StreamingDisponivel(String arquivoId, List<Integer> alturas) {}
+
+    public record ConversaoCancelada(String arquivoId, String arquivoOriginalId) {}
+
+    public record ConversaoFalhou(String arquivoId, String arquivoOriginalId) {}
+
     public record ArquivoProcessando(String arquivoId, String arquivoOriginalId, String nomeArquivo,
                                      String formato, Integer nivel) {}
     
     public record ArquivoConvertido(String arquivoId, String arquivoOriginalId, String nomeArquivo, 
                                     String formato, Long tamanhoBytes) {}
 
+    public record OtimizacaoSemGanho(String arquivoId, String arquivoOriginalId, Integer nivel) {}
+
     public record ArquivoOtimizado(String arquivoId, String arquivoOriginalId, String nomeArquivo,
                                    Integer nivel, Long tamanhoBytes, Long tamanhoOriginalBytes) {}
     
@@ -2,14 +2,31 @@ package br.com.khawantech.files.transferencia.service.video;
 
 import br.com.khawantech.files.transferencia.dto.FormatoVideo;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+
 public class DefaultVideoConversionStrategy implements VideoConversionStrategy {
 
+    private static final Set<String> FORMATOS_FASTSTART = Set.of("mp4", "mov");
+
     private final FormatoVideo target;
     private final VideoConversionProfile profile;
+    private final Set<String> videoCodecsCopia;
+    private final Set<String> audioCodecsCopia;
 
     public DefaultVideoConversionStrategy(FormatoVideo target, VideoConversionProfile profile) {
+        this(target, profile, Set.of(), Set.of());
+    }
+
+    public DefaultVideoConversionStrategy(FormatoVideo target, VideoConversionProfile profile,
+                                          Set<String> videoCodecsCopia, Set<String> audioCodecsCopia) {
         this.target = target;
         this.profile = profile;
+        this.videoCodecsCopia = videoCodecsCopia;
+        this.audioCodecsCopia = audioCodecsCopia;
     }
 
     @Override
@@ -21,4 +38,28 @@ public class DefaultVideoConversionStrategy implements VideoConversionStrategy {
     public VideoConversionProfile profile() {
         return profile;
     }
+
+    @Override
+    public Optional<VideoConversionProfile> remuxProfile(String videoCodec, String audioCodec) {
+        if (videoCodec == null || !videoCodecsCopia.contains(videoCodec.strip().toLowerCase(Locale.ROOT))) {
+            return Optional.empty();
+        }
+        if (audioCodec != null && !audioCodecsCopia.contains(audioCodec.strip().toLowerCase(Locale.ROOT))) {
+            return Optional.empty();
+        }
+
+        List<String> args = new ArrayList<>(List.of(
+            "-map", "0:v:0",
+            "-map", "0:a:0?",
+            "-c", "copy"
+        ));
+        if (FORMATOS_FASTSTART.contains(profile.format())) {
+            if ("hevc".equalsIgnoreCase(videoCodec.strip())) {
+                // Sem a tag hvc1 players da Apple recusam HEVC em MP4/MOV
+                args.addAll(List.of("-tag:v", "hvc1"));
+            }
+            args.addAll(List.of("-movflags", "+faststart"));
+        }
+        return Optional.of(new VideoConversionProfile(profile.format(), List.copyOf(args)));
+    }
 }
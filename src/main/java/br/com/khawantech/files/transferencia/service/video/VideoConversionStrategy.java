@@ -1,8 +1,11 @@
 package br.com.khawantech.files.transferencia.service.video;
 
+import java.util.Optional;
+
 import br.com.khawantech.files.transferencia.dto.FormatoVideo;
 
 public interface VideoConversionStrategy {
     FormatoVideo target();
     VideoConversionProfile profile();
+    Optional<VideoConversionProfile> remuxProfile(String videoCodec, String audioCodec);
 }
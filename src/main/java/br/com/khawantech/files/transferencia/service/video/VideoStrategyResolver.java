@@ -6,6 +6,7 @@ import org.springframework.stereotype.Component;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Component
 public class VideoStrategyResolver {
@@ -26,7 +27,9 @@ public class VideoStrategyResolver {
                     "-c:a", "aac",
                     "-b:a", "128k",
                     "-movflags", "+faststart"
-                ))
+                )),
+                Set.of("h264", "hevc", "mpeg4", "av1"),
+                Set.of("aac", "mp3", "ac3")
             ),
             FormatoVideo.MKV, new DefaultVideoConversionStrategy(
                 FormatoVideo.MKV,
@@ -39,7 +42,9 @@ public class VideoStrategyResolver {
                     "-crf", "23",
                     "-c:a", "aac",
                     "-b:a", "128k"
-                ))
+                )),
+                Set.of("h264", "hevc", "mpeg4", "mpeg2video", "vp8", "vp9", "av1"),
+                Set.of("aac", "mp3", "ac3", "eac3", "opus", "vorbis", "flac")
             ),
             FormatoVideo.WEBM, new DefaultVideoConversionStrategy(
                 FormatoVideo.WEBM,
@@ -51,7 +56,9 @@ public class VideoStrategyResolver {
                     "-crf", "33",
                     "-c:a", "libopus",
                     "-b:a", "96k"
-                ))
+                )),
+                Set.of("vp8", "vp9", "av1"),
+                Set.of("opus", "vorbis")
             ),
             FormatoVideo.MOV, new DefaultVideoConversionStrategy(
                 FormatoVideo.MOV,
@@ -64,7 +71,9 @@ public class VideoStrategyResolver {
                     "-crf", "23",
                     "-c:a", "aac",
                     "-b:a", "128k"
-                ))
+                )),
+                Set.of("h264", "hevc", "mpeg4", "prores", "mjpeg"),
+                Set.of("aac", "mp3", "ac3", "alac", "pcm_s16le")
             ),
             FormatoVideo.AVI, new DefaultVideoConversionStrategy(
                 FormatoVideo.AVI,
@@ -75,7 +84,9 @@ public class VideoStrategyResolver {
                     "-q:v", "5",
                     "-c:a", "libmp3lame",
                     "-b:a", "128k"
-                ))
+                )),
+                Set.of("mpeg4", "h264", "mjpeg"),
+                Set.of("mp3", "ac3", "pcm_s16le")
             ),
             FormatoVideo.FLV, new DefaultVideoConversionStrategy(
                 FormatoVideo.FLV,
@@ -88,7 +99,9 @@ public class VideoStrategyResolver {
                     "-crf", "23",
                     "-c:a", "aac",
                     "-b:a", "128k"
-                ))
+                )),
+                Set.of("h264"),
+                Set.of("aac", "mp3")
             ),
             FormatoVideo.THREE_GP, new DefaultVideoConversionStrategy(
                 FormatoVideo.THREE_GP,
@@ -104,7 +117,9 @@ public class VideoStrategyResolver {
                     "-c:a", "aac",
                     "-b:a", "96k",
                     "-ar", "44100"
-                ))
+                )),
+                Set.of("h263", "h264", "mpeg4"),
+                Set.of("aac", "amr_nb", "amr_wb")
             ),
             FormatoVideo.MPEG, new DefaultVideoConversionStrategy(
                 FormatoVideo.MPEG,
@@ -115,7 +130,9 @@ public class VideoStrategyResolver {
                     "-q:v", "5",
                     "-c:a", "mp2",
                     "-b:a", "192k"
-                ))
+                )),
+                Set.of("mpeg1video", "mpeg2video"),
+                Set.of("mp2", "mp3", "ac3")
             ),
             FormatoVideo.GIF, new DefaultVideoConversionStrategy(
                 FormatoVideo.GIF,
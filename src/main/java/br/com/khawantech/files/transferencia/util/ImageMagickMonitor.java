@@ -0,0 +1,85 @@
+package br.com.khawantech.files.transferencia.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.function.DoubleConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.im4java.process.ErrorConsumer;
+
+/**
+ * Consome o stderr do ImageMagick executado com {@code -monitor} e converte as fases
+ * (leitura, processamento, gravação) em uma porcentagem única e monotônica.
+ */
+public class ImageMagickMonitor implements ErrorConsumer {
+
+    private static final Pattern LINHA_PROGRESSO =
+        Pattern.compile("^\\s*([^\\[:]+?)(?:\\[[^\\]]*\\])?:\\s*\\d+ of \\d+,\\s*(\\d{1,3})% complete");
+
+    private static final int LIMITE_MENSAGEM_ERRO = 2000;
+
+    private final DoubleConsumer aoProgredir;
+    private final StringBuilder mensagemErro = new StringBuilder();
+    private double porcentagem;
+
+    public ImageMagickMonitor(DoubleConsumer aoProgredir) {
+        this.aoProgredir = aoProgredir;
+    }
+
+    @Override
+    public void consumeError(InputStream inputStream) throws IOException {
+        Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8);
+        StringBuilder linha = new StringBuilder();
+        int c;
+        while ((c = reader.read()) != -1) {
+            // O -monitor reescreve a mesma linha com '\r' a cada avanço
+            if (c == '\r' || c == '\n') {
+                processarLinha(linha.toString());
+                linha.setLength(0);
+            } else {
+                linha.append((char) c);
+            }
+        }
+        processarLinha(linha.toString());
+    }
+
+    public String getMensagemErro() {
+        return mensagemErro.toString().strip();
+    }
+
+    private void processarLinha(String linha) {
+        if (linha.isBlank()) {
+            return;
+        }
+
+        Matcher matcher = LINHA_PROGRESSO.matcher(linha);
+        if (!matcher.find()) {
+            if (mensagemErro.length() < LIMITE_MENSAGEM_ERRO) {
+                mensagemErro.append(linha).append('\n');
+            }
+            return;
+        }
+
+        double fase = Math.min(100, Integer.parseInt(matcher.group(2))) / 100.0;
+        String operacao = matcher.group(1).strip().toLowerCase(Locale.ROOT);
+
+        double total;
+        if (operacao.startsWith("load")) {
+            total = fase * 45;
+        } else if (operacao.startsWith("save")) {
+            total = 55 + fase * 45;
+        } else {
+            total = 45 + fase * 10;
+        }
+
+        if (total > porcentagem) {
+            porcentagem = total;
+            aoProgredir.accept(porcentagem);
+        }
+    }
+}
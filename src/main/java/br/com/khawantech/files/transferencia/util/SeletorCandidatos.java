@@ -0,0 +1,28 @@
+package br.com.khawantech.files.transferencia.util;
+
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+import br.com.khawantech.files.transferencia.dto.FormatoImagem;
+
+/**
+ * Escolhe, entre os candidatos codificados, o menor arquivo que respeita o piso de similaridade
+ * e que seja efetivamente menor que o original.
+ */
+public final class SeletorCandidatos {
+
+    private SeletorCandidatos() {
+    }
+
+    public static Optional<Candidato> escolher(List<Candidato> candidatos, double pisoSsim, long tamanhoOriginal) {
+        return candidatos.stream()
+            .filter(candidato -> candidato.ssim() != null && candidato.ssim() >= pisoSsim)
+            .filter(candidato -> candidato.tamanhoBytes() > 0 && candidato.tamanhoBytes() < tamanhoOriginal)
+            .min(Comparator.comparingLong(Candidato::tamanhoBytes)
+                .thenComparing(Comparator.comparingDouble(Candidato::ssim).reversed()));
+    }
+
+    public record Candidato(FormatoImagem formato, int qualidade, Path caminho, long tamanhoBytes, Double ssim) {}
+}
@@ -0,0 +1,238 @@
+package br.com.khawantech.files.transferencia.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public final class StreamFanOut {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int PIPE_CAPACIDADE_BLOCOS = 32;
+    private static final long ESPERA_MS = 100;
+    private static final byte[] FIM = new byte[0];
+
+    private final ExecutorService executor;
+    private final List<OutputStream> sinks = new ArrayList<>();
+    private final List<Pipe> pipes = new ArrayList<>();
+    private long total;
+    private boolean concluido;
+
+    public StreamFanOut(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    public StreamFanOut adicionarSink(OutputStream sink) {
+        sinks.add(sink);
+        return this;
+    }
+
+    public <T> Future<T> adicionarConsumidor(boolean obrigatorio, Consumidor<T> consumidor) {
+        Pipe pipe = new Pipe(obrigatorio);
+        pipes.add(pipe);
+        return executor.submit(() -> {
+            try (InputStream inputStream = pipe.inputStream()) {
+                return consumidor.consumir(inputStream);
+            } finally {
+                pipe.fecharLeitura();
+            }
+        });
+    }
+
+    public long transferir(InputStream origem) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        try {
+            int lidos;
+            while ((lidos = origem.read(buffer)) != -1) {
+                if (lidos > 0) {
+                    distribuir(buffer, 0, lidos);
+                }
+            }
+            concluir();
+        } catch (IOException | RuntimeException e) {
+            abortar(e);
+            throw e;
+        }
+
+        return total;
+    }
+
+    public OutputStream abrirSaida() {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                distribuir(new byte[] { (byte) b }, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] dados, int offset, int tamanho) throws IOException {
+                if (tamanho > 0) {
+                    distribuir(dados, offset, tamanho);
+                }
+            }
+        };
+    }
+
+    public void concluir() throws IOException {
+        if (concluido) {
+            return;
+        }
+        concluido = true;
+
+        for (OutputStream sink : sinks) {
+            sink.flush();
+        }
+        for (Pipe pipe : pipes) {
+            pipe.escrever(FIM);
+        }
+    }
+
+    public void abortar(Exception causa) {
+        concluido = true;
+        for (Pipe pipe : pipes) {
+            pipe.abortar(causa);
+        }
+    }
+
+    public long getTotalBytes() {
+        return total;
+    }
+
+    private void distribuir(byte[] dados, int offset, int tamanho) throws IOException {
+        if (concluido) {
+            throw new IOException("Transferência já encerrada");
+        }
+
+        for (OutputStream sink : sinks) {
+            sink.write(dados, offset, tamanho);
+        }
+        if (!pipes.isEmpty()) {
+            byte[] bloco = Arrays.copyOfRange(dados, offset, offset + tamanho);
+            for (Pipe pipe : pipes) {
+                pipe.escrever(bloco);
+            }
+        }
+        total += tamanho;
+    }
+
+    @FunctionalInterface
+    public interface Consumidor<T> {
+        T consumir(InputStream inputStream) throws Exception;
+    }
+
+    private static final class Pipe {
+
+        private final boolean obrigatorio;
+        private final BlockingQueue<byte[]> fila = new ArrayBlockingQueue<>(PIPE_CAPACIDADE_BLOCOS);
+        private volatile boolean leituraFechada;
+        private volatile Exception falha;
+
+        Pipe(boolean obrigatorio) {
+            this.obrigatorio = obrigatorio;
+        }
+
+        void escrever(byte[] bloco) throws IOException {
+            // Consumidor já parou de ler: não espera vaga na fila a cada bloco
+            if (leituraFechada) {
+                falharSeObrigatorio(bloco);
+                return;
+            }
+            try {
+                while (!fila.offer(bloco, ESPERA_MS, TimeUnit.MILLISECONDS)) {
+                    if (leituraFechada) {
+                        break;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Transferência interrompida");
+            }
+
+            if (leituraFechada) {
+                falharSeObrigatorio(bloco);
+            }
+        }
+
+        private void falharSeObrigatorio(byte[] bloco) throws IOException {
+            if (obrigatorio && bloco != FIM) {
+                throw new IOException("Consumidor obrigatório encerrou antes do fim do conteúdo");
+            }
+        }
+
+        void abortar(Exception causa) {
+            falha = causa;
+            fila.clear();
+            fila.offer(FIM);
+        }
+
+        void fecharLeitura() {
+            leituraFechada = true;
+            fila.clear();
+        }
+
+        InputStream inputStream() {
+            return new InputStream() {
+                private byte[] atual = new byte[0];
+                private int posicao;
+                private boolean fim;
+
+                @Override
+                public int read() throws IOException {
+                    byte[] um = new byte[1];
+                    int lidos = read(um, 0, 1);
+                    return lidos == -1 ? -1 : um[0] & 0xff;
+                }
+
+                @Override
+                public int read(byte[] destino, int offset, int tamanho) throws IOException {
+                    if (tamanho == 0) {
+                        return 0;
+                    }
+                    if (!proximoBloco()) {
+                        return -1;
+                    }
+                    int copiar = Math.min(tamanho, atual.length - posicao);
+                    System.arraycopy(atual, posicao, destino, offset, copiar);
+                    posicao += copiar;
+                    return copiar;
+                }
+
+                @Override
+                public int available() {
+                    return fim ? 0 : atual.length - posicao;
+                }
+
+                private boolean proximoBloco() throws IOException {
+                    while (!fim && posicao >= atual.length) {
+                        byte[] bloco;
+                        try {
+                            bloco = fila.take();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new InterruptedIOException("Leitura interrompida");
+                        }
+                        if (bloco == FIM) {
+                            fim = true;
+                        } else {
+                            atual = bloco;
+                            posicao = 0;
+                        }
+                    }
+                    if (fim && falha != null) {
+                        throw new IOException("Falha na leitura da origem", falha);
+                    }
+                    return !fim;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package br.com.khawantech.files.transferencia.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import br.com.khawantech.files.transferencia.dto.AlvoConversaoVideo;
+import br.com.khawantech.files.transferencia.dto.VideoConversionEvent;
+
+class CborMessageConverterTest {
+
+    private final CborMessageConverter converter = new CborMessageConverter();
+
+    @Test
+    void testEventoDaAplicacaoFazIdaEVolta() {
+        VideoConversionEvent evento = VideoConversionEvent.builder()
+            .arquivoId("arquivo-1")
+            .sessaoId("sessao-1")
+            .solicitanteId("usuario-1")
+            .alvos(List.of(new AlvoConversaoVideo("mp4", 50)))
+            .build();
+
+        Message mensagem = converter.toMessage(evento, new MessageProperties());
+
+        assertEquals(CborMessageConverter.CONTENT_TYPE, mensagem.getMessageProperties().getContentType());
+        assertEquals(evento, converter.fromMessage(mensagem));
+    }
+
+    @Test
+    void testTipoForaDosPacotesDaAplicacaoEhRecusado() {
+        Message mensagem = converter.toMessage(new VideoConversionEvent(), new MessageProperties());
+        mensagem.getMessageProperties().setHeader("__TypeId__", "org.springframework.amqp.core.MessageProperties");
+
+        assertThrows(MessageConversionException.class, () -> converter.fromMessage(mensagem));
+    }
+}
@@ -0,0 +1,54 @@
+package br.com.khawantech.files.transferencia.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class FilaMetricasInterceptorTest {
+
+    private final FilaMetricasInterceptor interceptor = new FilaMetricasInterceptor(new SimpleMeterRegistry());
+
+    @Test
+    void testContaMensagemEmExecucaoAteOFimDoListener() throws Throwable {
+        AtomicInteger duranteExecucao = new AtomicInteger(-1);
+        MethodInvocation invocacao = invocacao(RabbitConfig.QUEUE_VIDEO_CONVERSION);
+        when(invocacao.proceed()).thenAnswer(chamada -> {
+            duranteExecucao.set(interceptor.emExecucao(RabbitConfig.QUEUE_VIDEO_CONVERSION));
+            return null;
+        });
+
+        interceptor.invoke(invocacao);
+
+        assertEquals(1, duranteExecucao.get());
+        assertEquals(0, interceptor.emExecucao(RabbitConfig.QUEUE_VIDEO_CONVERSION));
+        assertEquals(0, interceptor.emExecucao(RabbitConfig.QUEUE_IMAGE_CONVERSION));
+    }
+
+    @Test
+    void testFalhaDoListenerLiberaContagem() throws Throwable {
+        MethodInvocation invocacao = invocacao(RabbitConfig.QUEUE_IMAGE_CONVERSION);
+        when(invocacao.proceed()).thenThrow(new IllegalStateException("falha na conversão"));
+
+        assertThrows(IllegalStateException.class, () -> interceptor.invoke(invocacao));
+
+        assertEquals(0, interceptor.emExecucao(RabbitConfig.QUEUE_IMAGE_CONVERSION));
+    }
+
+    private static MethodInvocation invocacao(String fila) {
+        MessageProperties properties = new MessageProperties();
+        properties.setConsumerQueue(fila);
+        MethodInvocation invocacao = mock(MethodInvocation.class);
+        when(invocacao.getArguments()).thenReturn(new Object[] { null, new Message(new byte[0], properties) });
+        return invocacao;
+    }
+}
@@ -0,0 +1,109 @@
+package br.com.khawantech.files.transferencia.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import br.com.khawantech.files.transferencia.dto.AlvoConversaoVideo;
+import br.com.khawantech.files.transferencia.dto.ArquivoCompletoEvent;
+import br.com.khawantech.files.transferencia.dto.ArquivoSecurityEvent;
+import br.com.khawantech.files.transferencia.dto.AudioConversionEvent;
+import br.com.khawantech.files.transferencia.dto.ImageConversionEvent;
+import br.com.khawantech.files.transferencia.dto.ProgressoUploadResponse;
+import br.com.khawantech.files.transferencia.dto.VideoConversionEvent;
+import br.com.khawantech.files.transferencia.dto.VideoSegmentoEvent;
+
+/**
+ * Executar com: mvn test -Dtest=MessageConverterBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class MessageConverterBenchmarkTest {
+
+    private static final int AQUECIMENTO = 5000;
+    private static final int ITERACOES = 50000;
+
+    private final MessageConverter json = converter("json");
+    private final MessageConverter cbor = converter(RabbitConfig.FORMATO_CBOR);
+
+    @Test
+    void compararTamanhoECpuDoJsonComCbor() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+        System.out.printf("%-24s %10s %10s %12s %12s %10s%n",
+            "evento", "json (B)", "cbor (B)", "json (us)", "cbor (us)", "economia");
+        for (Map.Entry<String, Object> entrada : montarEventos().entrySet()) {
+            Object evento = entrada.getValue();
+
+            Message mensagemJson = json.toMessage(evento, new MessageProperties());
+            Message mensagemCbor = cbor.toMessage(evento, new MessageProperties());
+
+            // Instâncias em qualquer um dos formatos leem mensagens do outro pelo content-type
+            assertEquals(evento, json.fromMessage(mensagemCbor), "CBOR lido por instância JSON: " + entrada.getKey());
+            assertEquals(evento, cbor.fromMessage(mensagemJson), "JSON lido por instância CBOR: " + entrada.getKey());
+
+            double jsonUs = medirCpuMicros(threadMXBean, json, evento);
+            double cborUs = medirCpuMicros(threadMXBean, cbor, evento);
+            System.out.printf("%-24s %10d %10d %12.2f %12.2f %9.0f%%%n",
+                entrada.getKey(), mensagemJson.getBody().length, mensagemCbor.getBody().length,
+                jsonUs, cborUs, (1 - cborUs / jsonUs) * 100);
+        }
+    }
+
+    // Ida e volta (serializar + desserializar), como publicador e consumidor pagam por evento
+    private static double medirCpuMicros(ThreadMXBean threadMXBean, MessageConverter converter, Object evento) {
+        for (int i = 0; i < AQUECIMENTO; i++) {
+            converter.fromMessage(converter.toMessage(evento, new MessageProperties()));
+        }
+
+        long inicio = threadMXBean.getCurrentThreadCpuTime();
+        for (int i = 0; i < ITERACOES; i++) {
+            converter.fromMessage(converter.toMessage(evento, new MessageProperties()));
+        }
+        return (threadMXBean.getCurrentThreadCpuTime() - inicio) / 1000.0 / ITERACOES;
+    }
+
+    private static MessageConverter converter(String formato) {
+        TransferenciaProperties properties = new TransferenciaProperties();
+        properties.getPublicacao().setFormato(formato);
+        return new RabbitConfig().messageConverter(properties);
+    }
+
+    private static Map<String, Object> montarEventos() {
+        String arquivoId = "6650f1c2a3b4c5d6e7f80912";
+        String sessaoId = "6650f1c2a3b4c5d6e7f80001";
+        String usuarioId = "6650f1c2a3b4c5d6e7f80abc";
+
+        Map<String, Object> eventos = new LinkedHashMap<>();
+        eventos.put("ProgressoUpload", ProgressoUploadResponse.builder()
+            .arquivoId(arquivoId).sessaoId(sessaoId).chunkAtual(137).totalChunks(410)
+            .progressoPorcentagem(33.41).completo(false).build());
+        eventos.put("ArquivoSecurityEvent", ArquivoSecurityEvent.builder()
+            .arquivoId(arquivoId).sessaoId(sessaoId).remetenteId(usuarioId)
+            .nomeOriginal("apresentacao_final_v3.mp4").tipoMimeInformado("video/mp4").totalChunks(410).build());
+        eventos.put("ArquivoCompletoEvent", ArquivoCompletoEvent.builder()
+            .arquivoId(arquivoId).sessaoId(sessaoId).nomeOriginal("apresentacao_final_v3.mp4")
+            .tamanhoBytes(2_147_483_648L).tipoMime("video/mp4")
+            .caminhoMinio("sessoes/" + sessaoId + "/arquivos/" + arquivoId + "/apresentacao_final_v3.mp4")
+            .remetenteId(usuarioId).build());
+        eventos.put("ImageConversionEvent", ImageConversionEvent.builder()
+            .arquivoId(arquivoId).sessaoId(sessaoId).formatoDestino("webp").solicitanteId(usuarioId).build());
+        eventos.put("AudioConversionEvent", AudioConversionEvent.builder()
+            .arquivoId(arquivoId).sessaoId(sessaoId).formatoDestino("opus").solicitanteId(usuarioId).build());
+        eventos.put("VideoConversionEvent", VideoConversionEvent.builder()
+            .arquivoId(arquivoId).sessaoId(sessaoId).solicitanteId(usuarioId)
+            .alvos(List.of(new AlvoConversaoVideo("webm", null), new AlvoConversaoVideo("mp4", 50))).build());
+        eventos.put("VideoSegmentoEvent", VideoSegmentoEvent.builder()
+            .arquivoId(arquivoId).sessaoId(sessaoId).indice(7).totalSegmentos(24).build());
+        return eventos;
+    }
+}
@@ -0,0 +1,51 @@
+package br.com.khawantech.files.transferencia.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.boot.autoconfigure.amqp.RabbitProperties;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RabbitConfigTest {
+
+    private final SimpleRabbitListenerContainerFactoryConfigurer configurer =
+        new SimpleRabbitListenerContainerFactoryConfigurer(new RabbitProperties());
+    private final ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+
+    @Test
+    void testFactoryUsaLimitesDaCarga() {
+        SimpleRabbitListenerContainerFactory factory = RabbitConfig.criarListenerFactory(
+            configurer, connectionFactory, new TransferenciaProperties.CargaConsumidor(2, 6, 10), null);
+
+        assertEquals(2, ReflectionTestUtils.getField(factory, "concurrentConsumers"));
+        assertEquals(6, ReflectionTestUtils.getField(factory, "maxConcurrentConsumers"));
+        assertEquals(10, ReflectionTestUtils.getField(factory, "prefetchCount"));
+    }
+
+    @Test
+    void testFactoryCorrigeLimitesInvalidos() {
+        SimpleRabbitListenerContainerFactory factory = RabbitConfig.criarListenerFactory(
+            configurer, connectionFactory, new TransferenciaProperties.CargaConsumidor(0, 0, 0), null);
+
+        assertEquals(1, ReflectionTestUtils.getField(factory, "concurrentConsumers"));
+        assertEquals(1, ReflectionTestUtils.getField(factory, "maxConcurrentConsumers"));
+        assertEquals(1, ReflectionTestUtils.getField(factory, "prefetchCount"));
+    }
+
+    @Test
+    void testInterceptorDeMetricasAbreACadeia() {
+        FilaMetricasInterceptor interceptor = new FilaMetricasInterceptor(new SimpleMeterRegistry());
+
+        SimpleRabbitListenerContainerFactory factory = RabbitConfig.criarListenerFactory(
+            configurer, connectionFactory, new TransferenciaProperties.CargaConsumidor(1, 1, 1), interceptor);
+
+        assertSame(interceptor, factory.getAdviceChain()[0]);
+    }
+}
@@ -0,0 +1,216 @@
+package br.com.khawantech.files.transferencia.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Type;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.ConfigurationPropertiesAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.autoconfigure.websocket.servlet.WebSocketMessagingAutoConfiguration;
+import org.springframework.boot.autoconfigure.websocket.servlet.WebSocketServletAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompBrokerRelayMessageHandler;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import br.com.khawantech.files.auth.service.JwtService;
+import br.com.khawantech.files.transferencia.dto.ChatMensagemResponse;
+import br.com.khawantech.files.transferencia.dto.ProgressoUploadResponse;
+import br.com.khawantech.files.transferencia.service.NotificacaoLoteService;
+import br.com.khawantech.files.transferencia.service.WebSocketNotificationService;
+import br.com.khawantech.files.user.entity.User;
+import br.com.khawantech.files.user.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Dois nós com o relay STOMP contra o mesmo RabbitMQ: o cliente conectado ao nó A recebe o que o nó B publica.
+ * Cada nó sobe o WebSocketConfig real, com a autenticação do handshake e a cadeia de interceptors de entrada.
+ * Requer o RabbitMQ com o plugin STOMP (docker compose up rabbitmq).
+ * Executar com: mvn test -Dtest=RelayStompMultiNodeTest -Drelay=true [-Drelay.host=localhost]
+ */
+@EnabledIfSystemProperty(named = "relay", matches = "true")
+class RelayStompMultiNodeTest {
+
+    private static final long TIMEOUT_SEGUNDOS = 10;
+    private static final String TOKEN = "token-teste";
+    private static final String EMAIL = "usuario@teste.com";
+    private static final String ORIGEM = "http://localhost:3000";
+
+    private final String sessaoId = UUID.randomUUID().toString();
+    private final List<ConfigurableApplicationContext> nos = new ArrayList<>();
+
+    private ConfigurableApplicationContext noA;
+    private ConfigurableApplicationContext noB;
+
+    @BeforeEach
+    void iniciarNos() throws Exception {
+        noA = iniciarNo();
+        noB = iniciarNo();
+    }
+
+    @AfterEach
+    void encerrarNos() {
+        nos.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void entregaNoNoAEventosPublicadosNoNoB() throws Exception {
+        BlockingQueue<Map<String, Object>> progresso = new LinkedBlockingQueue<>();
+        BlockingQueue<Map<String, Object>> chat = new LinkedBlockingQueue<>();
+        BlockingQueue<Map<String, Object>> sessao = new LinkedBlockingQueue<>();
+
+        StompSession cliente = conectar(noA);
+        CountDownLatch assinaturas = new CountDownLatch(3);
+        assinar(cliente, "/topic/sessao/" + sessaoId + "/progresso", progresso, assinaturas);
+        assinar(cliente, "/topic/sessao/" + sessaoId + "/chat", chat, assinaturas);
+        assinar(cliente, "/topic/sessao/" + sessaoId, sessao, assinaturas);
+        assertTrue(assinaturas.await(TIMEOUT_SEGUNDOS, TimeUnit.SECONDS), "Assinaturas não confirmadas pelo broker");
+
+        SimpMessagingTemplate templateNoB = noB.getBean(SimpMessagingTemplate.class);
+        WebSocketNotificationService notificacoesNoB = new WebSocketNotificationService(templateNoB,
+            new NotificacaoLoteService(templateNoB, new TransferenciaProperties(), new SimpleMeterRegistry()));
+        notificacoesNoB.notificarProgresso(sessaoId, ProgressoUploadResponse.builder()
+            .arquivoId("arquivo-1").sessaoId(sessaoId).chunkAtual(3).totalChunks(10).progressoPorcentagem(30.0).build());
+        notificacoesNoB.notificarChatMensagem(sessaoId, ChatMensagemResponse.builder()
+            .id("mensagem-1").sessaoId(sessaoId).remetenteId("usuario-b").conteudo("olá do nó B").criadoEm(Instant.now()).build());
+        notificacoesNoB.notificarUsuarioEntrou(sessaoId, "convidado-1");
+
+        Map<String, Object> recebidoProgresso = progresso.poll(TIMEOUT_SEGUNDOS, TimeUnit.SECONDS);
+        assertNotNull(recebidoProgresso, "Progresso publicado no nó B não chegou ao cliente do nó A");
+        assertEquals("arquivo-1", recebidoProgresso.get("arquivoId"));
+
+        Map<String, Object> recebidoChat = chat.poll(TIMEOUT_SEGUNDOS, TimeUnit.SECONDS);
+        assertNotNull(recebidoChat, "Mensagem de chat publicada no nó B não chegou ao cliente do nó A");
+        assertEquals("olá do nó B", recebidoChat.get("conteudo"));
+
+        Map<String, Object> recebidoSessao = sessao.poll(TIMEOUT_SEGUNDOS, TimeUnit.SECONDS);
+        assertNotNull(recebidoSessao, "Evento de sessão publicado no nó B não chegou ao cliente do nó A");
+        assertEquals("USUARIO_ENTROU", recebidoSessao.get("tipo"));
+
+        cliente.disconnect();
+    }
+
+    private ConfigurableApplicationContext iniciarNo() throws InterruptedException {
+        ConfigurableApplicationContext contexto = new SpringApplicationBuilder(NoComRelay.class)
+            .web(WebApplicationType.SERVLET)
+            .properties("server.port=0", "spring.main.banner-mode=off",
+                "app.frontend-url=" + ORIGEM,
+                "transferencia.relay-stomp.habilitado=true",
+                "transferencia.relay-stomp.host=" + System.getProperty("relay.host", "localhost"))
+            .run();
+        nos.add(contexto);
+
+        // A sessão de sistema do relay conecta de forma assíncrona; antes disso o nó descarta o que publica
+        StompBrokerRelayMessageHandler relay = contexto.getBean(StompBrokerRelayMessageHandler.class);
+        long prazo = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SEGUNDOS);
+        while (!relay.isBrokerAvailable() && System.nanoTime() < prazo) {
+            Thread.sleep(100);
+        }
+        assertTrue(relay.isBrokerAvailable(), "Relay STOMP não conectou ao broker");
+        return contexto;
+    }
+
+    private static StompSession conectar(ConfigurableApplicationContext no) throws Exception {
+        int porta = ((WebServerApplicationContext) no).getWebServer().getPort();
+        WebSocketStompClient client = new WebSocketStompClient(new StandardWebSocketClient());
+        client.setMessageConverter(new MappingJackson2MessageConverter());
+
+        WebSocketHttpHeaders cabecalhos = new WebSocketHttpHeaders();
+        cabecalhos.setOrigin(ORIGEM);
+        StompSession sessao = client.connectAsync("ws://localhost:" + porta + "/ws?token=" + TOKEN, cabecalhos,
+            new StompSessionHandlerAdapter() {
+            }).get(TIMEOUT_SEGUNDOS, TimeUnit.SECONDS);
+        sessao.setAutoReceipt(true);
+        return sessao;
+    }
+
+    private static void assinar(StompSession cliente, String destino, BlockingQueue<Map<String, Object>> recebidos,
+                                CountDownLatch assinaturas) {
+        StompSession.Subscription assinatura = cliente.subscribe(destino, new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return Map.class;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public void handleFrame(StompHeaders headers, Object payload) {
+                recebidos.add((Map<String, Object>) payload);
+            }
+        });
+        assinatura.addReceiptTask(assinaturas::countDown);
+    }
+
+    @Configuration
+    @Import({
+        WebSocketConfig.class,
+        WebSocketAuthInterceptor.class,
+        WebSocketChannelInterceptor.class,
+        TransferenciaProperties.class
+    })
+    @ImportAutoConfiguration({
+        ConfigurationPropertiesAutoConfiguration.class,
+        ServletWebServerFactoryAutoConfiguration.class,
+        DispatcherServletAutoConfiguration.class,
+        WebMvcAutoConfiguration.class,
+        HttpMessageConvertersAutoConfiguration.class,
+        JacksonAutoConfiguration.class,
+        WebSocketServletAutoConfiguration.class,
+        WebSocketMessagingAutoConfiguration.class
+    })
+    static class NoComRelay {
+
+        private final User usuario = User.builder().id("usuario-a").email(EMAIL).build();
+
+        @Bean
+        JwtService jwtService() {
+            JwtService jwtService = mock(JwtService.class);
+            when(jwtService.extractUsername(TOKEN)).thenReturn(EMAIL);
+            when(jwtService.isTokenValid(TOKEN, usuario)).thenReturn(true);
+            return jwtService;
+        }
+
+        @Bean
+        UserService userService() {
+            UserService userService = mock(UserService.class);
+            when(userService.findByEmail(EMAIL)).thenReturn(Optional.of(usuario));
+            return userService;
+        }
+    }
+}
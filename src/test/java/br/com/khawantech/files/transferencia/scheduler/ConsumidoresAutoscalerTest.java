@@ -0,0 +1,65 @@
+package br.com.khawantech.files.transferencia.scheduler;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+
+import br.com.khawantech.files.transferencia.config.RabbitConfig;
+import br.com.khawantech.files.transferencia.config.TransferenciaProperties;
+
+class ConsumidoresAutoscalerTest {
+
+    private static final String FILA = RabbitConfig.QUEUE_VIDEO_CONVERSION;
+
+    private final AmqpAdmin amqpAdmin = mock(AmqpAdmin.class);
+    private final SimpleMessageListenerContainer container = mock(SimpleMessageListenerContainer.class);
+    private final TransferenciaProperties.CargaConsumidor carga = new TransferenciaProperties.CargaConsumidor(1, 3, 1);
+    private final ConsumidoresAutoscaler autoscaler = new ConsumidoresAutoscaler(
+        mock(RabbitListenerEndpointRegistry.class), amqpAdmin, new TransferenciaProperties());
+
+    @Test
+    void testCargaAltaReduzTetoAteOMinimo() {
+        filaCom(10);
+
+        autoscaler.ajustarContainer(container, FILA, carga, 2.0);
+        autoscaler.ajustarContainer(container, FILA, carga, 2.0);
+        autoscaler.ajustarContainer(container, FILA, carga, 2.0);
+
+        verify(container).setMaxConcurrentConsumers(2);
+        verify(container).setMaxConcurrentConsumers(1);
+        verify(container, never()).setMaxConcurrentConsumers(0);
+    }
+
+    @Test
+    void testCargaBaixaComPendentesRestauraTetoSemPassarDoMaximo() {
+        filaCom(10);
+        autoscaler.ajustarContainer(container, FILA, carga, 2.0);
+
+        autoscaler.ajustarContainer(container, FILA, carga, 0.1);
+        autoscaler.ajustarContainer(container, FILA, carga, 0.1);
+
+        verify(container).setMaxConcurrentConsumers(3);
+        verify(container, never()).setMaxConcurrentConsumers(4);
+    }
+
+    @Test
+    void testFilaVaziaNaoAlteraTeto() {
+        filaCom(0);
+
+        autoscaler.ajustarContainer(container, FILA, carga, 0.1);
+
+        verify(container, never()).setMaxConcurrentConsumers(anyInt());
+    }
+
+    private void filaCom(int mensagens) {
+        when(amqpAdmin.getQueueInfo(FILA)).thenReturn(new QueueInformation(FILA, mensagens, 1));
+    }
+}
@@ -0,0 +1,91 @@
+package br.com.khawantech.files.transferencia.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import br.com.khawantech.files.transferencia.config.TransferenciaProperties;
+import br.com.khawantech.files.transferencia.dto.AnaliseArquivoCache;
+
+class AnaliseCacheRedisServiceTest {
+
+    private static final String HASH = "ABCDEF0123";
+    private static final String CHAVE = "analise:v" + AnaliseCacheRedisService.VERSAO_ANALISADOR + ":abcdef0123";
+
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, Object> valores = mock(ValueOperations.class);
+    private final TransferenciaProperties properties = new TransferenciaProperties();
+
+    private AnaliseCacheRedisService service;
+
+    @BeforeEach
+    void configurar() {
+        when(redisTemplate.opsForValue()).thenReturn(valores);
+        service = new AnaliseCacheRedisService(redisTemplate, properties);
+    }
+
+    @Test
+    void testBuscaPorHashNormalizadoRenovaTtl() {
+        AnaliseArquivoCache analise = AnaliseArquivoCache.builder()
+            .versaoAnalisador(AnaliseCacheRedisService.VERSAO_ANALISADOR)
+            .tipoMimeDetectado("video/mp4")
+            .build();
+        when(valores.get(CHAVE)).thenReturn(analise);
+
+        Optional<AnaliseArquivoCache> resultado = service.buscar(" " + HASH + " ");
+
+        assertTrue(resultado.isPresent());
+        assertEquals("video/mp4", resultado.get().getTipoMimeDetectado());
+        verify(redisTemplate).expire(CHAVE, Duration.ofHours(properties.getAnaliseCacheTtlHoras()));
+    }
+
+    @Test
+    void testVersaoAntigaDoAnalisadorEDescartada() {
+        AnaliseArquivoCache antiga = AnaliseArquivoCache.builder()
+            .versaoAnalisador(AnaliseCacheRedisService.VERSAO_ANALISADOR - 1)
+            .build();
+        when(valores.get(CHAVE)).thenReturn(antiga);
+
+        assertTrue(service.buscar(HASH).isEmpty());
+        verify(redisTemplate).delete(CHAVE);
+        verify(redisTemplate, never()).expire(eq(CHAVE), any(Duration.class));
+    }
+
+    @Test
+    void testHashAusenteNaoConsultaRedis() {
+        assertTrue(service.buscar(null).isEmpty());
+        assertTrue(service.buscar("  ").isEmpty());
+        service.salvar(null, "image/png", Map.of(), Map.of());
+        verifyNoInteractions(valores);
+    }
+
+    @Test
+    void testSalvarGravaVersaoAtualComTtl() {
+        service.salvar(HASH, "image/png", Map.of("Content-Type", "image/png"), Map.of("width", "10"));
+
+        ArgumentCaptor<Object> valor = ArgumentCaptor.forClass(Object.class);
+        verify(valores).set(eq(CHAVE), valor.capture(), eq(Duration.ofHours(properties.getAnaliseCacheTtlHoras())));
+        AnaliseArquivoCache salva = (AnaliseArquivoCache) valor.getValue();
+        assertEquals(AnaliseCacheRedisService.VERSAO_ANALISADOR, salva.getVersaoAnalisador());
+        assertEquals("image/png", salva.getTipoMimeDetectado());
+        assertEquals("10", salva.getMetadadosTecnicos().get("width"));
+    }
+}
@@ -0,0 +1,142 @@
+package br.com.khawantech.files.transferencia.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import br.com.khawantech.files.transferencia.config.TransferenciaProperties;
+import br.com.khawantech.files.transferencia.dto.ConversaoCache;
+import br.com.khawantech.files.transferencia.entity.Arquivo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ConversaoCacheServiceTest {
+
+    private static final String CHAVE = "conversao:abc123:imagem:webp:v1";
+    private static final String CAMINHO = "conversoes/abc123/imagem/webp/v1/destino-1";
+
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, Object> valores = mock(ValueOperations.class);
+    private final MinioService minioService = mock(MinioService.class);
+    private final TransferenciaProperties properties = new TransferenciaProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ConversaoCacheService service;
+
+    @BeforeEach
+    void configurar() {
+        when(redisTemplate.opsForValue()).thenReturn(valores);
+        service = new ConversaoCacheService(redisTemplate, minioService, properties, meterRegistry);
+    }
+
+    @Test
+    void testPrimeiraConversaoGravaNoCaminhoCompartilhadoERegistra() {
+        AtomicInteger execucoes = new AtomicInteger();
+
+        ConversaoCacheService.ResultadoConversao resultado = service.obterOuConverter(origem(" ABC123 "), "imagem", "WEBP", 1,
+            destino(), caminho -> {
+                execucoes.incrementAndGet();
+                assertEquals(CAMINHO, caminho);
+                return 2048L;
+            });
+
+        assertEquals(1, execucoes.get());
+        assertFalse(resultado.reaproveitado());
+        ArgumentCaptor<Object> valor = ArgumentCaptor.forClass(Object.class);
+        verify(valores).set(eq(CHAVE), valor.capture(), eq(Duration.ofHours(properties.getConversaoCacheTtlHoras())));
+        ConversaoCache salva = (ConversaoCache) valor.getValue();
+        assertEquals(CAMINHO, salva.getCaminhoMinio());
+        assertEquals(2048L, salva.getTamanhoBytes());
+        assertFalse(salva.isEspeculativa());
+    }
+
+    @Test
+    void testMesmoConteudoReaproveitaSemConverter() {
+        when(valores.get(CHAVE)).thenReturn(ConversaoCache.builder().caminhoMinio(CAMINHO).tamanhoBytes(2048L).build());
+        when(minioService.existeObjeto(CAMINHO)).thenReturn(true);
+
+        ConversaoCacheService.ResultadoConversao resultado = service.obterOuConverter(origem("abc123"), "imagem", "webp", 1,
+            destino(), caminho -> {
+                throw new AssertionError("Conversão não deveria ser executada");
+            });
+
+        assertTrue(resultado.reaproveitado());
+        assertEquals(CAMINHO, resultado.caminhoMinio());
+        assertEquals(2048L, resultado.tamanhoBytes());
+        verify(valores, never()).set(anyString(), any(), any(Duration.class));
+    }
+
+    @Test
+    void testEntradaCujoObjetoSumiuEDescartada() {
+        when(valores.get(CHAVE)).thenReturn(ConversaoCache.builder().caminhoMinio(CAMINHO).tamanhoBytes(2048L).build());
+        when(minioService.existeObjeto(CAMINHO)).thenReturn(false);
+
+        assertTrue(service.buscar(origem("abc123"), "imagem", "webp", 1).isEmpty());
+        verify(redisTemplate).delete(CHAVE);
+    }
+
+    @Test
+    void testVersaoDoPerfilDiferenteNaoReaproveita() {
+        when(valores.get(CHAVE)).thenReturn(ConversaoCache.builder().caminhoMinio(CAMINHO).tamanhoBytes(2048L).build());
+        when(minioService.existeObjeto(CAMINHO)).thenReturn(true);
+
+        assertTrue(service.buscar(origem("abc123"), "imagem", "webp", 2).isEmpty());
+        assertTrue(service.buscar(origem("abc123"), "imagem", "webp", 1).isPresent());
+    }
+
+    @Test
+    void testSemHashVerificadoUsaCaminhoDaSessaoENaoRegistra() {
+        when(minioService.gerarCaminhoArquivo("sessao-1", "destino-1", "foto.webp")).thenReturn("sessao-1/destino-1/foto.webp");
+
+        ConversaoCacheService.ResultadoConversao resultado = service.obterOuConverter(origem(null), "imagem", "webp", 1,
+            destino(), caminho -> 10L);
+
+        assertEquals("sessao-1/destino-1/foto.webp", resultado.caminhoMinio());
+        assertFalse(resultado.reaproveitado());
+        verify(valores, never()).get(anyString());
+        verify(valores, never()).set(anyString(), any(), any(Duration.class));
+    }
+
+    @Test
+    void testAcertoEspeculativoContaUmaVezEPreservaTtl() {
+        ConversaoCache especulativa = ConversaoCache.builder()
+            .caminhoMinio(CAMINHO).tamanhoBytes(2048L).especulativa(true).segundosProcessamento(3.5).build();
+        when(valores.get(CHAVE)).thenReturn(especulativa);
+        when(minioService.existeObjeto(CAMINHO)).thenReturn(true);
+        when(redisTemplate.getExpire(CHAVE)).thenReturn(600L);
+
+        assertTrue(service.buscar(origem("abc123"), "imagem", "webp", 1).isPresent());
+
+        assertEquals(1.0, meterRegistry.counter(ConversaoCacheService.METRICA_ESPECULACAO_ACERTOS, "operacao", "imagem").count());
+        assertEquals(3.5, meterRegistry.counter(ConversaoCacheService.METRICA_ESPECULACAO_CPU,
+            "operacao", "imagem", "resultado", "aproveitado").count());
+        ArgumentCaptor<Object> valor = ArgumentCaptor.forClass(Object.class);
+        verify(valores).set(eq(CHAVE), valor.capture(), eq(Duration.ofSeconds(600)));
+        assertFalse(((ConversaoCache) valor.getValue()).isEspeculativa());
+    }
+
+    private static Arquivo origem(String hash) {
+        return Arquivo.builder().id("origem-1").sessaoId("sessao-1").hashConteudoVerificado(hash).build();
+    }
+
+    private static Arquivo destino() {
+        return Arquivo.builder().id("destino-1").sessaoId("sessao-1").nomeOriginal("foto.webp").build();
+    }
+}
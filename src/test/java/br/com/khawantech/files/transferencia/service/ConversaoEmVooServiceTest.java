@@ -0,0 +1,110 @@
+package br.com.khawantech.files.transferencia.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.ValueOperations;
+
+class ConversaoEmVooServiceTest {
+
+    private static final String CHAVE = "conversao:voo:arquivo-1:mp4:padrao";
+    private static final String ANEXADOS = CHAVE + ":anexados";
+
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, Object> valores = mock(ValueOperations.class);
+    @SuppressWarnings("unchecked")
+    private final SetOperations<String, Object> conjuntos = mock(SetOperations.class);
+    private final OrcamentoConversaoService orcamentoConversaoService = mock(OrcamentoConversaoService.class);
+
+    private ConversaoEmVooService service;
+
+    @BeforeEach
+    void configurar() {
+        when(redisTemplate.opsForValue()).thenReturn(valores);
+        when(redisTemplate.opsForSet()).thenReturn(conjuntos);
+        service = new ConversaoEmVooService(redisTemplate, orcamentoConversaoService);
+    }
+
+    @Test
+    void testPrimeiroPedidoReivindicaComPrazoDeFilaEOsSeguintesSeAnexam() {
+        when(valores.setIfAbsent(CHAVE, "usuario-1", ConversaoEmVooService.FILA_TTL)).thenReturn(true);
+        when(valores.setIfAbsent(CHAVE, "usuario-2", ConversaoEmVooService.FILA_TTL)).thenReturn(false);
+
+        assertTrue(service.reivindicar("arquivo-1", " MP4 ", null, "usuario-1"));
+        assertFalse(service.reivindicar("arquivo-1", "mp4", null, "usuario-2"));
+        service.anexar("arquivo-1", "mp4", null, "usuario-2");
+
+        verify(conjuntos).add(ANEXADOS, "usuario-2");
+        verify(redisTemplate).expire(ANEXADOS, ConversaoEmVooService.FILA_TTL);
+    }
+
+    @Test
+    void testRedisIndisponivelNaoBloqueiaAConversao() {
+        when(valores.setIfAbsent(anyString(), any(), any(Duration.class)))
+            .thenThrow(new RedisConnectionFailureException("redis fora"));
+
+        assertTrue(service.reivindicar("arquivo-1", "mp4", null, "usuario-1"));
+    }
+
+    @Test
+    void testExecucaoRenovaReivindicacaoComPrazoCurtoAteSerSuspensa() {
+        service.iniciarExecucao("arquivo-1", "mp4", null);
+        verify(redisTemplate).expire(CHAVE, ConversaoEmVooService.EXECUCAO_TTL);
+
+        service.renovarExecucoes();
+        verify(redisTemplate, times(2)).expire(CHAVE, ConversaoEmVooService.EXECUCAO_TTL);
+        verify(redisTemplate, times(2)).expire(ANEXADOS, ConversaoEmVooService.EXECUCAO_TTL);
+
+        service.suspenderExecucao("arquivo-1", "mp4", null);
+        verify(redisTemplate).expire(CHAVE, ConversaoEmVooService.FILA_TTL);
+
+        clearInvocations(redisTemplate);
+        service.renovarExecucoes();
+        verify(redisTemplate, never()).expire(anyString(), any(Duration.class));
+    }
+
+    @Test
+    void testSegmentosConcorrentesMantemORenovoAteOUltimoTerminar() {
+        service.iniciarExecucao("arquivo-1", "mp4", null);
+        service.iniciarExecucao("arquivo-1", "mp4", null);
+        service.suspenderExecucao("arquivo-1", "mp4", null);
+
+        clearInvocations(redisTemplate);
+        service.renovarExecucoes();
+        verify(redisTemplate).expire(CHAVE, ConversaoEmVooService.EXECUCAO_TTL);
+    }
+
+    @Test
+    void testLiberarRemoveReivindicacaoAnexadosReservaERenovacao() {
+        when(conjuntos.size(ANEXADOS)).thenReturn(2L);
+        service.iniciarExecucao("arquivo-1", "mp4", null);
+
+        service.liberar("arquivo-1", "mp4", null);
+
+        verify(orcamentoConversaoService).liberar(CHAVE);
+        verify(redisTemplate).delete(CHAVE);
+        verify(redisTemplate).delete(ANEXADOS);
+
+        clearInvocations(redisTemplate);
+        service.renovarExecucoes();
+        verify(redisTemplate, never()).expire(eq(CHAVE), any(Duration.class));
+    }
+}
@@ -0,0 +1,132 @@
+package br.com.khawantech.files.transferencia.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import br.com.khawantech.files.transferencia.config.FilaMetricasInterceptor;
+import br.com.khawantech.files.transferencia.config.RabbitConfig;
+import br.com.khawantech.files.transferencia.config.TransferenciaProperties;
+import br.com.khawantech.files.transferencia.dto.ArquivoCompletoEvent;
+import br.com.khawantech.files.transferencia.dto.FormatoImagem;
+import br.com.khawantech.files.transferencia.dto.FormatoVideo;
+import br.com.khawantech.files.transferencia.repository.ArquivoRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ConversaoEspeculativaServiceTest {
+
+    private final VideoConversionService videoConversionService = mock(VideoConversionService.class);
+    private final ImageConversionService imageConversionService = mock(ImageConversionService.class);
+    private final PublicadorEventosService publicador = mock(PublicadorEventosService.class);
+    private final AmqpAdmin amqpAdmin = mock(AmqpAdmin.class);
+    private final FilaMetricasInterceptor filaMetricas = mock(FilaMetricasInterceptor.class);
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final HashOperations<String, Object, Object> hashes = mock(HashOperations.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TransferenciaProperties properties = new TransferenciaProperties();
+
+    private ConversaoEspeculativaService service;
+
+    @BeforeEach
+    void configurar() {
+        when(redisTemplate.opsForHash()).thenReturn(hashes);
+        when(hashes.entries(anyString())).thenReturn(Map.of());
+        when(videoConversionService.isVideoConversivel("video/quicktime")).thenReturn(true);
+        when(videoConversionService.getFormatosDisponiveis("video/quicktime")).thenReturn(List.of(FormatoVideo.MP4));
+        when(amqpAdmin.getQueueInfo(anyString())).thenAnswer(invocacao -> new QueueInformation(invocacao.getArgument(0), 0, 1));
+        properties.getEspeculacao().setHabilitada(true);
+
+        service = new ConversaoEspeculativaService(mock(ArquivoRepository.class), videoConversionService,
+            imageConversionService, publicador, amqpAdmin, redisTemplate, properties,
+            meterRegistry, mock(ExecucaoConversaoRegistry.class), filaMetricas);
+    }
+
+    @Test
+    void testFilasVaziasESemJobsEmExecucaoAgenda() {
+        service.agendar(evento());
+
+        verify(publicador).publicar(eq(RabbitConfig.EXCHANGE_TRANSFERENCIA), eq(RabbitConfig.ROUTING_KEY_CONVERSAO_ESPECULATIVA),
+            any(), any(MessagePostProcessor.class));
+    }
+
+    @Test
+    void testImagemVaiParaAFilaEspeculativaDeImagem() {
+        when(imageConversionService.isImagemConversivel("image/png")).thenReturn(true);
+        when(imageConversionService.getFormatosDisponiveis("image/png")).thenReturn(List.of(FormatoImagem.WEBP));
+        when(hashes.entries("especulacao:pedidos:image/png")).thenReturn(Map.of("webp", 30L));
+
+        service.agendar(ArquivoCompletoEvent.builder().arquivoId("arquivo-2").sessaoId("sessao-1").tipoMime("image/png").build());
+
+        verify(publicador).publicar(eq(RabbitConfig.EXCHANGE_TRANSFERENCIA), eq(RabbitConfig.ROUTING_KEY_CONVERSAO_ESPECULATIVA_IMAGEM),
+            any(), any(MessagePostProcessor.class));
+    }
+
+    @Test
+    void testDesabilitadaNaoAgenda() {
+        properties.getEspeculacao().setHabilitada(false);
+
+        service.agendar(evento());
+
+        verifyNoInteractions(publicador);
+    }
+
+    @Test
+    void testJobEmExecucaoNesteNoImpedeAgendamentoComFilaVazia() {
+        when(filaMetricas.emExecucao(RabbitConfig.QUEUE_VIDEO_SEGMENTO)).thenReturn(1);
+
+        service.agendar(evento());
+
+        verifyNoInteractions(publicador);
+        assertEquals(1.0, ignoradas("fila_ocupada"));
+    }
+
+    @Test
+    void testMensagensProntasNaFilaLegadaImpedemAgendamento() {
+        when(amqpAdmin.getQueueInfo(RabbitConfig.QUEUE_VIDEO_CONVERSION_LEGADO))
+            .thenReturn(new QueueInformation(RabbitConfig.QUEUE_VIDEO_CONVERSION_LEGADO, 2, 1));
+
+        service.agendar(evento());
+
+        verifyNoInteractions(publicador);
+        assertEquals(1.0, ignoradas("fila_ocupada"));
+    }
+
+    @Test
+    void testFilaInacessivelContaComoOcupada() {
+        when(amqpAdmin.getQueueInfo(RabbitConfig.QUEUE_VIDEO_CONVERSION)).thenThrow(new IllegalStateException("broker fora"));
+
+        service.agendar(evento());
+
+        verifyNoInteractions(publicador);
+    }
+
+    private double ignoradas(String motivo) {
+        return meterRegistry.counter(ConversaoEspeculativaService.METRICA_IGNORADAS, "tipo", "video", "motivo", motivo).count();
+    }
+
+    private static ArquivoCompletoEvent evento() {
+        return ArquivoCompletoEvent.builder()
+            .arquivoId("arquivo-1")
+            .sessaoId("sessao-1")
+            .tipoMime("video/quicktime")
+            .build();
+    }
+}
@@ -0,0 +1,115 @@
+package br.com.khawantech.files.transferencia.service;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import br.com.khawantech.files.transferencia.exception.ConversaoCanceladaException;
+
+class ExecucaoConversaoRegistryTest {
+
+    private final CancelamentoConversaoService cancelamentoConversaoService = mock(CancelamentoConversaoService.class);
+    private final ExecucaoConversaoRegistry registry = new ExecucaoConversaoRegistry(cancelamentoConversaoService);
+
+    @Test
+    void testCancelarPorSessaoAtingeTodasAsExecucoesDaSessao() {
+        ExecucaoConversaoRegistry.Execucao primeira = registry.iniciar("sessao-1", "arquivo-1");
+        ExecucaoConversaoRegistry.Execucao segunda = registry.iniciar("sessao-1", "arquivo-2");
+        ExecucaoConversaoRegistry.Execucao outraSessao = registry.iniciar("sessao-2", "arquivo-3");
+
+        assertEquals(2, registry.cancelar("sessao-1", null));
+
+        assertTrue(primeira.isCancelada());
+        assertTrue(segunda.isCancelada());
+        assertFalse(outraSessao.isCancelada());
+    }
+
+    @Test
+    void testCancelarPorArquivoAtingeQualquerArquivoDaExecucao() {
+        ExecucaoConversaoRegistry.Execucao lote = registry.iniciar("sessao-1", "arquivo-1", "arquivo-2");
+        ExecucaoConversaoRegistry.Execucao outra = registry.iniciar("sessao-1", "arquivo-3");
+
+        assertEquals(1, registry.cancelar(null, List.of("arquivo-2", "arquivo-9")));
+
+        assertTrue(lote.isCancelada());
+        assertFalse(outra.isCancelada());
+        assertThrows(ConversaoCanceladaException.class, lote::verificar);
+        assertDoesNotThrow(outra::verificar);
+    }
+
+    @Test
+    void testSemCorrespondenciaNaoCancelaNada() {
+        ExecucaoConversaoRegistry.Execucao execucao = registry.iniciar("sessao-1", "arquivo-1");
+
+        assertEquals(0, registry.cancelar("sessao-2", List.of("arquivo-2")));
+        assertEquals(0, registry.cancelar(null, null));
+
+        assertFalse(execucao.isCancelada());
+    }
+
+    @Test
+    void testExecucaoEncerradaSaiDoRegistro() {
+        ExecucaoConversaoRegistry.Execucao execucao = registry.iniciar("sessao-1", "arquivo-1");
+        execucao.close();
+
+        assertEquals(0, registry.cancelar("sessao-1", List.of("arquivo-1")));
+        assertFalse(execucao.isCancelada());
+    }
+
+    @Test
+    void testJobCanceladoEnquantoNaFilaJaIniciaCancelado() {
+        when(cancelamentoConversaoService.isCancelada(eq("sessao-1"), anyCollection())).thenReturn(true);
+
+        ExecucaoConversaoRegistry.Execucao execucao = registry.iniciar("sessao-1", "arquivo-1");
+
+        assertTrue(execucao.isCancelada());
+        assertThrows(ConversaoCanceladaException.class, registry::verificar);
+        execucao.close();
+        assertDoesNotThrow(registry::verificar);
+    }
+
+    @Test
+    void testTarefaPropagadaEnxergaOCancelamentoNaOutraThread() throws Exception {
+        ExecucaoConversaoRegistry.Execucao execucao = registry.iniciar("sessao-1", "arquivo-1");
+        registry.cancelar("sessao-1", null);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> semPropagar = executor.submit(() -> {
+                registry.verificar();
+                return null;
+            });
+            Future<?> propagada = executor.submit(registry.propagar(() -> {
+                registry.verificar();
+                return null;
+            }));
+            // Execução restaurada ao fim da tarefa: a thread do pool não fica presa a ela
+            Future<?> depois = executor.submit(() -> {
+                registry.verificar();
+                return null;
+            });
+
+            assertDoesNotThrow(() -> semPropagar.get());
+            ExecutionException erro = assertThrows(ExecutionException.class, propagada::get);
+            assertTrue(erro.getCause() instanceof ConversaoCanceladaException);
+            assertDoesNotThrow(() -> depois.get());
+        } finally {
+            executor.shutdownNow();
+            execucao.close();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package br.com.khawantech.files.transferencia.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class MediaCapabilityRegistryTest {
+
+    @Test
+    void testInterpretaListaDeEncodersIgnorandoLegenda() {
+        String saida = """
+            Encoders:
+             V..... = Video
+             A..... = Audio
+             ------
+             V....D libx264              libx264 H.264 / AVC / MPEG-4 AVC (codec h264)
+             A....D aac                  AAC (Advanced Audio Coding)
+            """;
+
+        Set<String> encoders = MediaCapabilityRegistry.interpretarLista(saida);
+
+        assertEquals(Set.of("libx264", "aac"), encoders);
+    }
+
+    @Test
+    void testInterpretaListaDeMuxers() {
+        String saida = """
+            File formats:
+             D. = Demuxing supported
+             .E = Muxing supported
+             --
+              E hls             Apple HTTP Live Streaming
+             DE matroska        Matroska
+            """;
+
+        Set<String> muxers = MediaCapabilityRegistry.interpretarLista(saida);
+
+        assertTrue(muxers.contains("hls"));
+        assertTrue(muxers.contains("matroska"));
+        assertFalse(muxers.contains("d."));
+    }
+
+    @Test
+    void testExtraiEncodersDoPerfilIgnorandoCopia() {
+        List<String> args = List.of("-map", "0:v:0?", "-c:v", "libx264", "-c:a", "copy", "-crf", "23");
+
+        assertEquals(Set.of("libx264"), MediaCapabilityRegistry.encodersDoPerfil(args));
+    }
+}
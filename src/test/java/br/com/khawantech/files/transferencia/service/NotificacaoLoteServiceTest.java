@@ -0,0 +1,172 @@
+package br.com.khawantech.files.transferencia.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import br.com.khawantech.files.transferencia.config.TransferenciaProperties;
+import br.com.khawantech.files.transferencia.dto.NotificacaoLoteResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class NotificacaoLoteServiceTest {
+
+    private static final String SESSAO = "sessao-1";
+    private static final String DESTINO_LOTE = "/topic/sessao/" + SESSAO + "/lote";
+    private static final String DESTINO_PROGRESSO = "/topic/sessao/" + SESSAO + "/progresso";
+
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+    private final TransferenciaProperties properties = new TransferenciaProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private NotificacaoLoteService service;
+
+    @BeforeEach
+    void configurar() {
+        properties.getNotificacaoLote().setHabilitado(true);
+        service = new NotificacaoLoteService(messagingTemplate, properties, meterRegistry);
+    }
+
+    @AfterEach
+    void encerrar() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testEventosComMesmaChaveSaoAgrupadosNoUltimoValorSemPerderAPosicao() {
+        service.agrupar(SESSAO, DESTINO_PROGRESSO, "progresso:a", 10);
+        service.agrupar(SESSAO, DESTINO_PROGRESSO, "progresso:b", 20);
+        service.agrupar(SESSAO, DESTINO_PROGRESSO, "progresso:a", 30);
+
+        service.enviarLotes();
+
+        List<NotificacaoLoteResponse.Evento> eventos = lotesEnviados().get(0).getEventos();
+        assertEquals(List.of(30, 20), eventos.stream().map(NotificacaoLoteResponse.Evento::dados).toList());
+        assertEquals(2.0, meterRegistry.get(NotificacaoLoteService.METRICA_TAMANHO).summary().totalAmount());
+    }
+
+    @Test
+    void testEnvioImediatoEsvaziaOLoteAntes() {
+        service.agrupar(SESSAO, DESTINO_PROGRESSO, "progresso:a", 10);
+
+        service.enviar(SESSAO, "/topic/sessao/" + SESSAO, "USUARIO_ENTROU");
+
+        InOrder ordem = inOrder(messagingTemplate);
+        ordem.verify(messagingTemplate).convertAndSend(eq(DESTINO_LOTE), any(NotificacaoLoteResponse.class));
+        ordem.verify(messagingTemplate).convertAndSend("/topic/sessao/" + SESSAO, (Object) "USUARIO_ENTROU");
+
+        // Já entregue junto com o evento imediato: o tick seguinte não reenvia
+        service.enviarLotes();
+        assertEquals(1, lotesEnviados().size());
+    }
+
+    @Test
+    void testLoteVazioDescartadoRecebeNovosEventosNumNovoLote() {
+        service.enviarLotes();
+        service.agrupar(SESSAO, DESTINO_PROGRESSO, "progresso:a", 10);
+        service.enviarLotes();
+        // Sem eventos no tick: o lote é descartado e o próximo agrupar cria outro
+        service.enviarLotes();
+        service.agrupar(SESSAO, DESTINO_PROGRESSO, "progresso:a", 20);
+        service.enviarLotes();
+
+        List<NotificacaoLoteResponse> lotes = lotesEnviados();
+        assertEquals(2, lotes.size());
+        assertEquals(20, lotes.get(1).getEventos().get(0).dados());
+    }
+
+    @Test
+    void testAgruparConcorrenteComDescarteNaoPerdeEventos() throws Exception {
+        int total = 20_000;
+        AtomicBoolean produzindo = new AtomicBoolean(true);
+        Future<?> produtor = executor.submit(() -> {
+            for (int i = 0; i < total; i++) {
+                service.agrupar(SESSAO, DESTINO_PROGRESSO, "progresso:" + i, i);
+            }
+            produzindo.set(false);
+        });
+        // Ticks em laço abrem repetidamente a janela entre o computeIfAbsent e o lock do agrupar
+        Future<?> ticks = executor.submit(() -> {
+            while (produzindo.get()) {
+                service.enviarLotes();
+            }
+        });
+        produtor.get(10, TimeUnit.SECONDS);
+        ticks.get(10, TimeUnit.SECONDS);
+        service.enviarLotes();
+
+        Set<Object> entregues = new HashSet<>();
+        int eventos = 0;
+        for (NotificacaoLoteResponse lote : lotesEnviados()) {
+            for (NotificacaoLoteResponse.Evento evento : lote.getEventos()) {
+                entregues.add(evento.dados());
+                eventos++;
+            }
+        }
+        assertEquals(total, eventos);
+        assertEquals(total, entregues.size());
+    }
+
+    @Test
+    void testEnvioLentoDoLoteNaoBloqueiaAgrupar() throws Exception {
+        CountDownLatch enviando = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        doAnswer(invocacao -> {
+            enviando.countDown();
+            liberar.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(messagingTemplate).convertAndSend(eq(DESTINO_LOTE), any(NotificacaoLoteResponse.class));
+
+        service.agrupar(SESSAO, DESTINO_PROGRESSO, "progresso:a", 10);
+        Future<?> tick = executor.submit(service::enviarLotes);
+        assertTrue(enviando.await(5, TimeUnit.SECONDS));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(1),
+            () -> service.agrupar(SESSAO, DESTINO_PROGRESSO, "progresso:b", 20));
+
+        liberar.countDown();
+        tick.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testDesabilitadoEnviaDireto() {
+        properties.getNotificacaoLote().setHabilitado(false);
+
+        service.agrupar(SESSAO, DESTINO_PROGRESSO, "progresso:a", 10);
+
+        verify(messagingTemplate).convertAndSend(DESTINO_PROGRESSO, (Object) 10);
+        verify(messagingTemplate, never()).convertAndSend(eq(DESTINO_LOTE), any(NotificacaoLoteResponse.class));
+    }
+
+    private List<NotificacaoLoteResponse> lotesEnviados() {
+        ArgumentCaptor<NotificacaoLoteResponse> lotes = ArgumentCaptor.forClass(NotificacaoLoteResponse.class);
+        verify(messagingTemplate, atLeast(0)).convertAndSend(eq(DESTINO_LOTE), lotes.capture());
+        return lotes.getAllValues();
+    }
+}
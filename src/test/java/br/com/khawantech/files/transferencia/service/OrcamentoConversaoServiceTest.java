@@ -0,0 +1,153 @@
+package br.com.khawantech.files.transferencia.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import br.com.khawantech.files.transferencia.config.TransferenciaProperties;
+import br.com.khawantech.files.transferencia.entity.Arquivo;
+import br.com.khawantech.files.transferencia.exception.OrcamentoConversaoExcedidoException;
+import br.com.khawantech.files.user.entity.User;
+import br.com.khawantech.files.user.entity.UserType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class OrcamentoConversaoServiceTest {
+
+    private static final String CHAVE_VOO = "conversao:voo:arquivo-1:mp4:padrao";
+    private static final String RESERVA = "orcamento:reserva:" + CHAVE_VOO;
+    private static final String RESERVAS_USUARIO = "orcamento:reservas:usuario:usuario-1";
+    private static final String RESERVAS_TIPO = "orcamento:reservas:tipo:FREE";
+
+    private final CustoConversaoService custoConversaoService = mock(CustoConversaoService.class);
+    private final LockRedisService lockRedisService = mock(LockRedisService.class);
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final HashOperations<String, Object, Object> hashes = mock(HashOperations.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final Arquivo arquivo = Arquivo.builder().id("arquivo-1").build();
+    private final User solicitante = User.builder().id("usuario-1").userType(UserType.FREE).build();
+
+    private OrcamentoConversaoService service;
+
+    @BeforeEach
+    void configurar() {
+        when(redisTemplate.opsForHash()).thenReturn(hashes);
+        when(hashes.entries(anyString())).thenReturn(Map.of());
+        when(lockRedisService.adquirirLock("orcamento:FREE")).thenReturn("lock-1");
+        service = new OrcamentoConversaoService(custoConversaoService, lockRedisService, redisTemplate,
+            new TransferenciaProperties(), meterRegistry);
+    }
+
+    @Test
+    void testAdmitirReservaCustoNoUsuarioENoTipo() {
+        when(custoConversaoService.estimar(arquivo, "video-conversao", List.of("mp4"))).thenReturn(120.0);
+
+        service.admitir(arquivo, "video-conversao", "mp4", null, solicitante);
+
+        verify(hashes).putAll(RESERVA, Map.of("usuarioId", "usuario-1", "tipo", "FREE"));
+        ArgumentCaptor<Object> valor = ArgumentCaptor.forClass(Object.class);
+        verify(hashes).put(eq(RESERVAS_USUARIO), eq(CHAVE_VOO), valor.capture());
+        assertTrue(String.valueOf(valor.getValue()).startsWith("120:"));
+        verify(hashes).put(eq(RESERVAS_TIPO), eq(CHAVE_VOO), any());
+        verify(lockRedisService).liberarLock("orcamento:FREE", "lock-1");
+        assertEquals(1.0, meterRegistry.counter(OrcamentoConversaoService.METRICA_ADMITIDAS, "tipo", "FREE").count());
+    }
+
+    @Test
+    void testReservasEmAndamentoRecusamComPrevisao() {
+        long agora = System.currentTimeMillis();
+        when(hashes.entries(RESERVAS_USUARIO)).thenReturn(Map.of("conversao:voo:outro:mp4:padrao", "3500:" + agora));
+        when(custoConversaoService.estimar(arquivo, "video-conversao", List.of("mp4"))).thenReturn(200.0);
+
+        OrcamentoConversaoExcedidoException erro = assertThrows(OrcamentoConversaoExcedidoException.class,
+            () -> service.admitir(arquivo, "video-conversao", "mp4", null, solicitante));
+
+        assertNotNull(erro.getEtaSegundos());
+        assertTrue(erro.getEtaSegundos() > 3000);
+        verify(hashes, never()).putAll(anyString(), any());
+        verify(lockRedisService).liberarLock("orcamento:FREE", "lock-1");
+        assertEquals(1.0, meterRegistry.counter(OrcamentoConversaoService.METRICA_REJEITADAS,
+            "tipo", "FREE", "motivo", "usuario").count());
+    }
+
+    @Test
+    void testCustoAcimaDoLimiteDoPlanoRecusaSemPrevisao() {
+        when(custoConversaoService.estimar(arquivo, "video-conversao", List.of("mp4"))).thenReturn(5000.0);
+
+        OrcamentoConversaoExcedidoException erro = assertThrows(OrcamentoConversaoExcedidoException.class,
+            () -> service.admitir(arquivo, "video-conversao", "mp4", null, solicitante));
+
+        assertNull(erro.getEtaSegundos());
+        verifyNoInteractions(lockRedisService);
+    }
+
+    @Test
+    void testReservaVencidaDeixaDeContarEEhRemovida() {
+        // Validade de 3500s de reserva: 4x a estimativa, pouco menos de 4 horas
+        long admitidaHaCincoHoras = System.currentTimeMillis() - 5 * 3600 * 1000L;
+        when(hashes.entries(RESERVAS_USUARIO)).thenReturn(Map.of("conversao:voo:morto:mp4:padrao", "3500:" + admitidaHaCincoHoras));
+        when(custoConversaoService.estimar(arquivo, "video-conversao", List.of("mp4"))).thenReturn(200.0);
+
+        service.admitir(arquivo, "video-conversao", "mp4", null, solicitante);
+
+        verify(hashes).delete(RESERVAS_USUARIO, "conversao:voo:morto:mp4:padrao");
+        verify(hashes).putAll(eq(RESERVA), any());
+    }
+
+    @Test
+    void testAlvoComOperacaoPropriaUsaSeuCusto() {
+        when(custoConversaoService.estimar(arquivo, "video-remux", List.of("mp4"))).thenReturn(2.0);
+        when(custoConversaoService.estimar(arquivo, "video-conversao", List.of("webm"))).thenReturn(300.0);
+
+        service.admitir(arquivo, "video-conversao", List.of(
+            new OrcamentoConversaoService.AlvoReservado("mp4", null, "video-remux"),
+            new OrcamentoConversaoService.AlvoReservado("webm", null, null)), solicitante);
+
+        verify(hashes).put(eq(RESERVAS_USUARIO), eq(CHAVE_VOO), argThat(valor -> String.valueOf(valor).startsWith("2:")));
+        verify(hashes).put(eq(RESERVAS_USUARIO), eq("conversao:voo:arquivo-1:webm:padrao"),
+            argThat(valor -> String.valueOf(valor).startsWith("300:")));
+    }
+
+    @Test
+    void testLiberarRemoveReservaDoUsuarioEDoTipo() {
+        when(hashes.entries(RESERVA)).thenReturn(Map.of("usuarioId", "usuario-1", "tipo", "FREE"));
+
+        service.liberar(CHAVE_VOO);
+
+        verify(hashes).delete(RESERVAS_USUARIO, CHAVE_VOO);
+        verify(hashes).delete(RESERVAS_TIPO, CHAVE_VOO);
+        verify(redisTemplate).delete(RESERVA);
+    }
+
+    @Test
+    void testLiberarSemReservaNaoAlteraNada() {
+        service.liberar(CHAVE_VOO);
+
+        verify(hashes).entries(RESERVA);
+        verifyNoMoreInteractions(hashes);
+        verify(redisTemplate, never()).delete(anyString());
+    }
+}
@@ -0,0 +1,99 @@
+package br.com.khawantech.files.transferencia.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import br.com.khawantech.files.transferencia.config.RabbitConfig;
+import br.com.khawantech.files.transferencia.config.TransferenciaProperties;
+import br.com.khawantech.files.transferencia.entity.Sessao;
+import br.com.khawantech.files.user.entity.User;
+import br.com.khawantech.files.user.entity.UserType;
+import br.com.khawantech.files.user.service.UserService;
+
+class PrioridadeFilaServiceTest {
+
+    private static final String SESSAO_ID = "sessao-1";
+    private static final String ROUTING_KEY = RabbitConfig.ROUTING_KEY_VIDEO_CONVERSION;
+
+    private final SessaoService sessaoService = mock(SessaoService.class);
+    private final UserService userService = mock(UserService.class);
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, Object> valores = mock(ValueOperations.class);
+    private final TransferenciaProperties properties = new TransferenciaProperties();
+
+    private PrioridadeFilaService service;
+
+    @BeforeEach
+    void configurar() {
+        when(redisTemplate.opsForValue()).thenReturn(valores);
+        when(valores.increment(anyString())).thenReturn(1L);
+        service = new PrioridadeFilaService(sessaoService, userService, redisTemplate, properties);
+    }
+
+    @Test
+    void testPrioridadePorTipoDentroDoOrcamento() {
+        assertEquals(properties.getPrioridade().getPremium(), prioridadePara(UserType.PREMIUM));
+        assertEquals(properties.getPrioridade().getFree(), prioridadePara(UserType.FREE));
+        assertEquals(properties.getPrioridade().getGuest(), prioridadePara(UserType.GUEST));
+    }
+
+    @Test
+    void testPremiumAcimaDoOrcamentoDesceParaFree() {
+        when(valores.increment(startsWith("fila:premium:"))).thenReturn((long) properties.getPrioridade().getPremiumPorJanela() + 1);
+
+        assertEquals(properties.getPrioridade().getFree(), prioridadePara(UserType.PREMIUM));
+    }
+
+    @Test
+    void testFreeAcimaDoOrcamentoDesceAoNivelBase() {
+        when(valores.increment(startsWith("fila:free:"))).thenReturn((long) properties.getPrioridade().getFreePorJanela() + 1);
+
+        assertEquals(properties.getPrioridade().getGuest(), prioridadePara(UserType.FREE));
+        assertEquals(properties.getPrioridade().getGuest(), prioridadePara(UserType.GUEST));
+    }
+
+    @Test
+    void testPrioridadeLimitadaAoMaximoDaFila() {
+        properties.getPrioridade().setPremium(50);
+
+        assertEquals(RabbitConfig.PRIORIDADE_MAXIMA, prioridadePara(UserType.PREMIUM));
+    }
+
+    @Test
+    void testSessaoDesconhecidaUsaFreeEMarcaCabecalho() {
+        when(sessaoService.buscarPorId(SESSAO_ID)).thenThrow(new RuntimeException("não encontrada"));
+
+        Message mensagem = service.daSessao(SESSAO_ID, ROUTING_KEY)
+            .postProcessMessage(new Message(new byte[0], new MessageProperties()));
+
+        assertEquals(properties.getPrioridade().getFree(), mensagem.getMessageProperties().getPriority());
+        assertEquals(UserType.FREE.name(), mensagem.getMessageProperties().getHeader(PrioridadeFilaService.HEADER_TIPO_USUARIO));
+    }
+
+    private int prioridadePara(UserType tipo) {
+        Sessao sessao = new Sessao();
+        sessao.setUsuarioCriadorId("usuario-" + tipo);
+        when(sessaoService.buscarPorId(SESSAO_ID)).thenReturn(sessao);
+        User usuario = new User();
+        usuario.setUserType(tipo);
+        when(userService.findById(sessao.getUsuarioCriadorId())).thenReturn(Optional.of(usuario));
+
+        Message mensagem = service.daSessao(SESSAO_ID, ROUTING_KEY)
+            .postProcessMessage(new Message(new byte[0], new MessageProperties()));
+        return mensagem.getMessageProperties().getPriority();
+    }
+}
@@ -0,0 +1,120 @@
+package br.com.khawantech.files.transferencia.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import br.com.khawantech.files.transferencia.config.RabbitConfig;
+import br.com.khawantech.files.transferencia.config.TransferenciaProperties;
+import br.com.khawantech.files.transferencia.dto.ProgressoUploadResponse;
+import br.com.khawantech.files.transferencia.entity.Arquivo;
+
+class ProgressoUploadAgregadorServiceTest {
+
+    private final WebSocketNotificationService notificationService = mock(WebSocketNotificationService.class);
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+    private final TransferenciaProperties properties = new TransferenciaProperties();
+    private final Arquivo arquivo = Arquivo.builder().id("arquivo-1").sessaoId("sessao-1").totalChunks(10).build();
+
+    private ProgressoUploadAgregadorService service;
+
+    @BeforeEach
+    void configurar() {
+        // Uma atualização por segundo: dentro do teste, tudo depois da primeira fica retido até a janela abrir
+        properties.getProgressoUpload().setAtualizacoesPorSegundo(1);
+        service = new ProgressoUploadAgregadorService(notificationService, rabbitTemplate, properties);
+    }
+
+    @Test
+    void testAtualizacoesDentroDaJanelaSaoAgregadasNaUltimaContagem() throws InterruptedException {
+        service.registrar(arquivo, 1);
+        service.registrar(arquivo, 2);
+        service.registrar(arquivo, 3);
+        service.publicarPendentes();
+
+        assertEquals(List.of(1), chunksPublicados(1));
+
+        abrirJanela();
+        service.publicarPendentes();
+
+        assertEquals(List.of(1, 3), chunksPublicados(2));
+    }
+
+    @Test
+    void testChunksForaDeOrdemNaoFazemAContagemRegredir() throws InterruptedException {
+        service.registrar(arquivo, 5);
+        service.registrar(arquivo, 7);
+        service.registrar(arquivo, 6);
+
+        abrirJanela();
+        service.publicarPendentes();
+        service.registrar(arquivo, 4);
+        service.publicarPendentes();
+
+        assertEquals(List.of(5, 7), chunksPublicados(2));
+    }
+
+    @Test
+    void testConclusaoEhPublicadaNaHoraEDescartaAsAtrasadas() throws InterruptedException {
+        service.registrar(arquivo, 2);
+        service.registrar(arquivo, 8);
+        service.registrar(arquivo, 10);
+        service.registrar(arquivo, 9);
+
+        abrirJanela();
+        service.publicarPendentes();
+
+        ArgumentCaptor<ProgressoUploadResponse> enviados = ArgumentCaptor.forClass(ProgressoUploadResponse.class);
+        verify(notificationService, times(2)).notificarProgresso(eq("sessao-1"), enviados.capture());
+        assertEquals(2, enviados.getAllValues().get(0).getChunkAtual());
+        ProgressoUploadResponse ultimo = enviados.getAllValues().get(1);
+        assertEquals(10, ultimo.getChunkAtual());
+        assertTrue(ultimo.isCompleto());
+        assertEquals(100.0, ultimo.getProgressoPorcentagem());
+    }
+
+    @Test
+    void testModoDistribuidoPublicaNoFanout() {
+        properties.getProgressoUpload().setDistribuido(true);
+
+        service.registrar(arquivo, 1);
+
+        verify(rabbitTemplate).convertAndSend(eq(RabbitConfig.EXCHANGE_PROGRESSO_UPLOAD), eq(""), any(ProgressoUploadResponse.class));
+        verifyNoInteractions(notificationService);
+    }
+
+    @Test
+    void testRelayStompIgnoraOModoDistribuido() {
+        properties.getProgressoUpload().setDistribuido(true);
+        properties.getRelayStomp().setHabilitado(true);
+
+        service.registrar(arquivo, 1);
+
+        verify(notificationService).notificarProgresso(eq("sessao-1"), any(ProgressoUploadResponse.class));
+        verifyNoInteractions(rabbitTemplate);
+    }
+
+    // O intervalo é relido das propriedades a cada tick: subir a taxa abre a janela sem esperar um segundo
+    private void abrirJanela() throws InterruptedException {
+        properties.getProgressoUpload().setAtualizacoesPorSegundo(1000);
+        Thread.sleep(5);
+    }
+
+    private List<Integer> chunksPublicados(int vezes) {
+        ArgumentCaptor<ProgressoUploadResponse> enviados = ArgumentCaptor.forClass(ProgressoUploadResponse.class);
+        verify(notificationService, times(vezes)).notificarProgresso(eq("sessao-1"), enviados.capture());
+        return enviados.getAllValues().stream().map(ProgressoUploadResponse::getChunkAtual).toList();
+    }
+}
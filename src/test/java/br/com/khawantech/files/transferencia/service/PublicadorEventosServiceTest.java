@@ -0,0 +1,180 @@
+package br.com.khawantech.files.transferencia.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+
+import br.com.khawantech.files.transferencia.config.TransferenciaProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PublicadorEventosServiceTest {
+
+    private static final long ESPERA_SEGUNDOS = 5;
+
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+    private final RabbitOperations operacoes = mock(RabbitOperations.class);
+    private final TransferenciaProperties properties = new TransferenciaProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final BlockingQueue<CorrelationData> enviados = new LinkedBlockingQueue<>();
+    private final List<CorrelationData> todos = new CopyOnWriteArrayList<>();
+
+    private PublicadorEventosService service;
+
+    @BeforeEach
+    void configurar() {
+        when(rabbitTemplate.getMessageConverter()).thenReturn(new SimpleMessageConverter());
+        doAnswer(invocacao -> invocacao.<RabbitOperations.OperationsCallback<?>>getArgument(0).doInRabbit(operacoes))
+            .when(rabbitTemplate).invoke(any());
+        doAnswer(invocacao -> {
+            CorrelationData correlacao = invocacao.getArgument(3);
+            todos.add(correlacao);
+            enviados.add(correlacao);
+            return null;
+        }).when(operacoes).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+
+        service = new PublicadorEventosService(rabbitTemplate, properties, meterRegistry);
+        service.iniciar();
+    }
+
+    @AfterEach
+    void encerrar() throws InterruptedException {
+        todos.forEach(correlacao -> correlacao.getFuture().complete(new CorrelationData.Confirm(true, null)));
+        service.encerrar();
+    }
+
+    @Test
+    void testAckEncerraRastreamentoDaCorrelacao() throws InterruptedException {
+        service.publicar("exchange", "rota", "evento");
+        CorrelationData correlacao = proximoEnvio();
+        assertEquals(1.0, naoConfirmadas());
+
+        correlacao.getFuture().complete(new CorrelationData.Confirm(true, null));
+
+        assertEquals(0.0, naoConfirmadas());
+        assertEquals(1, meterRegistry.timer(PublicadorEventosService.METRICA_CONFIRMACAO).count());
+        assertNull(enviados.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testNackRepublicaComAMesmaCorrelacao() throws InterruptedException {
+        service.publicar("exchange", "rota", "evento");
+        CorrelationData primeiro = proximoEnvio();
+
+        // Também é assim que a queda do canal chega: nack para cada envio pendente
+        primeiro.getFuture().complete(new CorrelationData.Confirm(false, "channel closed"));
+
+        CorrelationData segundo = proximoEnvio();
+        assertEquals(primeiro.getId(), segundo.getId());
+        assertEquals(1.0, meterRegistry.counter(PublicadorEventosService.METRICA_REPUBLICADAS, "routingKey", "rota").count());
+    }
+
+    @Test
+    void testConfirmacaoAtrasadaEhReportadaUmaVezSemRepublicar() throws InterruptedException {
+        properties.getPublicacao().setTimeoutConfirmacaoMs(0);
+        service.publicar("exchange", "rota", "evento");
+        CorrelationData correlacao = proximoEnvio();
+        Thread.sleep(2);
+
+        service.reportarConfirmacoesAtrasadas();
+        service.reportarConfirmacoesAtrasadas();
+
+        assertEquals(1.0, meterRegistry.counter(PublicadorEventosService.METRICA_ATRASADAS, "routingKey", "rota").count());
+        assertNull(enviados.poll(200, TimeUnit.MILLISECONDS));
+        assertEquals(1.0, naoConfirmadas());
+
+        correlacao.getFuture().complete(new CorrelationData.Confirm(true, null));
+        assertEquals(0.0, naoConfirmadas());
+    }
+
+    @Test
+    void testEncerramentoRepublicaNackEAguardaConfirmacao() throws Exception {
+        service.publicar("exchange", "rota", "evento");
+        CorrelationData primeiro = proximoEnvio();
+
+        CompletableFuture<Void> encerramento = CompletableFuture.runAsync(() -> {
+            try {
+                service.encerrar();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        primeiro.getFuture().complete(new CorrelationData.Confirm(false, "connection reset"));
+
+        CorrelationData segundo = proximoEnvio();
+        assertEquals(primeiro.getId(), segundo.getId());
+        assertFalse(encerramento.isDone());
+        segundo.getFuture().complete(new CorrelationData.Confirm(true, null));
+
+        encerramento.get(ESPERA_SEGUNDOS, TimeUnit.SECONDS);
+        assertEquals(0.0, naoConfirmadas());
+    }
+
+    @Test
+    void testPublicacaoAposEncerramentoEnviaNaThreadDoChamador() throws InterruptedException {
+        service.encerrar();
+
+        service.publicar("exchange", "rota", "evento");
+
+        assertNotNull(enviados.poll());
+    }
+
+    @Test
+    void testPublicacaoConfirmadaRetornaNoAck() {
+        doAnswer(invocacao -> {
+            invocacao.<CorrelationData>getArgument(3).getFuture().complete(new CorrelationData.Confirm(true, null));
+            return null;
+        }).when(rabbitTemplate).send(eq("exchange"), eq("rota"), any(Message.class), any(CorrelationData.class));
+
+        service.publicarConfirmado("exchange", "rota", "evento");
+
+        assertEquals(1, meterRegistry.timer(PublicadorEventosService.METRICA_CONFIRMACAO).count());
+    }
+
+    @Test
+    void testPublicacaoConfirmadaLancaNoNack() {
+        doAnswer(invocacao -> {
+            invocacao.<CorrelationData>getArgument(3).getFuture().complete(new CorrelationData.Confirm(false, "fila cheia"));
+            return null;
+        }).when(rabbitTemplate).send(eq("exchange"), eq("rota"), any(Message.class), any(CorrelationData.class));
+
+        AmqpException erro = assertThrows(AmqpException.class, () -> service.publicarConfirmado("exchange", "rota", "evento"));
+        assertTrue(erro.getMessage().contains("fila cheia"));
+    }
+
+    private CorrelationData proximoEnvio() throws InterruptedException {
+        CorrelationData correlacao = enviados.poll(ESPERA_SEGUNDOS, TimeUnit.SECONDS);
+        assertNotNull(correlacao, "Evento não foi enviado ao broker");
+        return correlacao;
+    }
+
+    private double naoConfirmadas() {
+        return meterRegistry.get(PublicadorEventosService.METRICA_NAO_CONFIRMADAS).gauge().value();
+    }
+}
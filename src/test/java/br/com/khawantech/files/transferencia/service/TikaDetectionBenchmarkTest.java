@@ -0,0 +1,106 @@
+package br.com.khawantech.files.transferencia.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Executar com: mvn test -Dtest=TikaDetectionBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class TikaDetectionBenchmarkTest {
+
+    private static final int AQUECIMENTO = 200;
+    private static final int ITERACOES = 2000;
+
+    private final TikaFileAnalysisService service = new TikaFileAnalysisService();
+    private final ArquivoSecurityPolicyService policyService = new ArquivoSecurityPolicyService();
+
+    @Test
+    void compararDeteccaoEmCamadasComParserCompleto() throws Exception {
+        Map<String, byte[]> corpus = montarCorpus();
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+        System.out.printf("%-12s %14s %14s %10s%n", "tipo", "parser (us)", "camadas (us)", "economia");
+        for (Map.Entry<String, byte[]> entrada : corpus.entrySet()) {
+            byte[] prefixo = entrada.getValue();
+
+            TikaFileAnalysisService.AnaliseTikaResponse completo = service.analisarComParser(prefixo);
+            TikaFileAnalysisService.AnaliseTikaResponse camadas = service.analisar(prefixo);
+            assertEquals(
+                policyService.avaliar(completo.tipoMimeDetectado(), completo.tipoMimeDetectado(), completo.metadados()),
+                policyService.avaliar(completo.tipoMimeDetectado(), camadas.tipoMimeDetectado(), camadas.metadados()),
+                "Decisão de política divergente para " + entrada.getKey()
+            );
+
+            double parserUs = medirCpuMicros(threadMXBean, service::analisarComParser, prefixo);
+            double camadasUs = medirCpuMicros(threadMXBean, service::analisar, prefixo);
+            System.out.printf("%-12s %14.1f %14.1f %9.0f%%%n",
+                entrada.getKey(), parserUs, camadasUs, (1 - camadasUs / parserUs) * 100);
+        }
+    }
+
+    private static double medirCpuMicros(ThreadMXBean threadMXBean,
+                                         Function<byte[], TikaFileAnalysisService.AnaliseTikaResponse> deteccao,
+                                         byte[] prefixo) {
+        for (int i = 0; i < AQUECIMENTO; i++) {
+            deteccao.apply(prefixo);
+        }
+
+        long inicio = threadMXBean.getCurrentThreadCpuTime();
+        for (int i = 0; i < ITERACOES; i++) {
+            deteccao.apply(prefixo);
+        }
+        return (threadMXBean.getCurrentThreadCpuTime() - inicio) / 1000.0 / ITERACOES;
+    }
+
+    private static Map<String, byte[]> montarCorpus() throws Exception {
+        Map<String, byte[]> corpus = new LinkedHashMap<>();
+        corpus.put("png", preencher(new byte[] {
+            (byte) 0x89, 0x50, 0x4E, 0x47, 0x0D, 0x0A, 0x1A, 0x0A, 0x00, 0x00, 0x00, 0x0D, 0x49, 0x48, 0x44, 0x52
+        }));
+        corpus.put("jpeg", preencher(new byte[] {
+            (byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0x00, 0x10, 0x4A, 0x46, 0x49, 0x46, 0x00
+        }));
+        corpus.put("gif", preencher("GIF89a".getBytes(StandardCharsets.ISO_8859_1)));
+        corpus.put("mp4", preencher(new byte[] {
+            0x00, 0x00, 0x00, 0x18, 0x66, 0x74, 0x79, 0x70, 0x69, 0x73, 0x6F, 0x6D, 0x00, 0x00, 0x02, 0x00
+        }));
+        corpus.put("webm", preencher(new byte[] {
+            0x1A, 0x45, (byte) 0xDF, (byte) 0xA3, (byte) 0x9F, 0x42, (byte) 0x86, (byte) 0x81, 0x01,
+            0x42, (byte) 0x82, (byte) 0x84, 0x77, 0x65, 0x62, 0x6D
+        }));
+        corpus.put("mp3", preencher("ID3\u0004\u0000\u0000\u0000\u0000\u0000\u0000".getBytes(StandardCharsets.ISO_8859_1)));
+        corpus.put("pdf", "%PDF-1.4\n1 0 obj\n<< /Type /Catalog >>\nendobj\n".getBytes(StandardCharsets.ISO_8859_1));
+        corpus.put("zip", zip());
+        corpus.put("texto", "Lorem ipsum dolor sit amet\n".repeat(500).getBytes(StandardCharsets.UTF_8));
+        return corpus;
+    }
+
+    private static byte[] preencher(byte[] cabecalho) {
+        byte[] prefixo = new byte[64 * 1024];
+        System.arraycopy(cabecalho, 0, prefixo, 0, cabecalho.length);
+        return prefixo;
+    }
+
+    private static byte[] zip() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            zip.putNextEntry(new ZipEntry("conteudo.txt"));
+            zip.write("conteudo".getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -2,6 +2,11 @@ package br.com.khawantech.files.transferencia.service;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
 import org.junit.jupiter.api.Test;
 
 public class TikaFileAnalysisServiceTest {
@@ -19,4 +24,36 @@ public class TikaFileAnalysisServiceTest {
         assertEquals("image/png", response.tipoMimeDetectado());
         assertNotNull(response.metadados());
     }
+
+    @Test
+    void deveManterMesmoMimeDoParserParaTiposConclusivos() {
+        byte[] gifHeader = "GIF89a\u0001\u0000\u0001\u0000".getBytes(StandardCharsets.ISO_8859_1);
+        byte[] jpegHeader = new byte[] {
+            (byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0x00, 0x10, 0x4A, 0x46, 0x49, 0x46, 0x00
+        };
+
+        TikaFileAnalysisService service = new TikaFileAnalysisService();
+
+        for (byte[] prefixo : new byte[][] { gifHeader, jpegHeader }) {
+            assertEquals(
+                service.analisarComParser(prefixo).tipoMimeDetectado(),
+                service.analisar(prefixo).tipoMimeDetectado()
+            );
+        }
+    }
+
+    @Test
+    void deveEscalarZipParaParser() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            zip.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+            zip.write("Manifest-Version: 1.0\n".getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+
+        TikaFileAnalysisService service = new TikaFileAnalysisService();
+        TikaFileAnalysisService.AnaliseTikaResponse response = service.analisar(bytes.toByteArray());
+
+        assertEquals(service.analisarComParser(bytes.toByteArray()).tipoMimeDetectado(), response.tipoMimeDetectado());
+    }
 }
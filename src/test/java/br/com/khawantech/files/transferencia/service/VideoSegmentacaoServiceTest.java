@@ -0,0 +1,182 @@
+package br.com.khawantech.files.transferencia.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.github.kokorin.jaffree.ffmpeg.FFmpeg;
+
+import br.com.khawantech.files.transferencia.config.TransferenciaProperties;
+import br.com.khawantech.files.transferencia.dto.CodificacaoSegmentada;
+import br.com.khawantech.files.transferencia.dto.VideoSegmentoEvent;
+
+class VideoSegmentacaoServiceTest {
+
+    private static final String CHAVE = "segmentacao:arquivo-1";
+    private static final String CHAVE_CONCLUIDOS = CHAVE + ":concluidos";
+    private static final String CHAVE_JUNCAO = CHAVE + ":juncao";
+    private static final String PREFIXO = "sessao-1/arquivo-1/segmentos/";
+    private static final String DESTINO = "conversoes/abc/video-conversao/mp4/v2/arquivo-1";
+
+    private final MinioService minioService = mock(MinioService.class);
+    private final ProgressoProcessamentoService progressoService = mock(ProgressoProcessamentoService.class);
+    private final ExecucaoConversaoRegistry execucaoRegistry = mock(ExecucaoConversaoRegistry.class);
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, Object> valores = mock(ValueOperations.class);
+    @SuppressWarnings("unchecked")
+    private final SetOperations<String, Object> conjuntos = mock(SetOperations.class);
+
+    private VideoSegmentacaoService service;
+
+    @BeforeEach
+    void configurar() {
+        when(redisTemplate.opsForValue()).thenReturn(valores);
+        when(redisTemplate.opsForSet()).thenReturn(conjuntos);
+        when(minioService.existeObjeto(anyString())).thenReturn(true);
+        service = new VideoSegmentacaoService(minioService, mock(PublicadorEventosService.class),
+            mock(PrioridadeFilaService.class), progressoService, redisTemplate, new TransferenciaProperties(), execucaoRegistry);
+        ReflectionTestUtils.setField(service, "ffmpegBinDir", "/usr/bin");
+    }
+
+    @Test
+    void testSegmentoIntermediarioSoAtualizaProgresso() {
+        when(valores.get(CHAVE)).thenReturn(codificacao());
+        when(conjuntos.size(CHAVE_CONCLUIDOS)).thenReturn(2L);
+
+        assertTrue(service.processarSegmento(evento(1)).isEmpty());
+
+        verify(conjuntos).add(CHAVE_CONCLUIDOS, 1);
+        verify(progressoService).notificarParcial("sessao-1", "arquivo-1", "video-conversao", 2 * 95.0 / 4);
+        verify(valores, never()).setIfAbsent(anyString(), any(), any(Duration.class));
+    }
+
+    @Test
+    void testUltimoSegmentoSemAJuncaoNaoJunta() {
+        when(valores.get(CHAVE)).thenReturn(codificacao());
+        when(conjuntos.size(CHAVE_CONCLUIDOS)).thenReturn(4L);
+        when(valores.setIfAbsent(eq(CHAVE_JUNCAO), any(), any(Duration.class))).thenReturn(false);
+
+        assertTrue(service.processarSegmento(evento(3)).isEmpty());
+
+        verify(execucaoRegistry, never()).executar(any(FFmpeg.class));
+        verify(minioService, never()).deletarPrefixo(anyString());
+        verify(progressoService, never()).notificarParcial(anyString(), anyString(), anyString(), anyDouble());
+    }
+
+    @Test
+    void testResponsavelPelaJuncaoJuntaELimpaOEstado() {
+        when(valores.get(CHAVE)).thenReturn(codificacao());
+        when(conjuntos.size(CHAVE_CONCLUIDOS)).thenReturn(4L);
+        when(valores.setIfAbsent(eq(CHAVE_JUNCAO), any(), any(Duration.class))).thenReturn(true);
+        when(minioService.uploadArquivo(eq(DESTINO), any(Path.class), eq("video/mp4"))).thenReturn(1234L);
+
+        Optional<VideoSegmentacaoService.SegmentacaoConcluida> concluida = service.processarSegmento(evento(0));
+
+        assertTrue(concluida.isPresent());
+        assertEquals(1234L, concluida.get().tamanhoBytes());
+        verify(execucaoRegistry).executar(any(FFmpeg.class));
+        verify(minioService).deletarPrefixo(PREFIXO);
+        verify(redisTemplate).delete(List.of(CHAVE, CHAVE_CONCLUIDOS, CHAVE_JUNCAO));
+    }
+
+    @Test
+    void testFalhaNaJuncaoLiberaParaNovaTentativa() {
+        when(valores.get(CHAVE)).thenReturn(codificacao());
+        when(conjuntos.size(CHAVE_CONCLUIDOS)).thenReturn(4L);
+        when(valores.setIfAbsent(eq(CHAVE_JUNCAO), any(), any(Duration.class))).thenReturn(true);
+        when(minioService.uploadArquivo(eq(DESTINO), any(Path.class), anyString())).thenThrow(new IllegalStateException("minio fora"));
+
+        assertThrows(IllegalStateException.class, () -> service.processarSegmento(evento(2)));
+
+        verify(redisTemplate).delete(CHAVE_JUNCAO);
+        verify(minioService, never()).deletarPrefixo(anyString());
+    }
+
+    @Test
+    void testCodificacaoInexistenteIgnoraSegmento() {
+        when(valores.get(CHAVE)).thenReturn(null);
+
+        assertTrue(service.processarSegmento(evento(0)).isEmpty());
+
+        verifyNoInteractions(conjuntos);
+    }
+
+    @Test
+    void testSegmentoCodificadoAposEncerramentoEDescartado() {
+        when(valores.get(CHAVE)).thenReturn(codificacao(), (Object) null);
+        when(minioService.existeObjeto(PREFIXO + "saida_00001.mkv")).thenReturn(false);
+
+        assertTrue(service.processarSegmento(evento(1)).isEmpty());
+
+        verify(minioService).deleteArquivo(PREFIXO + "saida_00001.mkv");
+        verifyNoInteractions(conjuntos);
+    }
+
+    @Test
+    void testEncerrarRemoveSegmentosEstadoESaidaParcial() {
+        when(valores.get(CHAVE)).thenReturn(codificacao());
+
+        assertTrue(service.encerrar("sessao-1", "arquivo-1").isPresent());
+
+        verify(redisTemplate).delete(List.of(CHAVE, CHAVE_CONCLUIDOS, CHAVE_JUNCAO));
+        verify(minioService).deletarPrefixo(PREFIXO);
+        verify(minioService).deleteArquivo(DESTINO);
+    }
+
+    @Test
+    void testEncerrarJaEncerradaSoLimpaPrefixo() {
+        when(valores.get(CHAVE)).thenReturn(null);
+
+        assertTrue(service.encerrar("sessao-1", "arquivo-1").isEmpty());
+
+        verify(minioService).deletarPrefixo(PREFIXO);
+        verify(minioService, never()).deleteArquivo(anyString());
+    }
+
+    private static VideoSegmentoEvent evento(int indice) {
+        return VideoSegmentoEvent.builder().arquivoId("arquivo-1").sessaoId("sessao-1").indice(indice).totalSegmentos(4).build();
+    }
+
+    private static CodificacaoSegmentada codificacao() {
+        return CodificacaoSegmentada.builder()
+            .arquivoId("arquivo-1")
+            .arquivoOriginalId("original-1")
+            .sessaoId("sessao-1")
+            .caminhoOriginal("sessao-1/original-1/video.mkv")
+            .extensaoOriginal("mkv")
+            .caminhoDestino(DESTINO)
+            .chaveCache("mp4")
+            .operacao("video-conversao")
+            .formato("mp4")
+            .extensao("mp4")
+            .contentType("video/mp4")
+            .argumentosVideo(List.of("-c:v", "libx264", "-crf", "23"))
+            .argumentosAudio(List.of("-c:a", "aac"))
+            .argumentosContainer(List.of("-movflags", "+faststart"))
+            .totalSegmentos(4)
+            .build();
+    }
+}
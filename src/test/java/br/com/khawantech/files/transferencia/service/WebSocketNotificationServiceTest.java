@@ -0,0 +1,57 @@
+package br.com.khawantech.files.transferencia.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import br.com.khawantech.files.transferencia.dto.NotificacaoResponse;
+import br.com.khawantech.files.transferencia.entity.Arquivo;
+
+class WebSocketNotificationServiceTest {
+
+    private static final String SESSAO = "sessao-1";
+    private static final String DESTINO = "/topic/sessao/" + SESSAO;
+
+    private final NotificacaoLoteService notificacaoLoteService = mock(NotificacaoLoteService.class);
+    private final WebSocketNotificationService service =
+        new WebSocketNotificationService(mock(SimpMessagingTemplate.class), notificacaoLoteService);
+    private final Arquivo arquivo = Arquivo.builder().id("arquivo-1").sessaoId(SESSAO).nomeOriginal("video.mp4").build();
+
+    @Test
+    void testProcessandoEntraNoLote() {
+        service.notificarArquivoProcessando(SESSAO, arquivo);
+
+        verify(notificacaoLoteService).agrupar(eq(SESSAO), eq(DESTINO), eq("ARQUIVO_PROCESSANDO:arquivo-1"), any());
+        verify(notificacaoLoteService, never()).enviar(anyString(), anyString(), any());
+    }
+
+    @Test
+    void testEstadosFinaisSaemNaHora() {
+        service.notificarConversaoConcluida(SESSAO, arquivo);
+        service.notificarConversaoFalhou(SESSAO, arquivo);
+        service.notificarConversaoCancelada(SESSAO, arquivo);
+        service.notificarArquivoDisponivel(SESSAO, "arquivo-1", "video.mp4", "/download", true);
+
+        ArgumentCaptor<Object> enviados = ArgumentCaptor.forClass(Object.class);
+        verify(notificacaoLoteService, times(4)).enviar(eq(SESSAO), eq(DESTINO), enviados.capture());
+        assertEquals(
+            List.of(
+                NotificacaoResponse.TipoNotificacao.ARQUIVO_CONVERTIDO,
+                NotificacaoResponse.TipoNotificacao.CONVERSAO_ERRO,
+                NotificacaoResponse.TipoNotificacao.CONVERSAO_CANCELADA,
+                NotificacaoResponse.TipoNotificacao.ARQUIVO_DISPONIVEL),
+            enviados.getAllValues().stream().map(enviado -> ((NotificacaoResponse) enviado).getTipo()).toList());
+        verify(notificacaoLoteService, never()).agrupar(anyString(), anyString(), anyString(), any());
+    }
+}
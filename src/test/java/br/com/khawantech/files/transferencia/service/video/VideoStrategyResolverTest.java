@@ -0,0 +1,77 @@
+package br.com.khawantech.files.transferencia.service.video;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import br.com.khawantech.files.transferencia.dto.FormatoAudio;
+import br.com.khawantech.files.transferencia.dto.FormatoVideo;
+
+class VideoStrategyResolverTest {
+
+    private final VideoStrategyResolver resolver = new VideoStrategyResolver();
+
+    @Test
+    void testH264ComAacParaMp4CopiaStreamsComFaststart() {
+        Optional<VideoConversionProfile> remux = resolver.resolve(FormatoVideo.MP4).remuxProfile(" H264 ", "AAC");
+
+        assertTrue(remux.isPresent());
+        assertEquals("mp4", remux.get().format());
+        List<String> args = remux.get().args();
+        assertTrue(args.containsAll(List.of("-c", "copy")));
+        assertTrue(args.contains("+faststart"));
+        assertFalse(args.contains("libx264"));
+        assertFalse(args.contains("hvc1"));
+    }
+
+    @Test
+    void testHevcEmMovRecebeTagHvc1() {
+        List<String> args = resolver.resolve(FormatoVideo.MOV).remuxProfile("hevc", "aac").orElseThrow().args();
+
+        int tag = args.indexOf("-tag:v");
+        assertTrue(tag >= 0);
+        assertEquals("hvc1", args.get(tag + 1));
+    }
+
+    @Test
+    void testCodecDeVideoIncompativelRecodifica() {
+        assertTrue(resolver.resolve(FormatoVideo.WEBM).remuxProfile("h264", "opus").isEmpty());
+        assertTrue(resolver.resolve(FormatoVideo.FLV).remuxProfile("hevc", "aac").isEmpty());
+    }
+
+    @Test
+    void testCodecDeAudioIncompativelRecodifica() {
+        assertTrue(resolver.resolve(FormatoVideo.MP4).remuxProfile("h264", "opus").isEmpty());
+    }
+
+    @Test
+    void testCodecDeVideoDesconhecidoRecodifica() {
+        assertTrue(resolver.resolve(FormatoVideo.MKV).remuxProfile(null, "aac").isEmpty());
+    }
+
+    @Test
+    void testVideoSemAudioPodeSerCopiado() {
+        Optional<VideoConversionProfile> remux = resolver.resolve(FormatoVideo.MKV).remuxProfile("vp9", null);
+
+        assertTrue(remux.isPresent());
+        assertFalse(remux.get().args().contains("+faststart"));
+    }
+
+    @Test
+    void testGifNuncaEhRemux() {
+        assertTrue(resolver.resolve(FormatoVideo.GIF).remuxProfile("h264", "aac").isEmpty());
+    }
+
+    @Test
+    void testAudioCopiaQuandoSoMudaOContainer() {
+        assertTrue(FormatoAudio.M4A.aceitaCopia("aac"));
+        assertTrue(FormatoAudio.WEBM.aceitaCopia(" Opus "));
+        assertFalse(FormatoAudio.MP3.aceitaCopia("aac"));
+        assertFalse(FormatoAudio.OPUS.aceitaCopia(null));
+    }
+}
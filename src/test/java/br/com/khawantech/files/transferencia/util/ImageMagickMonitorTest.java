@@ -0,0 +1,44 @@
+package br.com.khawantech.files.transferencia.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class ImageMagickMonitorTest {
+
+    @Test
+    void testFasesSaoConvertidasEmPorcentagemMonotonica() throws Exception {
+        List<Double> progresso = new ArrayList<>();
+        ImageMagickMonitor monitor = new ImageMagickMonitor(progresso::add);
+
+        String saida = "load image[/tmp/input_1.png]: 49 of 99, 50% complete\r"
+            + "load image[/tmp/input_1.png]: 99 of 99, 100% complete\n"
+            + "resize image[/tmp/input_1.png]: 99 of 99, 100% complete\n"
+            + "load image[/tmp/input_1.png]: 10 of 99, 10% complete\r"
+            + "save image[/tmp/output_1.jpg]: 99 of 99, 100% complete\n";
+
+        monitor.consumeError(new ByteArrayInputStream(saida.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(List.of(22.5, 45.0, 55.0, 100.0), progresso);
+        assertEquals("", monitor.getMensagemErro());
+    }
+
+    @Test
+    void testLinhasSemProgressoSaoGuardadasComoErro() throws Exception {
+        List<Double> progresso = new ArrayList<>();
+        ImageMagickMonitor monitor = new ImageMagickMonitor(progresso::add);
+
+        String saida = "convert: improper image header `/tmp/input_1.png' @ error/png.c/ReadPNGImage/4092.\n";
+
+        monitor.consumeError(new ByteArrayInputStream(saida.getBytes(StandardCharsets.UTF_8)));
+
+        assertTrue(progresso.isEmpty());
+        assertTrue(monitor.getMensagemErro().contains("improper image header"));
+    }
+}
@@ -0,0 +1,44 @@
+package br.com.khawantech.files.transferencia.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import br.com.khawantech.files.transferencia.dto.FormatoImagem;
+
+class SeletorCandidatosTest {
+
+    @Test
+    void testEscolheMenorCandidatoAcimaDoPiso() {
+        List<SeletorCandidatos.Candidato> candidatos = List.of(
+            candidato(FormatoImagem.JPEG, 85, 800, 0.99),
+            candidato(FormatoImagem.JPEG, 65, 500, 0.93),
+            candidato(FormatoImagem.WEBP, 75, 600, 0.975)
+        );
+
+        Optional<SeletorCandidatos.Candidato> escolhido = SeletorCandidatos.escolher(candidatos, 0.97, 1000);
+
+        assertTrue(escolhido.isPresent());
+        assertEquals(FormatoImagem.WEBP, escolhido.get().formato());
+        assertEquals(600, escolhido.get().tamanhoBytes());
+    }
+
+    @Test
+    void testNuncaEscolheCandidatoMaiorQueOriginalOuSemPontuacao() {
+        List<SeletorCandidatos.Candidato> candidatos = List.of(
+            candidato(FormatoImagem.PNG, 95, 1200, 1.0),
+            candidato(FormatoImagem.WEBP, 85, 400, null)
+        );
+
+        assertTrue(SeletorCandidatos.escolher(candidatos, 0.97, 1000).isEmpty());
+    }
+
+    private static SeletorCandidatos.Candidato candidato(FormatoImagem formato, int qualidade, long tamanho, Double ssim) {
+        return new SeletorCandidatos.Candidato(formato, qualidade, Path.of("candidato_" + qualidade), tamanho, ssim);
+    }
+}
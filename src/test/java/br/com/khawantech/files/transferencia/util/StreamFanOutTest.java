@@ -0,0 +1,106 @@
+package br.com.khawantech.files.transferencia.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class StreamFanOutTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void encerrar() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testTodosConsumidoresRecebemConteudoCompleto() throws Exception {
+        byte[] dados = new byte[1_000_000];
+        new Random(42).nextBytes(dados);
+
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        StreamFanOut fanOut = new StreamFanOut(executor).adicionarSink(sink);
+        Future<byte[]> completo = fanOut.adicionarConsumidor(true, inputStream -> inputStream.readAllBytes());
+        Future<Integer> parcial = fanOut.adicionarConsumidor(false, inputStream -> inputStream.read(new byte[16]));
+
+        long total = fanOut.transferir(new ByteArrayInputStream(dados));
+
+        assertEquals(dados.length, total);
+        assertArrayEquals(dados, sink.toByteArray());
+        assertArrayEquals(dados, completo.get());
+        assertEquals(16, parcial.get());
+    }
+
+    @Test
+    void testConsumidorOpcionalEncerradoCedoNaoAtrasaBlocosSeguintes() throws Exception {
+        // 400 blocos de 64 KB, bem além da capacidade de 32 blocos do pipe
+        byte[] dados = new byte[400 * 64 * 1024];
+        new Random(11).nextBytes(dados);
+
+        StreamFanOut fanOut = new StreamFanOut(executor);
+        Future<byte[]> completo = fanOut.adicionarConsumidor(true, inputStream -> inputStream.readAllBytes());
+        Future<Integer> parcial = fanOut.adicionarConsumidor(false, inputStream -> inputStream.read(new byte[16]));
+
+        long total = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> fanOut.transferir(new ByteArrayInputStream(dados)));
+
+        assertEquals(dados.length, total);
+        assertArrayEquals(dados, completo.get());
+        assertEquals(16, parcial.get());
+    }
+
+    @Test
+    void testConsumidorObrigatorioEncerradoCedoFalhaTransferencia() {
+        byte[] dados = new byte[5_000_000];
+
+        StreamFanOut fanOut = new StreamFanOut(executor);
+        fanOut.adicionarConsumidor(true, inputStream -> inputStream.read(new byte[16]));
+
+        assertThrows(IOException.class, () -> fanOut.transferir(new ByteArrayInputStream(dados)));
+    }
+
+    @Test
+    void testSaidaEntregaConteudoEscritoAosConsumidores() throws Exception {
+        byte[] dados = new byte[500_000];
+        new Random(7).nextBytes(dados);
+
+        StreamFanOut fanOut = new StreamFanOut(executor);
+        Future<byte[]> completo = fanOut.adicionarConsumidor(true, inputStream -> inputStream.readAllBytes());
+
+        OutputStream saida = fanOut.abrirSaida();
+        for (int offset = 0; offset < dados.length; offset += 7_000) {
+            saida.write(dados, offset, Math.min(7_000, dados.length - offset));
+        }
+        fanOut.concluir();
+
+        assertArrayEquals(dados, completo.get());
+        assertEquals(dados.length, fanOut.getTotalBytes());
+    }
+
+    @Test
+    void testAbortarPropagaFalhaAoConsumidor() throws Exception {
+        StreamFanOut fanOut = new StreamFanOut(executor);
+        Future<byte[]> completo = fanOut.adicionarConsumidor(true, inputStream -> inputStream.readAllBytes());
+
+        fanOut.abrirSaida().write(new byte[128]);
+        fanOut.abortar(new IOException("ffmpeg falhou"));
+
+        ExecutionException erro = assertThrows(ExecutionException.class, completo::get);
+        assertInstanceOf(IOException.class, erro.getCause());
+    }
+}